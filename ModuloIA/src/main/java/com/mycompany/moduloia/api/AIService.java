@@ -16,22 +16,31 @@ import com.mycompany.moduloia.data.TextTsvLoader;
 import com.mycompany.moduloia.features.ImageExtractor;
 import com.mycompany.moduloia.features.TabularExtractor;
 import com.mycompany.moduloia.features.TfidfVectorizer;
+import com.mycompany.moduloia.mlp.ComputePool;
 import com.mycompany.moduloia.mlp.HiddenActivation;
 import com.mycompany.moduloia.mlp.MLP;
 import com.mycompany.moduloia.mlp.OutputActivation;
 import com.mycompany.moduloia.mlp.ParallelMLPTrainer;
+import com.mycompany.moduloia.mlp.Precision;
+import com.mycompany.moduloia.mlp.SparseVector;
 import com.mycompany.moduloia.mlp.TrainingSample;
 import com.mycompany.moduloia.storage.ModelBundle;
+import com.mycompany.moduloia.storage.ModelQuantizer;
 import com.mycompany.moduloia.storage.ModelRegistry;
 import com.mycompany.moduloia.storage.ModelSerializer;
 
 public class AIService {
 
+    // Requests por tarea en predictBatch
+    private static final int PREDICT_GRAIN = 4;
+
     private final Path modelsDir;
     private final ModelRegistry registry;
     private final ModelSerializer serializer = new ModelSerializer();
+    private final ModelQuantizer quantizer = new ModelQuantizer();
 
-    private final ConcurrentHashMap<String, ModelBundle> cache = new ConcurrentHashMap<>();
+    // Bundle + MLP listo para predecir (comparten los pesos: no se reconstruye por predicción)
+    private final ConcurrentHashMap<String, LoadedModel> cache = new ConcurrentHashMap<>();
 
     private final int defaultHiddenSize;
 
@@ -56,7 +65,8 @@ public class AIService {
                          ? req.modelId 
                          : UUID.randomUUID().toString();
 
-        List<double[]> x;
+        List<double[]> x = null;
+        List<SparseVector> sparseX = null; // TFIDF: la primera capa consume los vectores dispersos
         List<double[]> y;
         byte[] extractorState;
         int featureSize;
@@ -73,7 +83,7 @@ public class AIService {
         } else if (req.inputType == InputType.TFIDF) {
             TextDataset ds = new TextTsvLoader().load(req.datasetPath, req.hasHeader, req.outputSize);
             TfidfVectorizer ex = new TfidfVectorizer(req.maxVocab);
-            x = ex.fitTransform(ds.texts);
+            sparseX = ex.fitTransformSparse(ds.texts);
             y = ds.y;
             extractorState = ex.serializeState();
             featureSize = ex.getFeatureSize();
@@ -97,11 +107,15 @@ public class AIService {
         int hiddenSize = computeHiddenSize(featureSize);
         int[] layers = new int[]{featureSize, hiddenSize, req.outputSize};
 
-        MLP mlp = new MLP(layers, hidAct, outAct, 42L);
+        // INT8 es solo de inferencia: se entrena en float y se cuantiza al guardar
+        Precision trainPrecision = req.precision == Precision.INT8 ? Precision.FLOAT32 : req.precision;
+        MLP mlp = new MLP(layers, hidAct, outAct, 42L, trainPrecision);
 
-        List<TrainingSample> samples = new ArrayList<>(x.size());
-        for (int i = 0; i < x.size(); i++) {
-            samples.add(new TrainingSample(x.get(i), y.get(i)));
+        List<TrainingSample> samples = new ArrayList<>(y.size());
+        for (int i = 0; i < y.size(); i++) {
+            samples.add(sparseX != null
+                    ? new TrainingSample(sparseX.get(i), y.get(i))
+                    : new TrainingSample(x.get(i), y.get(i)));
         }
 
         int batchSize = Math.min(32, samples.size());
@@ -113,35 +127,57 @@ public class AIService {
                 batchSize,
                 true,
                 123L,
-                req.numThreads
+                req.numThreads,
+                req.trainingMode
         );
 
 
-        ModelBundle bundle = new ModelBundle(
-                modelId,
-                req.inputType,
-                featureSize,
-                req.outputSize,
-                hidAct,
-                outAct,
-                mlp.getLayerSizes(),
-                mlp.exportWeightsCopy(),
-                mlp.exportBiasesCopy(),
-                extractorState,
-                tfidfMaxVocab
-        );
+        ModelBundle bundle;
+        if (trainPrecision == Precision.FLOAT32) {
+            bundle = new ModelBundle(
+                    modelId,
+                    req.inputType,
+                    featureSize,
+                    req.outputSize,
+                    hidAct,
+                    outAct,
+                    mlp.getLayerSizes(),
+                    mlp.exportWeights32Copy(),
+                    mlp.exportBiases32Copy(),
+                    extractorState,
+                    tfidfMaxVocab
+            );
+        } else {
+            bundle = new ModelBundle(
+                    modelId,
+                    req.inputType,
+                    featureSize,
+                    req.outputSize,
+                    hidAct,
+                    outAct,
+                    mlp.getLayerSizes(),
+                    mlp.exportWeightsCopy(),
+                    mlp.exportBiasesCopy(),
+                    extractorState,
+                    tfidfMaxVocab
+            );
+        }
+        if (req.precision == Precision.INT8) {
+            bundle = quantizer.quantize(bundle);
+        }
 
         Path file = modelFilePath(modelId);
         serializer.save(bundle, file);
 
         registry.put(modelId, file.getFileName().toString());
-        cache.put(modelId, bundle);
+        cache.put(modelId, new LoadedModel(bundle));
 
         return modelId;
     }
 
     public double[] predict(PredictRequest req) {
-        ModelBundle bundle = getOrLoad(req.modelId);
+        LoadedModel model = getOrLoad(req.modelId);
+        ModelBundle bundle = model.bundle;
 
         // Mejora: si el cliente manda un inputType que no coincide, fallamos con mensaje claro
         if (req.inputType != null && req.inputType != bundle.inputType) {
@@ -164,7 +200,7 @@ public class AIService {
             }
             TfidfVectorizer ex = new TfidfVectorizer(bundle.tfidfMaxVocab);
             ex.loadState(bundle.extractorState);
-            features = ex.transformOne(req.textInput);
+            return model.mlp.predict(ex.transformOneSparse(req.textInput));
 
         } else if (bundle.inputType == InputType.IMAGE) {
             ImageExtractor ex = new ImageExtractor(1, 1, true);
@@ -183,14 +219,50 @@ public class AIService {
             throw new IllegalArgumentException("Unsupported inputType: " + bundle.inputType);
         }
 
-        MLP mlp = new MLP(bundle.layerSizes, bundle.hiddenActivation, bundle.outputActivation, 1L);
-        mlp.importParameters(bundle.weights, bundle.biases);
+        return model.mlp.predict(features);
+    }
+
+    /**
+     * predict de varios requests a la vez, repartidos en el pool de cómputo (ComputePool):
+     * out[i] es la salida de reqs.get(i). Si un request falla, se relanza su excepción.
+     */
+    public double[][] predictBatch(List<PredictRequest> reqs) {
+        PredictRequest[] in = reqs.toArray(new PredictRequest[0]);
+        double[][] out = new double[in.length][];
+        ComputePool.forRange(in.length, PREDICT_GRAIN, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = predict(in[i]);
+            }
+        });
+        return out;
+    }
+
+    /**
+     * true si el modelo ya se puede usar para predecir en este servicio (entrenado, importado o
+     * registrado en modelsDir)
+     */
+    public boolean hasModel(String modelId) {
+        return cache.containsKey(modelId) || registry.get(modelId) != null;
+    }
 
-        return mlp.predict(features);
+    /**
+     * Cuantiza a INT8 un modelo ya entrenado (ver ModelQuantizer) y reemplaza su archivo
+     * en modelsDir: las siguientes predicciones usan el kernel int8.
+     */
+    public void quantizeModel(String modelId) {
+        ModelBundle bundle = getOrLoad(modelId).bundle;
+        if (bundle.precision == Precision.INT8) {
+            return;
+        }
+        ModelBundle quantized = quantizer.quantize(bundle);
+        Path file = modelFilePath(modelId);
+        serializer.save(quantized, file);
+        registry.put(modelId, file.getFileName().toString());
+        cache.put(modelId, new LoadedModel(quantized));
     }
 
     public void saveModel(String modelId, Path directory) {
-        ModelBundle bundle = getOrLoad(modelId);
+        ModelBundle bundle = getOrLoad(modelId).bundle;
         try {
             Files.createDirectories(directory);
         } catch (Exception e) {
@@ -211,7 +283,7 @@ public class AIService {
                     + " but file contains " + bundle.modelId);
         }
 
-        cache.put(modelId, bundle);
+        cache.put(modelId, new LoadedModel(bundle));
 
         // Si lo estás cargando dentro del modelsDir principal, lo registramos
         if (dir.equals(modelsDir)) {
@@ -219,8 +291,8 @@ public class AIService {
         }
     }
 
-    private ModelBundle getOrLoad(String modelId) {
-        ModelBundle cached = cache.get(modelId);
+    private LoadedModel getOrLoad(String modelId) {
+        LoadedModel cached = cache.get(modelId);
         if (cached != null) {
             return cached;
         }
@@ -231,9 +303,9 @@ public class AIService {
         }
 
         Path file = modelsDir.resolve(filename);
-        ModelBundle bundle = serializer.load(file);
-        cache.put(modelId, bundle);
-        return bundle;
+        LoadedModel loaded = new LoadedModel(serializer.load(file));
+        cache.put(modelId, loaded);
+        return loaded;
     }
 
     private Path modelFilePath(String modelId) {
@@ -263,4 +335,23 @@ public class AIService {
     private boolean almost(double a, double b) {
         return Math.abs(a - b) < 1e-9;
     }
+
+    private static class LoadedModel {
+        final ModelBundle bundle;
+        final MLP mlp;
+
+        LoadedModel(ModelBundle bundle) {
+            this.bundle = bundle;
+            if (bundle.precision == Precision.INT8) {
+                this.mlp = MLP.wrap(bundle.layerSizes, bundle.hiddenActivation, bundle.outputActivation,
+                        bundle.weightsQ8, bundle.rowScales, bundle.biases32);
+            } else if (bundle.precision == Precision.FLOAT32) {
+                this.mlp = MLP.wrap(bundle.layerSizes, bundle.hiddenActivation, bundle.outputActivation,
+                        bundle.weights32, bundle.biases32);
+            } else {
+                this.mlp = MLP.wrap(bundle.layerSizes, bundle.hiddenActivation, bundle.outputActivation,
+                        bundle.weights, bundle.biases);
+            }
+        }
+    }
 }
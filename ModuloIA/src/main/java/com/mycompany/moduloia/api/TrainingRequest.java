@@ -1,5 +1,8 @@
 package com.mycompany.moduloia.api;
 
+import com.mycompany.moduloia.mlp.Precision;
+import com.mycompany.moduloia.mlp.TrainingMode;
+
 public class TrainingRequest {
 
     public final String modelId;  // Optional: if null, AIService generates one
@@ -22,6 +25,13 @@ public class TrainingRequest {
     public final int imageHeight;
     public final boolean grayscale;
 
+    // Precisión del modelo (FLOAT64 por defecto; FLOAT32 = mitad de memoria y de .bin;
+    // INT8 = entrena en FLOAT32 y guarda el modelo cuantizado, solo para servir)
+    public final Precision precision;
+
+    // Reparto entre hilos de ParallelMLPTrainer (MODEL_AVERAGING por defecto)
+    public final TrainingMode trainingMode;
+
     // Constructor without modelId (backward compatible - AIService will generate one)
     public TrainingRequest(InputType inputType,
                            String datasetPath,
@@ -53,6 +63,46 @@ public class TrainingRequest {
                            int imageWidth,
                            int imageHeight,
                            boolean grayscale) {
+        this(modelId, inputType, datasetPath, inputSize, outputSize, epochs, learningRate,
+             numThreads, hasHeader, maxVocab, imageWidth, imageHeight, grayscale, Precision.FLOAT64);
+    }
+
+    // Constructor with precision
+    public TrainingRequest(String modelId,
+                           InputType inputType,
+                           String datasetPath,
+                           int inputSize,
+                           int outputSize,
+                           int epochs,
+                           double learningRate,
+                           int numThreads,
+                           boolean hasHeader,
+                           int maxVocab,
+                           int imageWidth,
+                           int imageHeight,
+                           boolean grayscale,
+                           Precision precision) {
+        this(modelId, inputType, datasetPath, inputSize, outputSize, epochs, learningRate,
+             numThreads, hasHeader, maxVocab, imageWidth, imageHeight, grayscale, precision,
+             TrainingMode.MODEL_AVERAGING);
+    }
+
+    // Constructor with precision and training mode
+    public TrainingRequest(String modelId,
+                           InputType inputType,
+                           String datasetPath,
+                           int inputSize,
+                           int outputSize,
+                           int epochs,
+                           double learningRate,
+                           int numThreads,
+                           boolean hasHeader,
+                           int maxVocab,
+                           int imageWidth,
+                           int imageHeight,
+                           boolean grayscale,
+                           Precision precision,
+                           TrainingMode trainingMode) {
         this.modelId = modelId;
         this.inputType = inputType;
         this.datasetPath = datasetPath;
@@ -66,5 +116,7 @@ public class TrainingRequest {
         this.imageWidth = imageWidth;
         this.imageHeight = imageHeight;
         this.grayscale = grayscale;
+        this.precision = (precision == null) ? Precision.FLOAT64 : precision;
+        this.trainingMode = (trainingMode == null) ? TrainingMode.MODEL_AVERAGING : trainingMode;
     }
 }
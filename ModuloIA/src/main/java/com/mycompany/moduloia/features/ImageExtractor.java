@@ -1,11 +1,17 @@
 package com.mycompany.moduloia.features;
 
+import com.mycompany.moduloia.mlp.ComputePool;
+
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ImageExtractor implements FeatureExtractor<String> {
 
+    // Imágenes por tarea al preprocesar en el pool
+    private static final int GRAIN = 8;
+
     private int width;
     private int height;
     private boolean grayscale;
@@ -24,12 +30,15 @@ public class ImageExtractor implements FeatureExtractor<String> {
 
     @Override
     public List<double[]> fitTransform(List<String> rawInputs) {
-        // Para imágenes no se “fitea” nada: solo se transforma.
-        List<double[]> out = new ArrayList<>(rawInputs.size());
-        for (String path : rawInputs) {
-            out.add(transformOne(path));
-        }
-        return out;
+        // Para imágenes no se “fitea” nada: solo se transforma (en paralelo, en el pool de cómputo).
+        String[] paths = rawInputs.toArray(new String[0]);
+        double[][] out = new double[paths.length][];
+        ComputePool.forRange(paths.length, GRAIN, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = transformOne(paths[i]);
+            }
+        });
+        return new ArrayList<>(Arrays.asList(out));
     }
 
     @Override
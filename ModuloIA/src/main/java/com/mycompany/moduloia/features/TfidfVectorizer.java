@@ -1,5 +1,8 @@
 package com.mycompany.moduloia.features;
 
+import com.mycompany.moduloia.mlp.ComputePool;
+import com.mycompany.moduloia.mlp.SparseVector;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -9,6 +12,9 @@ import java.util.*;
 
 public class TfidfVectorizer implements FeatureExtractor<String> {
 
+    // Documentos por tarea al transformar en el pool
+    private static final int GRAIN = 64;
+
     private final int maxVocab;
     private Map<String, Integer> vocabIndex = new HashMap<>();
     private double[] idf;
@@ -27,18 +33,45 @@ public class TfidfVectorizer implements FeatureExtractor<String> {
         buildVocab(rawInputs);
         computeIdf(rawInputs);
         List<double[]> out = new ArrayList<>(rawInputs.size());
-        for (String s : rawInputs) {
-            out.add(transformOne(s));
+        for (SparseVector v : transformAllSparse(rawInputs)) {
+            out.add(v.toDense());
         }
         return out;
     }
 
+    /**
+     * Igual que fitTransform pero con vectores dispersos (ver transformOneSparse)
+     */
+    public List<SparseVector> fitTransformSparse(List<String> rawInputs) {
+        buildVocab(rawInputs);
+        computeIdf(rawInputs);
+        return transformAllSparse(rawInputs);
+    }
+
+    // transformOneSparse de cada documento, repartido en el pool de cómputo (vocabulario e idf ya fijos)
+    private List<SparseVector> transformAllSparse(List<String> docs) {
+        String[] in = docs.toArray(new String[0]);
+        SparseVector[] out = new SparseVector[in.length];
+        ComputePool.forRange(in.length, GRAIN, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = transformOneSparse(in[i]);
+            }
+        });
+        return new ArrayList<>(Arrays.asList(out));
+    }
+
     @Override
     public double[] transformOne(String rawInput) {
+        return transformOneSparse(rawInput).toDense();
+    }
+
+    /**
+     * TF-IDF del documento solo en los índices de sus tokens (los demás valen 0)
+     */
+    public SparseVector transformOneSparse(String rawInput) {
         String[] toks = tokenize(rawInput);
-        double[] vec = new double[vocabIndex.size()];
         if (toks.length == 0) {
-            return vec;
+            return new SparseVector(vocabIndex.size(), new int[0], new double[0]);
         }
 
         Map<Integer, Integer> tfCounts = new HashMap<>();
@@ -49,13 +82,21 @@ public class TfidfVectorizer implements FeatureExtractor<String> {
             }
         }
 
+        int[] indices = new int[tfCounts.size()];
+        int p = 0;
+        for (Integer idx : tfCounts.keySet()) {
+            indices[p++] = idx;
+        }
+        Arrays.sort(indices);
+
         int len = toks.length;
-        for (Map.Entry<Integer, Integer> e : tfCounts.entrySet()) {
-            int idx = e.getKey();
-            double tf = (double) e.getValue() / (double) len;
-            vec[idx] = tf * idf[idx];
+        double[] values = new double[indices.length];
+        for (int t = 0; t < indices.length; t++) {
+            int idx = indices[t];
+            double tf = (double) tfCounts.get(idx) / (double) len;
+            values[t] = tf * idf[idx];
         }
-        return vec;
+        return new SparseVector(vocabIndex.size(), indices, values);
     }
 
     private void buildVocab(List<String> docs) {
@@ -0,0 +1,101 @@
+package com.mycompany.moduloia.mlp;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Pool de cómputo compartido del módulo: un solo ForkJoinPool (work-stealing) por JVM para el
+ * entrenamiento paralelo, la inferencia por lotes y la extracción de features.
+ *
+ * Tiene moduloia.threads hilos (por defecto, los cores disponibles). Los hilos son daemon y
+ * viven lo que la JVM: no hay que cerrarlo ni crear pools por llamada.
+ */
+public final class ComputePool {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Integer.getInteger("moduloia.threads", Runtime.getRuntime().availableProcessors()),
+            ComputePool::newWorker,
+            null,
+            false);
+
+    private ComputePool() {
+    }
+
+    /**
+     * Cuerpo de forRange: procesa los índices [from, to)
+     */
+    @FunctionalInterface
+    public interface RangeBody {
+        void run(int from, int to);
+    }
+
+    public static int parallelism() {
+        return POOL.getParallelism();
+    }
+
+    /**
+     * Corre task en el pool y espera a que termine (directo si ya estamos en un hilo del pool)
+     */
+    public static void run(Runnable task) {
+        if (ForkJoinTask.getPool() == POOL) {
+            task.run();
+        } else {
+            POOL.invoke(ForkJoinTask.adapt(task));
+        }
+    }
+
+    /**
+     * body sobre [0, n) partido en tramos de hasta grain índices; los hilos libres roban tramos
+     * (work-stealing). Vuelve cuando terminaron todos; una excepción de body se relanza acá.
+     */
+    public static void forRange(int n, int grain, RangeBody body) {
+        if (n <= 0) {
+            return;
+        }
+        int g = Math.max(1, grain);
+        if (n <= g) {
+            body.run(0, n);
+            return;
+        }
+        RangeTask task = new RangeTask(body, 0, n, g);
+        if (ForkJoinTask.getPool() == POOL) {
+            task.invoke();
+        } else {
+            POOL.invoke(task);
+        }
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        t.setName("moduloia-compute-" + t.getPoolIndex());
+        return t;
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient RangeBody body;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        RangeTask(RangeBody body, int from, int to, int grain) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(body, from, mid, grain), new RangeTask(body, mid, to, grain));
+        }
+    }
+}
@@ -7,55 +7,160 @@ import java.util.Random;
 
 public class MLP {
 
+    // Muestras por tarea al repartir predicciones en el pool (computeAverageLoss)
+    private static final int LOSS_GRAIN = 64;
+
     private final int[] layerSizes;
     private final HiddenActivation hiddenActivation;
     private final OutputActivation outputActivation;
+    private final Precision precision;
 
-    // weights[l][i][j] : capa l (1..L), neurona i, conexión desde neurona j de capa l-1
-    private final double[][][] weights;
+    // weights[l] : capa l (1..L) en un solo arreglo fila-mayor; el peso de la neurona i desde
+    // la neurona j de capa l-1 está en weights[l][i * layerSizes[l-1] + j]
+    private final double[][] weights;
     // biases[l][i] : bias de neurona i en capa l (1..L)
     private final double[][] biases;
 
+    // FLOAT32: mismos layouts en float (weights/biases quedan null y viceversa)
+    private final float[][] weights32;
+    private final float[][] biases32;
+
+    // INT8 (solo inferencia): w[i][j] = weightsQ8[l][i * fanIn + j] * rowScales[l][i]; biases en biases32
+    private final byte[][] weightsQ8;
+    private final float[][] rowScales;
+
     public MLP(int[] layerSizes,
                HiddenActivation hiddenActivation,
                OutputActivation outputActivation,
                long seed) {
-        if (layerSizes == null || layerSizes.length < 2) {
-            throw new IllegalArgumentException("layerSizes must have at least 2 layers (input, output)");
-        }
-        for (int s : layerSizes) {
-            if (s <= 0) {
-                throw new IllegalArgumentException("All layer sizes must be > 0");
-            }
+        this(layerSizes, hiddenActivation, outputActivation, seed, Precision.FLOAT64);
+    }
+
+    public MLP(int[] layerSizes,
+               HiddenActivation hiddenActivation,
+               OutputActivation outputActivation,
+               long seed,
+               Precision precision) {
+        validateLayerSizes(layerSizes);
+        if (precision == Precision.INT8) {
+            throw new IllegalArgumentException("INT8 models are inference-only: quantize a trained model instead");
         }
         this.layerSizes = layerSizes.clone();
         this.hiddenActivation = hiddenActivation;
         this.outputActivation = outputActivation;
+        this.precision = precision;
 
         int L = layerSizes.length - 1;
 
-        this.weights = new double[layerSizes.length][][];
-        this.biases = new double[layerSizes.length][];
+        boolean f32 = precision == Precision.FLOAT32;
+        this.weights = f32 ? null : new double[layerSizes.length][];
+        this.biases = f32 ? null : new double[layerSizes.length][];
+        this.weights32 = f32 ? new float[layerSizes.length][] : null;
+        this.biases32 = f32 ? new float[layerSizes.length][] : null;
+        this.weightsQ8 = null;
+        this.rowScales = null;
 
         Random rnd = new Random(seed);
         for (int l = 1; l <= L; l++) {
             int fanIn = layerSizes[l - 1];
             int fanOut = layerSizes[l];
 
-            weights[l] = new double[fanOut][fanIn];
-            biases[l] = new double[fanOut];
-
-            // Xavier/Glorot uniform init
+            // Xavier/Glorot uniform init (mismo orden que fila por fila; FLOAT32 redondea)
             double limit = Math.sqrt(6.0 / (fanIn + fanOut));
-            for (int i = 0; i < fanOut; i++) {
-                for (int j = 0; j < fanIn; j++) {
-                    weights[l][i][j] = uniform(rnd, -limit, limit);
+            if (f32) {
+                weights32[l] = new float[fanOut * fanIn];
+                biases32[l] = new float[fanOut];
+                float[] w = weights32[l];
+                for (int k = 0; k < w.length; k++) {
+                    w[k] = (float) uniform(rnd, -limit, limit);
+                }
+            } else {
+                weights[l] = new double[fanOut * fanIn];
+                biases[l] = new double[fanOut];
+                double[] w = weights[l];
+                for (int k = 0; k < w.length; k++) {
+                    w[k] = uniform(rnd, -limit, limit);
+                }
+            }
+        }
+    }
+
+    private MLP(int[] layerSizes,
+                HiddenActivation hiddenActivation,
+                OutputActivation outputActivation,
+                double[][] weights,
+                double[][] biases,
+                float[][] weights32,
+                float[][] biases32,
+                byte[][] weightsQ8,
+                float[][] rowScales) {
+        validateLayerSizes(layerSizes);
+        this.layerSizes = layerSizes.clone();
+        this.hiddenActivation = hiddenActivation;
+        this.outputActivation = outputActivation;
+        if (weightsQ8 != null) {
+            this.precision = Precision.INT8;
+        } else {
+            this.precision = weights32 != null ? Precision.FLOAT32 : Precision.FLOAT64;
+        }
+        this.weights = weights;
+        this.biases = biases;
+        this.weights32 = weights32;
+        this.biases32 = biases32;
+        this.weightsQ8 = weightsQ8;
+        this.rowScales = rowScales;
+        for (int l = 1; l < layerSizes.length; l++) {
+            int wLen;
+            if (weightsQ8 != null) {
+                wLen = weightsQ8[l].length;
+                if (rowScales[l].length != layerSizes[l]) {
+                    throw new IllegalArgumentException("row scales layer " + l + " mismatch");
                 }
-                biases[l][i] = 0.0;
+            } else {
+                wLen = weights32 != null ? weights32[l].length : weights[l].length;
             }
+            int bLen = biases32 != null ? biases32[l].length : biases[l].length;
+            checkLayer(l, wLen, bLen);
         }
     }
 
+    /**
+     * MLP que usa directamente los arreglos dados, sin copiarlos: para servir un modelo ya
+     * entrenado (AIService) sin duplicar los pesos del ModelBundle. No entrenar sobre él.
+     */
+    public static MLP wrap(int[] layerSizes,
+                           HiddenActivation hiddenActivation,
+                           OutputActivation outputActivation,
+                           double[][] weights,
+                           double[][] biases) {
+        return new MLP(layerSizes, hiddenActivation, outputActivation, weights, biases, null, null, null, null);
+    }
+
+    /**
+     * Igual que {@link #wrap(int[], HiddenActivation, OutputActivation, double[][], double[][])}
+     * para un modelo FLOAT32
+     */
+    public static MLP wrap(int[] layerSizes,
+                           HiddenActivation hiddenActivation,
+                           OutputActivation outputActivation,
+                           float[][] weights,
+                           float[][] biases) {
+        return new MLP(layerSizes, hiddenActivation, outputActivation, null, null, weights, biases, null, null);
+    }
+
+    /**
+     * MLP INT8 de solo inferencia sobre los arreglos dados (ver storage.ModelQuantizer):
+     * pesos int8 por fila, su escala y los biases en float
+     */
+    public static MLP wrap(int[] layerSizes,
+                           HiddenActivation hiddenActivation,
+                           OutputActivation outputActivation,
+                           byte[][] weights,
+                           float[][] rowScales,
+                           float[][] biases) {
+        return new MLP(layerSizes, hiddenActivation, outputActivation, null, null, null, biases, weights, rowScales);
+    }
+
     public int getInputSize() {
         return layerSizes[0];
     }
@@ -65,16 +170,73 @@ public class MLP {
     }
 
     public double[] predict(double[] input) {
+        if (precision != Precision.FLOAT64) {
+            return predict32(input);
+        }
         ForwardCache cache = forwardWithCache(input);
         return cache.a[cache.a.length - 1];
     }
 
+    /**
+     * predict con entrada dispersa (TF-IDF): la primera capa recorre solo las entradas presentes
+     */
+    public double[] predict(SparseVector input) {
+        if (input.size != getInputSize()) {
+            throw new IllegalArgumentException("Input size mismatch: " + input.size + " != " + getInputSize());
+        }
+        int k = layerSizes[0];
+        int curr = layerSizes[1];
+        if (precision == Precision.FLOAT64) {
+            double[] z = new double[curr];
+            MatrixOps.forwardSparse(input.indices, input.values, weights[1], biases[1], z, 0, k, curr);
+            return propagate(z, 1);
+        }
+        float[] z = new float[curr];
+        if (precision == Precision.INT8) {
+            MatrixOps.forwardInt8Sparse(input.indices, input.values, weightsQ8[1], rowScales[1], biases32[1], z, k, curr);
+        } else {
+            MatrixOps.forwardSparse(input.indices, input.values, weights32[1], biases32[1], z, 0, k, curr);
+        }
+        return propagate32(z, 1);
+    }
+
+    private double[] predict(TrainingSample s) {
+        return s.isSparse() ? predict(s.sparseX) : predict(s.x);
+    }
+
+    /**
+     * Entrena por mini-batches: cada batch corre como productos de matrices (MatrixOps)
+     * sobre buffers reservados una vez por llamada
+     */
     public void train(List<TrainingSample> data,
                       int epochs,
                       double learningRate,
                       int batchSize,
                       boolean shuffle,
                       long seedForShuffle) {
+        train(data, epochs, learningRate, batchSize, shuffle, seedForShuffle, true);
+    }
+
+    /**
+     * Mismo entrenamiento muestra por muestra (forwardWithCache + backprop): la referencia
+     * contra la que se compara el camino por batch
+     */
+    void trainPerSample(List<TrainingSample> data,
+                        int epochs,
+                        double learningRate,
+                        int batchSize,
+                        boolean shuffle,
+                        long seedForShuffle) {
+        train(data, epochs, learningRate, batchSize, shuffle, seedForShuffle, false);
+    }
+
+    private void train(List<TrainingSample> data,
+                       int epochs,
+                       double learningRate,
+                       int batchSize,
+                       boolean shuffle,
+                       long seedForShuffle,
+                       boolean batched) {
         if (data == null || data.isEmpty()) {
             throw new IllegalArgumentException("data must not be null/empty");
         }
@@ -87,14 +249,27 @@ public class MLP {
         if (batchSize <= 0) {
             throw new IllegalArgumentException("batchSize must be > 0");
         }
+        checkTrainable();
+        if (!batched && precision == Precision.FLOAT32) {
+            throw new IllegalStateException("Per-sample training requires FLOAT64");
+        }
 
-        validateSamples(data);
+        boolean sparse = validateSamples(data);
 
         List<TrainingSample> work = new ArrayList<>(data);
         Random rnd = new Random(seedForShuffle);
 
         int n = work.size();
-        int L = layerSizes.length - 1;
+
+        // Gradientes del batch y buffers del camino por batch: del hilo, reusados entre llamadas
+        TrainingWorkspace ws = TrainingWorkspace.forCurrentThread(layerSizes, Math.min(batchSize, n), precision, !sparse);
+        double[][] gradW = ws.gradW;
+        double[][] gradB = ws.gradB;
+        // Entrada dispersa: el update de la capa 1 solo toca (y vuelve a cero) las columnas
+        // presentes en el batch, así que su gradiente se limpia entero una sola vez
+        if (sparse) {
+            ws.clearGradients(false);
+        }
 
         for (int epoch = 1; epoch <= epochs; epoch++) {
             if (shuffle) {
@@ -105,37 +280,203 @@ public class MLP {
                 int end = Math.min(start + batchSize, n);
                 int bsz = end - start;
 
-                double[][][] gradW = new double[layerSizes.length][][];
-                double[][] gradB = new double[layerSizes.length][];
+                ws.clearGradients(sparse);
+                List<TrainingSample> batch = sparse ? work.subList(start, end) : null;
 
-                for (int l = 1; l <= L; l++) {
-                    gradW[l] = new double[layerSizes[l]][layerSizes[l - 1]];
-                    gradB[l] = new double[layerSizes[l]];
+                if (precision == Precision.FLOAT32) {
+                    accumulateBatch32(ws, work, start, bsz);
+                    applyGradients32(ws, learningRate, bsz, batch);
+                    continue;
                 }
 
-                for (int idx = start; idx < end; idx++) {
-                    TrainingSample s = work.get(idx);
+                if (batched) {
+                    accumulateBatch(ws, work, start, bsz);
+                } else {
+                    for (int idx = start; idx < end; idx++) {
+                        TrainingSample s = work.get(idx);
 
-                    ForwardCache cache = forwardWithCache(s.x);
-                    BackpropGrads bg = backprop(cache, s.y);
+                        ForwardCache cache = forwardWithCache(s.denseX());
+                        backprop(cache, s.y, gradW, gradB);
+                    }
+                }
+
+                applyGradients(ws, learningRate, bsz, batch);
+            }
+        }
+    }
 
-                    for (int l = 1; l <= L; l++) {
-                        for (int i = 0; i < layerSizes[l]; i++) {
-                            gradB[l][i] += bg.gradB[l][i];
-                            for (int j = 0; j < layerSizes[l - 1]; j++) {
-                                gradW[l][i][j] += bg.gradW[l][i][j];
+    /**
+     * Update (promedio por batch): w -= lr * (g / bsz). Si sparseBatch no es null la capa 1
+     * solo recorre las columnas de sus muestras (el resto del gradiente vale 0, mismo resultado)
+     * y deja esas posiciones del gradiente en cero.
+     *
+     * Escribe directo sobre weights/biases: en modo HOGWILD (ParallelMLPTrainer) varios hilos
+     * hacen esto a la vez sobre el mismo MLP, sin locks.
+     */
+    private void applyGradients(TrainingWorkspace buf, double learningRate, int bsz, List<TrainingSample> sparseBatch) {
+        double scale = 1.0 / (double) bsz;
+        for (int l = 1; l < layerSizes.length; l++) {
+            double[] w = weights[l];
+            double[] gw = buf.gradW[l];
+            if (l == 1 && sparseBatch != null) {
+                int fanIn = layerSizes[0];
+                for (TrainingSample s : sparseBatch) {
+                    for (int idx : s.sparseX.indices) {
+                        for (int k = idx; k < w.length; k += fanIn) {
+                            double g = gw[k];
+                            if (g != 0.0) {
+                                w[k] -= learningRate * (g * scale);
+                                gw[k] = 0.0;
                             }
                         }
                     }
                 }
+            } else {
+                for (int k = 0; k < w.length; k++) {
+                    w[k] -= learningRate * (gw[k] * scale);
+                }
+            }
+            double[] b = biases[l];
+            double[] gb = buf.gradB[l];
+            for (int i = 0; i < b.length; i++) {
+                b[i] -= learningRate * (gb[i] * scale);
+            }
+        }
+    }
+
+    // ----------------- All-reduce (ParallelMLPTrainer, TrainingMode.ALL_REDUCE) -----------------
 
-                // Update (promedio por batch)
-                double scale = 1.0 / (double) bsz;
-                for (int l = 1; l <= L; l++) {
-                    for (int i = 0; i < layerSizes[l]; i++) {
-                        biases[l][i] -= learningRate * (gradB[l][i] * scale);
-                        for (int j = 0; j < layerSizes[l - 1]; j++) {
-                            weights[l][i][j] -= learningRate * (gradW[l][i][j] * scale);
+    /**
+     * Valida el dataset para entrenar y devuelve si sus entradas son dispersas
+     */
+    boolean checkTrainingData(List<TrainingSample> data) {
+        checkTrainable();
+        return validateSamples(data);
+    }
+
+    /**
+     * Workspace propio (no del hilo) para slices de hasta maxSlice muestras, con los gradientes en cero
+     */
+    TrainingWorkspace newSliceWorkspace(int maxSlice, boolean sparse) {
+        return new TrainingWorkspace(layerSizes, maxSlice, precision, !sparse);
+    }
+
+    /**
+     * Gradientes (sumados, sin aplicar) de work[start, start+len) en ws, con los pesos actuales
+     */
+    void accumulateSlice(TrainingWorkspace ws, List<TrainingSample> work, int start, int len, boolean sparse) {
+        ws.clearGradients(sparse);
+        if (len == 0) {
+            return;
+        }
+        if (precision == Precision.FLOAT32) {
+            accumulateBatch32(ws, work, start, len);
+        } else {
+            accumulateBatch(ws, work, start, len);
+        }
+    }
+
+    /**
+     * Suma los gradientes de parts (en orden) y aplica el update del batch, solo sobre la franja
+     * stripe de stripes: cada hilo toma un tramo distinto de cada arreglo plano, así que todos
+     * pueden llamar a la vez sin pisarse. Con entrada dispersa la capa 1 se reparte por columna
+     * (columna % stripes) y solo recorre las columnas de sparseBatch, dejándolas en cero.
+     */
+    void applyReducedGradients(TrainingWorkspace[] parts, double learningRate, int bsz,
+                               List<TrainingSample> sparseBatch, int stripe, int stripes) {
+        int T = parts.length;
+        for (int l = 1; l < layerSizes.length; l++) {
+            if (precision == Precision.FLOAT32) {
+                float[][] gw = new float[T][];
+                float[][] gb = new float[T][];
+                for (int t = 0; t < T; t++) {
+                    gw[t] = parts[t].gradW32[l];
+                    gb[t] = parts[t].gradB32[l];
+                }
+                if (l > 1 || sparseBatch == null) {
+                    reduceInto(weights32[l], gw, learningRate, bsz, stripe, stripes);
+                }
+                reduceInto(biases32[l], gb, learningRate, bsz, stripe, stripes);
+            } else {
+                double[][] gw = new double[T][];
+                double[][] gb = new double[T][];
+                for (int t = 0; t < T; t++) {
+                    gw[t] = parts[t].gradW[l];
+                    gb[t] = parts[t].gradB[l];
+                }
+                if (l > 1 || sparseBatch == null) {
+                    reduceInto(weights[l], gw, learningRate, bsz, stripe, stripes);
+                }
+                reduceInto(biases[l], gb, learningRate, bsz, stripe, stripes);
+            }
+        }
+        if (sparseBatch != null) {
+            applyReducedSparseFirstLayer(parts, learningRate, bsz, sparseBatch, stripe, stripes);
+        }
+    }
+
+    // target[k] -= lr * (suma de grads[t][k] / bsz) para k en la franja stripe
+    private static void reduceInto(double[] target, double[][] grads, double learningRate, int bsz,
+                                   int stripe, int stripes) {
+        double scale = 1.0 / (double) bsz;
+        int lo = (int) ((long) target.length * stripe / stripes);
+        int hi = (int) ((long) target.length * (stripe + 1) / stripes);
+        for (int k = lo; k < hi; k++) {
+            double g = 0.0;
+            for (double[] part : grads) {
+                g += part[k];
+            }
+            target[k] -= learningRate * (g * scale);
+        }
+    }
+
+    private static void reduceInto(float[] target, float[][] grads, double learningRate, int bsz,
+                                   int stripe, int stripes) {
+        float lr = (float) learningRate;
+        float scale = 1.0f / (float) bsz;
+        int lo = (int) ((long) target.length * stripe / stripes);
+        int hi = (int) ((long) target.length * (stripe + 1) / stripes);
+        for (int k = lo; k < hi; k++) {
+            float g = 0.0f;
+            for (float[] part : grads) {
+                g += part[k];
+            }
+            target[k] -= lr * (g * scale);
+        }
+    }
+
+    private void applyReducedSparseFirstLayer(TrainingWorkspace[] parts, double learningRate, int bsz,
+                                              List<TrainingSample> sparseBatch, int stripe, int stripes) {
+        int fanIn = layerSizes[0];
+        int len = layerSizes[1] * fanIn;
+        boolean f32 = precision == Precision.FLOAT32;
+        double scale = 1.0 / (double) bsz;
+        float lr32 = (float) learningRate;
+        float scale32 = 1.0f / (float) bsz;
+        for (TrainingSample s : sparseBatch) {
+            for (int idx : s.sparseX.indices) {
+                if (idx % stripes != stripe) {
+                    continue;
+                }
+                // Una columna repetida en el batch ya quedó en cero: el segundo paso no cambia nada
+                for (int k = idx; k < len; k += fanIn) {
+                    if (f32) {
+                        float g = 0.0f;
+                        for (TrainingWorkspace p : parts) {
+                            g += p.gradW32[1][k];
+                            p.gradW32[1][k] = 0.0f;
+                        }
+                        if (g != 0.0f) {
+                            weights32[1][k] -= lr32 * (g * scale32);
+                        }
+                    } else {
+                        double g = 0.0;
+                        for (TrainingWorkspace p : parts) {
+                            g += p.gradW[1][k];
+                            p.gradW[1][k] = 0.0;
+                        }
+                        if (g != 0.0) {
+                            weights[1][k] -= learningRate * (g * scale);
                         }
                     }
                 }
@@ -143,28 +484,139 @@ public class MLP {
         }
     }
 
+    // ----------------- Model averaging (ParallelMLPTrainer, TrainingMode.MODEL_AVERAGING) -----------------
+
+    /**
+     * Copia los pesos y biases de src (misma arquitectura y precisión) sobre los de este modelo
+     */
+    void copyParametersFrom(MLP src) {
+        for (int l = 1; l < layerSizes.length; l++) {
+            if (precision == Precision.FLOAT32) {
+                System.arraycopy(src.weights32[l], 0, weights32[l], 0, weights32[l].length);
+                System.arraycopy(src.biases32[l], 0, biases32[l], 0, biases32[l].length);
+            } else {
+                System.arraycopy(src.weights[l], 0, weights[l], 0, weights[l].length);
+                System.arraycopy(src.biases[l], 0, biases[l], 0, biases[l].length);
+            }
+        }
+    }
+
+    /**
+     * Deja en este modelo el promedio de los parámetros de replicas, solo sobre la franja stripe
+     * de stripes de cada arreglo (como applyReducedGradients). La suma va en double en el orden
+     * de replicas.
+     */
+    void averageFrom(MLP[] replicas, int stripe, int stripes) {
+        double inv = 1.0 / (double) replicas.length;
+        for (int l = 1; l < layerSizes.length; l++) {
+            if (precision == Precision.FLOAT32) {
+                float[][] w = new float[replicas.length][];
+                float[][] b = new float[replicas.length][];
+                for (int r = 0; r < replicas.length; r++) {
+                    w[r] = replicas[r].weights32[l];
+                    b[r] = replicas[r].biases32[l];
+                }
+                averageInto(weights32[l], w, inv, stripe, stripes);
+                averageInto(biases32[l], b, inv, stripe, stripes);
+            } else {
+                double[][] w = new double[replicas.length][];
+                double[][] b = new double[replicas.length][];
+                for (int r = 0; r < replicas.length; r++) {
+                    w[r] = replicas[r].weights[l];
+                    b[r] = replicas[r].biases[l];
+                }
+                averageInto(weights[l], w, inv, stripe, stripes);
+                averageInto(biases[l], b, inv, stripe, stripes);
+            }
+        }
+    }
+
+    private static void averageInto(double[] target, double[][] values, double inv, int stripe, int stripes) {
+        int lo = (int) ((long) target.length * stripe / stripes);
+        int hi = (int) ((long) target.length * (stripe + 1) / stripes);
+        for (int k = lo; k < hi; k++) {
+            double sum = 0.0;
+            for (double[] v : values) {
+                sum += v[k];
+            }
+            target[k] = sum * inv;
+        }
+    }
+
+    private static void averageInto(float[] target, float[][] values, double inv, int stripe, int stripes) {
+        int lo = (int) ((long) target.length * stripe / stripes);
+        int hi = (int) ((long) target.length * (stripe + 1) / stripes);
+        for (int k = lo; k < hi; k++) {
+            double sum = 0.0;
+            for (float[] v : values) {
+                sum += v[k];
+            }
+            target[k] = (float) (sum * inv);
+        }
+    }
+
+    /**
+     * Loss promedio sobre data; las predicciones se reparten en el pool (ComputePool) y la suma
+     * se hace en orden, así el resultado no depende de la cantidad de hilos
+     */
     public double computeAverageLoss(List<TrainingSample> data) {
         if (data == null || data.isEmpty()) {
             throw new IllegalArgumentException("data must not be null/empty");
         }
         validateSamples(data);
 
+        int n = data.size();
+        double[] losses = new double[n];
+        ComputePool.forRange(n, LOSS_GRAIN, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                TrainingSample s = data.get(i);
+                losses[i] = loss(predict(s), s.y);
+            }
+        });
+
         double sum = 0.0;
-        for (TrainingSample s : data) {
-            double[] yhat = predict(s.x);
-            sum += loss(yhat, s.y);
+        for (double l : losses) {
+            sum += l;
         }
-        return sum / (double) data.size();
+        return sum / (double) n;
     }
 
     // ----------------- Internals -----------------
 
-    private void validateSamples(List<TrainingSample> data) {
+    private static void validateLayerSizes(int[] layerSizes) {
+        if (layerSizes == null || layerSizes.length < 2) {
+            throw new IllegalArgumentException("layerSizes must have at least 2 layers (input, output)");
+        }
+        for (int s : layerSizes) {
+            if (s <= 0) {
+                throw new IllegalArgumentException("All layer sizes must be > 0");
+            }
+        }
+    }
+
+    private void checkLayer(int l, int weightsLength, int biasesLength) {
+        if (weightsLength != layerSizes[l] * layerSizes[l - 1]) {
+            throw new IllegalArgumentException("weights layer " + l + " size mismatch: "
+                    + weightsLength + " != " + layerSizes[l] + "x" + layerSizes[l - 1]);
+        }
+        if (biasesLength != layerSizes[l]) {
+            throw new IllegalArgumentException("biases layer " + l + " mismatch");
+        }
+    }
+
+    /**
+     * Valida tamaños y devuelve si las entradas son dispersas (todas iguales: no se mezclan)
+     */
+    private boolean validateSamples(List<TrainingSample> data) {
         int in = getInputSize();
         int out = getOutputSize();
+        boolean sparse = data.get(0).isSparse();
         for (TrainingSample s : data) {
-            if (s.x.length != in) {
-                throw new IllegalArgumentException("Sample input size mismatch: " + s.x.length + " != " + in);
+            if (s.isSparse() != sparse) {
+                throw new IllegalArgumentException("Samples must be all dense or all sparse");
+            }
+            if (s.inputSize() != in) {
+                throw new IllegalArgumentException("Sample input size mismatch: " + s.inputSize() + " != " + in);
             }
             if (s.y.length != out) {
                 throw new IllegalArgumentException("Sample target size mismatch: " + s.y.length + " != " + out);
@@ -180,6 +632,7 @@ public class MLP {
                 throw new IllegalArgumentException("SOFTMAX requires outputSize >= 2");
             }
         }
+        return sparse;
     }
 
     private ForwardCache forwardWithCache(double[] input) {
@@ -195,14 +648,10 @@ public class MLP {
             int curr = layerSizes[l];
             int prev = layerSizes[l - 1];
 
+            double[] w = weights[l];
+            double[] in = a[l - 1];
             double[] zl = new double[curr];
-            for (int i = 0; i < curr; i++) {
-                double sum = biases[l][i];
-                for (int j = 0; j < prev; j++) {
-                    sum += weights[l][i][j] * a[l - 1][j];
-                }
-                zl[i] = sum;
-            }
+            MatrixOps.forward(in, w, biases[l], zl, 1, prev, curr);
             z[l] = zl;
 
             double[] al;
@@ -218,17 +667,12 @@ public class MLP {
         return new ForwardCache(a, z);
     }
 
-    private BackpropGrads backprop(ForwardCache cache, double[] target) {
+    /**
+     * Suma los gradientes de una muestra a gradW/gradB (mismo layout que weights/biases)
+     */
+    private void backprop(ForwardCache cache, double[] target, double[][] gradW, double[][] gradB) {
         int L = layerSizes.length - 1;
 
-        double[][][] gradW = new double[layerSizes.length][][];
-        double[][] gradB = new double[layerSizes.length][];
-
-        for (int l = 1; l <= L; l++) {
-            gradW[l] = new double[layerSizes[l]][layerSizes[l - 1]];
-            gradB[l] = new double[layerSizes[l]];
-        }
-
         // delta en capa final (propiedad clave):
         // - softmax + crossentropy => delta = yhat - y
         // - sigmoid + binary crossentropy => delta = yhat - y
@@ -239,39 +683,382 @@ public class MLP {
             delta[i] = yhat[i] - target[i];
         }
 
-        // Gradientes para capa L
-        for (int i = 0; i < layerSizes[L]; i++) {
-            gradB[L][i] = delta[i];
-            for (int j = 0; j < layerSizes[L - 1]; j++) {
-                gradW[L][i][j] = delta[i] * cache.a[L - 1][j];
+        for (int l = L; l >= 1; l--) {
+            if (l < L) {
+                // Backprop a capa oculta l: sum_i W[l+1][i][j] * delta[i], recorriendo W por filas
+                int curr = layerSizes[l];
+                double[] w = weights[l + 1];
+                double[] sums = new double[curr];
+                MatrixOps.backward(delta, w, sums, 1, layerSizes[l + 1], curr);
+                double[] newDelta = new double[curr];
+                for (int j = 0; j < curr; j++) {
+                    // derivada de activación oculta
+                    double deriv = hiddenActivationDerivative(cache.z[l][j], cache.a[l][j]);
+                    newDelta[j] = sums[j] * deriv;
+                }
+                delta = newDelta;
+            }
+
+            // Gradientes para capa l
+            int prev = layerSizes[l - 1];
+            double[] in = cache.a[l - 1];
+            for (int i = 0; i < layerSizes[l]; i++) {
+                gradB[l][i] += delta[i];
             }
+            MatrixOps.accumulateGradient(delta, in, gradW[l], 1, layerSizes[l], prev);
         }
+    }
+
+    /**
+     * Forward y backward de las muestras work[start, start+bsz) como matrices (una fila por
+     * muestra), sumando sus gradientes a buf.gradW/buf.gradB
+     */
+    private void accumulateBatch(TrainingWorkspace buf, List<TrainingSample> work, int start, int bsz) {
+        double[][] gradW = buf.gradW;
+        double[][] gradB = buf.gradB;
+        int L = layerSizes.length - 1;
 
-        // Backprop a capas ocultas
-        for (int l = L - 1; l >= 1; l--) {
-            double[] newDelta = new double[layerSizes[l]];
+        int in = layerSizes[0];
+        boolean sparse = work.get(start).isSparse();
+        if (!sparse) {
+            for (int s = 0; s < bsz; s++) {
+                System.arraycopy(work.get(start + s).x, 0, buf.a[0], s * in, in);
+            }
+        }
 
-            for (int j = 0; j < layerSizes[l]; j++) {
-                double sum = 0.0;
-                for (int i = 0; i < layerSizes[l + 1]; i++) {
-                    sum += weights[l + 1][i][j] * delta[i];
+        for (int l = 1; l <= L; l++) {
+            int prev = layerSizes[l - 1];
+            int curr = layerSizes[l];
+            if (l == 1 && sparse) {
+                // Entrada dispersa: la primera capa no pasa por buf.a[0]
+                for (int s = 0; s < bsz; s++) {
+                    SparseVector x = work.get(start + s).sparseX;
+                    MatrixOps.forwardSparse(x.indices, x.values, weights[1], biases[1], buf.z[1], s * curr, prev, curr);
+                }
+            } else {
+                MatrixOps.forward(buf.a[l - 1], weights[l], biases[l], buf.z[l], bsz, prev, curr);
+            }
+            for (int s = 0; s < bsz; s++) {
+                if (l == L) {
+                    applyOutputActivation(buf.z[l], buf.a[l], s * curr, curr);
+                } else {
+                    applyHiddenActivation(buf.z[l], buf.a[l], s * curr, curr);
                 }
-                // derivada de activación oculta
-                double deriv = hiddenActivationDerivative(cache.z[l][j], cache.a[l][j]);
-                newDelta[j] = sum * deriv;
             }
+        }
 
-            delta = newDelta;
+        // delta en capa final: yhat - y
+        int out = layerSizes[L];
+        double[] delta = buf.delta[L];
+        for (int s = 0; s < bsz; s++) {
+            double[] y = work.get(start + s).y;
+            int off = s * out;
+            for (int i = 0; i < out; i++) {
+                delta[off + i] = buf.a[L][off + i] - y[i];
+            }
+        }
 
-            for (int i = 0; i < layerSizes[l]; i++) {
-                gradB[l][i] = delta[i];
-                for (int j = 0; j < layerSizes[l - 1]; j++) {
-                    gradW[l][i][j] = delta[i] * cache.a[l - 1][j];
+        for (int l = L; l >= 1; l--) {
+            int prev = layerSizes[l - 1];
+            int curr = layerSizes[l];
+            double[] d = buf.delta[l];
+
+            if (l == 1 && sparse) {
+                for (int s = 0; s < bsz; s++) {
+                    SparseVector x = work.get(start + s).sparseX;
+                    MatrixOps.accumulateGradientSparse(d, s * curr, x.indices, x.values, gradW[1], curr, prev);
+                }
+            } else {
+                MatrixOps.accumulateGradient(d, buf.a[l - 1], gradW[l], bsz, curr, prev);
+            }
+            double[] gb = gradB[l];
+            for (int s = 0; s < bsz; s++) {
+                int off = s * curr;
+                for (int i = 0; i < curr; i++) {
+                    gb[i] += d[off + i];
+                }
+            }
+
+            if (l > 1) {
+                // Backprop a capa oculta l-1: (delta * W) por la derivada de la activación
+                double[] next = buf.delta[l - 1];
+                MatrixOps.backward(d, weights[l], next, bsz, curr, prev);
+                double[] zp = buf.z[l - 1];
+                double[] ap = buf.a[l - 1];
+                for (int k = 0; k < bsz * prev; k++) {
+                    next[k] = next[k] * hiddenActivationDerivative(zp[k], ap[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * accumulateBatch en float (FLOAT32): mismos pasos sobre buf.a32/z32/delta32
+     */
+    private void accumulateBatch32(TrainingWorkspace buf, List<TrainingSample> work, int start, int bsz) {
+        float[][] gradW = buf.gradW32;
+        float[][] gradB = buf.gradB32;
+        int L = layerSizes.length - 1;
+
+        int in = layerSizes[0];
+        boolean sparse = work.get(start).isSparse();
+        if (!sparse) {
+            float[] a0 = buf.a32[0];
+            for (int s = 0; s < bsz; s++) {
+                double[] x = work.get(start + s).x;
+                int off = s * in;
+                for (int j = 0; j < in; j++) {
+                    a0[off + j] = (float) x[j];
+                }
+            }
+        }
+
+        for (int l = 1; l <= L; l++) {
+            int prev = layerSizes[l - 1];
+            int curr = layerSizes[l];
+            if (l == 1 && sparse) {
+                for (int s = 0; s < bsz; s++) {
+                    SparseVector x = work.get(start + s).sparseX;
+                    MatrixOps.forwardSparse(x.indices, x.values, weights32[1], biases32[1], buf.z32[1], s * curr, prev, curr);
+                }
+            } else {
+                MatrixOps.forward(buf.a32[l - 1], weights32[l], biases32[l], buf.z32[l], bsz, prev, curr);
+            }
+            for (int s = 0; s < bsz; s++) {
+                if (l == L) {
+                    applyOutputActivation(buf.z32[l], buf.a32[l], s * curr, curr);
+                } else {
+                    applyHiddenActivation(buf.z32[l], buf.a32[l], s * curr, curr);
+                }
+            }
+        }
+
+        int out = layerSizes[L];
+        float[] delta = buf.delta32[L];
+        for (int s = 0; s < bsz; s++) {
+            double[] y = work.get(start + s).y;
+            int off = s * out;
+            for (int i = 0; i < out; i++) {
+                delta[off + i] = buf.a32[L][off + i] - (float) y[i];
+            }
+        }
+
+        for (int l = L; l >= 1; l--) {
+            int prev = layerSizes[l - 1];
+            int curr = layerSizes[l];
+            float[] d = buf.delta32[l];
+
+            if (l == 1 && sparse) {
+                for (int s = 0; s < bsz; s++) {
+                    SparseVector x = work.get(start + s).sparseX;
+                    MatrixOps.accumulateGradientSparse(d, s * curr, x.indices, x.values, gradW[1], curr, prev);
+                }
+            } else {
+                MatrixOps.accumulateGradient(d, buf.a32[l - 1], gradW[l], bsz, curr, prev);
+            }
+            float[] gb = gradB[l];
+            for (int s = 0; s < bsz; s++) {
+                int off = s * curr;
+                for (int i = 0; i < curr; i++) {
+                    gb[i] += d[off + i];
+                }
+            }
+
+            if (l > 1) {
+                float[] next = buf.delta32[l - 1];
+                MatrixOps.backward(d, weights32[l], next, bsz, curr, prev);
+                float[] zp = buf.z32[l - 1];
+                float[] ap = buf.a32[l - 1];
+                for (int k = 0; k < bsz * prev; k++) {
+                    next[k] = (float) (next[k] * hiddenActivationDerivative(zp[k], ap[k]));
+                }
+            }
+        }
+    }
+
+    private void applyGradients32(TrainingWorkspace buf, double learningRate, int bsz, List<TrainingSample> sparseBatch) {
+        float lr = (float) learningRate;
+        float scale = 1.0f / (float) bsz;
+        for (int l = 1; l < layerSizes.length; l++) {
+            float[] w = weights32[l];
+            float[] gw = buf.gradW32[l];
+            if (l == 1 && sparseBatch != null) {
+                int fanIn = layerSizes[0];
+                for (TrainingSample s : sparseBatch) {
+                    for (int idx : s.sparseX.indices) {
+                        for (int k = idx; k < w.length; k += fanIn) {
+                            float g = gw[k];
+                            if (g != 0.0f) {
+                                w[k] -= lr * (g * scale);
+                                gw[k] = 0.0f;
+                            }
+                        }
+                    }
                 }
+            } else {
+                for (int k = 0; k < w.length; k++) {
+                    w[k] -= lr * (gw[k] * scale);
+                }
+            }
+            float[] b = biases32[l];
+            float[] gb = buf.gradB32[l];
+            for (int i = 0; i < b.length; i++) {
+                b[i] -= lr * (gb[i] * scale);
             }
         }
+    }
+
+    private double[] predict32(double[] input) {
+        float[] in = new float[input.length];
+        for (int j = 0; j < input.length; j++) {
+            in[j] = (float) input[j];
+        }
+        float[] z = new float[layerSizes[1]];
+        forward32(in, 1, z);
+        return propagate32(z, 1);
+    }
+
+    private void forward32(float[] in, int l, float[] z) {
+        if (precision == Precision.INT8) {
+            MatrixOps.forwardInt8(in, weightsQ8[l], rowScales[l], biases32[l], z, layerSizes[l - 1], layerSizes[l]);
+        } else {
+            MatrixOps.forward(in, weights32[l], biases32[l], z, 1, layerSizes[l - 1], layerSizes[l]);
+        }
+    }
+
+    // Desde las pre-activaciones z de la capa l hasta la salida (float)
+    private double[] propagate32(float[] z, int l) {
+        int L = layerSizes.length - 1;
+        for (; l < L; l++) {
+            float[] a = new float[layerSizes[l]];
+            applyHiddenActivation(z, a, 0, a.length);
+            z = new float[layerSizes[l + 1]];
+            forward32(a, l + 1, z);
+        }
+        float[] a = new float[layerSizes[L]];
+        applyOutputActivation(z, a, 0, a.length);
+        return toDouble(a);
+    }
+
+    // Desde las pre-activaciones z de la capa l hasta la salida (FLOAT64, mismos pasos que forwardWithCache)
+    private double[] propagate(double[] z, int l) {
+        int L = layerSizes.length - 1;
+        for (; l < L; l++) {
+            double[] a = applyHiddenActivation(z);
+            z = new double[layerSizes[l + 1]];
+            MatrixOps.forward(a, weights[l + 1], biases[l + 1], z, 1, layerSizes[l], layerSizes[l + 1]);
+        }
+        return applyOutputActivation(z);
+    }
 
-        return new BackpropGrads(gradW, gradB);
+    private void applyHiddenActivation(float[] z, float[] a, int off, int len) {
+        if (hiddenActivation == HiddenActivation.RELU) {
+            for (int i = off; i < off + len; i++) {
+                a[i] = Math.max(0.0f, z[i]);
+            }
+            return;
+        }
+        if (hiddenActivation == HiddenActivation.TANH) {
+            for (int i = off; i < off + len; i++) {
+                a[i] = (float) Math.tanh(z[i]);
+            }
+            return;
+        }
+        throw new IllegalStateException("Unknown hidden activation: " + hiddenActivation);
+    }
+
+    private void applyOutputActivation(float[] z, float[] a, int off, int len) {
+        if (outputActivation == OutputActivation.LINEAR) {
+            System.arraycopy(z, off, a, off, len);
+            return;
+        }
+        if (outputActivation == OutputActivation.SIGMOID) {
+            for (int i = off; i < off + len; i++) {
+                a[i] = (float) sigmoid(z[i]);
+            }
+            return;
+        }
+        if (outputActivation == OutputActivation.SOFTMAX) {
+            float max = z[off];
+            for (int i = off + 1; i < off + len; i++) {
+                if (z[i] > max) {
+                    max = z[i];
+                }
+            }
+            // La suma en double: el error de float se acumularía con muchas clases
+            double sum = 0.0;
+            for (int i = off; i < off + len; i++) {
+                a[i] = (float) Math.exp(z[i] - max);
+                sum += a[i];
+            }
+            if (sum == 0.0) {
+                float v = 1.0f / (float) len;
+                for (int i = off; i < off + len; i++) {
+                    a[i] = v;
+                }
+                return;
+            }
+            for (int i = off; i < off + len; i++) {
+                a[i] = (float) (a[i] / sum);
+            }
+            return;
+        }
+        throw new IllegalStateException("Unknown output activation: " + outputActivation);
+    }
+
+    private void applyHiddenActivation(double[] z, double[] a, int off, int len) {
+        if (hiddenActivation == HiddenActivation.RELU) {
+            for (int i = off; i < off + len; i++) {
+                a[i] = Math.max(0.0, z[i]);
+            }
+            return;
+        }
+        if (hiddenActivation == HiddenActivation.TANH) {
+            for (int i = off; i < off + len; i++) {
+                a[i] = Math.tanh(z[i]);
+            }
+            return;
+        }
+        throw new IllegalStateException("Unknown hidden activation: " + hiddenActivation);
+    }
+
+    private void applyOutputActivation(double[] z, double[] a, int off, int len) {
+        if (outputActivation == OutputActivation.LINEAR) {
+            System.arraycopy(z, off, a, off, len);
+            return;
+        }
+        if (outputActivation == OutputActivation.SIGMOID) {
+            for (int i = off; i < off + len; i++) {
+                a[i] = sigmoid(z[i]);
+            }
+            return;
+        }
+        if (outputActivation == OutputActivation.SOFTMAX) {
+            // Igual que softmax(double[]) sobre la fila
+            double max = z[off];
+            for (int i = off + 1; i < off + len; i++) {
+                if (z[i] > max) {
+                    max = z[i];
+                }
+            }
+            double sum = 0.0;
+            for (int i = off; i < off + len; i++) {
+                a[i] = Math.exp(z[i] - max);
+                sum += a[i];
+            }
+            if (sum == 0.0) {
+                double v = 1.0 / (double) len;
+                for (int i = off; i < off + len; i++) {
+                    a[i] = v;
+                }
+                return;
+            }
+            for (int i = off; i < off + len; i++) {
+                a[i] = a[i] / sum;
+            }
+            return;
+        }
+        throw new IllegalStateException("Unknown output activation: " + outputActivation);
     }
 
     private double[] applyHiddenActivation(double[] z) {
@@ -417,17 +1204,7 @@ public class MLP {
         }
     }
 
-    private static class BackpropGrads {
-        final double[][][] gradW;
-        final double[][] gradB;
-
-        BackpropGrads(double[][][] gradW, double[][] gradB) {
-            this.gradW = gradW;
-            this.gradB = gradB;
-        }
-    }
-    
-        public int[] getLayerSizes() {
+    public int[] getLayerSizes() {
         return layerSizes.clone();
     }
 
@@ -439,14 +1216,26 @@ public class MLP {
         return outputActivation;
     }
 
-    public double[][][] exportWeightsCopy() {
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Kernel de los productos densos en uso: "vector DoubleVector xN" o "scalar"
+     */
+    public static String denseKernel() {
+        return MatrixOps.kernelName();
+    }
+
+    /**
+     * Copia de los pesos: un arreglo fila-mayor por capa (índice 0 sin usar).
+     * En FLOAT32 devuelve los valores float ampliados a double (exactos); en INT8, q * escala.
+     */
+    public double[][] exportWeightsCopy() {
         int L = layerSizes.length - 1;
-        double[][][] out = new double[layerSizes.length][][];
+        double[][] out = new double[layerSizes.length][];
         for (int l = 1; l <= L; l++) {
-            out[l] = new double[layerSizes[l]][layerSizes[l - 1]];
-            for (int i = 0; i < layerSizes[l]; i++) {
-                System.arraycopy(weights[l][i], 0, out[l][i], 0, layerSizes[l - 1]);
-            }
+            out[l] = precision == Precision.FLOAT64 ? weights[l].clone() : toDouble(floatWeights(l));
         }
         return out;
     }
@@ -455,30 +1244,114 @@ public class MLP {
         int L = layerSizes.length - 1;
         double[][] out = new double[layerSizes.length][];
         for (int l = 1; l <= L; l++) {
-            out[l] = new double[layerSizes[l]];
-            System.arraycopy(biases[l], 0, out[l], 0, layerSizes[l]);
+            out[l] = precision == Precision.FLOAT64 ? biases[l].clone() : toDouble(biases32[l]);
         }
         return out;
     }
 
-    public void importParameters(double[][][] newWeights, double[][] newBiases) {
+    /**
+     * Copia de los pesos en float (en FLOAT64 redondea cada peso)
+     */
+    public float[][] exportWeights32Copy() {
         int L = layerSizes.length - 1;
+        float[][] out = new float[layerSizes.length][];
+        for (int l = 1; l <= L; l++) {
+            out[l] = precision == Precision.FLOAT64 ? toFloat(weights[l]) : floatWeights(l).clone();
+        }
+        return out;
+    }
 
+    public float[][] exportBiases32Copy() {
+        int L = layerSizes.length - 1;
+        float[][] out = new float[layerSizes.length][];
         for (int l = 1; l <= L; l++) {
-            if (newWeights[l].length != layerSizes[l]) {
-                throw new IllegalArgumentException("weights layer " + l + " rows mismatch");
-            }
-            if (newWeights[l][0].length != layerSizes[l - 1]) {
-                throw new IllegalArgumentException("weights layer " + l + " cols mismatch");
+            out[l] = precision == Precision.FLOAT64 ? toFloat(biases[l]) : biases32[l].clone();
+        }
+        return out;
+    }
+
+    // Pesos de la capa l en float: FLOAT32 sin copiar, INT8 descuantizados
+    private float[] floatWeights(int l) {
+        if (precision != Precision.INT8) {
+            return weights32[l];
+        }
+        int fanIn = layerSizes[l - 1];
+        byte[] q = weightsQ8[l];
+        float[] out = new float[q.length];
+        for (int i = 0; i < layerSizes[l]; i++) {
+            float scale = rowScales[l][i];
+            int row = i * fanIn;
+            for (int j = 0; j < fanIn; j++) {
+                out[row + j] = q[row + j] * scale;
             }
-            if (newBiases[l].length != layerSizes[l]) {
-                throw new IllegalArgumentException("biases layer " + l + " mismatch");
+        }
+        return out;
+    }
+
+    /**
+     * Copia los parámetros dados al modelo (en FLOAT32 se redondean a float)
+     */
+    public void importParameters(double[][] newWeights, double[][] newBiases) {
+        checkTrainable();
+        int L = layerSizes.length - 1;
+
+        for (int l = 1; l <= L; l++) {
+            checkLayer(l, newWeights[l].length, newBiases[l].length);
+            if (precision == Precision.FLOAT32) {
+                copyInto(newWeights[l], weights32[l]);
+                copyInto(newBiases[l], biases32[l]);
+            } else {
+                System.arraycopy(newWeights[l], 0, weights[l], 0, weights[l].length);
+                System.arraycopy(newBiases[l], 0, biases[l], 0, layerSizes[l]);
             }
+        }
+    }
 
-            for (int i = 0; i < layerSizes[l]; i++) {
-                System.arraycopy(newWeights[l][i], 0, weights[l][i], 0, layerSizes[l - 1]);
+    public void importParameters(float[][] newWeights, float[][] newBiases) {
+        checkTrainable();
+        int L = layerSizes.length - 1;
+
+        for (int l = 1; l <= L; l++) {
+            checkLayer(l, newWeights[l].length, newBiases[l].length);
+            if (precision == Precision.FLOAT32) {
+                System.arraycopy(newWeights[l], 0, weights32[l], 0, weights32[l].length);
+                System.arraycopy(newBiases[l], 0, biases32[l], 0, layerSizes[l]);
+            } else {
+                copyInto(newWeights[l], weights[l]);
+                copyInto(newBiases[l], biases[l]);
             }
-            System.arraycopy(newBiases[l], 0, biases[l], 0, layerSizes[l]);
+        }
+    }
+
+    private void checkTrainable() {
+        if (precision == Precision.INT8) {
+            throw new IllegalStateException("INT8 models are inference-only");
+        }
+    }
+
+    private static double[] toDouble(float[] v) {
+        double[] out = new double[v.length];
+        for (int k = 0; k < v.length; k++) {
+            out[k] = v[k];
+        }
+        return out;
+    }
+
+    private static void copyInto(float[] src, double[] dst) {
+        for (int k = 0; k < src.length; k++) {
+            dst[k] = src[k];
+        }
+    }
+
+    private static float[] toFloat(double[] v) {
+        float[] out = new float[v.length];
+        copyInto(v, out);
+        return out;
+    }
+
+    private static void copyInto(double[] src, float[] dst) {
+        for (int k = 0; k < src.length; k++) {
+            dst[k] = (float) src[k];
         }
     }
 }
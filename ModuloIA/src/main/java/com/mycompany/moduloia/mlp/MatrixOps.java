@@ -0,0 +1,467 @@
+package com.mycompany.moduloia.mlp;
+
+import java.util.Arrays;
+
+/**
+ * Productos de matrices del MLP (batch en MLP.train, rows = 1 en forwardWithCache/backprop).
+ *
+ * Matrices fila-mayor en double[] (o float[] en modo FLOAT32); "rows" es el tamaño del batch. Los bloques solo cambian
+ * el orden de recorrido: cada suma acumula en el mismo orden para cualquier rows, así el
+ * batch y el camino por muestra dan resultados idénticos bit a bit.
+ *
+ * Si jdk.incubator.vector está disponible (--add-modules jdk.incubator.vector) se delega en
+ * VectorMatrixOps; si no, o con -Dmoduloia.simd=false, se usan los loops escalares de abajo.
+ * La elección depende solo de k (la dimensión que recorre el vector), nunca de rows.
+ */
+final class MatrixOps {
+
+    static final String SIMD_PROPERTY = "moduloia.simd";
+
+    private static final boolean VECTOR_AVAILABLE = detectVector();
+    private static boolean useVector = VECTOR_AVAILABLE;
+    // Con k menor que un vector solo quedan colas: el escalar es más rápido
+    private static final int MIN_VECTOR_K = VECTOR_AVAILABLE ? VectorMatrixOps.lanes() : Integer.MAX_VALUE;
+    private static final int MIN_VECTOR_K_FLOAT = VECTOR_AVAILABLE ? VectorMatrixOps.floatLanes() : Integer.MAX_VALUE;
+    private static final int MIN_VECTOR_K_INT8 =
+            VECTOR_AVAILABLE && VectorMatrixOps.int8Supported() ? VectorMatrixOps.floatLanes() : Integer.MAX_VALUE;
+
+    private MatrixOps() {
+    }
+
+    private static boolean detectVector() {
+        if ("false".equalsIgnoreCase(System.getProperty(SIMD_PROPERTY))) {
+            return false;
+        }
+        try {
+            // Sin el módulo incubator la clase no enlaza; con 1 lane no hay nada que ganar
+            return VectorMatrixOps.lanes() > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    static boolean vectorAvailable() {
+        return VECTOR_AVAILABLE;
+    }
+
+    /**
+     * Activa/desactiva los kernels vectoriales (tests y benchmarks). Devuelve el valor anterior.
+     */
+    static boolean setVectorEnabled(boolean enabled) {
+        boolean previous = useVector;
+        useVector = enabled && VECTOR_AVAILABLE;
+        return previous;
+    }
+
+    static String kernelName() {
+        return useVector
+                ? "vector DoubleVector x" + VectorMatrixOps.lanes() + ", FloatVector x" + VectorMatrixOps.floatLanes()
+                : "scalar";
+    }
+
+    /**
+     * Z = A * W^T + b  (A: rows x k, W: n x k, Z: rows x n)
+     * Bloques de 4 neuronas x 2 muestras: las 4 filas de W quedan en cache mientras se
+     * recorre el batch. Cada z suma j = 0..k-1 partiendo del bias.
+     */
+    static void forward(double[] a, double[] w, double[] b, double[] z, int rows, int k, int n) {
+        if (useVector && k >= MIN_VECTOR_K) {
+            VectorMatrixOps.forward(a, w, b, z, rows, k, n);
+            return;
+        }
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            int w0 = i * k;
+            int w1 = w0 + k;
+            int w2 = w1 + k;
+            int w3 = w2 + k;
+            int s = 0;
+            for (; s + 1 < rows; s += 2) {
+                int a0 = s * k;
+                int a1 = a0 + k;
+                double z00 = b[i], z01 = b[i + 1], z02 = b[i + 2], z03 = b[i + 3];
+                double z10 = z00, z11 = z01, z12 = z02, z13 = z03;
+                for (int j = 0; j < k; j++) {
+                    double x0 = a[a0 + j];
+                    double x1 = a[a1 + j];
+                    double v0 = w[w0 + j], v1 = w[w1 + j], v2 = w[w2 + j], v3 = w[w3 + j];
+                    z00 += v0 * x0;
+                    z01 += v1 * x0;
+                    z02 += v2 * x0;
+                    z03 += v3 * x0;
+                    z10 += v0 * x1;
+                    z11 += v1 * x1;
+                    z12 += v2 * x1;
+                    z13 += v3 * x1;
+                }
+                int o0 = s * n + i;
+                int o1 = o0 + n;
+                z[o0] = z00;
+                z[o0 + 1] = z01;
+                z[o0 + 2] = z02;
+                z[o0 + 3] = z03;
+                z[o1] = z10;
+                z[o1 + 1] = z11;
+                z[o1 + 2] = z12;
+                z[o1 + 3] = z13;
+            }
+            for (; s < rows; s++) {
+                for (int r = i; r < i + 4; r++) {
+                    z[s * n + r] = dot(w, r * k, a, s * k, k, b[r]);
+                }
+            }
+        }
+        for (; i < n; i++) {
+            for (int s = 0; s < rows; s++) {
+                z[s * n + i] = dot(w, i * k, a, s * k, k, b[i]);
+            }
+        }
+    }
+
+    /**
+     * G += D^T * A  (D: rows x n, A: rows x k, G: n x k), acumulando las muestras en orden.
+     * Bloques de 4 filas de G: cada fila de A se lee una vez por bloque.
+     */
+    static void accumulateGradient(double[] d, double[] a, double[] g, int rows, int n, int k) {
+        if (useVector && k >= MIN_VECTOR_K) {
+            VectorMatrixOps.accumulateGradient(d, a, g, rows, n, k);
+            return;
+        }
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            int g0 = i * k;
+            int g1 = g0 + k;
+            int g2 = g1 + k;
+            int g3 = g2 + k;
+            for (int s = 0; s < rows; s++) {
+                int ds = s * n + i;
+                double d0 = d[ds], d1 = d[ds + 1], d2 = d[ds + 2], d3 = d[ds + 3];
+                int as = s * k;
+                for (int j = 0; j < k; j++) {
+                    double x = a[as + j];
+                    g[g0 + j] += d0 * x;
+                    g[g1 + j] += d1 * x;
+                    g[g2 + j] += d2 * x;
+                    g[g3 + j] += d3 * x;
+                }
+            }
+        }
+        for (; i < n; i++) {
+            int gi = i * k;
+            for (int s = 0; s < rows; s++) {
+                double di = d[s * n + i];
+                int as = s * k;
+                for (int j = 0; j < k; j++) {
+                    g[gi + j] += di * a[as + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * T = D * W  (D: rows x n, W: n x k, T: rows x k): el error propagado a la capa anterior.
+     * Bloques de 4 muestras: cada fila de W se lee una vez por bloque. Cada t suma i = 0..n-1.
+     */
+    static void backward(double[] d, double[] w, double[] t, int rows, int n, int k) {
+        if (useVector && k >= MIN_VECTOR_K) {
+            VectorMatrixOps.backward(d, w, t, rows, n, k);
+            return;
+        }
+        Arrays.fill(t, 0, rows * k, 0.0);
+        int s = 0;
+        for (; s + 3 < rows; s += 4) {
+            int t0 = s * k;
+            int t1 = t0 + k;
+            int t2 = t1 + k;
+            int t3 = t2 + k;
+            for (int i = 0; i < n; i++) {
+                double d0 = d[s * n + i];
+                double d1 = d[(s + 1) * n + i];
+                double d2 = d[(s + 2) * n + i];
+                double d3 = d[(s + 3) * n + i];
+                int wi = i * k;
+                for (int j = 0; j < k; j++) {
+                    double v = w[wi + j];
+                    t[t0 + j] += v * d0;
+                    t[t1 + j] += v * d1;
+                    t[t2 + j] += v * d2;
+                    t[t3 + j] += v * d3;
+                }
+            }
+        }
+        for (; s < rows; s++) {
+            int ts = s * k;
+            for (int i = 0; i < n; i++) {
+                double di = d[s * n + i];
+                int wi = i * k;
+                for (int j = 0; j < k; j++) {
+                    t[ts + j] += w[wi + j] * di;
+                }
+            }
+        }
+    }
+
+    // ----------------- float (Precision.FLOAT32) -----------------
+    // Mismos recorridos que las versiones double; acumulan en float.
+
+    static void forward(float[] a, float[] w, float[] b, float[] z, int rows, int k, int n) {
+        if (useVector && k >= MIN_VECTOR_K_FLOAT) {
+            VectorMatrixOps.forward(a, w, b, z, rows, k, n);
+            return;
+        }
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            int w0 = i * k;
+            int w1 = w0 + k;
+            int w2 = w1 + k;
+            int w3 = w2 + k;
+            int s = 0;
+            for (; s + 1 < rows; s += 2) {
+                int a0 = s * k;
+                int a1 = a0 + k;
+                float z00 = b[i], z01 = b[i + 1], z02 = b[i + 2], z03 = b[i + 3];
+                float z10 = z00, z11 = z01, z12 = z02, z13 = z03;
+                for (int j = 0; j < k; j++) {
+                    float x0 = a[a0 + j];
+                    float x1 = a[a1 + j];
+                    float v0 = w[w0 + j], v1 = w[w1 + j], v2 = w[w2 + j], v3 = w[w3 + j];
+                    z00 += v0 * x0;
+                    z01 += v1 * x0;
+                    z02 += v2 * x0;
+                    z03 += v3 * x0;
+                    z10 += v0 * x1;
+                    z11 += v1 * x1;
+                    z12 += v2 * x1;
+                    z13 += v3 * x1;
+                }
+                int o0 = s * n + i;
+                int o1 = o0 + n;
+                z[o0] = z00;
+                z[o0 + 1] = z01;
+                z[o0 + 2] = z02;
+                z[o0 + 3] = z03;
+                z[o1] = z10;
+                z[o1 + 1] = z11;
+                z[o1 + 2] = z12;
+                z[o1 + 3] = z13;
+            }
+            for (; s < rows; s++) {
+                for (int r = i; r < i + 4; r++) {
+                    z[s * n + r] = dot(w, r * k, a, s * k, k, b[r]);
+                }
+            }
+        }
+        for (; i < n; i++) {
+            for (int s = 0; s < rows; s++) {
+                z[s * n + i] = dot(w, i * k, a, s * k, k, b[i]);
+            }
+        }
+    }
+
+    static void accumulateGradient(float[] d, float[] a, float[] g, int rows, int n, int k) {
+        if (useVector && k >= MIN_VECTOR_K_FLOAT) {
+            VectorMatrixOps.accumulateGradient(d, a, g, rows, n, k);
+            return;
+        }
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            int g0 = i * k;
+            int g1 = g0 + k;
+            int g2 = g1 + k;
+            int g3 = g2 + k;
+            for (int s = 0; s < rows; s++) {
+                int ds = s * n + i;
+                float d0 = d[ds], d1 = d[ds + 1], d2 = d[ds + 2], d3 = d[ds + 3];
+                int as = s * k;
+                for (int j = 0; j < k; j++) {
+                    float x = a[as + j];
+                    g[g0 + j] += d0 * x;
+                    g[g1 + j] += d1 * x;
+                    g[g2 + j] += d2 * x;
+                    g[g3 + j] += d3 * x;
+                }
+            }
+        }
+        for (; i < n; i++) {
+            int gi = i * k;
+            for (int s = 0; s < rows; s++) {
+                float di = d[s * n + i];
+                int as = s * k;
+                for (int j = 0; j < k; j++) {
+                    g[gi + j] += di * a[as + j];
+                }
+            }
+        }
+    }
+
+    static void backward(float[] d, float[] w, float[] t, int rows, int n, int k) {
+        if (useVector && k >= MIN_VECTOR_K_FLOAT) {
+            VectorMatrixOps.backward(d, w, t, rows, n, k);
+            return;
+        }
+        Arrays.fill(t, 0, rows * k, 0.0f);
+        int s = 0;
+        for (; s + 3 < rows; s += 4) {
+            int t0 = s * k;
+            int t1 = t0 + k;
+            int t2 = t1 + k;
+            int t3 = t2 + k;
+            for (int i = 0; i < n; i++) {
+                float d0 = d[s * n + i];
+                float d1 = d[(s + 1) * n + i];
+                float d2 = d[(s + 2) * n + i];
+                float d3 = d[(s + 3) * n + i];
+                int wi = i * k;
+                for (int j = 0; j < k; j++) {
+                    float v = w[wi + j];
+                    t[t0 + j] += v * d0;
+                    t[t1 + j] += v * d1;
+                    t[t2 + j] += v * d2;
+                    t[t3 + j] += v * d3;
+                }
+            }
+        }
+        for (; s < rows; s++) {
+            int ts = s * k;
+            for (int i = 0; i < n; i++) {
+                float di = d[s * n + i];
+                int wi = i * k;
+                for (int j = 0; j < k; j++) {
+                    t[ts + j] += w[wi + j] * di;
+                }
+            }
+        }
+    }
+
+    // ----------------- int8 (Precision.INT8, solo inferencia) -----------------
+
+    /**
+     * z = b + escala * (Q * x)  (x: k, Q: n x k en int8 con una escala por fila, z: n).
+     * Una sola muestra (predict); bloques de 4 neuronas que comparten la lectura de x.
+     */
+    static void forwardInt8(float[] x, byte[] q, float[] scale, float[] b, float[] z, int k, int n) {
+        if (useVector && k >= MIN_VECTOR_K_INT8) {
+            VectorMatrixOps.forwardInt8(x, q, scale, b, z, k, n);
+            return;
+        }
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            int q0 = i * k;
+            int q1 = q0 + k;
+            int q2 = q1 + k;
+            int q3 = q2 + k;
+            float s0 = 0.0f, s1 = 0.0f, s2 = 0.0f, s3 = 0.0f;
+            for (int j = 0; j < k; j++) {
+                float v = x[j];
+                s0 += q[q0 + j] * v;
+                s1 += q[q1 + j] * v;
+                s2 += q[q2 + j] * v;
+                s3 += q[q3 + j] * v;
+            }
+            z[i] = b[i] + scale[i] * s0;
+            z[i + 1] = b[i + 1] + scale[i + 1] * s1;
+            z[i + 2] = b[i + 2] + scale[i + 2] * s2;
+            z[i + 3] = b[i + 3] + scale[i + 3] * s3;
+        }
+        for (; i < n; i++) {
+            int qi = i * k;
+            float sum = 0.0f;
+            for (int j = 0; j < k; j++) {
+                sum += q[qi + j] * x[j];
+            }
+            z[i] = b[i] + scale[i] * sum;
+        }
+    }
+
+    // ----------------- entrada dispersa (primera capa, ver SparseVector) -----------------
+    // Escalares: cada acceso es un gather por índice, no hay tramo contiguo que vectorizar.
+
+    /**
+     * z[zOff + i] = b[i] + suma_t W[i][idx[t]] * val[t]  (x disperso de largo k, W: n x k).
+     * Cada z suma las entradas presentes en orden de índice: lo mismo que el forward escalar
+     * sobre el vector denso, donde los ceros no cambian la suma.
+     */
+    static void forwardSparse(int[] idx, double[] val, double[] w, double[] b, double[] z, int zOff, int k, int n) {
+        int nnz = idx.length;
+        for (int i = 0; i < n; i++) {
+            int row = i * k;
+            double sum = b[i];
+            for (int t = 0; t < nnz; t++) {
+                sum += w[row + idx[t]] * val[t];
+            }
+            z[zOff + i] = sum;
+        }
+    }
+
+    /**
+     * G[i][idx[t]] += d[dOff + i] * val[t]: gradiente de la primera capa para una muestra
+     * dispersa; solo toca las columnas presentes (G: n x k)
+     */
+    static void accumulateGradientSparse(double[] d, int dOff, int[] idx, double[] val, double[] g, int n, int k) {
+        int nnz = idx.length;
+        for (int i = 0; i < n; i++) {
+            double di = d[dOff + i];
+            if (di == 0.0) {
+                continue;
+            }
+            int row = i * k;
+            for (int t = 0; t < nnz; t++) {
+                g[row + idx[t]] += di * val[t];
+            }
+        }
+    }
+
+    static void forwardSparse(int[] idx, double[] val, float[] w, float[] b, float[] z, int zOff, int k, int n) {
+        int nnz = idx.length;
+        for (int i = 0; i < n; i++) {
+            int row = i * k;
+            float sum = b[i];
+            for (int t = 0; t < nnz; t++) {
+                sum += w[row + idx[t]] * (float) val[t];
+            }
+            z[zOff + i] = sum;
+        }
+    }
+
+    static void accumulateGradientSparse(float[] d, int dOff, int[] idx, double[] val, float[] g, int n, int k) {
+        int nnz = idx.length;
+        for (int i = 0; i < n; i++) {
+            float di = d[dOff + i];
+            if (di == 0.0f) {
+                continue;
+            }
+            int row = i * k;
+            for (int t = 0; t < nnz; t++) {
+                g[row + idx[t]] += di * (float) val[t];
+            }
+        }
+    }
+
+    static void forwardInt8Sparse(int[] idx, double[] val, byte[] q, float[] scale, float[] b, float[] z, int k, int n) {
+        int nnz = idx.length;
+        for (int i = 0; i < n; i++) {
+            int row = i * k;
+            float sum = 0.0f;
+            for (int t = 0; t < nnz; t++) {
+                sum += q[row + idx[t]] * (float) val[t];
+            }
+            z[i] = b[i] + scale[i] * sum;
+        }
+    }
+
+    private static double dot(double[] w, int wOff, double[] a, int aOff, int k, double init) {
+        double sum = init;
+        for (int j = 0; j < k; j++) {
+            sum += w[wOff + j] * a[aOff + j];
+        }
+        return sum;
+    }
+
+    private static float dot(float[] w, int wOff, float[] a, int aOff, int k, float init) {
+        float sum = init;
+        for (int j = 0; j < k; j++) {
+            sum += w[wOff + j] * a[aOff + j];
+        }
+        return sum;
+    }
+}
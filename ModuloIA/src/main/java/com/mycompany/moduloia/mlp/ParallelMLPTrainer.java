@@ -4,12 +4,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
+/**
+ * Entrenamiento data-parallel sobre el pool compartido (ComputePool): no crea hilos por
+ * llamada. numThreads define cómo se reparte el trabajo (y por lo tanto el resultado); cuántos
+ * hilos corren a la vez lo define el pool.
+ */
 public class ParallelMLPTrainer {
 
     public static void trainDataParallel(MLP globalModel,
@@ -20,6 +20,19 @@ public class ParallelMLPTrainer {
                                          boolean shuffle,
                                          long seedForShuffle,
                                          int requestedThreads) {
+        trainDataParallel(globalModel, data, epochs, learningRate, batchSize, shuffle, seedForShuffle,
+                requestedThreads, TrainingMode.MODEL_AVERAGING);
+    }
+
+    public static void trainDataParallel(MLP globalModel,
+                                         List<TrainingSample> data,
+                                         int epochs,
+                                         double learningRate,
+                                         int batchSize,
+                                         boolean shuffle,
+                                         long seedForShuffle,
+                                         int requestedThreads,
+                                         TrainingMode mode) {
         if (globalModel == null) {
             throw new IllegalArgumentException("globalModel must not be null");
         }
@@ -44,70 +57,162 @@ public class ParallelMLPTrainer {
             return;
         }
 
-        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
-        try {
-            List<TrainingSample> work = new ArrayList<>(data);
-            Random rnd = new Random(seedForShuffle);
-
-            for (int epoch = 0; epoch < epochs; epoch++) {
-                if (shuffle) {
-                    Collections.shuffle(work, rnd);
-                }
-
-                List<List<TrainingSample>> parts = split(work, numThreads);
+        boolean sparse = globalModel.checkTrainingData(data);
+
+        // Todo el loop corre dentro del pool: los forRange de cada epoch/batch son fork/join locales
+        ComputePool.run(() -> {
+            if (mode == TrainingMode.HOGWILD) {
+                trainHogwild(globalModel, data, epochs, learningRate, batchSize, shuffle, seedForShuffle, numThreads);
+            } else if (mode == TrainingMode.ALL_REDUCE) {
+                trainAllReduce(globalModel, data, epochs, learningRate, batchSize, shuffle, seedForShuffle,
+                        numThreads, sparse);
+            } else {
+                trainModelAveraging(globalModel, data, epochs, learningRate, batchSize, shuffle, seedForShuffle,
+                        numThreads);
+            }
+        });
+    }
 
-                // Snapshot de parámetros globales al inicio del epoch
-                double[][][] baseW = globalModel.exportWeightsCopy();
-                double[][] baseB = globalModel.exportBiasesCopy();
+    /**
+     * Model averaging: cada epoch cada réplica copia los parámetros globales, entrena 1 epoch
+     * sobre su partición y al final el modelo global queda con el promedio. Las réplicas se
+     * crean una vez por llamada y se reusan en todos los epochs; la copia y el promedio van
+     * directo entre los arreglos de pesos, sin exportar/importar copias.
+     */
+    private static void trainModelAveraging(MLP globalModel,
+                                            List<TrainingSample> data,
+                                            int epochs,
+                                            double learningRate,
+                                            int batchSize,
+                                            boolean shuffle,
+                                            long seedForShuffle,
+                                            int numThreads) {
+        List<TrainingSample> work = new ArrayList<>(data);
+        Random rnd = new Random(seedForShuffle);
+
+        MLP[] replicas = new MLP[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            replicas[t] = new MLP(globalModel.getLayerSizes(), globalModel.getHiddenActivation(),
+                    globalModel.getOutputActivation(), 1L, globalModel.getPrecision());
+        }
 
-                int[] layerSizes = globalModel.getLayerSizes();
-                HiddenActivation hidAct = globalModel.getHiddenActivation();
-                OutputActivation outAct = globalModel.getOutputActivation();
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            if (shuffle) {
+                Collections.shuffle(work, rnd);
+            }
 
-                List<Future<ReplicaResult>> futures = new ArrayList<>();
+            List<List<TrainingSample>> parts = split(work, numThreads);
+            final int e = epoch;
 
-                for (int t = 0; t < parts.size(); t++) {
-                    final List<TrainingSample> chunk = parts.get(t);
-                    final long localSeed = seedForShuffle + 1000L * epoch + t;
+            ComputePool.forRange(numThreads, 1, (from, to) -> {
+                for (int t = from; t < to; t++) {
+                    List<TrainingSample> chunk = parts.get(t);
+                    MLP local = replicas[t];
+                    local.copyParametersFrom(globalModel);
 
-                    Callable<ReplicaResult> task = () -> {
-                        // Crea réplica y carga parámetros globales
-                        MLP local = new MLP(layerSizes, hidAct, outAct, 1L);
-                        local.importParameters(baseW, baseB);
+                    // Entrena 1 epoch sobre su partición
+                    int localBatch = Math.min(batchSize, Math.max(1, chunk.size()));
+                    local.train(chunk, 1, learningRate, localBatch, false, seedForShuffle + 1000L * e + t);
+                }
+            });
 
-                        // Entrena 1 epoch sobre su partición
-                        int localBatch = Math.min(batchSize, Math.max(1, chunk.size()));
-                        local.train(chunk, 1, learningRate, localBatch, false, localSeed);
+            // Promedio (model averaging) -> modelo global, cada tarea sobre una franja de los pesos
+            ComputePool.forRange(numThreads, 1, (from, to) -> {
+                for (int s = from; s < to; s++) {
+                    globalModel.averageFrom(replicas, s, numThreads);
+                }
+            });
+        }
+    }
 
-                        return new ReplicaResult(local.exportWeightsCopy(), local.exportBiasesCopy());
-                    };
+    /**
+     * Hogwild!: cada epoch reparte las muestras y cada tarea corre MLP.train sobre su partición
+     * contra el MISMO globalModel. Los updates se escriben sin locks sobre los arreglos planos de
+     * pesos: un hilo puede leer pesos que otro está actualizando (se acepta, es el método).
+     * Con entradas dispersas (TF-IDF) cada batch solo toca las columnas de sus tokens en la
+     * primera capa, así los hilos casi no se pisan. No hay réplicas, copias ni promedio.
+     */
+    private static void trainHogwild(MLP globalModel,
+                                     List<TrainingSample> data,
+                                     int epochs,
+                                     double learningRate,
+                                     int batchSize,
+                                     boolean shuffle,
+                                     long seedForShuffle,
+                                     int numThreads) {
+        List<TrainingSample> work = new ArrayList<>(data);
+        Random rnd = new Random(seedForShuffle);
+
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            if (shuffle) {
+                Collections.shuffle(work, rnd);
+            }
 
-                    futures.add(pool.submit(task));
+            List<List<TrainingSample>> parts = split(work, numThreads);
+            final int e = epoch;
+            // Vuelve cuando terminaron todas las particiones: el siguiente reparto usa el modelo
+            // con todos los updates
+            ComputePool.forRange(numThreads, 1, (from, to) -> {
+                for (int t = from; t < to; t++) {
+                    List<TrainingSample> chunk = parts.get(t);
+                    int localBatch = Math.min(batchSize, Math.max(1, chunk.size()));
+                    globalModel.train(chunk, 1, learningRate, localBatch, false, seedForShuffle + 1000L * e + t);
                 }
+            });
+        }
+    }
 
-                // Recoger parámetros entrenados
-                List<ReplicaResult> results = new ArrayList<>(futures.size());
-                for (Future<ReplicaResult> f : futures) {
-                    try {
-                        results.add(f.get());
-                    } catch (ExecutionException ex) {
-                        Throwable cause = ex.getCause();
-                        if (cause instanceof RuntimeException) {
-                            throw (RuntimeException) cause;
-                        }
-                        throw new RuntimeException("Parallel training failed", cause);
+    /**
+     * All-reduce síncrono: cada mini-batch se parte en numThreads slices contiguos, cada tarea
+     * acumula los gradientes de su slice en su propio workspace y después se suman los
+     * gradientes y se aplica el update, cada tarea sobre una franja distinta de cada arreglo de
+     * pesos (reducción por franjas, sin locks). Un update por batch con el mismo orden de
+     * muestras que MLP.train: el resultado es el del entrenamiento en un hilo salvo el redondeo
+     * de la suma. Los workspaces son de la llamada (no del hilo) y se reusan en todos los batches.
+     */
+    private static void trainAllReduce(MLP globalModel,
+                                       List<TrainingSample> data,
+                                       int epochs,
+                                       double learningRate,
+                                       int batchSize,
+                                       boolean shuffle,
+                                       long seedForShuffle,
+                                       int numThreads,
+                                       boolean sparse) {
+        List<TrainingSample> work = new ArrayList<>(data);
+        Random rnd = new Random(seedForShuffle);
+        int n = work.size();
+        int maxSlice = (Math.min(batchSize, n) + numThreads - 1) / numThreads;
+
+        TrainingWorkspace[] parts = new TrainingWorkspace[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            parts[t] = globalModel.newSliceWorkspace(maxSlice, sparse);
+        }
+
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            if (shuffle) {
+                Collections.shuffle(work, rnd);
+            }
+            for (int start = 0; start < n; start += batchSize) {
+                int batchStart = start;
+                int end = Math.min(start + batchSize, n);
+                int bsz = end - start;
+
+                ComputePool.forRange(numThreads, 1, (from, to) -> {
+                    for (int t = from; t < to; t++) {
+                        int lo = batchStart + (int) ((long) bsz * t / numThreads);
+                        int hi = batchStart + (int) ((long) bsz * (t + 1) / numThreads);
+                        globalModel.accumulateSlice(parts[t], work, lo, hi - lo, sparse);
                     }
-                }
+                });
 
-                // Promedio (model averaging) -> actualizar modelo global
-                AveragedParams avg = averageParams(results, layerSizes);
-                globalModel.importParameters(avg.weights, avg.biases);
+                List<TrainingSample> batch = sparse ? work.subList(start, end) : null;
+                ComputePool.forRange(numThreads, 1, (from, to) -> {
+                    for (int s = from; s < to; s++) {
+                        globalModel.applyReducedGradients(parts, learningRate, bsz, batch, s, numThreads);
+                    }
+                });
             }
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Parallel training interrupted", ie);
-        } finally {
-            pool.shutdownNow();
         }
     }
 
@@ -132,62 +237,4 @@ public class ParallelMLPTrainer {
         }
         return out;
     }
-
-    private static AveragedParams averageParams(List<ReplicaResult> reps, int[] layerSizes) {
-        int replicas = reps.size();
-        int L = layerSizes.length - 1;
-
-        double[][][] avgW = new double[layerSizes.length][][];
-        double[][] avgB = new double[layerSizes.length][];
-
-        for (int l = 1; l <= L; l++) {
-            avgW[l] = new double[layerSizes[l]][layerSizes[l - 1]];
-            avgB[l] = new double[layerSizes[l]];
-        }
-
-        // Sumar
-        for (ReplicaResult r : reps) {
-            for (int l = 1; l <= L; l++) {
-                for (int i = 0; i < layerSizes[l]; i++) {
-                    avgB[l][i] += r.biases[l][i];
-                    for (int j = 0; j < layerSizes[l - 1]; j++) {
-                        avgW[l][i][j] += r.weights[l][i][j];
-                    }
-                }
-            }
-        }
-
-        // Promediar
-        double inv = 1.0 / (double) replicas;
-        for (int l = 1; l <= L; l++) {
-            for (int i = 0; i < layerSizes[l]; i++) {
-                avgB[l][i] *= inv;
-                for (int j = 0; j < layerSizes[l - 1]; j++) {
-                    avgW[l][i][j] *= inv;
-                }
-            }
-        }
-
-        return new AveragedParams(avgW, avgB);
-    }
-
-    private static class ReplicaResult {
-        final double[][][] weights;
-        final double[][] biases;
-
-        ReplicaResult(double[][][] weights, double[][] biases) {
-            this.weights = weights;
-            this.biases = biases;
-        }
-    }
-
-    private static class AveragedParams {
-        final double[][][] weights;
-        final double[][] biases;
-
-        AveragedParams(double[][][] weights, double[][] biases) {
-            this.weights = weights;
-            this.biases = biases;
-        }
-    }
 }
@@ -0,0 +1,11 @@
+package com.mycompany.moduloia.mlp;
+
+/**
+ * Precisión de los parámetros del MLP (entrenamiento, inferencia y archivo .bin).
+ * INT8 es solo para inferencia: se obtiene cuantizando un modelo entrenado.
+ */
+public enum Precision {
+    FLOAT64,
+    FLOAT32,
+    INT8
+}
@@ -0,0 +1,64 @@
+package com.mycompany.moduloia.mlp;
+
+/**
+ * Vector disperso de largo size: solo las entradas distintas de cero (indices ascendentes).
+ * Lo produce TfidfVectorizer; MLP lo consume en la primera capa sin pasar por el vector denso,
+ * así el costo depende de la cantidad de tokens y no del tamaño del vocabulario.
+ */
+public final class SparseVector {
+
+    public final int size;
+    public final int[] indices;
+    public final double[] values;
+
+    public SparseVector(int size, int[] indices, double[] values) {
+        if (indices == null || values == null) {
+            throw new IllegalArgumentException("indices and values must not be null");
+        }
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException("indices/values length mismatch: " + indices.length + " != " + values.length);
+        }
+        int prev = -1;
+        for (int idx : indices) {
+            if (idx <= prev || idx >= size) {
+                throw new IllegalArgumentException("indices must be ascending and < size: " + idx);
+            }
+            prev = idx;
+        }
+        this.size = size;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    public int nnz() {
+        return indices.length;
+    }
+
+    public double[] toDense() {
+        double[] out = new double[size];
+        for (int t = 0; t < indices.length; t++) {
+            out[indices[t]] = values[t];
+        }
+        return out;
+    }
+
+    public static SparseVector fromDense(double[] v) {
+        int nnz = 0;
+        for (double x : v) {
+            if (x != 0.0) {
+                nnz++;
+            }
+        }
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        int p = 0;
+        for (int j = 0; j < v.length; j++) {
+            if (v[j] != 0.0) {
+                idx[p] = j;
+                val[p] = v[j];
+                p++;
+            }
+        }
+        return new SparseVector(v.length, idx, val);
+    }
+}
@@ -0,0 +1,14 @@
+package com.mycompany.moduloia.mlp;
+
+/**
+ * Cómo reparte ParallelMLPTrainer el entrenamiento entre hilos
+ */
+public enum TrainingMode {
+    // Cada hilo entrena una réplica sobre su partición y al final del epoch se promedian
+    MODEL_AVERAGING,
+    // Todos los hilos actualizan los mismos pesos sin locks (Hogwild!): sin réplicas ni promedio
+    HOGWILD,
+    // Cada mini-batch se reparte entre los hilos, se suman sus gradientes y se aplica un solo
+    // update por paso: mismo resultado que el entrenamiento en un hilo (salvo redondeo)
+    ALL_REDUCE
+}
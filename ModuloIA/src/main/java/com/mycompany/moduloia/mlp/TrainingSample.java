@@ -2,7 +2,9 @@ package com.mycompany.moduloia.mlp;
 
 public class TrainingSample {
 
+    // Entrada densa (x) o dispersa (sparseX): exactamente una de las dos no es null
     public final double[] x;
+    public final SparseVector sparseX;
     public final double[] y;
 
     public TrainingSample(double[] x, double[] y) {
@@ -10,6 +12,29 @@ public class TrainingSample {
             throw new IllegalArgumentException("x and y must not be null");
         }
         this.x = x;
+        this.sparseX = null;
         this.y = y;
     }
+
+    public TrainingSample(SparseVector x, double[] y) {
+        if (x == null || y == null) {
+            throw new IllegalArgumentException("x and y must not be null");
+        }
+        this.x = null;
+        this.sparseX = x;
+        this.y = y;
+    }
+
+    public boolean isSparse() {
+        return sparseX != null;
+    }
+
+    public int inputSize() {
+        return sparseX != null ? sparseX.size : x.length;
+    }
+
+    // Entrada como vector denso (copia si es dispersa)
+    public double[] denseX() {
+        return sparseX != null ? sparseX.toDense() : x;
+    }
 }
@@ -0,0 +1,121 @@
+package com.mycompany.moduloia.mlp;
+
+import java.util.Arrays;
+
+/**
+ * Buffers de entrenamiento de un hilo: gradientes del batch y activaciones/errores del
+ * camino por batch (ver MLP.train).
+ *
+ * Se reusa entre llamadas a train del mismo hilo mientras la red tenga las mismas capas y el
+ * batch entre; así las réplicas de ParallelMLPTrainer no reservan ~1 MB por epoch (784-128-10).
+ * Queda retenido por el hilo hasta que termina o entrena otra forma de red.
+ * Con entradas dispersas (TF-IDF) no se reserva la matriz de entrada a[0] (batch x vocabulario).
+ * El all-reduce de ParallelMLPTrainer usa workspaces propios (uno por slice, no por hilo): sus
+ * tareas pueden correr en cualquier hilo del pool.
+ */
+final class TrainingWorkspace {
+
+    private static final ThreadLocal<TrainingWorkspace> CURRENT = new ThreadLocal<>();
+
+    final int[] layerSizes;
+    final int maxBatch;
+    final Precision precision;
+    final boolean denseInput;
+
+    // FLOAT64: mismo layout que MLP.weights/biases (índice 0 sin usar); null en FLOAT32
+    final double[][] gradW;
+    final double[][] gradB;
+
+    final double[][] a;     // activaciones por capa: una fila por muestra del batch
+    final double[][] z;     // pre-activaciones por capa
+    final double[][] delta; // error por capa
+
+    // FLOAT32: los mismos buffers en float; null en FLOAT64
+    final float[][] gradW32;
+    final float[][] gradB32;
+    final float[][] a32;
+    final float[][] z32;
+    final float[][] delta32;
+
+    TrainingWorkspace(int[] layerSizes, int maxBatch, Precision precision, boolean denseInput) {
+        this.layerSizes = layerSizes.clone();
+        this.maxBatch = maxBatch;
+        this.precision = precision;
+        this.denseInput = denseInput;
+        int layers = layerSizes.length;
+        if (precision == Precision.FLOAT32) {
+            gradW = null;
+            gradB = null;
+            a = null;
+            z = null;
+            delta = null;
+            gradW32 = new float[layers][];
+            gradB32 = new float[layers][];
+            a32 = new float[layers][];
+            z32 = new float[layers][];
+            delta32 = new float[layers][];
+            a32[0] = denseInput ? new float[maxBatch * layerSizes[0]] : null;
+            for (int l = 1; l < layers; l++) {
+                gradW32[l] = new float[layerSizes[l] * layerSizes[l - 1]];
+                gradB32[l] = new float[layerSizes[l]];
+                a32[l] = new float[maxBatch * layerSizes[l]];
+                z32[l] = new float[maxBatch * layerSizes[l]];
+                delta32[l] = new float[maxBatch * layerSizes[l]];
+            }
+            return;
+        }
+        gradW32 = null;
+        gradB32 = null;
+        a32 = null;
+        z32 = null;
+        delta32 = null;
+        gradW = new double[layers][];
+        gradB = new double[layers][];
+        a = new double[layers][];
+        z = new double[layers][];
+        delta = new double[layers][];
+        a[0] = denseInput ? new double[maxBatch * layerSizes[0]] : null;
+        for (int l = 1; l < layers; l++) {
+            gradW[l] = new double[layerSizes[l] * layerSizes[l - 1]];
+            gradB[l] = new double[layerSizes[l]];
+            a[l] = new double[maxBatch * layerSizes[l]];
+            z[l] = new double[maxBatch * layerSizes[l]];
+            delta[l] = new double[maxBatch * layerSizes[l]];
+        }
+    }
+
+    /**
+     * Workspace del hilo actual para esta red, esta precisión y batches de hasta maxBatch muestras
+     * (denseInput: hace falta a[0]; uno que la tiene sirve también para entradas dispersas)
+     */
+    static TrainingWorkspace forCurrentThread(int[] layerSizes, int maxBatch, Precision precision, boolean denseInput) {
+        TrainingWorkspace ws = CURRENT.get();
+        if (ws == null || ws.maxBatch < maxBatch || ws.precision != precision
+                || (denseInput && !ws.denseInput) || !Arrays.equals(ws.layerSizes, layerSizes)) {
+            ws = new TrainingWorkspace(layerSizes, maxBatch, precision, denseInput);
+            CURRENT.set(ws);
+        }
+        return ws;
+    }
+
+    /**
+     * Pone en cero los gradientes. keepFirstLayerWeights: no toca gradW de la capa 1 (entrada
+     * dispersa: MLP.applyGradients ya deja en cero las columnas que usó)
+     */
+    void clearGradients(boolean keepFirstLayerWeights) {
+        for (int l = 1; l < layerSizes.length; l++) {
+            boolean clearW = l > 1 || !keepFirstLayerWeights;
+            if (precision == Precision.FLOAT32) {
+                if (clearW) {
+                    Arrays.fill(gradW32[l], 0.0f);
+                }
+                Arrays.fill(gradB32[l], 0.0f);
+            } else {
+                if (clearW) {
+                    Arrays.fill(gradW[l], 0.0);
+                }
+                Arrays.fill(gradB[l], 0.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package com.mycompany.moduloia.mlp;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * Versión SIMD de MatrixOps sobre jdk.incubator.vector (FMA sobre lanes DoubleVector/FloatVector).
+ *
+ * Solo se carga si MatrixOps la elige (requiere --add-modules jdk.incubator.vector).
+ * Las sumas por lanes + FMA cambian el redondeo respecto del escalar, pero cada elemento
+ * se calcula igual sin importar el tamaño del batch: rows = 1 (forwardWithCache/backprop)
+ * da lo mismo que el batch completo.
+ */
+final class VectorMatrixOps {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final VectorSpecies<Float> FSPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int FLANES = FSPECIES.length();
+    // int8: tantos bytes como lanes float, para convertir B2F sin partes (no existe forma de 32 bits)
+    private static final VectorSpecies<Byte> BSPECIES =
+            FLANES >= 8 ? VectorSpecies.of(byte.class, VectorShape.forBitSize(FLANES * Byte.SIZE)) : null;
+
+    private VectorMatrixOps() {
+    }
+
+    static int lanes() {
+        return LANES;
+    }
+
+    static int floatLanes() {
+        return FLANES;
+    }
+
+    static boolean int8Supported() {
+        return BSPECIES != null;
+    }
+
+    /**
+     * Z = A * W^T + b  (A: rows x k, W: n x k, Z: rows x n)
+     * Mismos bloques de 4 neuronas x 2 muestras; cada z = b + suma de lanes + cola con fma.
+     */
+    static void forward(double[] a, double[] w, double[] b, double[] z, int rows, int k, int n) {
+        int upper = SPECIES.loopBound(k);
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            int w0 = i * k;
+            int w1 = w0 + k;
+            int w2 = w1 + k;
+            int w3 = w2 + k;
+            int s = 0;
+            for (; s + 1 < rows; s += 2) {
+                int a0 = s * k;
+                int a1 = a0 + k;
+                DoubleVector c00 = DoubleVector.zero(SPECIES), c01 = c00, c02 = c00, c03 = c00;
+                DoubleVector c10 = c00, c11 = c00, c12 = c00, c13 = c00;
+                int j = 0;
+                for (; j < upper; j += LANES) {
+                    DoubleVector x0 = DoubleVector.fromArray(SPECIES, a, a0 + j);
+                    DoubleVector x1 = DoubleVector.fromArray(SPECIES, a, a1 + j);
+                    DoubleVector v0 = DoubleVector.fromArray(SPECIES, w, w0 + j);
+                    DoubleVector v1 = DoubleVector.fromArray(SPECIES, w, w1 + j);
+                    DoubleVector v2 = DoubleVector.fromArray(SPECIES, w, w2 + j);
+                    DoubleVector v3 = DoubleVector.fromArray(SPECIES, w, w3 + j);
+                    c00 = v0.fma(x0, c00);
+                    c01 = v1.fma(x0, c01);
+                    c02 = v2.fma(x0, c02);
+                    c03 = v3.fma(x0, c03);
+                    c10 = v0.fma(x1, c10);
+                    c11 = v1.fma(x1, c11);
+                    c12 = v2.fma(x1, c12);
+                    c13 = v3.fma(x1, c13);
+                }
+                double z00 = b[i] + c00.reduceLanes(VectorOperators.ADD);
+                double z01 = b[i + 1] + c01.reduceLanes(VectorOperators.ADD);
+                double z02 = b[i + 2] + c02.reduceLanes(VectorOperators.ADD);
+                double z03 = b[i + 3] + c03.reduceLanes(VectorOperators.ADD);
+                double z10 = b[i] + c10.reduceLanes(VectorOperators.ADD);
+                double z11 = b[i + 1] + c11.reduceLanes(VectorOperators.ADD);
+                double z12 = b[i + 2] + c12.reduceLanes(VectorOperators.ADD);
+                double z13 = b[i + 3] + c13.reduceLanes(VectorOperators.ADD);
+                for (; j < k; j++) {
+                    double x0 = a[a0 + j];
+                    double x1 = a[a1 + j];
+                    z00 = Math.fma(w[w0 + j], x0, z00);
+                    z01 = Math.fma(w[w1 + j], x0, z01);
+                    z02 = Math.fma(w[w2 + j], x0, z02);
+                    z03 = Math.fma(w[w3 + j], x0, z03);
+                    z10 = Math.fma(w[w0 + j], x1, z10);
+                    z11 = Math.fma(w[w1 + j], x1, z11);
+                    z12 = Math.fma(w[w2 + j], x1, z12);
+                    z13 = Math.fma(w[w3 + j], x1, z13);
+                }
+                int o0 = s * n + i;
+                int o1 = o0 + n;
+                z[o0] = z00;
+                z[o0 + 1] = z01;
+                z[o0 + 2] = z02;
+                z[o0 + 3] = z03;
+                z[o1] = z10;
+                z[o1 + 1] = z11;
+                z[o1 + 2] = z12;
+                z[o1 + 3] = z13;
+            }
+            for (; s < rows; s++) {
+                for (int r = i; r < i + 4; r++) {
+                    z[s * n + r] = dot(w, r * k, a, s * k, k, upper, b[r]);
+                }
+            }
+        }
+        for (; i < n; i++) {
+            for (int s = 0; s < rows; s++) {
+                z[s * n + i] = dot(w, i * k, a, s * k, k, upper, b[i]);
+            }
+        }
+    }
+
+    /**
+     * G += D^T * A  (D: rows x n, A: rows x k, G: n x k): g = fma(d, a, g) muestra por muestra.
+     */
+    static void accumulateGradient(double[] d, double[] a, double[] g, int rows, int n, int k) {
+        int upper = SPECIES.loopBound(k);
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            int g0 = i * k;
+            int g1 = g0 + k;
+            int g2 = g1 + k;
+            int g3 = g2 + k;
+            for (int s = 0; s < rows; s++) {
+                int ds = s * n + i;
+                double d0 = d[ds], d1 = d[ds + 1], d2 = d[ds + 2], d3 = d[ds + 3];
+                DoubleVector e0 = DoubleVector.broadcast(SPECIES, d0);
+                DoubleVector e1 = DoubleVector.broadcast(SPECIES, d1);
+                DoubleVector e2 = DoubleVector.broadcast(SPECIES, d2);
+                DoubleVector e3 = DoubleVector.broadcast(SPECIES, d3);
+                int as = s * k;
+                int j = 0;
+                for (; j < upper; j += LANES) {
+                    DoubleVector x = DoubleVector.fromArray(SPECIES, a, as + j);
+                    e0.fma(x, DoubleVector.fromArray(SPECIES, g, g0 + j)).intoArray(g, g0 + j);
+                    e1.fma(x, DoubleVector.fromArray(SPECIES, g, g1 + j)).intoArray(g, g1 + j);
+                    e2.fma(x, DoubleVector.fromArray(SPECIES, g, g2 + j)).intoArray(g, g2 + j);
+                    e3.fma(x, DoubleVector.fromArray(SPECIES, g, g3 + j)).intoArray(g, g3 + j);
+                }
+                for (; j < k; j++) {
+                    double x = a[as + j];
+                    g[g0 + j] = Math.fma(d0, x, g[g0 + j]);
+                    g[g1 + j] = Math.fma(d1, x, g[g1 + j]);
+                    g[g2 + j] = Math.fma(d2, x, g[g2 + j]);
+                    g[g3 + j] = Math.fma(d3, x, g[g3 + j]);
+                }
+            }
+        }
+        for (; i < n; i++) {
+            int gi = i * k;
+            for (int s = 0; s < rows; s++) {
+                axpy(d[s * n + i], a, s * k, g, gi, k, upper);
+            }
+        }
+    }
+
+    /**
+     * T = D * W  (D: rows x n, W: n x k, T: rows x k): t = fma(w, d, t) recorriendo i = 0..n-1.
+     */
+    static void backward(double[] d, double[] w, double[] t, int rows, int n, int k) {
+        Arrays.fill(t, 0, rows * k, 0.0);
+        int upper = SPECIES.loopBound(k);
+        int s = 0;
+        for (; s + 3 < rows; s += 4) {
+            int t0 = s * k;
+            int t1 = t0 + k;
+            int t2 = t1 + k;
+            int t3 = t2 + k;
+            for (int i = 0; i < n; i++) {
+                double d0 = d[s * n + i];
+                double d1 = d[(s + 1) * n + i];
+                double d2 = d[(s + 2) * n + i];
+                double d3 = d[(s + 3) * n + i];
+                DoubleVector e0 = DoubleVector.broadcast(SPECIES, d0);
+                DoubleVector e1 = DoubleVector.broadcast(SPECIES, d1);
+                DoubleVector e2 = DoubleVector.broadcast(SPECIES, d2);
+                DoubleVector e3 = DoubleVector.broadcast(SPECIES, d3);
+                int wi = i * k;
+                int j = 0;
+                for (; j < upper; j += LANES) {
+                    DoubleVector v = DoubleVector.fromArray(SPECIES, w, wi + j);
+                    v.fma(e0, DoubleVector.fromArray(SPECIES, t, t0 + j)).intoArray(t, t0 + j);
+                    v.fma(e1, DoubleVector.fromArray(SPECIES, t, t1 + j)).intoArray(t, t1 + j);
+                    v.fma(e2, DoubleVector.fromArray(SPECIES, t, t2 + j)).intoArray(t, t2 + j);
+                    v.fma(e3, DoubleVector.fromArray(SPECIES, t, t3 + j)).intoArray(t, t3 + j);
+                }
+                for (; j < k; j++) {
+                    double v = w[wi + j];
+                    t[t0 + j] = Math.fma(v, d0, t[t0 + j]);
+                    t[t1 + j] = Math.fma(v, d1, t[t1 + j]);
+                    t[t2 + j] = Math.fma(v, d2, t[t2 + j]);
+                    t[t3 + j] = Math.fma(v, d3, t[t3 + j]);
+                }
+            }
+        }
+        for (; s < rows; s++) {
+            int ts = s * k;
+            for (int i = 0; i < n; i++) {
+                axpy(d[s * n + i], w, i * k, t, ts, k, upper);
+            }
+        }
+    }
+
+    private static double dot(double[] w, int wOff, double[] a, int aOff, int k, int upper, double init) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int j = 0;
+        for (; j < upper; j += LANES) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, w, wOff + j);
+            acc = v.fma(DoubleVector.fromArray(SPECIES, a, aOff + j), acc);
+        }
+        double sum = init + acc.reduceLanes(VectorOperators.ADD);
+        for (; j < k; j++) {
+            sum = Math.fma(w[wOff + j], a[aOff + j], sum);
+        }
+        return sum;
+    }
+
+    /**
+     * y[yOff..] = fma(x[xOff..], alpha, y[yOff..]) sobre k elementos.
+     */
+    private static void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int k, int upper) {
+        DoubleVector e = DoubleVector.broadcast(SPECIES, alpha);
+        int j = 0;
+        for (; j < upper; j += LANES) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, x, xOff + j);
+            v.fma(e, DoubleVector.fromArray(SPECIES, y, yOff + j)).intoArray(y, yOff + j);
+        }
+        for (; j < k; j++) {
+            y[yOff + j] = Math.fma(x[xOff + j], alpha, y[yOff + j]);
+        }
+    }
+
+    // ----------------- float (Precision.FLOAT32): mismos kernels sobre FloatVector -----------------
+
+    static void forward(float[] a, float[] w, float[] b, float[] z, int rows, int k, int n) {
+        int upper = FSPECIES.loopBound(k);
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            int w0 = i * k;
+            int w1 = w0 + k;
+            int w2 = w1 + k;
+            int w3 = w2 + k;
+            int s = 0;
+            for (; s + 1 < rows; s += 2) {
+                int a0 = s * k;
+                int a1 = a0 + k;
+                FloatVector c00 = FloatVector.zero(FSPECIES), c01 = c00, c02 = c00, c03 = c00;
+                FloatVector c10 = c00, c11 = c00, c12 = c00, c13 = c00;
+                int j = 0;
+                for (; j < upper; j += FLANES) {
+                    FloatVector x0 = FloatVector.fromArray(FSPECIES, a, a0 + j);
+                    FloatVector x1 = FloatVector.fromArray(FSPECIES, a, a1 + j);
+                    FloatVector v0 = FloatVector.fromArray(FSPECIES, w, w0 + j);
+                    FloatVector v1 = FloatVector.fromArray(FSPECIES, w, w1 + j);
+                    FloatVector v2 = FloatVector.fromArray(FSPECIES, w, w2 + j);
+                    FloatVector v3 = FloatVector.fromArray(FSPECIES, w, w3 + j);
+                    c00 = v0.fma(x0, c00);
+                    c01 = v1.fma(x0, c01);
+                    c02 = v2.fma(x0, c02);
+                    c03 = v3.fma(x0, c03);
+                    c10 = v0.fma(x1, c10);
+                    c11 = v1.fma(x1, c11);
+                    c12 = v2.fma(x1, c12);
+                    c13 = v3.fma(x1, c13);
+                }
+                float z00 = b[i] + c00.reduceLanes(VectorOperators.ADD);
+                float z01 = b[i + 1] + c01.reduceLanes(VectorOperators.ADD);
+                float z02 = b[i + 2] + c02.reduceLanes(VectorOperators.ADD);
+                float z03 = b[i + 3] + c03.reduceLanes(VectorOperators.ADD);
+                float z10 = b[i] + c10.reduceLanes(VectorOperators.ADD);
+                float z11 = b[i + 1] + c11.reduceLanes(VectorOperators.ADD);
+                float z12 = b[i + 2] + c12.reduceLanes(VectorOperators.ADD);
+                float z13 = b[i + 3] + c13.reduceLanes(VectorOperators.ADD);
+                for (; j < k; j++) {
+                    float x0 = a[a0 + j];
+                    float x1 = a[a1 + j];
+                    z00 = Math.fma(w[w0 + j], x0, z00);
+                    z01 = Math.fma(w[w1 + j], x0, z01);
+                    z02 = Math.fma(w[w2 + j], x0, z02);
+                    z03 = Math.fma(w[w3 + j], x0, z03);
+                    z10 = Math.fma(w[w0 + j], x1, z10);
+                    z11 = Math.fma(w[w1 + j], x1, z11);
+                    z12 = Math.fma(w[w2 + j], x1, z12);
+                    z13 = Math.fma(w[w3 + j], x1, z13);
+                }
+                int o0 = s * n + i;
+                int o1 = o0 + n;
+                z[o0] = z00;
+                z[o0 + 1] = z01;
+                z[o0 + 2] = z02;
+                z[o0 + 3] = z03;
+                z[o1] = z10;
+                z[o1 + 1] = z11;
+                z[o1 + 2] = z12;
+                z[o1 + 3] = z13;
+            }
+            for (; s < rows; s++) {
+                for (int r = i; r < i + 4; r++) {
+                    z[s * n + r] = dot(w, r * k, a, s * k, k, upper, b[r]);
+                }
+            }
+        }
+        for (; i < n; i++) {
+            for (int s = 0; s < rows; s++) {
+                z[s * n + i] = dot(w, i * k, a, s * k, k, upper, b[i]);
+            }
+        }
+    }
+
+    static void accumulateGradient(float[] d, float[] a, float[] g, int rows, int n, int k) {
+        int upper = FSPECIES.loopBound(k);
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            int g0 = i * k;
+            int g1 = g0 + k;
+            int g2 = g1 + k;
+            int g3 = g2 + k;
+            for (int s = 0; s < rows; s++) {
+                int ds = s * n + i;
+                float d0 = d[ds], d1 = d[ds + 1], d2 = d[ds + 2], d3 = d[ds + 3];
+                FloatVector e0 = FloatVector.broadcast(FSPECIES, d0);
+                FloatVector e1 = FloatVector.broadcast(FSPECIES, d1);
+                FloatVector e2 = FloatVector.broadcast(FSPECIES, d2);
+                FloatVector e3 = FloatVector.broadcast(FSPECIES, d3);
+                int as = s * k;
+                int j = 0;
+                for (; j < upper; j += FLANES) {
+                    FloatVector x = FloatVector.fromArray(FSPECIES, a, as + j);
+                    e0.fma(x, FloatVector.fromArray(FSPECIES, g, g0 + j)).intoArray(g, g0 + j);
+                    e1.fma(x, FloatVector.fromArray(FSPECIES, g, g1 + j)).intoArray(g, g1 + j);
+                    e2.fma(x, FloatVector.fromArray(FSPECIES, g, g2 + j)).intoArray(g, g2 + j);
+                    e3.fma(x, FloatVector.fromArray(FSPECIES, g, g3 + j)).intoArray(g, g3 + j);
+                }
+                for (; j < k; j++) {
+                    float x = a[as + j];
+                    g[g0 + j] = Math.fma(d0, x, g[g0 + j]);
+                    g[g1 + j] = Math.fma(d1, x, g[g1 + j]);
+                    g[g2 + j] = Math.fma(d2, x, g[g2 + j]);
+                    g[g3 + j] = Math.fma(d3, x, g[g3 + j]);
+                }
+            }
+        }
+        for (; i < n; i++) {
+            int gi = i * k;
+            for (int s = 0; s < rows; s++) {
+                axpy(d[s * n + i], a, s * k, g, gi, k, upper);
+            }
+        }
+    }
+
+    static void backward(float[] d, float[] w, float[] t, int rows, int n, int k) {
+        Arrays.fill(t, 0, rows * k, 0.0f);
+        int upper = FSPECIES.loopBound(k);
+        int s = 0;
+        for (; s + 3 < rows; s += 4) {
+            int t0 = s * k;
+            int t1 = t0 + k;
+            int t2 = t1 + k;
+            int t3 = t2 + k;
+            for (int i = 0; i < n; i++) {
+                float d0 = d[s * n + i];
+                float d1 = d[(s + 1) * n + i];
+                float d2 = d[(s + 2) * n + i];
+                float d3 = d[(s + 3) * n + i];
+                FloatVector e0 = FloatVector.broadcast(FSPECIES, d0);
+                FloatVector e1 = FloatVector.broadcast(FSPECIES, d1);
+                FloatVector e2 = FloatVector.broadcast(FSPECIES, d2);
+                FloatVector e3 = FloatVector.broadcast(FSPECIES, d3);
+                int wi = i * k;
+                int j = 0;
+                for (; j < upper; j += FLANES) {
+                    FloatVector v = FloatVector.fromArray(FSPECIES, w, wi + j);
+                    v.fma(e0, FloatVector.fromArray(FSPECIES, t, t0 + j)).intoArray(t, t0 + j);
+                    v.fma(e1, FloatVector.fromArray(FSPECIES, t, t1 + j)).intoArray(t, t1 + j);
+                    v.fma(e2, FloatVector.fromArray(FSPECIES, t, t2 + j)).intoArray(t, t2 + j);
+                    v.fma(e3, FloatVector.fromArray(FSPECIES, t, t3 + j)).intoArray(t, t3 + j);
+                }
+                for (; j < k; j++) {
+                    float v = w[wi + j];
+                    t[t0 + j] = Math.fma(v, d0, t[t0 + j]);
+                    t[t1 + j] = Math.fma(v, d1, t[t1 + j]);
+                    t[t2 + j] = Math.fma(v, d2, t[t2 + j]);
+                    t[t3 + j] = Math.fma(v, d3, t[t3 + j]);
+                }
+            }
+        }
+        for (; s < rows; s++) {
+            int ts = s * k;
+            for (int i = 0; i < n; i++) {
+                axpy(d[s * n + i], w, i * k, t, ts, k, upper);
+            }
+        }
+    }
+
+    /**
+     * z = b + escala * (Q * x) con Q en int8: cada bloque de bytes se amplía a FloatVector (B2F)
+     * y se acumula con fma; 4 neuronas por bloque comparten la carga de x.
+     */
+    static void forwardInt8(float[] x, byte[] q, float[] scale, float[] b, float[] z, int k, int n) {
+        int upper = FSPECIES.loopBound(k);
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            int q0 = i * k;
+            int q1 = q0 + k;
+            int q2 = q1 + k;
+            int q3 = q2 + k;
+            FloatVector acc0 = FloatVector.zero(FSPECIES);
+            FloatVector acc1 = FloatVector.zero(FSPECIES);
+            FloatVector acc2 = FloatVector.zero(FSPECIES);
+            FloatVector acc3 = FloatVector.zero(FSPECIES);
+            int j = 0;
+            for (; j < upper; j += FLANES) {
+                FloatVector v = FloatVector.fromArray(FSPECIES, x, j);
+                acc0 = widen(q, q0 + j).fma(v, acc0);
+                acc1 = widen(q, q1 + j).fma(v, acc1);
+                acc2 = widen(q, q2 + j).fma(v, acc2);
+                acc3 = widen(q, q3 + j).fma(v, acc3);
+            }
+            float s0 = acc0.reduceLanes(VectorOperators.ADD);
+            float s1 = acc1.reduceLanes(VectorOperators.ADD);
+            float s2 = acc2.reduceLanes(VectorOperators.ADD);
+            float s3 = acc3.reduceLanes(VectorOperators.ADD);
+            for (; j < k; j++) {
+                float v = x[j];
+                s0 = Math.fma(q[q0 + j], v, s0);
+                s1 = Math.fma(q[q1 + j], v, s1);
+                s2 = Math.fma(q[q2 + j], v, s2);
+                s3 = Math.fma(q[q3 + j], v, s3);
+            }
+            z[i] = b[i] + scale[i] * s0;
+            z[i + 1] = b[i + 1] + scale[i + 1] * s1;
+            z[i + 2] = b[i + 2] + scale[i + 2] * s2;
+            z[i + 3] = b[i + 3] + scale[i + 3] * s3;
+        }
+        for (; i < n; i++) {
+            int qi = i * k;
+            FloatVector acc = FloatVector.zero(FSPECIES);
+            int j = 0;
+            for (; j < upper; j += FLANES) {
+                acc = widen(q, qi + j).fma(FloatVector.fromArray(FSPECIES, x, j), acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; j < k; j++) {
+                sum = Math.fma(q[qi + j], x[j], sum);
+            }
+            z[i] = b[i] + scale[i] * sum;
+        }
+    }
+
+    private static FloatVector widen(byte[] q, int off) {
+        return (FloatVector) ByteVector.fromArray(BSPECIES, q, off).convertShape(VectorOperators.B2F, FSPECIES, 0);
+    }
+
+    private static float dot(float[] w, int wOff, float[] a, int aOff, int k, int upper, float init) {
+        FloatVector acc = FloatVector.zero(FSPECIES);
+        int j = 0;
+        for (; j < upper; j += FLANES) {
+            FloatVector v = FloatVector.fromArray(FSPECIES, w, wOff + j);
+            acc = v.fma(FloatVector.fromArray(FSPECIES, a, aOff + j), acc);
+        }
+        float sum = init + acc.reduceLanes(VectorOperators.ADD);
+        for (; j < k; j++) {
+            sum = Math.fma(w[wOff + j], a[aOff + j], sum);
+        }
+        return sum;
+    }
+
+    private static void axpy(float alpha, float[] x, int xOff, float[] y, int yOff, int k, int upper) {
+        FloatVector e = FloatVector.broadcast(FSPECIES, alpha);
+        int j = 0;
+        for (; j < upper; j += FLANES) {
+            FloatVector v = FloatVector.fromArray(FSPECIES, x, xOff + j);
+            v.fma(e, FloatVector.fromArray(FSPECIES, y, yOff + j)).intoArray(y, yOff + j);
+        }
+        for (; j < k; j++) {
+            y[yOff + j] = Math.fma(x[xOff + j], alpha, y[yOff + j]);
+        }
+    }
+}
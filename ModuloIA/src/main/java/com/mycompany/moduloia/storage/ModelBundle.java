@@ -3,6 +3,7 @@ package com.mycompany.moduloia.storage;
 import com.mycompany.moduloia.api.InputType;
 import com.mycompany.moduloia.mlp.HiddenActivation;
 import com.mycompany.moduloia.mlp.OutputActivation;
+import com.mycompany.moduloia.mlp.Precision;
 
 public class ModelBundle {
 
@@ -15,10 +16,17 @@ public class ModelBundle {
     public final HiddenActivation hiddenActivation;
     public final OutputActivation outputActivation;
 
-    // Para reconstruir el MLP
+    // Para reconstruir el MLP (weights: un arreglo fila-mayor por capa, ver MLP)
     public final int[] layerSizes;
-    public final double[][][] weights;
+    public final Precision precision;
+    // FLOAT64: weights/biases; FLOAT32: weights32/biases32 (los otros quedan null)
+    public final double[][] weights;
     public final double[][] biases;
+    public final float[][] weights32;
+    public final float[][] biases32;
+    // INT8: weightsQ8 + rowScales (una escala por neurona) y biases32
+    public final byte[][] weightsQ8;
+    public final float[][] rowScales;
 
     // Estado del extractor (TF-IDF vocab/idf, IMAGE w/h/grayscale, TABULAR vacío)
     public final byte[] extractorState;
@@ -33,10 +41,63 @@ public class ModelBundle {
                        HiddenActivation hiddenActivation,
                        OutputActivation outputActivation,
                        int[] layerSizes,
-                       double[][][] weights,
+                       double[][] weights,
                        double[][] biases,
                        byte[] extractorState,
                        int tfidfMaxVocab) {
+        this(modelId, inputType, featureSize, outputSize, hiddenActivation, outputActivation, layerSizes,
+                Precision.FLOAT64, weights, biases, null, null, null, null, extractorState, tfidfMaxVocab);
+    }
+
+    // Bundle FLOAT32 (pesos en float: la mitad en disco y en el cache de AIService)
+    public ModelBundle(String modelId,
+                       InputType inputType,
+                       int featureSize,
+                       int outputSize,
+                       HiddenActivation hiddenActivation,
+                       OutputActivation outputActivation,
+                       int[] layerSizes,
+                       float[][] weights32,
+                       float[][] biases32,
+                       byte[] extractorState,
+                       int tfidfMaxVocab) {
+        this(modelId, inputType, featureSize, outputSize, hiddenActivation, outputActivation, layerSizes,
+                Precision.FLOAT32, null, null, weights32, biases32, null, null, extractorState, tfidfMaxVocab);
+    }
+
+    // Bundle INT8 de solo inferencia (ver ModelQuantizer)
+    public ModelBundle(String modelId,
+                       InputType inputType,
+                       int featureSize,
+                       int outputSize,
+                       HiddenActivation hiddenActivation,
+                       OutputActivation outputActivation,
+                       int[] layerSizes,
+                       byte[][] weightsQ8,
+                       float[][] rowScales,
+                       float[][] biases32,
+                       byte[] extractorState,
+                       int tfidfMaxVocab) {
+        this(modelId, inputType, featureSize, outputSize, hiddenActivation, outputActivation, layerSizes,
+                Precision.INT8, null, null, null, biases32, weightsQ8, rowScales, extractorState, tfidfMaxVocab);
+    }
+
+    private ModelBundle(String modelId,
+                        InputType inputType,
+                        int featureSize,
+                        int outputSize,
+                        HiddenActivation hiddenActivation,
+                        OutputActivation outputActivation,
+                        int[] layerSizes,
+                        Precision precision,
+                        double[][] weights,
+                        double[][] biases,
+                        float[][] weights32,
+                        float[][] biases32,
+                        byte[][] weightsQ8,
+                        float[][] rowScales,
+                        byte[] extractorState,
+                        int tfidfMaxVocab) {
         this.modelId = modelId;
         this.inputType = inputType;
         this.featureSize = featureSize;
@@ -44,8 +105,13 @@ public class ModelBundle {
         this.hiddenActivation = hiddenActivation;
         this.outputActivation = outputActivation;
         this.layerSizes = layerSizes;
+        this.precision = precision;
         this.weights = weights;
         this.biases = biases;
+        this.weights32 = weights32;
+        this.biases32 = biases32;
+        this.weightsQ8 = weightsQ8;
+        this.rowScales = rowScales;
         this.extractorState = extractorState;
         this.tfidfMaxVocab = tfidfMaxVocab;
     }
@@ -0,0 +1,89 @@
+package com.mycompany.moduloia.storage;
+
+import com.mycompany.moduloia.mlp.Precision;
+
+/**
+ * Cuantización post-entrenamiento a INT8 para servir modelos (solo inferencia).
+ *
+ * Cada fila de pesos (una neurona) usa su propia escala: escala = max|w| / 127 y
+ * q = round(w / escala), así el error por peso queda acotado por escala / 2.
+ * Los biases se guardan en float.
+ */
+public class ModelQuantizer {
+
+    static final int Q_MAX = 127;
+
+    public ModelBundle quantize(ModelBundle bundle) {
+        if (bundle.precision == Precision.INT8) {
+            return bundle;
+        }
+        int[] layerSizes = bundle.layerSizes;
+        int L = layerSizes.length - 1;
+        byte[][] weights = new byte[layerSizes.length][];
+        float[][] scales = new float[layerSizes.length][];
+        float[][] biases = new float[layerSizes.length][];
+
+        for (int l = 1; l <= L; l++) {
+            int fanIn = layerSizes[l - 1];
+            int rows = layerSizes[l];
+            double[] w = bundle.precision == Precision.FLOAT32 ? widen(bundle.weights32[l]) : bundle.weights[l];
+            byte[] q = new byte[rows * fanIn];
+            float[] sc = new float[rows];
+            for (int i = 0; i < rows; i++) {
+                sc[i] = quantizeRow(w, i * fanIn, fanIn, q);
+            }
+            weights[l] = q;
+            scales[l] = sc;
+            biases[l] = bundle.precision == Precision.FLOAT32 ? bundle.biases32[l].clone() : narrow(bundle.biases[l]);
+        }
+
+        return new ModelBundle(
+                bundle.modelId,
+                bundle.inputType,
+                bundle.featureSize,
+                bundle.outputSize,
+                bundle.hiddenActivation,
+                bundle.outputActivation,
+                layerSizes.clone(),
+                weights,
+                scales,
+                biases,
+                bundle.extractorState,
+                bundle.tfidfMaxVocab
+        );
+    }
+
+    // Cuantiza w[off .. off+len) en q (mismas posiciones) y devuelve la escala de la fila
+    private static float quantizeRow(double[] w, int off, int len, byte[] q) {
+        double maxAbs = 0.0;
+        for (int j = off; j < off + len; j++) {
+            maxAbs = Math.max(maxAbs, Math.abs(w[j]));
+        }
+        float scale = (float) (maxAbs / Q_MAX);
+        if (scale == 0.0f) {
+            // Fila en cero (o escala por debajo de float): q queda en 0
+            return 0.0f;
+        }
+        for (int j = off; j < off + len; j++) {
+            long r = Math.round(w[j] / scale);
+            q[j] = (byte) Math.max(-Q_MAX, Math.min(Q_MAX, r));
+        }
+        return scale;
+    }
+
+    private static double[] widen(float[] v) {
+        double[] out = new double[v.length];
+        for (int i = 0; i < v.length; i++) {
+            out[i] = v[i];
+        }
+        return out;
+    }
+
+    private static float[] narrow(double[] v) {
+        float[] out = new float[v.length];
+        for (int i = 0; i < v.length; i++) {
+            out[i] = (float) v[i];
+        }
+        return out;
+    }
+}
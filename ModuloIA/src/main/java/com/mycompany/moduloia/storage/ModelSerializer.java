@@ -3,19 +3,26 @@ package com.mycompany.moduloia.storage;
 import com.mycompany.moduloia.api.InputType;
 import com.mycompany.moduloia.mlp.HiddenActivation;
 import com.mycompany.moduloia.mlp.OutputActivation;
+import com.mycompany.moduloia.mlp.Precision;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.nio.file.Path;
 
 public class ModelSerializer {
 
-    private static final int FORMAT_VERSION = 1;
+    // 1: pesos siempre double; 2: agrega la precisión (FLOAT32 guarda los pesos en 4 bytes);
+    // 3: agrega INT8 (1 byte por peso + una escala float por fila)
+    private static final int FORMAT_VERSION = 3;
+    private static final int FORMAT_VERSION_DOUBLE_ONLY = 1;
 
     public void save(ModelBundle bundle, Path file) {
-        try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(file.toFile()))) {
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile())))) {
             dos.writeInt(FORMAT_VERSION);
 
             dos.writeUTF(bundle.modelId);
@@ -26,6 +33,7 @@ public class ModelSerializer {
 
             dos.writeInt(bundle.hiddenActivation.ordinal());
             dos.writeInt(bundle.outputActivation.ordinal());
+            dos.writeInt(bundle.precision.ordinal());
 
             // tfidfMaxVocab (si no aplica, puede ser 0)
             dos.writeInt(bundle.tfidfMaxVocab);
@@ -38,22 +46,43 @@ public class ModelSerializer {
 
             int L = bundle.layerSizes.length - 1;
 
-            // weights
-            for (int l = 1; l <= L; l++) {
-                int rows = bundle.layerSizes[l];
-                int cols = bundle.layerSizes[l - 1];
-                for (int i = 0; i < rows; i++) {
-                    for (int j = 0; j < cols; j++) {
-                        dos.writeDouble(bundle.weights[l][i][j]);
+            // weights (fila por fila: el arreglo plano de cada capa ya está en ese orden) y biases
+            if (bundle.precision == Precision.INT8) {
+                for (int l = 1; l <= L; l++) {
+                    dos.write(bundle.weightsQ8[l]);
+                }
+                for (int l = 1; l <= L; l++) {
+                    for (float sc : bundle.rowScales[l]) {
+                        dos.writeFloat(sc);
                     }
                 }
-            }
-
-            // biases
-            for (int l = 1; l <= L; l++) {
-                int rows = bundle.layerSizes[l];
-                for (int i = 0; i < rows; i++) {
-                    dos.writeDouble(bundle.biases[l][i]);
+                for (int l = 1; l <= L; l++) {
+                    for (float b : bundle.biases32[l]) {
+                        dos.writeFloat(b);
+                    }
+                }
+            } else if (bundle.precision == Precision.FLOAT32) {
+                for (int l = 1; l <= L; l++) {
+                    for (float w : bundle.weights32[l]) {
+                        dos.writeFloat(w);
+                    }
+                }
+                for (int l = 1; l <= L; l++) {
+                    for (float b : bundle.biases32[l]) {
+                        dos.writeFloat(b);
+                    }
+                }
+            } else {
+                for (int l = 1; l <= L; l++) {
+                    for (double w : bundle.weights[l]) {
+                        dos.writeDouble(w);
+                    }
+                }
+                for (int l = 1; l <= L; l++) {
+                    int rows = bundle.layerSizes[l];
+                    for (int i = 0; i < rows; i++) {
+                        dos.writeDouble(bundle.biases[l][i]);
+                    }
                 }
             }
 
@@ -69,9 +98,9 @@ public class ModelSerializer {
     }
 
     public ModelBundle load(Path file) {
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(file.toFile()))) {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile())))) {
             int ver = dis.readInt();
-            if (ver != FORMAT_VERSION) {
+            if (ver < FORMAT_VERSION_DOUBLE_ONLY || ver > FORMAT_VERSION) {
                 throw new IllegalArgumentException("Unsupported model format version: " + ver);
             }
 
@@ -83,6 +112,9 @@ public class ModelSerializer {
 
             HiddenActivation hiddenActivation = HiddenActivation.values()[dis.readInt()];
             OutputActivation outputActivation = OutputActivation.values()[dis.readInt()];
+            Precision precision = (ver == FORMAT_VERSION_DOUBLE_ONLY)
+                    ? Precision.FLOAT64
+                    : Precision.values()[dis.readInt()];
 
             int tfidfMaxVocab = dis.readInt();
 
@@ -94,21 +126,73 @@ public class ModelSerializer {
 
             int L = layerSizes.length - 1;
 
-            double[][][] weights = new double[layerSizes.length][][];
+            if (precision == Precision.INT8) {
+                byte[][] weights = new byte[layerSizes.length][];
+                float[][] scales = new float[layerSizes.length][];
+                float[][] biases = new float[layerSizes.length][];
+                for (int l = 1; l <= L; l++) {
+                    byte[] q = new byte[layerSizes[l] * layerSizes[l - 1]];
+                    dis.readFully(q);
+                    weights[l] = q;
+                }
+                for (int l = 1; l <= L; l++) {
+                    scales[l] = readFloats(dis, layerSizes[l]);
+                }
+                for (int l = 1; l <= L; l++) {
+                    biases[l] = readFloats(dis, layerSizes[l]);
+                }
+                return new ModelBundle(
+                        modelId,
+                        inputType,
+                        featureSize,
+                        outputSize,
+                        hiddenActivation,
+                        outputActivation,
+                        layerSizes,
+                        weights,
+                        scales,
+                        biases,
+                        readState(dis),
+                        tfidfMaxVocab
+                );
+            }
+
+            if (precision == Precision.FLOAT32) {
+                float[][] weights = new float[layerSizes.length][];
+                float[][] biases = new float[layerSizes.length][];
+                for (int l = 1; l <= L; l++) {
+                    weights[l] = readFloats(dis, layerSizes[l] * layerSizes[l - 1]);
+                }
+                for (int l = 1; l <= L; l++) {
+                    biases[l] = readFloats(dis, layerSizes[l]);
+                }
+                return new ModelBundle(
+                        modelId,
+                        inputType,
+                        featureSize,
+                        outputSize,
+                        hiddenActivation,
+                        outputActivation,
+                        layerSizes,
+                        weights,
+                        biases,
+                        readState(dis),
+                        tfidfMaxVocab
+                );
+            }
+
+            double[][] weights = new double[layerSizes.length][];
             double[][] biases = new double[layerSizes.length][];
 
             for (int l = 1; l <= L; l++) {
-                weights[l] = new double[layerSizes[l]][layerSizes[l - 1]];
+                weights[l] = new double[layerSizes[l] * layerSizes[l - 1]];
                 biases[l] = new double[layerSizes[l]];
             }
 
             for (int l = 1; l <= L; l++) {
-                int rows = layerSizes[l];
-                int cols = layerSizes[l - 1];
-                for (int i = 0; i < rows; i++) {
-                    for (int j = 0; j < cols; j++) {
-                        weights[l][i][j] = dis.readDouble();
-                    }
+                double[] w = weights[l];
+                for (int k = 0; k < w.length; k++) {
+                    w[k] = dis.readDouble();
                 }
             }
 
@@ -119,11 +203,7 @@ public class ModelSerializer {
                 }
             }
 
-            int stLen = dis.readInt();
-            byte[] state = new byte[stLen];
-            if (stLen > 0) {
-                dis.readFully(state);
-            }
+            byte[] state = readState(dis);
 
             return new ModelBundle(
                     modelId,
@@ -142,5 +222,21 @@ public class ModelSerializer {
             throw new RuntimeException("Failed to load model: " + file, e);
         }
     }
-}
 
+    private static float[] readFloats(DataInputStream dis, int len) throws IOException {
+        float[] v = new float[len];
+        for (int i = 0; i < len; i++) {
+            v[i] = dis.readFloat();
+        }
+        return v;
+    }
+
+    private static byte[] readState(DataInputStream dis) throws IOException {
+        int stLen = dis.readInt();
+        byte[] state = new byte[stLen];
+        if (stLen > 0) {
+            dis.readFully(state);
+        }
+        return state;
+    }
+}
@@ -1,5 +1,6 @@
 package com.mycompany.moduloia.features;
 
+import com.mycompany.moduloia.mlp.SparseVector;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -37,4 +38,28 @@ public class TfidfVectorizerStateTest {
             Assert.assertEquals(a[i], b[i], 1e-12);
         }
     }
+
+    @Test
+    public void testSparseTransformMatchesDense() {
+        List<String> docs = Arrays.asList(
+                "hola mundo",
+                "hola hola oferta",
+                "compra ahora oferta",
+                "mundo mundo compra"
+        );
+
+        TfidfVectorizer v = new TfidfVectorizer(50);
+        List<SparseVector> sparse = v.fitTransformSparse(docs);
+        Assert.assertEquals(docs.size(), sparse.size());
+
+        for (String probe : Arrays.asList("hola compra oferta oferta", "palabra desconocida", "")) {
+            SparseVector sv = v.transformOneSparse(probe);
+            Assert.assertEquals(v.getFeatureSize(), sv.size);
+            Assert.assertArrayEquals(v.transformOne(probe), sv.toDense(), 0.0);
+            for (int t = 1; t < sv.nnz(); t++) {
+                Assert.assertTrue(sv.indices[t - 1] < sv.indices[t]);
+            }
+        }
+        Assert.assertEquals(3, v.transformOneSparse("hola compra oferta oferta").nnz());
+    }
 }
@@ -0,0 +1,52 @@
+package com.mycompany.moduloia.mlp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class ComputePoolTest {
+
+    @Test
+    public void testForRangeVisitsEveryIndexOnce() {
+        int n = 1003;
+        AtomicIntegerArray hits = new AtomicIntegerArray(n);
+        ComputePool.forRange(n, 7, (from, to) -> {
+            Assert.assertTrue("range too large: " + from + ".." + to, to - from <= 7);
+            for (int i = from; i < to; i++) {
+                hits.incrementAndGet(i);
+            }
+        });
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals("index " + i, 1, hits.get(i));
+        }
+    }
+
+    @Test
+    public void testNestedForRangeFromPoolThread() {
+        int[] sums = new int[16];
+        ComputePool.run(() -> ComputePool.forRange(sums.length, 1, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                int[] acc = new int[1];
+                ComputePool.forRange(100, 10, (a, b) -> {
+                    synchronized (acc) {
+                        acc[0] += b - a;
+                    }
+                });
+                sums[t] = acc[0];
+            }
+        }));
+        for (int s : sums) {
+            Assert.assertEquals(100, s);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testForRangeRethrowsFailure() {
+        ComputePool.forRange(100, 1, (from, to) -> {
+            if (from == 42) {
+                throw new IllegalStateException("boom");
+            }
+        });
+    }
+}
@@ -0,0 +1,86 @@
+package com.mycompany.moduloia.mlp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class MLPBatchParityTest {
+
+    @Test
+    public void testBatchedTrainingMatchesPerSample() {
+        assertSameTrainingAllShapes();
+    }
+
+    @Test
+    public void testBatchedTrainingMatchesPerSampleScalarKernels() {
+        boolean previous = MatrixOps.setVectorEnabled(false);
+        try {
+            assertSameTrainingAllShapes();
+        } finally {
+            MatrixOps.setVectorEnabled(previous);
+        }
+    }
+
+    private void assertSameTrainingAllShapes() {
+        // Tamaños impares para pasar por los bloques y los restos de MatrixOps
+        int[][] shapes = {{7, 13, 5}, {10, 9, 6, 2}, {3, 4, 1}};
+        for (int[] layers : shapes) {
+            int out = layers[layers.length - 1];
+            OutputActivation[] outs = out == 1
+                    ? new OutputActivation[]{OutputActivation.SIGMOID, OutputActivation.LINEAR}
+                    : new OutputActivation[]{OutputActivation.SOFTMAX, OutputActivation.LINEAR};
+            for (HiddenActivation hid : HiddenActivation.values()) {
+                for (OutputActivation outAct : outs) {
+                    for (int batchSize : new int[]{1, 3, 8, 64}) {
+                        assertSameTraining(layers, hid, outAct, batchSize);
+                    }
+                }
+            }
+        }
+    }
+
+    private void assertSameTraining(int[] layers, HiddenActivation hid, OutputActivation outAct, int batchSize) {
+        List<TrainingSample> data = makeDataset(layers[0], layers[layers.length - 1], outAct, 37, 11L);
+
+        MLP batched = new MLP(layers, hid, outAct, 5L);
+        MLP perSample = new MLP(layers, hid, outAct, 5L);
+
+        batched.train(data, 3, 0.05, batchSize, true, 17L);
+        perSample.trainPerSample(data, 3, 0.05, batchSize, true, 17L);
+
+        String label = Arrays.toString(layers) + " " + hid + "/" + outAct + " batch=" + batchSize;
+        double[][] w1 = batched.exportWeightsCopy();
+        double[][] w2 = perSample.exportWeightsCopy();
+        double[][] b1 = batched.exportBiasesCopy();
+        double[][] b2 = perSample.exportBiasesCopy();
+        for (int l = 1; l < layers.length; l++) {
+            Assert.assertArrayEquals(label + " weights layer " + l, w2[l], w1[l], 0.0);
+            Assert.assertArrayEquals(label + " biases layer " + l, b2[l], b1[l], 0.0);
+        }
+    }
+
+    private List<TrainingSample> makeDataset(int in, int out, OutputActivation outAct, int n, long seed) {
+        Random rnd = new Random(seed);
+        List<TrainingSample> data = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            double[] x = new double[in];
+            for (int j = 0; j < in; j++) {
+                x[j] = rnd.nextGaussian();
+            }
+            double[] y = new double[out];
+            if (outAct == OutputActivation.LINEAR) {
+                for (int i = 0; i < out; i++) {
+                    y[i] = rnd.nextGaussian();
+                }
+            } else {
+                y[rnd.nextInt(out)] = 1.0;
+            }
+            data.add(new TrainingSample(x, y));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,65 @@
+package com.mycompany.moduloia.mlp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class MLPFloat32Test {
+
+    @Test
+    public void testFloat32TrainingTracksFloat64() {
+        List<TrainingSample> data = makeDataset(200, 24, 4, 5L);
+        int[] layers = {24, 16, 4};
+
+        for (HiddenActivation hid : HiddenActivation.values()) {
+            MLP m64 = new MLP(layers, hid, OutputActivation.SOFTMAX, 3L);
+            MLP m32 = new MLP(layers, hid, OutputActivation.SOFTMAX, 3L, Precision.FLOAT32);
+            double before = m32.computeAverageLoss(data);
+
+            m64.train(data, 5, 0.05, 16, true, 9L);
+            m32.train(data, 5, 0.05, 16, true, 9L);
+
+            double loss64 = m64.computeAverageLoss(data);
+            double loss32 = m32.computeAverageLoss(data);
+            Assert.assertTrue(hid + ": loss did not decrease", loss32 < before);
+            Assert.assertEquals(hid + ": float32 loss far from float64", loss64, loss32, 1e-3 * loss64);
+        }
+    }
+
+    @Test
+    public void testFloat32ParallelTrainingKeepsPrecision() {
+        List<TrainingSample> data = makeDataset(120, 10, 1, 8L);
+        MLP mlp = new MLP(new int[]{10, 16, 1}, HiddenActivation.RELU, OutputActivation.SIGMOID, 7L,
+                Precision.FLOAT32);
+        double before = mlp.computeAverageLoss(data);
+
+        ParallelMLPTrainer.trainDataParallel(mlp, data, 6, 0.1, 16, true, 99L, 3);
+
+        Assert.assertEquals(Precision.FLOAT32, mlp.getPrecision());
+        Assert.assertTrue(mlp.computeAverageLoss(data) < before);
+    }
+
+    private List<TrainingSample> makeDataset(int n, int in, int out, long seed) {
+        Random rnd = new Random(seed);
+        List<TrainingSample> data = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            double[] x = new double[in];
+            double sum = 0.0;
+            for (int j = 0; j < in; j++) {
+                x[j] = rnd.nextGaussian();
+                sum += (j % 3 - 1) * x[j];
+            }
+            double[] y = new double[out];
+            if (out == 1) {
+                y[0] = sum > 0.0 ? 1.0 : 0.0;
+            } else {
+                y[Math.floorMod((int) Math.floor(sum), out)] = 1.0;
+            }
+            data.add(new TrainingSample(x, y));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,111 @@
+package com.mycompany.moduloia.mlp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class MLPSparseInputTest {
+
+    private static final int VOCAB = 300;
+
+    @Test
+    public void testSparseTrainingMatchesDenseScalarKernels() {
+        // Con kernels escalares los ceros no cambian ninguna suma: mismo resultado exacto
+        boolean previous = MatrixOps.setVectorEnabled(false);
+        try {
+            assertSparseMatchesDense(Precision.FLOAT64, 0.0);
+        } finally {
+            MatrixOps.setVectorEnabled(previous);
+        }
+    }
+
+    @Test
+    public void testSparseTrainingMatchesDense() {
+        assertSparseMatchesDense(Precision.FLOAT64, 1e-9);
+        assertSparseMatchesDense(Precision.FLOAT32, 1e-4);
+    }
+
+    @Test
+    public void testSparsePredictMatchesDenseForEveryPrecision() {
+        int[] layers = {VOCAB, 24, 3};
+        List<TrainingSample> sparse = makeDataset(50, 3L);
+        MLP mlp64 = new MLP(layers, HiddenActivation.RELU, OutputActivation.SOFTMAX, 7L);
+        MLP mlp32 = new MLP(layers, HiddenActivation.RELU, OutputActivation.SOFTMAX, 7L, Precision.FLOAT32);
+
+        float[][] w32 = mlp32.exportWeights32Copy();
+        byte[][] q = new byte[layers.length][];
+        float[][] scales = new float[layers.length][];
+        for (int l = 1; l < layers.length; l++) {
+            q[l] = new byte[w32[l].length];
+            scales[l] = new float[layers[l]];
+            for (int i = 0; i < layers[l]; i++) {
+                scales[l][i] = 0.01f;
+                for (int j = 0; j < layers[l - 1]; j++) {
+                    int k = i * layers[l - 1] + j;
+                    q[l][k] = (byte) Math.max(-127, Math.min(127, Math.round(w32[l][k] / 0.01f)));
+                }
+            }
+        }
+        MLP mlp8 = MLP.wrap(layers, HiddenActivation.RELU, OutputActivation.SOFTMAX, q, scales, mlp32.exportBiases32Copy());
+
+        for (TrainingSample s : sparse) {
+            double[] dense = s.sparseX.toDense();
+            Assert.assertArrayEquals(mlp64.predict(dense), mlp64.predict(s.sparseX), 1e-12);
+            Assert.assertArrayEquals(mlp32.predict(dense), mlp32.predict(s.sparseX), 1e-5);
+            Assert.assertArrayEquals(mlp8.predict(dense), mlp8.predict(s.sparseX), 1e-5);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMixedSparseAndDenseSamplesAreRejected() {
+        List<TrainingSample> data = makeDataset(4, 1L);
+        data.add(new TrainingSample(new double[VOCAB], new double[]{1, 0, 0}));
+        new MLP(new int[]{VOCAB, 8, 3}, HiddenActivation.RELU, OutputActivation.SOFTMAX, 1L)
+                .train(data, 1, 0.1, 2, false, 1L);
+    }
+
+    private void assertSparseMatchesDense(Precision precision, double tol) {
+        int[] layers = {VOCAB, 17, 3};
+        List<TrainingSample> sparse = makeDataset(45, 11L);
+        List<TrainingSample> dense = new ArrayList<>();
+        for (TrainingSample s : sparse) {
+            dense.add(new TrainingSample(s.sparseX.toDense(), s.y));
+        }
+
+        MLP a = new MLP(layers, HiddenActivation.RELU, OutputActivation.SOFTMAX, 5L, precision);
+        MLP b = new MLP(layers, HiddenActivation.RELU, OutputActivation.SOFTMAX, 5L, precision);
+        a.train(sparse, 3, 0.1, 8, true, 17L);
+        b.train(dense, 3, 0.1, 8, true, 17L);
+
+        double[][] wa = a.exportWeightsCopy();
+        double[][] wb = b.exportWeightsCopy();
+        double[][] ba = a.exportBiasesCopy();
+        double[][] bb = b.exportBiasesCopy();
+        for (int l = 1; l < layers.length; l++) {
+            Assert.assertArrayEquals(precision + " weights layer " + l, wb[l], wa[l], tol);
+            Assert.assertArrayEquals(precision + " biases layer " + l, bb[l], ba[l], tol);
+        }
+        Assert.assertEquals(b.computeAverageLoss(dense), a.computeAverageLoss(sparse), tol);
+    }
+
+    // Documentos de ~10 términos de un vocabulario de VOCAB; la clase depende de qué tercio domina
+    private List<TrainingSample> makeDataset(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<TrainingSample> data = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            int c = rnd.nextInt(3);
+            double[] x = new double[VOCAB];
+            for (int t = 0; t < 10; t++) {
+                int idx = rnd.nextDouble() < 0.5 ? c * (VOCAB / 3) + rnd.nextInt(VOCAB / 3) : rnd.nextInt(VOCAB);
+                x[idx] += 0.1 + rnd.nextDouble();
+            }
+            double[] y = new double[3];
+            y[c] = 1.0;
+            data.add(new TrainingSample(SparseVector.fromDense(x), y));
+        }
+        return data;
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -35,6 +36,172 @@ public class ParallelMLPTrainerTest {
                 lossAfter < lossBefore);
     }
 
+    @Test
+    public void testHogwildTrainingReducesLoss() {
+        List<TrainingSample> data = makeLinearlySeparableDataset(80, 123L);
+
+        MLP mlp = new MLP(new int[]{2, 16, 1}, HiddenActivation.RELU, OutputActivation.SIGMOID, 7L);
+        double lossBefore = mlp.computeAverageLoss(data);
+
+        ParallelMLPTrainer.trainDataParallel(mlp, data, 8, 0.1, 16, true, 999L, 4, TrainingMode.HOGWILD);
+
+        double lossAfter = mlp.computeAverageLoss(data);
+        Assert.assertTrue("Expected lossAfter < lossBefore but got " + lossAfter + " >= " + lossBefore,
+                lossAfter < lossBefore);
+    }
+
+    @Test
+    public void testHogwildSparseTrainingReducesLoss() {
+        // Documentos dispersos: la clase la decide un token propio de cada clase
+        Random rnd = new Random(5L);
+        int vocab = 500;
+        List<TrainingSample> data = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int c = rnd.nextInt(2);
+            double[] x = new double[vocab];
+            x[c] = 1.0;
+            for (int t = 0; t < 8; t++) {
+                x[2 + rnd.nextInt(vocab - 2)] = rnd.nextDouble();
+            }
+            data.add(new TrainingSample(SparseVector.fromDense(x), new double[]{c == 1 ? 1.0 : 0.0}));
+        }
+
+        MLP mlp = new MLP(new int[]{vocab, 16, 1}, HiddenActivation.RELU, OutputActivation.SIGMOID, 7L);
+        double lossBefore = mlp.computeAverageLoss(data);
+
+        ParallelMLPTrainer.trainDataParallel(mlp, data, 10, 0.2, 8, true, 1L, 3, TrainingMode.HOGWILD);
+
+        double lossAfter = mlp.computeAverageLoss(data);
+        Assert.assertTrue("Expected lossAfter < lossBefore / 2 but got " + lossAfter + " vs " + lossBefore,
+                lossAfter < lossBefore / 2);
+    }
+
+    @Test
+    public void testAllReduceMatchesSerialTraining() {
+        List<TrainingSample> data = makeLinearlySeparableDataset(90, 123L);
+        int[] layers = new int[]{2, 16, 8, 1};
+
+        MLP serial = new MLP(layers, HiddenActivation.RELU, OutputActivation.SIGMOID, 7L);
+        serial.train(data, 5, 0.1, 16, true, 999L);
+
+        MLP parallel = new MLP(layers, HiddenActivation.RELU, OutputActivation.SIGMOID, 7L);
+        ParallelMLPTrainer.trainDataParallel(parallel, data, 5, 0.1, 16, true, 999L, 4, TrainingMode.ALL_REDUCE);
+
+        assertSameParameters(serial, parallel, 1e-9);
+    }
+
+    @Test
+    public void testAllReduceSparseMatchesSerialTraining() {
+        List<TrainingSample> data = makeSparseDataset(120, 300, 5L);
+        int[] layers = new int[]{300, 12, 2};
+
+        MLP serial = new MLP(layers, HiddenActivation.TANH, OutputActivation.SOFTMAX, 3L);
+        serial.train(data, 4, 0.2, 10, true, 11L);
+
+        MLP parallel = new MLP(layers, HiddenActivation.TANH, OutputActivation.SOFTMAX, 3L);
+        ParallelMLPTrainer.trainDataParallel(parallel, data, 4, 0.2, 10, true, 11L, 3, TrainingMode.ALL_REDUCE);
+
+        assertSameParameters(serial, parallel, 1e-9);
+    }
+
+    @Test
+    public void testAllReduceWithMoreThreadsThanPool() {
+        // Más particiones que hilos del pool: el resultado solo depende de numThreads
+        List<TrainingSample> data = makeLinearlySeparableDataset(100, 321L);
+        int[] layers = new int[]{2, 8, 1};
+        int threads = 2 * ComputePool.parallelism() + 1;
+
+        MLP serial = new MLP(layers, HiddenActivation.RELU, OutputActivation.SIGMOID, 9L);
+        serial.train(data, 3, 0.1, 20, true, 5L);
+
+        MLP parallel = new MLP(layers, HiddenActivation.RELU, OutputActivation.SIGMOID, 9L);
+        ParallelMLPTrainer.trainDataParallel(parallel, data, 3, 0.1, 20, true, 5L, threads, TrainingMode.ALL_REDUCE);
+
+        assertSameParameters(serial, parallel, 1e-9);
+    }
+
+    @Test
+    public void testModelAveragingMatchesReplicaReference() {
+        // Referencia: réplicas nuevas por epoch con export/import de copias y promedio aparte
+        List<TrainingSample> data = makeLinearlySeparableDataset(60, 77L);
+        int[] layers = new int[]{2, 6, 1};
+        int threads = 3;
+        int epochs = 3;
+
+        MLP expected = new MLP(layers, HiddenActivation.RELU, OutputActivation.SIGMOID, 4L);
+        List<TrainingSample> work = new ArrayList<>(data);
+        Random rnd = new Random(8L);
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            Collections.shuffle(work, rnd);
+            double[][] sumW = null;
+            double[][] sumB = null;
+            for (int t = 0; t < threads; t++) {
+                List<TrainingSample> chunk = work.subList(t * 20, (t + 1) * 20);
+                MLP local = new MLP(layers, HiddenActivation.RELU, OutputActivation.SIGMOID, 1L);
+                local.importParameters(expected.exportWeightsCopy(), expected.exportBiasesCopy());
+                local.train(chunk, 1, 0.1, 8, false, 8L + 1000L * epoch + t);
+                double[][] w = local.exportWeightsCopy();
+                double[][] b = local.exportBiasesCopy();
+                if (sumW == null) {
+                    sumW = w;
+                    sumB = b;
+                    continue;
+                }
+                for (int l = 1; l < layers.length; l++) {
+                    for (int k = 0; k < w[l].length; k++) {
+                        sumW[l][k] += w[l][k];
+                    }
+                    for (int k = 0; k < b[l].length; k++) {
+                        sumB[l][k] += b[l][k];
+                    }
+                }
+            }
+            for (int l = 1; l < layers.length; l++) {
+                for (int k = 0; k < sumW[l].length; k++) {
+                    sumW[l][k] *= 1.0 / threads;
+                }
+                for (int k = 0; k < sumB[l].length; k++) {
+                    sumB[l][k] *= 1.0 / threads;
+                }
+            }
+            expected.importParameters(sumW, sumB);
+        }
+
+        MLP actual = new MLP(layers, HiddenActivation.RELU, OutputActivation.SIGMOID, 4L);
+        ParallelMLPTrainer.trainDataParallel(actual, data, epochs, 0.1, 8, true, 8L, threads);
+
+        assertSameParameters(expected, actual, 0.0);
+    }
+
+    private static void assertSameParameters(MLP expected, MLP actual, double tol) {
+        double[][] ew = expected.exportWeightsCopy();
+        double[][] aw = actual.exportWeightsCopy();
+        double[][] eb = expected.exportBiasesCopy();
+        double[][] ab = actual.exportBiasesCopy();
+        for (int l = 1; l < ew.length; l++) {
+            Assert.assertArrayEquals("weights layer " + l, ew[l], aw[l], tol);
+            Assert.assertArrayEquals("biases layer " + l, eb[l], ab[l], tol);
+        }
+    }
+
+    private List<TrainingSample> makeSparseDataset(int n, int vocab, long seed) {
+        // Documentos dispersos: la clase la decide un token propio de cada clase
+        Random rnd = new Random(seed);
+        List<TrainingSample> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int c = rnd.nextInt(2);
+            double[] x = new double[vocab];
+            x[c] = 1.0;
+            for (int t = 0; t < 8; t++) {
+                x[2 + rnd.nextInt(vocab - 2)] = rnd.nextDouble();
+            }
+            double[] y = new double[2];
+            y[c] = 1.0;
+            out.add(new TrainingSample(SparseVector.fromDense(x), y));
+        }
+        return out;
+    }
+
     private List<TrainingSample> makeLinearlySeparableDataset(int n, long seed) {
         Random rnd = new Random(seed);
         List<TrainingSample> out = new ArrayList<>(n);
@@ -0,0 +1,125 @@
+package com.mycompany.moduloia.mlp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class VectorMatrixOpsTest {
+
+    private boolean previous;
+
+    @Before
+    public void requireVectorApi() {
+        // Sin --add-modules jdk.incubator.vector no hay kernel vectorial que comparar
+        Assume.assumeTrue(MatrixOps.vectorAvailable());
+        previous = MatrixOps.setVectorEnabled(true);
+    }
+
+    @After
+    public void restore() {
+        MatrixOps.setVectorEnabled(previous);
+    }
+
+    @Test
+    public void testKernelsMatchScalarWithinRounding() {
+        // k cubre: menos de un vector, múltiplo exacto de lanes y con cola
+        int[][] dims = {{1, 3, 5}, {2, 16, 4}, {5, 37, 9}, {8, 130, 11}, {32, 784, 128}};
+        Random rnd = new Random(3L);
+        for (int[] dim : dims) {
+            int rows = dim[0];
+            int k = dim[1];
+            int n = dim[2];
+            double[] a = gaussian(rnd, rows * k);
+            double[] w = gaussian(rnd, n * k);
+            double[] b = gaussian(rnd, n);
+            double[] d = gaussian(rnd, rows * n);
+            double[] g = gaussian(rnd, n * k);
+            String label = "rows=" + rows + " k=" + k + " n=" + n;
+
+            double[] zVec = new double[rows * n];
+            double[] gVec = g.clone();
+            double[] tVec = new double[rows * k];
+            MatrixOps.forward(a, w, b, zVec, rows, k, n);
+            MatrixOps.accumulateGradient(d, a, gVec, rows, n, k);
+            MatrixOps.backward(d, w, tVec, rows, n, k);
+
+            MatrixOps.setVectorEnabled(false);
+            double[] zRef = new double[rows * n];
+            double[] gRef = g.clone();
+            double[] tRef = new double[rows * k];
+            MatrixOps.forward(a, w, b, zRef, rows, k, n);
+            MatrixOps.accumulateGradient(d, a, gRef, rows, n, k);
+            MatrixOps.backward(d, w, tRef, rows, n, k);
+            MatrixOps.setVectorEnabled(true);
+
+            Assert.assertArrayEquals(label + " forward", zRef, zVec, 1e-9);
+            Assert.assertArrayEquals(label + " gradient", gRef, gVec, 1e-9);
+            Assert.assertArrayEquals(label + " backward", tRef, tVec, 1e-9);
+        }
+    }
+
+    @Test
+    public void testSingleRowMatchesBatchRow() {
+        // forwardWithCache usa rows = 1: debe dar lo mismo que la fila dentro del batch
+        int rows = 7;
+        int k = 53;
+        int n = 10;
+        Random rnd = new Random(9L);
+        double[] a = gaussian(rnd, rows * k);
+        double[] w = gaussian(rnd, n * k);
+        double[] b = gaussian(rnd, n);
+        double[] z = new double[rows * n];
+        MatrixOps.forward(a, w, b, z, rows, k, n);
+
+        for (int s = 0; s < rows; s++) {
+            double[] row = new double[k];
+            System.arraycopy(a, s * k, row, 0, k);
+            double[] zs = new double[n];
+            MatrixOps.forward(row, w, b, zs, 1, k, n);
+            for (int i = 0; i < n; i++) {
+                Assert.assertEquals("sample " + s + " neuron " + i, z[s * n + i], zs[i], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testInt8ForwardMatchesScalarWithinRounding() {
+        int[][] dims = {{3, 5}, {16, 4}, {37, 9}, {784, 128}};
+        Random rnd = new Random(4L);
+        for (int[] dim : dims) {
+            int k = dim[0];
+            int n = dim[1];
+            float[] x = new float[k];
+            for (int j = 0; j < k; j++) {
+                x[j] = (float) rnd.nextGaussian();
+            }
+            byte[] q = new byte[n * k];
+            rnd.nextBytes(q);
+            float[] scale = new float[n];
+            float[] b = new float[n];
+            for (int i = 0; i < n; i++) {
+                scale[i] = rnd.nextFloat() * 0.01f;
+                b[i] = (float) rnd.nextGaussian();
+            }
+            float[] zVec = new float[n];
+            MatrixOps.forwardInt8(x, q, scale, b, zVec, k, n);
+            MatrixOps.setVectorEnabled(false);
+            float[] zRef = new float[n];
+            MatrixOps.forwardInt8(x, q, scale, b, zRef, k, n);
+            MatrixOps.setVectorEnabled(true);
+            Assert.assertArrayEquals("k=" + k + " n=" + n, zRef, zVec, 1e-3f);
+        }
+    }
+
+    private double[] gaussian(Random rnd, int len) {
+        double[] v = new double[len];
+        for (int i = 0; i < len; i++) {
+            v[i] = rnd.nextGaussian();
+        }
+        return v;
+    }
+}
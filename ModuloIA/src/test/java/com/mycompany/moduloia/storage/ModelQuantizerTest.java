@@ -0,0 +1,78 @@
+package com.mycompany.moduloia.storage;
+
+import com.mycompany.moduloia.api.InputType;
+import com.mycompany.moduloia.mlp.HiddenActivation;
+import com.mycompany.moduloia.mlp.MLP;
+import com.mycompany.moduloia.mlp.OutputActivation;
+import com.mycompany.moduloia.mlp.Precision;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class ModelQuantizerTest {
+
+    @Test
+    public void testPerRowErrorIsBoundedByHalfScale() {
+        int[] layers = new int[]{50, 24, 4};
+        MLP mlp = new MLP(layers, HiddenActivation.RELU, OutputActivation.SOFTMAX, 7L);
+        double[][] w = mlp.exportWeightsCopy();
+        // Una fila en cero: escala 0 y sin NaN al descuantizar
+        java.util.Arrays.fill(w[2], 0, 24, 0.0);
+        mlp.importParameters(w, mlp.exportBiasesCopy());
+
+        ModelBundle q = new ModelQuantizer().quantize(bundle(mlp));
+        Assert.assertEquals(Precision.INT8, q.precision);
+
+        for (int l = 1; l < layers.length; l++) {
+            int fanIn = layers[l - 1];
+            for (int i = 0; i < layers[l]; i++) {
+                float scale = q.rowScales[l][i];
+                for (int j = 0; j < fanIn; j++) {
+                    double deq = q.weightsQ8[l][i * fanIn + j] * scale;
+                    Assert.assertEquals("layer " + l + " row " + i, w[l][i * fanIn + j], deq, scale * 0.5 + 1e-7);
+                }
+            }
+        }
+        Assert.assertEquals(0.0f, q.rowScales[2][0], 0.0f);
+        // El máximo de cada fila queda en ±127
+        int maxQ = 0;
+        for (int j = 0; j < 50; j++) {
+            maxQ = Math.max(maxQ, Math.abs(q.weightsQ8[1][j]));
+        }
+        Assert.assertEquals(127, maxQ);
+    }
+
+    @Test
+    public void testQuantizedPredictionStaysCloseAndIsInferenceOnly() {
+        int[] layers = new int[]{64, 32, 5};
+        MLP mlp = new MLP(layers, HiddenActivation.RELU, OutputActivation.SOFTMAX, 11L);
+        ModelBundle q = new ModelQuantizer().quantize(bundle(mlp));
+        MLP q8 = MLP.wrap(q.layerSizes, q.hiddenActivation, q.outputActivation, q.weightsQ8, q.rowScales, q.biases32);
+
+        Random rnd = new Random(5L);
+        for (int s = 0; s < 20; s++) {
+            double[] x = new double[64];
+            for (int j = 0; j < x.length; j++) {
+                x[j] = rnd.nextGaussian();
+            }
+            Assert.assertArrayEquals(mlp.predict(x), q8.predict(x), 2e-2);
+        }
+
+        // Exportar descuantiza; reentrenar no está permitido
+        Assert.assertEquals(q.weightsQ8[1][3] * q.rowScales[1][0], q8.exportWeightsCopy()[1][3], 1e-9);
+        try {
+            q8.importParameters(mlp.exportWeightsCopy(), mlp.exportBiasesCopy());
+            Assert.fail("INT8 must be inference-only");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+    }
+
+    private static ModelBundle bundle(MLP mlp) {
+        int[] layers = mlp.getLayerSizes();
+        return new ModelBundle("Q", InputType.TABULAR, layers[0], layers[layers.length - 1],
+                HiddenActivation.RELU, OutputActivation.SOFTMAX, layers,
+                mlp.exportWeightsCopy(), mlp.exportBiasesCopy(), new byte[0], 0);
+    }
+}
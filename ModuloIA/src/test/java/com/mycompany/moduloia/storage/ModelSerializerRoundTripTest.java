@@ -4,6 +4,7 @@ import com.mycompany.moduloia.api.InputType;
 import com.mycompany.moduloia.mlp.HiddenActivation;
 import com.mycompany.moduloia.mlp.MLP;
 import com.mycompany.moduloia.mlp.OutputActivation;
+import com.mycompany.moduloia.mlp.Precision;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -55,4 +56,77 @@ public class ModelSerializerRoundTripTest {
             Assert.assertEquals(outBefore[i], outAfter[i], 1e-12);
         }
     }
+
+    @Test
+    public void testFloat32SaveLoadKeepsPredictionAndHalvesWeights() throws Exception {
+        int[] layers = new int[]{20, 16, 3};
+
+        MLP mlp = new MLP(layers, HiddenActivation.RELU, OutputActivation.SOFTMAX, 42L, Precision.FLOAT32);
+        ModelBundle bundle = new ModelBundle("MODEL-F32", InputType.TABULAR, 20, 3,
+                HiddenActivation.RELU, OutputActivation.SOFTMAX, mlp.getLayerSizes(),
+                mlp.exportWeights32Copy(), mlp.exportBiases32Copy(), new byte[0], 0);
+        ModelBundle bundle64 = new ModelBundle("MODEL-F32", InputType.TABULAR, 20, 3,
+                HiddenActivation.RELU, OutputActivation.SOFTMAX, mlp.getLayerSizes(),
+                mlp.exportWeightsCopy(), mlp.exportBiasesCopy(), new byte[0], 0);
+
+        Path tmp = Files.createTempFile("model32", ".bin");
+        Path tmp64 = Files.createTempFile("model64", ".bin");
+        new ModelSerializer().save(bundle, tmp);
+        new ModelSerializer().save(bundle64, tmp64);
+
+        // 16*20 + 3*16 pesos + 19 biases: 4 bytes menos por parámetro
+        int params = 20 * 16 + 16 * 3 + 16 + 3;
+        Assert.assertEquals(Files.size(tmp64) - 4L * params, Files.size(tmp));
+
+        ModelBundle loaded = new ModelSerializer().load(tmp);
+        Assert.assertEquals(Precision.FLOAT32, loaded.precision);
+        Assert.assertNull(loaded.weights);
+
+        MLP mlp2 = MLP.wrap(loaded.layerSizes, loaded.hiddenActivation, loaded.outputActivation,
+                loaded.weights32, loaded.biases32);
+        Assert.assertEquals(Precision.FLOAT32, mlp2.getPrecision());
+
+        double[] input = new double[20];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = Math.sin(i);
+        }
+        Assert.assertArrayEquals(mlp.predict(input), mlp2.predict(input), 0.0);
+    }
+
+    @Test
+    public void testInt8SaveLoadKeepsPrediction() throws Exception {
+        int[] layers = new int[]{20, 16, 3};
+
+        MLP mlp = new MLP(layers, HiddenActivation.RELU, OutputActivation.SOFTMAX, 42L);
+        ModelBundle bundle64 = new ModelBundle("MODEL-Q8", InputType.TABULAR, 20, 3,
+                HiddenActivation.RELU, OutputActivation.SOFTMAX, mlp.getLayerSizes(),
+                mlp.exportWeightsCopy(), mlp.exportBiasesCopy(), new byte[0], 0);
+        ModelBundle bundle = new ModelQuantizer().quantize(bundle64);
+
+        Path tmp = Files.createTempFile("model8", ".bin");
+        Path tmp64 = Files.createTempFile("model64", ".bin");
+        new ModelSerializer().save(bundle, tmp);
+        new ModelSerializer().save(bundle64, tmp64);
+
+        // pesos: 8 bytes -> 1; por neurona: bias de 8 -> 4 bytes + escala float de 4 (mismo total)
+        int weights = 20 * 16 + 16 * 3;
+        Assert.assertEquals(Files.size(tmp64) - 7L * weights, Files.size(tmp));
+
+        ModelBundle loaded = new ModelSerializer().load(tmp);
+        Assert.assertEquals(Precision.INT8, loaded.precision);
+        Assert.assertArrayEquals(bundle.weightsQ8[1], loaded.weightsQ8[1]);
+        Assert.assertArrayEquals(bundle.rowScales[2], loaded.rowScales[2], 0.0f);
+
+        MLP before = MLP.wrap(bundle.layerSizes, bundle.hiddenActivation, bundle.outputActivation,
+                bundle.weightsQ8, bundle.rowScales, bundle.biases32);
+        MLP after = MLP.wrap(loaded.layerSizes, loaded.hiddenActivation, loaded.outputActivation,
+                loaded.weightsQ8, loaded.rowScales, loaded.biases32);
+        Assert.assertEquals(Precision.INT8, after.getPrecision());
+
+        double[] input = new double[20];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = Math.sin(i);
+        }
+        Assert.assertArrayEquals(before.predict(input), after.predict(input), 0.0);
+    }
 }
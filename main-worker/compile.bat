@@ -14,7 +14,7 @@ echo.
 echo [1/3] Compilando ModuloIA...
 cd ..\ModuloIA
 if not exist "target\classes" mkdir target\classes
-javac -d target\classes src\main\java\com\mycompany\moduloia\api\*.java src\main\java\com\mycompany\moduloia\data\*.java src\main\java\com\mycompany\moduloia\features\*.java src\main\java\com\mycompany\moduloia\mlp\*.java src\main\java\com\mycompany\moduloia\storage\*.java 2>nul
+javac --add-modules jdk.incubator.vector -d target\classes src\main\java\com\mycompany\moduloia\api\*.java src\main\java\com\mycompany\moduloia\data\*.java src\main\java\com\mycompany\moduloia\features\*.java src\main\java\com\mycompany\moduloia\mlp\*.java src\main\java\com\mycompany\moduloia\storage\*.java 2>nul
 if %ERRORLEVEL% NEQ 0 (
     echo ERROR: Fallo la compilacion de ModuloIA
     cd ..\main-worker
@@ -38,11 +38,13 @@ cd ..\main-worker
 REM Compilar main-worker
 echo.
 echo [3/3] Compilando main-worker...
-javac -d out -cp ..\raft-core\out;..\ModuloIA\target\classes src\main\java\com\mainworker\core\*.java
+javac -d out -cp ..\raft-core\out;..\ModuloIA\target\classes src\main\java\com\mainworker\core\*.java src\main\java\com\mainworker\ai\*.java
 if %ERRORLEVEL% NEQ 0 (
     echo ERROR: Fallo la compilacion de main-worker
     exit /b 1
 )
+REM Registro del proveedor de IA (META-INF/services)
+xcopy /E /I /Y /Q src\main\resources out >nul
 
 echo.
 echo ====================================
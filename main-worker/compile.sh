@@ -8,9 +8,22 @@ echo "===================================="
 # Crear directorio de salida
 mkdir -p out
 
-# Compilar raft-core primero
+# Compilar ModuloIA (motor de IA, se enlaza por ServiceLoader)
 echo ""
-echo "[1/2] Compilando raft-core..."
+echo "[1/3] Compilando ModuloIA..."
+cd ../ModuloIA
+mkdir -p target/classes
+javac --add-modules jdk.incubator.vector -d target/classes $(find src/main/java -name '*.java')
+if [ $? -ne 0 ]; then
+    echo "ERROR: Fallo la compilación de ModuloIA"
+    cd ../main-worker
+    exit 1
+fi
+cd ../main-worker
+
+# Compilar raft-core
+echo ""
+echo "[2/3] Compilando raft-core..."
 cd ../raft-core
 mkdir -p out
 javac -d out src/main/java/com/rafthq/core/*.java
@@ -23,12 +36,14 @@ cd ../main-worker
 
 # Compilar main-worker
 echo ""
-echo "[2/2] Compilando main-worker..."
-javac -d out -cp ../raft-core/out src/main/java/com/mainworker/core/*.java
+echo "[3/3] Compilando main-worker..."
+javac -d out -cp ../raft-core/out:../ModuloIA/target/classes src/main/java/com/mainworker/core/*.java src/main/java/com/mainworker/ai/*.java
 if [ $? -ne 0 ]; then
     echo "ERROR: Fallo la compilación de main-worker"
     exit 1
 fi
+# Registro del proveedor de IA (META-INF/services)
+cp -r src/main/resources/. out/
 
 echo ""
 echo "===================================="
@@ -10,4 +10,4 @@ echo Monitor: http://localhost:8001
 echo ====================================
 echo.
 
-java -cp out;..\raft-core\out;..\ModuloIA\target\classes com.mainworker.core.MainWorker --config config\worker-node1.properties
+java --add-modules jdk.incubator.vector -cp out;..\raft-core\out;..\ModuloIA\target\classes com.mainworker.core.MainWorker --config config\worker-node1.properties
@@ -10,4 +10,4 @@ echo "Monitor: http://localhost:8002"
 echo "===================================="
 echo ""
 
-java -cp out:../raft-core/out com.mainworker.core.MainWorker --config config/worker-node2.properties
+java --add-modules jdk.incubator.vector -cp out:../raft-core/out:../ModuloIA/target/classes com.mainworker.core.MainWorker --config config/worker-node2.properties
@@ -0,0 +1,80 @@
+package com.mainworker.ai;
+
+import com.mainworker.core.AIBackend;
+import com.mycompany.moduloia.api.AIService;
+import com.mycompany.moduloia.api.InputType;
+import com.mycompany.moduloia.api.PredictRequest;
+import com.mycompany.moduloia.api.TrainingRequest;
+import com.mycompany.moduloia.mlp.Precision;
+import com.mycompany.moduloia.mlp.TrainingMode;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * AIBackend sobre el AIService de ModuloIA: llamadas directas, sin reflexión
+ */
+public class ModuloIABackend implements AIBackend {
+
+    private final AIService aiService;
+
+    public ModuloIABackend(AIService aiService) {
+        this.aiService = aiService;
+    }
+
+    @Override
+    public String trainModel(String modelId, String inputType, String datasetPath, int inputSize, int outputSize,
+                             int epochs, double learningRate, int numThreads, boolean hasHeader,
+                             int maxVocab, int imageWidth, int imageHeight, boolean grayscale,
+                             String precision, String trainingMode) {
+        TrainingRequest request = new TrainingRequest(modelId, InputType.valueOf(inputType), datasetPath,
+            inputSize, outputSize, epochs, learningRate, numThreads, hasHeader,
+            maxVocab, imageWidth, imageHeight, grayscale, Precision.valueOf(precision),
+            TrainingMode.valueOf(trainingMode));
+        return aiService.trainModel(request);
+    }
+
+    @Override
+    public double[] predict(String modelId, String inputType, byte[] input) {
+        PredictRequest request;
+        switch (inputType) {
+            case "TABULAR":
+                request = new PredictRequest(InputType.TABULAR, modelId, parseCsv(input), null, null);
+                break;
+            case "TFIDF":
+                request = new PredictRequest(InputType.TFIDF, modelId, null,
+                    new String(input, StandardCharsets.UTF_8), null);
+                break;
+            case "IMAGE":
+                request = new PredictRequest(InputType.IMAGE, modelId, null, null, null, input);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported input type: " + inputType);
+        }
+        return aiService.predict(request);
+    }
+
+    @Override
+    public boolean hasModel(String modelId) {
+        return aiService.hasModel(modelId);
+    }
+
+    @Override
+    public void saveModel(String modelId, Path dir) {
+        aiService.saveModel(modelId, dir);
+    }
+
+    @Override
+    public void loadModel(String modelId, Path dir) {
+        aiService.loadModel(modelId, dir);
+    }
+
+    private static double[] parseCsv(byte[] input) {
+        String[] values = new String(input, StandardCharsets.UTF_8).split(",");
+        double[] tabular = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            tabular[i] = Double.parseDouble(values[i].trim());
+        }
+        return tabular;
+    }
+}
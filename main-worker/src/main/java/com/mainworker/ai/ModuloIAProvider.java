@@ -0,0 +1,25 @@
+package com.mainworker.ai;
+
+import com.mainworker.core.AIBackend;
+import com.mainworker.core.AIBackendProvider;
+import com.mycompany.moduloia.api.AIService;
+import com.mycompany.moduloia.mlp.MLP;
+
+import java.nio.file.Path;
+
+/**
+ * Proveedor del motor de IA respaldado por ModuloIA (AIService en el mismo proceso)
+ */
+public class ModuloIAProvider implements AIBackendProvider {
+
+    @Override
+    public String name() {
+        // Incluye el kernel denso (vector o scalar) para verlo en el log al arrancar
+        return "ModuloIA [" + MLP.denseKernel() + "]";
+    }
+
+    @Override
+    public AIBackend open(Path modelsDir) {
+        return new ModuloIABackend(new AIService(modelsDir));
+    }
+}
@@ -0,0 +1,43 @@
+package com.mainworker.core;
+
+import java.nio.file.Path;
+
+/**
+ * Motor de IA que usa el worker (entrenar, predecir, exportar/importar bundles)
+ *
+ * Se obtiene una sola vez al arrancar con {@link AIBackendProvider} (ServiceLoader) y después
+ * se llama directo, sin reflexión por comando. Si no hay proveedor en el classpath,
+ * AIServiceAdapter queda en modo stub.
+ */
+public interface AIBackend {
+
+    /**
+     * Entrena un modelo y devuelve su id (modelId null = lo genera el motor).
+     * precision: "FLOAT64", "FLOAT32" o "INT8"
+     * trainingMode: "MODEL_AVERAGING", "HOGWILD" o "ALL_REDUCE" (reparto entre los numThreads hilos)
+     */
+    String trainModel(String modelId, String inputType, String datasetPath, int inputSize, int outputSize,
+                      int epochs, double learningRate, int numThreads, boolean hasHeader,
+                      int maxVocab, int imageWidth, int imageHeight, boolean grayscale,
+                      String precision, String trainingMode) throws Exception;
+
+    /**
+     * Predicción con la entrada cruda: CSV (TABULAR), texto (TFIDF) o bytes de la imagen (IMAGE)
+     */
+    double[] predict(String modelId, String inputType, byte[] input) throws Exception;
+
+    /**
+     * true si el modelo ya está en este nodo (entrenado o instalado) y se puede predecir con él
+     */
+    boolean hasModel(String modelId);
+
+    /**
+     * Escribe el bundle del modelo en dir/modelId.bin
+     */
+    void saveModel(String modelId, Path dir) throws Exception;
+
+    /**
+     * Carga (o reemplaza) el modelo desde dir/modelId.bin
+     */
+    void loadModel(String modelId, Path dir) throws Exception;
+}
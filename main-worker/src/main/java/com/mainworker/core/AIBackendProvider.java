@@ -0,0 +1,21 @@
+package com.mainworker.core;
+
+import java.nio.file.Path;
+
+/**
+ * Punto de extensión (ServiceLoader) para el motor de IA: la implementación se registra en
+ * META-INF/services/com.mainworker.core.AIBackendProvider
+ */
+public interface AIBackendProvider {
+
+    /**
+     * Nombre para los logs
+     */
+    String name();
+
+    /**
+     * Crea el motor sobre el directorio de modelos. Puede lanzar LinkageError si la
+     * implementación no está en el classpath.
+     */
+    AIBackend open(Path modelsDir) throws Exception;
+}
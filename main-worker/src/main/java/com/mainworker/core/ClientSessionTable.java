@@ -0,0 +1,375 @@
+package com.mainworker.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tabla de sesiones de cliente replicada (deduplicación de comandos)
+ *
+ * El cliente envuelve cada comando como SESSION|clientId|seq|comando y reintenta con el
+ * mismo seq. El nodo que recibe el POST agrega su reloj: en el log queda
+ * SESSION|clientId|seq|timestampMs|comando. Todos los nodos aplican la entrada igual:
+ * - seq ya aplicado: no se vuelve a ejecutar, se devuelve el resultado guardado
+ * - seq nuevo: se ejecuta y se guarda el resultado
+ *
+ * Por cliente se guardan los últimos MAX_RESULTS_PER_SESSION resultados; un seq menor o
+ * igual al último descartado también cuenta como duplicado.
+ * Expiración determinista (solo depende del log): sesiones sin actividad por más de
+ * ttlMs según el timestamp de la entrada, y como máximo maxSessions (LRU).
+ *
+ * Con apply en paralelo la decisión se separa de la ejecución:
+ * - admit: en orden del log (hilo que despacha, vía StateMachine.beforeApply) decide
+ *   duplicado o nuevo, actualiza el LRU y expira; así el contenido de la tabla es igual en
+ *   todas las réplicas
+ * - take/complete: en el hilo que aplica el comando, recupera esa decisión y guarda el
+ *   resultado en el slot reservado (aunque la sesión ya haya expirado)
+ * Los comandos de un mismo cliente se aplican en orden (clave session:clientId), así que
+ * un duplicado siempre lee el resultado del original ya terminado.
+ *
+ * Persistencia: el archivo es una foto de la tabla seguida de un journal con una línea por
+ * admit y por complete (O(1) por comando, no se reescribe la tabla). Al cargar se re-aplica
+ * el journal; cuando crece más que el doble de la foto se compacta en una foto nueva.
+ */
+public class ClientSessionTable {
+
+    private static final Logger LOGGER = Logger.getLogger(ClientSessionTable.class.getName());
+
+    public static final String PREFIX = "SESSION|";
+    static final int MAX_RESULTS_PER_SESSION = 32;
+    // Registros de journal mínimos antes de compactar
+    static final int MIN_COMPACT_RECORDS = 1024;
+
+    private final int maxSessions;
+    private final long ttlMs;
+    private final Path file;
+    // Orden de inserción = orden de última actividad (se reinserta en cada comando)
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>();
+    // Decisiones tomadas por admit y aún no aplicadas, por clientId|seq en orden del log
+    private final Map<String, ArrayDeque<Ticket>> admitted = new HashMap<>();
+
+    // Journal abierto en modo append; null si no se pudo abrir (se reintenta al compactar)
+    private BufferedWriter journal;
+    private int journalRecords = 0;
+    private int compactAt = MIN_COMPACT_RECORDS;
+
+    public ClientSessionTable(Path file, int maxSessions, long ttlMs) {
+        this.file = file;
+        this.maxSessions = maxSessions;
+        this.ttlMs = ttlMs;
+        load();
+        compact();
+    }
+
+    /**
+     * Comando de sesión ya sellado con el timestamp del nodo
+     */
+    public static final class SessionCommand {
+        public final String clientId;
+        public final long seq;
+        public final long timestampMs;
+        public final String command;
+
+        SessionCommand(String clientId, long seq, long timestampMs, String command) {
+            this.clientId = clientId;
+            this.seq = seq;
+            this.timestampMs = timestampMs;
+            this.command = command;
+        }
+    }
+
+    /**
+     * Formato del cliente SESSION|clientId|seq|comando -> formato del log con timestamp.
+     * Comandos sin sesión se devuelven sin cambios.
+     */
+    public static String stamp(String clientCommand, long nowMs) {
+        if (!clientCommand.startsWith(PREFIX)) {
+            return clientCommand;
+        }
+        String[] parts = clientCommand.split("\\|", 4);
+        if (parts.length < 4) {
+            throw new IllegalArgumentException("Expected SESSION|clientId|seq|command");
+        }
+        Long.parseLong(parts[2]);
+        return PREFIX + parts[1] + "|" + parts[2] + "|" + nowMs + "|" + parts[3];
+    }
+
+    /**
+     * Parsea SESSION|clientId|seq|timestampMs|comando (null si no es un comando de sesión)
+     */
+    public static SessionCommand parse(String logCommand) {
+        if (!logCommand.startsWith(PREFIX)) {
+            return null;
+        }
+        String[] parts = logCommand.split("\\|", 5);
+        if (parts.length < 5) {
+            throw new IllegalArgumentException("Invalid SESSION command");
+        }
+        return new SessionCommand(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]), parts[4]);
+    }
+
+    /**
+     * Comando interno de una entrada del log (el mismo comando si no tiene sesión)
+     */
+    public static String innerCommand(String logCommand) {
+        SessionCommand sc = parse(logCommand);
+        return sc == null ? logCommand : sc.command;
+    }
+
+    /**
+     * Decisión de una entrada del log: ejecutar (comando nuevo) o devolver el resultado
+     * del original (duplicado; slot null si ya se descartó)
+     */
+    public static final class Ticket {
+        final String clientId;
+        final long seq;
+        final boolean execute;
+        final Slot slot;
+
+        Ticket(String clientId, long seq, boolean execute, Slot slot) {
+            this.clientId = clientId;
+            this.seq = seq;
+            this.execute = execute;
+            this.slot = slot;
+        }
+
+        public boolean isDuplicate() {
+            return !execute;
+        }
+
+        public String cachedResult() {
+            return slot == null ? null : slot.result;
+        }
+    }
+
+    /**
+     * Decide en orden del log si clientId/seq es nuevo o un reintento, y aplica la
+     * expiración con el reloj de la entrada
+     */
+    public synchronized Ticket admit(String clientId, long seq, long timestampMs) {
+        Ticket ticket = admitLocal(clientId, seq, timestampMs);
+        admitted.computeIfAbsent(clientId + "|" + seq, k -> new ArrayDeque<>()).add(ticket);
+        append("A|" + clientId + "|" + seq + "|" + timestampMs);
+        return ticket;
+    }
+
+    // admit sin encolar la decisión ni escribir el journal (también re-aplica el journal al cargar)
+    private Ticket admitLocal(String clientId, long seq, long timestampMs) {
+        Session s = sessions.remove(clientId);
+        if (s == null) {
+            s = new Session();
+        }
+        Ticket ticket;
+        if (seq <= s.evictedUpTo || s.results.containsKey(seq)) {
+            ticket = new Ticket(clientId, seq, false, s.results.get(seq));
+        } else {
+            Slot slot = new Slot();
+            s.results.put(seq, slot);
+            ticket = new Ticket(clientId, seq, true, slot);
+        }
+        s.lastSeenMs = Math.max(s.lastSeenMs, timestampMs);
+        while (s.results.size() > MAX_RESULTS_PER_SESSION) {
+            Iterator<Long> it = s.results.keySet().iterator();
+            s.evictedUpTo = Math.max(s.evictedUpTo, it.next());
+            it.remove();
+        }
+        sessions.put(clientId, s);
+        expire(timestampMs);
+        return ticket;
+    }
+
+    /**
+     * Decisión de admit para la próxima entrada de clientId/seq (null si no se llamó admit)
+     */
+    public synchronized Ticket take(String clientId, long seq) {
+        String key = clientId + "|" + seq;
+        ArrayDeque<Ticket> queue = admitted.get(key);
+        if (queue == null) {
+            return null;
+        }
+        Ticket ticket = queue.poll();
+        if (queue.isEmpty()) {
+            admitted.remove(key);
+        }
+        return ticket;
+    }
+
+    /**
+     * Guarda el resultado de un comando nuevo ya ejecutado y lo agrega al journal
+     */
+    public synchronized void complete(Ticket ticket, String result) {
+        ticket.slot.result = result;
+        ticket.slot.done = true;
+        append("C|" + ticket.clientId + "|" + ticket.seq + "|" + encode(result));
+        if (journalRecords >= compactAt) {
+            compact();
+        }
+    }
+
+    private void expire(long nowMs) {
+        Iterator<Map.Entry<String, Session>> it = sessions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Session> e = it.next();
+            boolean expired = nowMs - e.getValue().lastSeenMs > ttlMs;
+            if (!expired && sessions.size() <= maxSessions) {
+                break;
+            }
+            LOGGER.fine("Session expired: " + e.getKey());
+            it.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    /**
+     * La tabla es parte del estado replicado: se persiste junto a lastApplied para que un
+     * reinicio (que no re-aplica entradas) no pierda la deduplicación. Los comandos admitidos
+     * pero aún no ejecutados no se conservan: tras un reinicio se vuelven a ejecutar.
+     * Foto: S|clientId|lastSeenMs|evictedUpTo seguido de R|seq|resultadoBase64 (o R|seq|) por
+     * resultado y P|seq por comando admitido sin terminar.
+     * Journal: A|clientId|seq|timestampMs (admit) y C|clientId|seq|resultadoBase64 (complete).
+     */
+    private void append(String record) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.write(record);
+            journal.newLine();
+            journal.flush();
+            journalRecords++;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to persist sessions", e);
+            closeJournal();
+        }
+    }
+
+    /**
+     * Reescribe el archivo con la foto de la tabla (journal vacío) y lo reabre para append
+     */
+    private void compact() {
+        closeJournal();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int lines = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Session> e : sessions.entrySet()) {
+                Session s = e.getValue();
+                writer.write("S|" + e.getKey() + "|" + s.lastSeenMs + "|" + s.evictedUpTo);
+                writer.newLine();
+                lines++;
+                for (Map.Entry<Long, Slot> r : s.results.entrySet()) {
+                    Slot slot = r.getValue();
+                    writer.write(slot.done ? "R|" + r.getKey() + "|" + encode(slot.result) : "P|" + r.getKey());
+                    writer.newLine();
+                    lines++;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to persist sessions", e);
+            return;
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            journalRecords = 0;
+            compactAt = Math.max(MIN_COMPACT_RECORDS, 2 * lines);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to persist sessions", e);
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to close sessions journal", e);
+        }
+        journal = null;
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            Session current = null;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\\|", -1);
+                try {
+                    if ("S".equals(parts[0]) && parts.length == 4) {
+                        current = new Session();
+                        current.lastSeenMs = Long.parseLong(parts[2]);
+                        current.evictedUpTo = Long.parseLong(parts[3]);
+                        sessions.put(parts[1], current);
+                    } else if ("R".equals(parts[0]) && parts.length == 3 && current != null) {
+                        Slot slot = new Slot();
+                        slot.result = decode(parts[2]);
+                        slot.done = true;
+                        current.results.put(Long.parseLong(parts[1]), slot);
+                    } else if ("P".equals(parts[0]) && parts.length == 2 && current != null) {
+                        current.results.put(Long.parseLong(parts[1]), new Slot());
+                    } else if ("A".equals(parts[0]) && parts.length == 4) {
+                        admitLocal(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+                    } else if ("C".equals(parts[0]) && parts.length == 4) {
+                        Session s = sessions.get(parts[1]);
+                        Slot slot = s == null ? null : s.results.get(Long.parseLong(parts[2]));
+                        if (slot != null) {
+                            slot.result = decode(parts[3]);
+                            slot.done = true;
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // Última línea a medio escribir (caída durante el append): se descarta
+                    LOGGER.warning("Ignoring malformed session record in " + file + ": " + line);
+                }
+            }
+            // Admitidos sin terminar: se vuelven a ejecutar
+            for (Session s : sessions.values()) {
+                s.results.values().removeIf(slot -> !slot.done);
+            }
+            LOGGER.info("Loaded " + sessions.size() + " client sessions from " + file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to load sessions from " + file, e);
+        }
+    }
+
+    private static String encode(String result) {
+        return result == null ? "" : Base64.getEncoder().encodeToString(result.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return value.isEmpty() ? null : new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+
+    private static final class Session {
+        long lastSeenMs;
+        long evictedUpTo = 0;
+        final LinkedHashMap<Long, Slot> results = new LinkedHashMap<>();
+    }
+
+    // Resultado de un seq; lo completa el hilo que aplicó el comando original
+    static final class Slot {
+        volatile String result;
+        volatile boolean done;
+    }
+}
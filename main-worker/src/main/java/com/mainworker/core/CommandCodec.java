@@ -0,0 +1,431 @@
+package com.mainworker.core;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Codificación de los comandos del worker
+ *
+ * Texto (OP|arg1|arg2|..., ver WorkerStateMachine): lo siguen usando el worker en Go y los
+ * scripts. Los payloads van en base64.
+ *
+ * Binario v1: campos tipados y payloads crudos, sin base64 ni split. Big-endian:
+ *   [0x00]['W'][versión][opcode] y los campos del opcode
+ *   texto = [u16 longitud][UTF-8], bytes = [int longitud][bytes], double y long de 8 bytes
+ * - STORE_FILE (1): fileName, checksum, bytes contenido
+ * - REGISTER_MODEL (2): modelId, modelType, double accuracy, long timestamp
+ * - TRAIN_MODEL (3): modelId, inputType, dataset, hyperparams (CSV), trainer
+ * - MODEL_WEIGHTS (4): modelId, modelType, double accuracy, long timestamp, bytes bundle
+ * - PREDICT (5): requestId, modelId, inputType, bytes entrada
+ * - DELETE_FILE (6): fileName
+ * - LIST_FILES (7): pattern
+ * - NOP (8)
+ * - SESSION (32): long seq, long timestampMs, clientId y el comando interno completo
+ *   (timestamp 0 = lo sella el nodo que recibe el POST, ver stamp)
+ *
+ * Un comando de texto nunca empieza con 0x00, así el log puede mezclar ambos formatos.
+ * El cliente de escritorio (ui-final) tiene una copia del encoder: cambiar ambos juntos.
+ */
+public final class CommandCodec {
+
+    static final byte MAGIC_0 = 0x00;
+    static final byte MAGIC_1 = 'W';
+    public static final byte VERSION = 1;
+
+    static final byte OP_STORE_FILE = 1;
+    static final byte OP_REGISTER_MODEL = 2;
+    static final byte OP_TRAIN_MODEL = 3;
+    static final byte OP_MODEL_WEIGHTS = 4;
+    static final byte OP_PREDICT = 5;
+    static final byte OP_DELETE_FILE = 6;
+    static final byte OP_LIST_FILES = 7;
+    static final byte OP_NOP = 8;
+    static final byte OP_SESSION = 32;
+
+    private static final int HEADER = 4;
+    // SESSION: seq y timestamp van antes del clientId para que el timestamp tenga offset fijo
+    private static final int SESSION_TIMESTAMP_OFFSET = HEADER + 8;
+
+    private CommandCodec() {
+    }
+
+    public static boolean isBinary(byte[] payload) {
+        return payload != null && payload.length >= HEADER && payload[0] == MAGIC_0 && payload[1] == MAGIC_1;
+    }
+
+    /**
+     * Decodifica un comando en cualquiera de los dos formatos
+     *
+     * @throws IllegalArgumentException si el comando está mal formado o es de otra versión
+     */
+    public static WorkerCommand decode(byte[] payload) {
+        return decode(payload, true);
+    }
+
+    /**
+     * Solo los campos que identifican al comando (routing, keysOf): sin copiar ni
+     * decodificar el payload, que puede ser un archivo de varios MB
+     */
+    public static WorkerCommand decodeHeader(byte[] payload) {
+        return decode(payload, false);
+    }
+
+    private static WorkerCommand decode(byte[] payload, boolean withPayload) {
+        if (!isBinary(payload)) {
+            return parseText(new String(payload, StandardCharsets.UTF_8), withPayload);
+        }
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(payload);
+            buf.position(2);
+            byte version = buf.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported binary command version: " + version);
+            }
+            return readCommand(buf, withPayload);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated binary command", e);
+        }
+    }
+
+    private static WorkerCommand readCommand(ByteBuffer buf, boolean withPayload) {
+        byte op = buf.get();
+        switch (op) {
+            case OP_STORE_FILE: {
+                WorkerCommand c = new WorkerCommand(WorkerCommand.Type.STORE_FILE);
+                c.fileName = readString(buf);
+                c.checksum = readString(buf);
+                c.sizeBytes = readLength(buf);
+                c.data = readBytes(buf, (int) c.sizeBytes, withPayload);
+                return c;
+            }
+            case OP_REGISTER_MODEL:
+                return WorkerCommand.registerModel(readString(buf), readString(buf), buf.getDouble(), buf.getLong());
+            case OP_TRAIN_MODEL:
+                return WorkerCommand.trainModel(readString(buf), readString(buf), readString(buf), readString(buf),
+                    readString(buf));
+            case OP_MODEL_WEIGHTS:
+                return WorkerCommand.modelWeights(readString(buf), readString(buf), buf.getDouble(), buf.getLong(),
+                    readBytes(buf, readLength(buf), withPayload));
+            case OP_PREDICT:
+                return WorkerCommand.predict(readString(buf), readString(buf), readString(buf),
+                    readBytes(buf, readLength(buf), withPayload));
+            case OP_DELETE_FILE:
+                return WorkerCommand.deleteFile(readString(buf));
+            case OP_LIST_FILES:
+                return WorkerCommand.listFiles(readString(buf));
+            case OP_NOP:
+                return WorkerCommand.nop();
+            case OP_SESSION: {
+                long seq = buf.getLong();
+                long timestampMs = buf.getLong();
+                String clientId = readString(buf);
+                if (buf.remaining() < HEADER || buf.get() != MAGIC_0 || buf.get() != MAGIC_1
+                        || buf.get() != VERSION) {
+                    throw new IllegalArgumentException("Invalid SESSION command");
+                }
+                WorkerCommand inner = readCommand(buf, withPayload);
+                if (inner.hasSession()) {
+                    throw new IllegalArgumentException("Nested SESSION command");
+                }
+                return inner.inSession(clientId, seq, timestampMs);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown binary opcode: " + op);
+        }
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getShort() & 0xFFFF;
+        if (len > buf.remaining()) {
+            throw new IllegalArgumentException("Invalid string length: " + len);
+        }
+        String s = new String(buf.array(), buf.position(), len, StandardCharsets.UTF_8);
+        buf.position(buf.position() + len);
+        return s;
+    }
+
+    private static int readLength(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0 || len > buf.remaining()) {
+            throw new IllegalArgumentException("Invalid payload length: " + len);
+        }
+        return len;
+    }
+
+    private static byte[] readBytes(ByteBuffer buf, int len, boolean copy) {
+        if (!copy) {
+            buf.position(buf.position() + len);
+            return null;
+        }
+        byte[] out = new byte[len];
+        buf.get(out);
+        return out;
+    }
+
+    /**
+     * Codifica en binario v1 (con su sesión si la tiene)
+     */
+    public static byte[] encode(WorkerCommand c) {
+        byte[][] strings = stringsOf(c);
+        int size = HEADER;
+        for (byte[] s : strings) {
+            size += 2 + s.length;
+        }
+        switch (c.type) {
+            case STORE_FILE:
+            case PREDICT:
+                size += 4 + c.data.length;
+                break;
+            case MODEL_WEIGHTS:
+                size += 16 + 4 + (c.data == null ? 0 : c.data.length);
+                break;
+            case REGISTER_MODEL:
+                size += 16;
+                break;
+            default:
+                break;
+        }
+        byte[] clientId = null;
+        if (c.hasSession()) {
+            clientId = utf8(c.clientId);
+            size += HEADER + 16 + 2 + clientId.length;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        if (clientId != null) {
+            header(buf, OP_SESSION);
+            buf.putLong(c.seq);
+            buf.putLong(c.sessionTimestampMs);
+            putString(buf, clientId);
+        }
+        header(buf, opcode(c.type));
+        switch (c.type) {
+            case STORE_FILE:
+            case PREDICT:
+                for (byte[] s : strings) {
+                    putString(buf, s);
+                }
+                putBytes(buf, c.data);
+                break;
+            case REGISTER_MODEL:
+            case MODEL_WEIGHTS:
+                putString(buf, strings[0]);
+                putString(buf, strings[1]);
+                buf.putDouble(c.accuracy);
+                buf.putLong(c.timestamp);
+                if (c.type == WorkerCommand.Type.MODEL_WEIGHTS) {
+                    putBytes(buf, c.data == null ? new byte[0] : c.data);
+                }
+                break;
+            default:
+                for (byte[] s : strings) {
+                    putString(buf, s);
+                }
+                break;
+        }
+        return buf.array();
+    }
+
+    // Campos de texto de cada opcode, en orden
+    private static byte[][] stringsOf(WorkerCommand c) {
+        switch (c.type) {
+            case STORE_FILE:
+                return new byte[][]{utf8(c.fileName), utf8(c.checksum)};
+            case REGISTER_MODEL:
+            case MODEL_WEIGHTS:
+                return new byte[][]{utf8(c.modelId), utf8(c.modelType)};
+            case TRAIN_MODEL:
+                return new byte[][]{utf8(c.modelId), utf8(c.inputType), utf8(c.fileName), utf8(c.hyperparams),
+                    utf8(c.trainer)};
+            case PREDICT:
+                return new byte[][]{utf8(c.requestId), utf8(c.modelId), utf8(c.inputType)};
+            case DELETE_FILE:
+                return new byte[][]{utf8(c.fileName)};
+            case LIST_FILES:
+                return new byte[][]{utf8(c.pattern)};
+            default:
+                return new byte[0][];
+        }
+    }
+
+    private static byte opcode(WorkerCommand.Type type) {
+        switch (type) {
+            case STORE_FILE:
+                return OP_STORE_FILE;
+            case REGISTER_MODEL:
+                return OP_REGISTER_MODEL;
+            case TRAIN_MODEL:
+                return OP_TRAIN_MODEL;
+            case MODEL_WEIGHTS:
+                return OP_MODEL_WEIGHTS;
+            case PREDICT:
+                return OP_PREDICT;
+            case DELETE_FILE:
+                return OP_DELETE_FILE;
+            case LIST_FILES:
+                return OP_LIST_FILES;
+            default:
+                return OP_NOP;
+        }
+    }
+
+    private static void header(ByteBuffer buf, byte op) {
+        buf.put(MAGIC_0).put(MAGIC_1).put(VERSION).put(op);
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        if (b.length > 0xFFFF) {
+            throw new IllegalArgumentException("Field too long: " + b.length + " bytes");
+        }
+        return b;
+    }
+
+    private static void putString(ByteBuffer buf, byte[] s) {
+        buf.putShort((short) s.length);
+        buf.put(s);
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] b) {
+        buf.putInt(b.length);
+        buf.put(b);
+    }
+
+    /**
+     * SESSION binario: escribe el reloj de este nodo en el timestamp (mismo criterio que
+     * ClientSessionTable.stamp para texto). Otros comandos se devuelven sin cambios.
+     */
+    public static byte[] stamp(byte[] payload, long nowMs) {
+        if (!isBinary(payload) || payload[3] != OP_SESSION) {
+            return payload;
+        }
+        if (payload.length < SESSION_TIMESTAMP_OFFSET + 8) {
+            throw new IllegalArgumentException("Invalid SESSION command");
+        }
+        byte[] stamped = payload.clone();
+        ByteBuffer.wrap(stamped).putLong(SESSION_TIMESTAMP_OFFSET, nowMs);
+        return stamped;
+    }
+
+    /**
+     * Parsea un comando de texto (con o sin SESSION|clientId|seq|timestampMs|)
+     */
+    static WorkerCommand parseText(String command, boolean withPayload) {
+        ClientSessionTable.SessionCommand session = ClientSessionTable.parse(command);
+        if (session != null) {
+            return parseText(session.command, withPayload).inSession(session.clientId, session.seq,
+                session.timestampMs);
+        }
+        int end = command.indexOf('|');
+        String op = end < 0 ? command : command.substring(0, end);
+        switch (op) {
+            case "STORE_FILE": {
+                // STORE_FILE|fileName|checksumMD5|sizeBytes|chunkBase64
+                String[] f = fields(command, 4, withPayload, "STORE_FILE");
+                WorkerCommand c = new WorkerCommand(WorkerCommand.Type.STORE_FILE);
+                c.fileName = f[0];
+                c.checksum = f[1];
+                c.sizeBytes = parseLong(f[2], "STORE_FILE size");
+                c.data = withPayload ? base64(f[3], "STORE_FILE data") : null;
+                return c;
+            }
+            case "REGISTER_MODEL": {
+                // REGISTER_MODEL|modelId|modelType|accuracy|timestampEpoch
+                String[] f = command.split("\\|", -1);
+                if (f.length < 5) {
+                    throw new IllegalArgumentException("Invalid REGISTER_MODEL command format");
+                }
+                return WorkerCommand.registerModel(f[1], f[2], parseDouble(f[3]), parseLong(f[4], "timestamp"));
+            }
+            case "MODEL_WEIGHTS": {
+                // MODEL_WEIGHTS|modelId|modelType|accuracy|timestampEpoch|bundleBase64
+                String[] f = fields(command, 5, withPayload, "MODEL_WEIGHTS");
+                return WorkerCommand.modelWeights(f[0], f[1], parseDouble(f[2]), parseLong(f[3], "timestamp"),
+                    withPayload ? base64(f[4], "MODEL_WEIGHTS bundle") : null);
+            }
+            case "TRAIN_MODEL": {
+                // TRAIN_MODEL|modelId|inputType|datasetPath|hyperparamsBase64[|trainerNodeId]
+                String[] f = command.split("\\|", -1);
+                if (f.length < 5) {
+                    throw new IllegalArgumentException("Invalid TRAIN_MODEL command format");
+                }
+                String hyperparams = withPayload
+                    ? new String(base64(f[4], "TRAIN_MODEL hyperparams"), StandardCharsets.UTF_8) : null;
+                return WorkerCommand.trainModel(f[1], f[2], f[3], hyperparams, f.length > 5 ? f[5] : "");
+            }
+            case "PREDICT": {
+                // PREDICT|requestId|modelId|inputType|inputDataBase64
+                String[] f = fields(command, 4, withPayload, "PREDICT");
+                return WorkerCommand.predict(f[0], f[1], f[2], withPayload ? base64(f[3], "PREDICT input") : null);
+            }
+            case "DELETE_FILE": {
+                // DELETE_FILE|fileName
+                String[] f = command.split("\\|", -1);
+                if (f.length < 2) {
+                    throw new IllegalArgumentException("Invalid DELETE_FILE command format");
+                }
+                return WorkerCommand.deleteFile(f[1]);
+            }
+            case "LIST_FILES": {
+                // LIST_FILES|pattern
+                String[] f = command.split("\\|", -1);
+                return WorkerCommand.listFiles(f.length > 1 ? f[1] : "*");
+            }
+            case "NOP":
+                return WorkerCommand.nop();
+            default:
+                throw new IllegalArgumentException("Unknown command type: " + op);
+        }
+    }
+
+    /**
+     * Los count campos tras el opcode. El último es el resto del comando (puede tener '|');
+     * sin withPayload no se copia: queda en null y solo se valida que exista.
+     */
+    private static String[] fields(String command, int count, boolean withPayload, String op) {
+        String[] out = new String[count];
+        int start = command.indexOf('|') + 1;
+        for (int i = 0; i < count; i++) {
+            if (start <= 0) {
+                throw new IllegalArgumentException("Invalid " + op + " command format");
+            }
+            if (i == count - 1) {
+                out[i] = withPayload ? command.substring(start) : null;
+                break;
+            }
+            int end = command.indexOf('|', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Invalid " + op + " command format");
+            }
+            out[i] = command.substring(start, end);
+            start = end + 1;
+        }
+        return out;
+    }
+
+    private static byte[] base64(String value, String what) {
+        try {
+            return Base64.getDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid base64 in " + what, e);
+        }
+    }
+
+    private static long parseLong(String value, String what) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + what + ": " + value, e);
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid accuracy: " + value, e);
+        }
+    }
+}
@@ -38,8 +38,13 @@ public class FileManager {
      * Almacena un archivo en disco
      */
     public void storeFile(String fileName, String dataBase64, String expectedChecksum, long expectedSize) throws IOException {
-        byte[] data = Base64.getDecoder().decode(dataBase64);
+        storeFile(fileName, Base64.getDecoder().decode(dataBase64), expectedChecksum, expectedSize);
+    }
 
+    /**
+     * Almacena un archivo ya decodificado (comandos binarios, sin base64)
+     */
+    public void storeFile(String fileName, byte[] data, String expectedChecksum, long expectedSize) throws IOException {
         // Verificar tamaño
         if (data.length != expectedSize) {
             throw new IOException("Size mismatch: expected " + expectedSize + " but got " + data.length);
@@ -3,6 +3,7 @@ package com.mainworker.core;
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import com.rafthq.core.OverloadedException;
 import com.rafthq.core.RaftNode;
 import com.rafthq.core.RaftState;
 
@@ -10,6 +11,18 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -22,14 +35,41 @@ public class HTTPMonitorServer {
     private static final Logger LOGGER = Logger.getLogger(HTTPMonitorServer.class.getName());
 
     private final HttpServer server;
-    private final RaftNode raftNode;
-    private final WorkerStateMachine stateMachine;
+    private final ShardRouter router;
+    private final RaftNode raftNode;                  // grupo 0
+    private final WorkerStateMachine stateMachine;    // grupo 0 (archivos y modelos son compartidos)
     private final int port;
+    private final ExecutorService executor;
+    private final AtomicLong localPredictions = new AtomicLong();
+    private volatile boolean binaryCommands = false;
+
+    static final int DEFAULT_THREADS = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
 
     public HTTPMonitorServer(int port, RaftNode raftNode, WorkerStateMachine stateMachine) throws IOException {
+        this(port, new ShardRouter(List.of(raftNode), List.of(stateMachine)));
+    }
+
+    public HTTPMonitorServer(int port, ShardRouter router) throws IOException {
+        this(port, router, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param threads hilos que atienden requests: /predict corre la inferencia en el hilo del
+     *                request y /command se bloquea hasta que se aplica el comando
+     */
+    public HTTPMonitorServer(int port, ShardRouter router, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("http.threads must be >= 1");
+        }
         this.port = port;
-        this.raftNode = raftNode;
-        this.stateMachine = stateMachine;
+        this.router = router;
+        this.raftNode = router.primary();
+        this.stateMachine = router.primaryStateMachine();
+        // TCP_NODELAY: sin esto el servidor manda headers y body en segmentos separados y el ACK
+        // retardado suma ~40 ms a cada respuesta (se lee al crear el primer HttpServer)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
 
         // Registrar endpoints
@@ -37,10 +77,27 @@ public class HTTPMonitorServer {
         server.createContext("/status", new StatusHandler());
         server.createContext("/files", new FilesHandler());
         server.createContext("/models", new ModelsHandler());
+        server.createContext("/jobs", new JobsHandler());
         server.createContext("/health", new HealthHandler());
         server.createContext("/command", new CommandHandler());
+        server.createContext("/predict", new PredictHandler());
+        server.createContext("/cluster", new ClusterHandler());
+
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "http-" + port + "-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+    }
 
-        server.setExecutor(null); // Default executor
+    /**
+     * false: /command rechaza comandos binarios con 415 (el cliente reintenta en texto), para
+     * clusters con el worker en Go, que solo entiende texto
+     */
+    public void setBinaryCommandsEnabled(boolean enabled) {
+        this.binaryCommands = enabled;
     }
 
     public void start() {
@@ -51,11 +108,15 @@ public class HTTPMonitorServer {
         LOGGER.info("  - http://localhost:" + port + "/status");
         LOGGER.info("  - http://localhost:" + port + "/files");
         LOGGER.info("  - http://localhost:" + port + "/models");
+        LOGGER.info("  - http://localhost:" + port + "/jobs");
         LOGGER.info("  - http://localhost:" + port + "/health");
+        LOGGER.info("  - http://localhost:" + port + "/predict");
+        LOGGER.info("  - http://localhost:" + port + "/cluster");
     }
 
     public void stop() {
         server.stop(0);
+        executor.shutdownNow();
         LOGGER.info("HTTP Monitor Server stopped");
     }
 
@@ -94,15 +155,18 @@ public class HTTPMonitorServer {
                 "<li><a href='/status'>Status (JSON)</a> - Estado del nodo RAFT</li>" +
                 "<li><a href='/files'>Files (JSON)</a> - Archivos replicados</li>" +
                 "<li><a href='/models'>Models (JSON)</a> - Modelos entrenados</li>" +
+                "<li><a href='/jobs'>Jobs (JSON)</a> - Trabajos de entrenamiento</li>" +
                 "<li><a href='/health'>Health (JSON)</a> - Estado de salud</li>" +
-                "<li><strong>POST /command</strong> - Enviar comandos al cluster (solo si es líder)</li>" +
+                "<li><a href='/cluster'>Cluster (JSON)</a> - Miembros del cluster RAFT</li>" +
+                "<li><strong>POST /command</strong> - Enviar comandos al cluster (un follower los reenvía al líder del grupo)</li>" +
                 "</ul></div>" +
                 "<div class='card'>" +
                 "<h2>RAFT Status</h2>" +
                 "<p><strong>State:</strong> <span class='status " + raftNode.getState().name().toLowerCase() + "'>" +
                 raftNode.getState().name() + "</span></p>" +
                 "<p><strong>Current Term:</strong> " + raftNode.getCurrentTerm() + "</p>" +
-                "<p><strong>Commands Applied:</strong> " + stateMachine.getAppliedCommandsCount() + "</p>" +
+                "<p><strong>RAFT Groups:</strong> " + router.getGroupCount() + "</p>" +
+                "<p><strong>Commands Applied:</strong> " + router.getAppliedCommandsCount() + "</p>" +
                 "</div>" +
                 "<div class='card'>" +
                 "<h2>Storage</h2>" +
@@ -121,11 +185,40 @@ public class HTTPMonitorServer {
         public void handle(HttpExchange exchange) throws IOException {
             RaftState state = raftNode.getState();
             int term = raftNode.getCurrentTerm();
-            long commandsApplied = stateMachine.getAppliedCommandsCount();
+            long commandsApplied = router.getAppliedCommandsCount();
+
+            StringBuilder groups = new StringBuilder("[");
+            for (int g = 0; g < router.getGroupCount(); g++) {
+                RaftNode node = router.getGroups().get(g);
+                if (g > 0) groups.append(",");
+                groups.append(String.format(
+                    "{\"group\":%d,\"state\":\"%s\",\"term\":%d,\"commitIndex\":%d," +
+                    "\"uncommittedEntries\":%d,\"uncommittedBytes\":%d,\"applyBacklog\":%d,\"rejectedCommands\":%d}",
+                    g, node.getState().name(), node.getCurrentTerm(), node.getCommitIndex(),
+                    node.getUncommittedEntries(), node.getUncommittedBytes(), node.getApplyBacklog(),
+                    node.getRejectedCommands()
+                ));
+            }
+            groups.append("]");
+
+            // Límites de admisión del líder (0 = sin límite), iguales para todos los grupos
+            var config = raftNode.getConfig();
+            String limits = String.format(
+                "{\"maxUncommittedEntries\":%d,\"maxUncommittedBytes\":%d,\"maxApplyBacklog\":%d}",
+                config.getMaxUncommittedEntries(), config.getMaxUncommittedBytes(), config.getMaxApplyBacklog()
+            );
+
+            // Resultados de PREDICT en memoria (acotados por cantidad y TTL)
+            PredictionResultStore store = stateMachine.getPredictionResults();
+            String predictions = String.format(
+                "{\"stored\":%d,\"waiting\":%d,\"evicted\":%d,\"max\":%d,\"ttlMs\":%d}",
+                store.size(), store.waiting(), store.getEvictedCount(), store.getMaxEntries(), store.getTtlMs()
+            );
 
             String json = String.format(
-                "{\"state\":\"%s\",\"term\":%d,\"commandsApplied\":%d}",
-                state.name(), term, commandsApplied
+                "{\"state\":\"%s\",\"term\":%d,\"commandsApplied\":%d,\"admissionLimits\":%s," +
+                "\"predictionResults\":%s,\"localPredictions\":%d,\"groups\":%s}",
+                state.name(), term, commandsApplied, limits, predictions, localPredictions.get(), groups
             );
 
             sendResponse(exchange, 200, json, "application/json");
@@ -178,6 +271,29 @@ public class HTTPMonitorServer {
         }
     }
 
+    /**
+     * Handler para /jobs - Trabajos de entrenamiento (compartidos por todos los grupos)
+     */
+    private class JobsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            var jobs = stateMachine.getTrainingJobs().listJobs();
+
+            StringBuilder json = new StringBuilder("{\"jobs\":[");
+            boolean first = true;
+
+            for (var job : jobs) {
+                if (!first) json.append(",");
+                json.append(job.toJson());
+                first = false;
+            }
+
+            json.append("],\"count\":").append(jobs.size()).append("}");
+
+            sendResponse(exchange, 200, json.toString(), "application/json");
+        }
+    }
+
     /**
      * Handler para /health - Estado de salud del worker
      */
@@ -203,9 +319,12 @@ public class HTTPMonitorServer {
     }
 
     /**
-     * Handler para /command - Enviar comandos al cluster (solo al líder)
+     * Handler para /command - Enviar comandos al cluster
      * Método: POST
-     * Body: comando en texto plano (ej: "NOP" o "REGISTER_MODEL|...")
+     * Body: comando en texto plano (ej: "NOP" o "REGISTER_MODEL|...") o binario (CommandCodec,
+     * 415 si command.binary.enabled=false)
+     * El comando va al grupo RAFT que le asigna el ShardRouter; si este nodo no es
+     * el líder de ese grupo, se reenvía al líder.
      */
     private class CommandHandler implements HttpHandler {
         @Override
@@ -216,75 +335,103 @@ public class HTTPMonitorServer {
                 return;
             }
 
-            // Verificar que este nodo sea el líder
-            if (raftNode.getState() != RaftState.LEADER) {
-                String json = String.format(
-                    "{\"error\":\"Not leader\",\"state\":\"%s\",\"message\":\"This node is not the leader. Please send commands to the leader.\"}",
-                    raftNode.getState().name()
-                );
-                sendResponse(exchange, 503, json, "application/json");
-                return;
-            }
-
             // Leer el comando completo del body (puede ser muy largo para imágenes)
             try {
-                java.io.InputStream is = exchange.getRequestBody();
-                java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-                byte[] buffer = new byte[8192];
-                int len;
-                while ((len = is.read(buffer)) != -1) {
-                    baos.write(buffer, 0, len);
-                }
-                String command = new String(baos.toByteArray(), StandardCharsets.UTF_8);
-                
-                if (command == null || command.trim().isEmpty()) {
-                    String json = "{\"error\":\"Empty command\"}";
-                    sendResponse(exchange, 400, json, "application/json");
-                    return;
+                byte[] body = readRequestBody(exchange);
+                byte[] command;
+                String summary;
+                if (CommandCodec.isBinary(body)) {
+                    // Comando binario (CommandCodec): sin trim ni base64
+                    if (!binaryCommands) {
+                        String json = "{\"success\":false,\"errorCode\":\"BINARY_COMMANDS_DISABLED\"," +
+                            "\"error\":\"Binary commands are disabled on this node, send text\"}";
+                        sendResponse(exchange, 415, json, "application/json");
+                        return;
+                    }
+                    try {
+                        command = CommandCodec.stamp(body, System.currentTimeMillis());
+                        command = stateMachine.getTrainingJobs().assignTrainer(command);
+                        summary = CommandCodec.decodeHeader(command).toString();
+                    } catch (IllegalArgumentException e) {
+                        String json = String.format("{\"error\":\"Invalid binary command: %s\"}", e.getMessage());
+                        sendResponse(exchange, 400, json, "application/json");
+                        return;
+                    }
+                } else {
+                    String text = new String(body, StandardCharsets.UTF_8).trim();
+                    if (text.isEmpty()) {
+                        String json = "{\"error\":\"Empty command\"}";
+                        sendResponse(exchange, 400, json, "application/json");
+                        return;
+                    }
+
+                    // SESSION|clientId|seq|cmd: sellar con el reloj de este nodo (expiración de sesiones)
+                    try {
+                        text = ClientSessionTable.stamp(text, System.currentTimeMillis());
+                    } catch (IllegalArgumentException e) {
+                        String json = "{\"error\":\"Invalid SESSION command. Expected SESSION|clientId|seq|command\"}";
+                        sendResponse(exchange, 400, json, "application/json");
+                        return;
+                    }
+                    // Train-once: este nodo queda como entrenador del TRAIN_MODEL
+                    text = stateMachine.getTrainingJobs().assignTrainer(text);
+                    String innerCommand = ClientSessionTable.innerCommand(text);
+                    summary = innerCommand.length() > 50 ? innerCommand.substring(0, 50) + "..." : innerCommand;
+                    command = text.getBytes(StandardCharsets.UTF_8);
                 }
 
-                command = command.trim();
-                
                 // Extraer requestId si es un comando PREDICT
                 String requestId = null;
-                if (command.startsWith("PREDICT|")) {
-                    String[] parts = command.split("\\|", 3);
-                    if (parts.length >= 2) {
-                        requestId = parts[1];
+                try {
+                    WorkerCommand header = CommandCodec.decodeHeader(command);
+                    if (header.type == WorkerCommand.Type.PREDICT) {
+                        requestId = header.getRequestId();
                     }
+                } catch (IllegalArgumentException e) {
+                    // Mal formado: se replica igual y el state machine lo descarta
                 }
 
-                // Enviar comando al RaftNode
-                byte[] commandBytes = command.getBytes(StandardCharsets.UTF_8);
-                boolean success = raftNode.appendCommand(commandBytes);
-
-                if (success) {
+                // Enviar comando al líder de su grupo; el future se completa al aplicarse en este nodo
+                CompletableFuture<byte[]> applied = router.submitCommand(command);
+
+                Throwable rejected = rejectionOf(applied);
+                if (rejected instanceof OverloadedException) {
+                    // Control de admisión del líder: el cliente debe reintentar más tarde
+                    long retryAfterMs = ((OverloadedException) rejected).getRetryAfterMs();
+                    exchange.getResponseHeaders().add("Retry-After", String.valueOf(Math.max(1, (retryAfterMs + 999) / 1000)));
+                    String json = String.format(
+                        "{\"error\":\"Leader overloaded, retry later\",\"success\":false,\"group\":%d}",
+                        router.groupFor(command)
+                    );
+                    sendResponse(exchange, 429, json, "application/json");
+                } else if (rejected != null) {
+                    String json = String.format(
+                        "{\"error\":\"No leader available\",\"success\":false,\"group\":%d}",
+                        router.groupFor(command)
+                    );
+                    sendResponse(exchange, 503, json, "application/json");
+                } else if (requestId != null) {
                     // Si es un comando PREDICT, esperar el resultado
-                    if (requestId != null) {
-                        String result = waitForPredictionResult(requestId, 30000); // 30 segundos timeout
-                        if (result != null) {
-                            // Parsear resultado y encontrar la clase con mayor probabilidad
-                            int predictedClass = findPredictedClass(result);
-                            // Estructura con "data" para que el cliente UI pueda leer getData().get("prediction")
-                            String json = String.format(
-                                "{\"success\":true,\"data\":{\"prediction\":\"%d\",\"probabilities\":\"%s\",\"requestId\":\"%s\"}}",
-                                predictedClass, result, requestId
-                            );
-                            sendResponse(exchange, 200, json, "application/json");
-                        } else {
-                            String json = "{\"success\":false,\"error\":\"Prediction timeout\"}";
-                            sendResponse(exchange, 500, json, "application/json");
-                        }
-                    } else {
+                    String result = waitForPredictionResult(requestId, applied, 30000); // 30 segundos timeout
+                    if (result != null) {
+                        // Parsear resultado y encontrar la clase con mayor probabilidad
+                        int predictedClass = findPredictedClass(result);
+                        // Estructura con "data" para que el cliente UI pueda leer getData().get("prediction")
                         String json = String.format(
-                            "{\"success\":true,\"command\":\"%s\",\"message\":\"Command appended to log\"}",
-                            command.length() > 50 ? command.substring(0, 50) + "..." : command
+                            "{\"success\":true,\"data\":{\"prediction\":\"%d\",\"probabilities\":\"%s\",\"requestId\":\"%s\"}}",
+                            predictedClass, result, requestId
                         );
                         sendResponse(exchange, 200, json, "application/json");
+                    } else {
+                        String json = "{\"success\":false,\"error\":\"Prediction timeout\"}";
+                        sendResponse(exchange, 500, json, "application/json");
                     }
                 } else {
-                    String json = "{\"error\":\"Failed to append command\",\"success\":false}";
-                    sendResponse(exchange, 500, json, "application/json");
+                    String json = String.format(
+                        "{\"success\":true,\"command\":\"%s\",\"message\":\"Command appended to log\"}",
+                        summary
+                    );
+                    sendResponse(exchange, 200, json, "application/json");
                 }
 
             } catch (Exception e) {
@@ -296,52 +443,385 @@ public class HTTPMonitorServer {
             }
         }
         
-        private String waitForPredictionResult(String requestId, long timeoutMs) {
-            long start = System.currentTimeMillis();
-            while (System.currentTimeMillis() - start < timeoutMs) {
-                String result = stateMachine.getPredictionResult(requestId);
+        /**
+         * Causa del rechazo si el submit falló de inmediato (sin líder o sobrecarga), o null
+         */
+        private Throwable rejectionOf(CompletableFuture<byte[]> applied) {
+            if (!applied.isCompletedExceptionally()) {
+                return null;
+            }
+            try {
+                applied.join();
+                return null;
+            } catch (CompletionException e) {
+                return e.getCause();
+            } catch (CancellationException e) {
+                return e;
+            }
+        }
+
+        /**
+         * Espera a que el PREDICT se aplique en este nodo (sin polling). El resultado llega por
+         * el future del submit o por el store de resultados: si el reenvío al líder falla pero la
+         * entrada igual se confirma (cambio de líder), se sigue esperando hasta el timeout.
+         * Devuelve null si vence el timeout.
+         */
+        private String waitForPredictionResult(String requestId, CompletableFuture<byte[]> applied, long timeoutMs) {
+            PredictionResultStore store = stateMachine.getPredictionResults();
+            CompletableFuture<String> stored = store.await(requestId);
+            applied.thenAccept(result -> {
                 if (result != null) {
-                    return result;
+                    stored.complete(new String(result, StandardCharsets.UTF_8));
                 }
+            });
+            try {
+                return stored.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException | TimeoutException e) {
+                LOGGER.log(Level.FINE, "Prediction not applied: " + requestId, e);
+                return null;
+            } finally {
+                store.cancel(requestId, stored);
+            }
+        }
+    }
+
+    /**
+     * Handler para /predict - Inferencia local, fuera del log RAFT
+     * Método: POST
+     * Body (cualquiera de los tres):
+     *   - JSON: {"modelId":"m","inputType":"TABULAR","input":"1.5,2.3"} ("input" también como
+     *     array de números o texto para TFIDF; "inputBase64" para IMAGE; "requestId" opcional)
+     *   - Comando PREDICT binario (CommandCodec) o de texto (PREDICT|requestId|modelId|inputType|base64)
+     * PREDICT no cambia estado replicado: cualquier nodo que tenga el modelo responde solo, sin
+     * append ni ejecución en cada réplica. 404 con errorCode MODEL_NOT_FOUND si este nodo todavía
+     * no tiene el modelo (otro nodo puede tenerlo, o usar /command).
+     */
+    private class PredictHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                String json = "{\"error\":\"Method not allowed. Use POST\"}";
+                sendResponse(exchange, 405, json, "application/json");
+                return;
+            }
+
+            long number = localPredictions.incrementAndGet();
+            WorkerCommand request;
+            try {
+                byte[] body = readRequestBody(exchange);
+                request = parsePredictRequest(body, number);
+            } catch (IllegalArgumentException e) {
+                String json = String.format(
+                    "{\"success\":false,\"errorCode\":\"INVALID_REQUEST\",\"error\":\"%s\"}",
+                    jsonEscape(e.getMessage())
+                );
+                sendResponse(exchange, 400, json, "application/json");
+                return;
+            }
+
+            String requestId = request.getRequestId();
+            String result = stateMachine.predictLocal(request.getModelId(), request.getInputType(), request.getData());
+
+            if ("ERROR:MODEL_NOT_FOUND".equals(result)) {
+                String json = String.format(
+                    "{\"success\":false,\"errorCode\":\"MODEL_NOT_FOUND\",\"error\":\"Model not found on this node: %s\"}",
+                    jsonEscape(request.getModelId())
+                );
+                sendResponse(exchange, 404, json, "application/json");
+            } else if (result.startsWith("ERROR")) {
+                String json = String.format(
+                    "{\"success\":false,\"errorCode\":\"PREDICT_FAILED\",\"error\":\"%s\"}",
+                    jsonEscape(result)
+                );
+                sendResponse(exchange, 500, json, "application/json");
+            } else {
+                // Misma estructura que la respuesta de PREDICT por /command
+                String json = String.format(
+                    "{\"success\":true,\"data\":{\"prediction\":\"%d\",\"probabilities\":\"%s\",\"requestId\":\"%s\"," +
+                    "\"node\":\"%s\"}}",
+                    findPredictedClass(result), result, jsonEscape(requestId), jsonEscape(raftNode.getConfig().getNodeId())
+                );
+                sendResponse(exchange, 200, json, "application/json");
+            }
+        }
+
+        private WorkerCommand parsePredictRequest(byte[] body, long number) {
+            int start = 0;
+            while (start < body.length && Character.isWhitespace(body[start])) {
+                start++;
+            }
+            if (start < body.length && body[start] == '{') {
+                return parseJsonRequest(new String(body, StandardCharsets.UTF_8), number);
+            }
+            WorkerCommand cmd = CommandCodec.isBinary(body)
+                ? CommandCodec.decode(body)
+                : CommandCodec.decode(new String(body, StandardCharsets.UTF_8).trim().getBytes(StandardCharsets.UTF_8));
+            if (cmd.type != WorkerCommand.Type.PREDICT) {
+                throw new IllegalArgumentException("Expected a PREDICT command, got " + cmd.type);
+            }
+            return cmd;
+        }
+
+        private WorkerCommand parseJsonRequest(String json, long number) {
+            String modelId = jsonField(json, "modelId");
+            if (modelId == null || modelId.isEmpty()) {
+                throw new IllegalArgumentException("modelId is required");
+            }
+            String inputType = jsonField(json, "inputType");
+            if (inputType == null) {
+                inputType = "TABULAR";
+            }
+            String requestId = jsonField(json, "requestId");
+            if (requestId == null) {
+                requestId = "local-" + number;
+            }
+            byte[] input;
+            String base64 = jsonField(json, "inputBase64");
+            if (base64 != null) {
+                input = Base64.getDecoder().decode(base64);
+            } else {
+                String text = jsonField(json, "input");
+                if (text == null) {
+                    throw new IllegalArgumentException("input or inputBase64 is required");
+                }
+                input = text.getBytes(StandardCharsets.UTF_8);
+            }
+            return WorkerCommand.predict(requestId, modelId, inputType, input);
+        }
+    }
+
+    /**
+     * Handler para /cluster[?group=N] - Membresía del cluster RAFT (por grupo, default 0)
+     * GET: miembros con voto y learners (réplicas sin voto)
+     * POST (solo líder), un cambio a la vez:
+     *   "ADD|host:port", "REMOVE|host:port",
+     *   "ADD_LEARNER|host:port" o "ADD_LEARNER|host:port|promote" (pasa a votante al ponerse al día)
+     */
+    private class ClusterHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            RaftNode raftNode = groupFromQuery(exchange.getRequestURI().getQuery());
+            if (raftNode == null) {
+                String json = "{\"error\":\"Unknown group\"}";
+                sendResponse(exchange, 400, json, "application/json");
+                return;
+            }
+            if ("GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 200, membersJson(raftNode), "application/json");
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                String json = "{\"error\":\"Method not allowed. Use GET or POST\"}";
+                sendResponse(exchange, 405, json, "application/json");
+                return;
+            }
+
+            if (raftNode.getState() != RaftState.LEADER) {
+                String json = String.format(
+                    "{\"error\":\"Not leader\",\"state\":\"%s\"}",
+                    raftNode.getState().name()
+                );
+                sendResponse(exchange, 503, json, "application/json");
+                return;
+            }
+
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).trim();
+            String[] parts = body.split("\\|");
+            if (parts.length < 2 || parts.length > 3 || !parts[1].contains(":")) {
+                String json = "{\"error\":\"Expected ADD|host:port, REMOVE|host:port or ADD_LEARNER|host:port[|promote]\"}";
+                sendResponse(exchange, 400, json, "application/json");
+                return;
+            }
+
+            boolean accepted;
+            if ("ADD".equals(parts[0])) {
+                accepted = raftNode.addServer(parts[1]);
+            } else if ("REMOVE".equals(parts[0])) {
+                accepted = raftNode.removeServer(parts[1]);
+            } else if ("ADD_LEARNER".equals(parts[0])) {
+                boolean promote = parts.length == 3 && "promote".equals(parts[2]);
+                accepted = raftNode.addLearner(parts[1], promote);
+            } else {
+                String json = "{\"error\":\"Unknown membership operation: " + parts[0] + "\"}";
+                sendResponse(exchange, 400, json, "application/json");
+                return;
+            }
+
+            if (accepted) {
+                sendResponse(exchange, 200, membersJson(raftNode), "application/json");
+            } else {
+                String json = "{\"error\":\"Membership change rejected (another change is still uncommitted)\",\"success\":false}";
+                sendResponse(exchange, 409, json, "application/json");
+            }
+        }
+
+        /**
+         * ?group=N elige el grupo RAFT (default 0); la membresía se cambia grupo por grupo
+         */
+        private RaftNode groupFromQuery(String query) {
+            int group = 0;
+            if (query != null && query.startsWith("group=")) {
                 try {
-                    Thread.sleep(100); // Polling cada 100ms
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    group = Integer.parseInt(query.substring("group=".length()));
+                } catch (NumberFormatException e) {
                     return null;
                 }
             }
-            return null;
+            if (group < 0 || group >= router.getGroupCount()) {
+                return null;
+            }
+            return router.getGroups().get(group);
         }
-        
-        private int findPredictedClass(String probabilities) {
-            // Formato esperado: "[0.1,0.2,0.7,...]" o "0.1,0.2,0.7,..." - encontrar índice del máximo
-            if (probabilities == null || probabilities.startsWith("ERROR")) {
-                return -1;
-            }
-            // Limpiar corchetes si existen
-            String cleaned = probabilities.trim();
-            if (cleaned.startsWith("[")) {
-                cleaned = cleaned.substring(1);
-            }
-            if (cleaned.endsWith("]")) {
-                cleaned = cleaned.substring(0, cleaned.length() - 1);
-            }
-            String[] values = cleaned.split(",");
-            int maxIndex = 0;
-            double maxValue = Double.NEGATIVE_INFINITY;
-            for (int i = 0; i < values.length; i++) {
-                try {
-                    double val = Double.parseDouble(values[i].trim());
-                    if (val > maxValue) {
-                        maxValue = val;
-                        maxIndex = i;
+
+        private String membersJson(RaftNode raftNode) {
+            var clusterConfig = raftNode.getClusterConfig();
+            StringBuilder json = new StringBuilder("{\"members\":");
+            appendJsonArray(json, clusterConfig.getMembers());
+            json.append(",\"learners\":");
+            appendJsonArray(json, clusterConfig.getLearners());
+            json.append(",\"commitIndex\":").append(raftNode.getCommitIndex()).append("}");
+            return json.toString();
+        }
+
+        private void appendJsonArray(StringBuilder json, Iterable<String> values) {
+            json.append("[");
+            boolean first = true;
+            for (String value : values) {
+                if (!first) json.append(",");
+                json.append("\"").append(value).append("\"");
+                first = false;
+            }
+            json.append("]");
+        }
+    }
+
+    private static int findPredictedClass(String probabilities) {
+        // Formato esperado: "[0.1,0.2,0.7,...]" o "0.1,0.2,0.7,..." - encontrar índice del máximo
+        if (probabilities == null || probabilities.startsWith("ERROR")) {
+            return -1;
+        }
+        // Limpiar corchetes si existen
+        String cleaned = probabilities.trim();
+        if (cleaned.startsWith("[")) {
+            cleaned = cleaned.substring(1);
+        }
+        if (cleaned.endsWith("]")) {
+            cleaned = cleaned.substring(0, cleaned.length() - 1);
+        }
+        String[] values = cleaned.split(",");
+        int maxIndex = 0;
+        double maxValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < values.length; i++) {
+            try {
+                double val = Double.parseDouble(values[i].trim());
+                if (val > maxValue) {
+                    maxValue = val;
+                    maxIndex = i;
+                }
+            } catch (NumberFormatException e) {
+                // Ignorar valores no numéricos
+            }
+        }
+        return maxIndex;
+    }
+
+    /**
+     * Valor de un campo de un objeto JSON plano: texto (con escapes), número o array de
+     * números (se devuelve como CSV, la entrada TABULAR). null si el campo no está.
+     */
+    private static String jsonField(String json, String key) {
+        String quoted = "\"" + key + "\"";
+        int i = json.indexOf(quoted);
+        while (i >= 0) {
+            int j = skipSpaces(json, i + quoted.length());
+            if (j < json.length() && json.charAt(j) == ':') {
+                j = skipSpaces(json, j + 1);
+                if (j >= json.length()) {
+                    break;
+                }
+                char c = json.charAt(j);
+                if (c == '"') {
+                    return jsonString(json, j + 1);
+                }
+                if (c == '[') {
+                    int end = json.indexOf(']', j);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("Unterminated array in field " + key);
                     }
-                } catch (NumberFormatException e) {
-                    // Ignorar valores no numéricos
+                    return json.substring(j + 1, end).replaceAll("\\s+", "");
+                }
+                int end = j;
+                while (end < json.length() && ",}".indexOf(json.charAt(end)) < 0) {
+                    end++;
                 }
+                String value = json.substring(j, end).trim();
+                return "null".equals(value) ? null : value;
+            }
+            i = json.indexOf(quoted, i + 1);
+        }
+        return null;
+    }
+
+    private static int skipSpaces(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String jsonString(String json, int from) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (++i >= json.length()) {
+                break;
             }
-            return maxIndex;
+            char e = json.charAt(i);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (i + 4 >= json.length()) {
+                        throw new IllegalArgumentException("Invalid unicode escape");
+                    }
+                    sb.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default: sb.append(e);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated JSON string");
+    }
+
+    private static String jsonEscape(String s) {
+        if (s == null) {
+            return "";
+        }
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static byte[] readRequestBody(HttpExchange exchange) throws IOException {
+        java.io.InputStream is = exchange.getRequestBody();
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = is.read(buffer)) != -1) {
+            baos.write(buffer, 0, len);
         }
+        return baos.toByteArray();
     }
 
     /**
@@ -1,10 +1,19 @@
 package com.mainworker.core;
 
+import com.rafthq.core.RaftGroupHost;
 import com.rafthq.core.RaftNode;
+import com.rafthq.core.RaftState;
 import com.rafthq.core.NodeConfig;
 
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -12,10 +21,13 @@ import java.util.logging.Level;
  * Worker Principal - Integración de RAFT + State Machine + HTTP Monitor
  *
  * Este es el proceso principal que:
- * 1. Arranca el módulo RAFT
- * 2. Registra el WorkerStateMachine como callback
+ * 1. Arranca el módulo RAFT (uno o varios grupos, ver raft.groups)
+ * 2. Registra un WorkerStateMachine por grupo como callback
  * 3. Inicia el servidor HTTP de monitoreo
  *
+ * Con raft.groups > 1 cada grupo tiene su propio líder y log; todos comparten el
+ * puerto RAFT y los hilos del nodo, y el ShardRouter envía cada comando a su grupo.
+ *
  * Uso:
  *   java -cp ... com.mainworker.core.MainWorker --config path/to/config.properties
  */
@@ -23,10 +35,11 @@ public class MainWorker {
 
     private static final Logger LOGGER = Logger.getLogger(MainWorker.class.getName());
 
-    private final RaftNode raftNode;
+    private final RaftGroupHost raftHost;
+    private final ShardRouter router;
     private final FileManager fileManager;
     private final ModelRegistry modelRegistry;
-    private final WorkerStateMachine stateMachine;
+    private final TrainingJobManager trainingJobManager;
     private final HTTPMonitorServer httpServer;
     private final NodeConfig config;
 
@@ -45,21 +58,64 @@ public class MainWorker {
         this.fileManager = new FileManager(dataDir);
         this.modelRegistry = new ModelRegistry(modelsDir);
 
-        // Inicializar State Machine
-        this.stateMachine = new WorkerStateMachine(fileManager, modelRegistry, modelsDir);
-
-        // Inicializar nodo RAFT con el state machine
-        this.raftNode = new RaftNode(config, stateMachine);
+        // Propiedades propias del worker (raft-core ignora las que no conoce)
+        Properties workerProps = loadProperties(configPath);
+        int groupCount = intProperty(workerProps, "raft.groups", 1);
+        int maxSessions = intProperty(workerProps, "session.max", WorkerStateMachine.DEFAULT_MAX_SESSIONS);
+        long sessionTtlMs = Long.parseLong(workerProps.getProperty("session.ttl.ms",
+            String.valueOf(WorkerStateMachine.DEFAULT_SESSION_TTL_MS)).trim());
+
+        int trainingJobs = intProperty(workerProps, "training.concurrent.jobs", WorkerStateMachine.DEFAULT_TRAINING_JOBS);
+        int maxPredictionResults = intProperty(workerProps, "prediction.results.max", PredictionResultStore.DEFAULT_MAX_ENTRIES);
+        long predictionTtlMs = Long.parseLong(workerProps.getProperty("prediction.results.ttl.ms",
+            String.valueOf(PredictionResultStore.DEFAULT_TTL_MS)).trim());
+
+        // Un state machine por grupo RAFT; archivos, registro, AIService, entrenamientos y
+        // resultados de PREDICT son compartidos
+        WorkerStateMachine.AIServiceAdapter aiServiceAdapter = new WorkerStateMachine.AIServiceAdapter(modelsDir);
+        this.trainingJobManager = new TrainingJobManager(modelsDir, fileManager, modelRegistry, aiServiceAdapter, trainingJobs);
+        PredictionResultStore predictionResults = new PredictionResultStore(maxPredictionResults, predictionTtlMs);
+        this.raftHost = new RaftGroupHost(config, groupCount);
+        List<RaftNode> groups = new ArrayList<>();
+        List<WorkerStateMachine> stateMachines = new ArrayList<>();
+        for (int g = 0; g < groupCount; g++) {
+            // La tabla de sesiones vive junto al estado RAFT del grupo (mismo directorio que lastApplied)
+            Path groupDir = g == 0 ? Paths.get(storageDir) : Paths.get(storageDir, "group-" + g);
+            Files.createDirectories(groupDir);
+            ClientSessionTable sessions = new ClientSessionTable(groupDir.resolve("sessions.txt"), maxSessions, sessionTtlMs);
+            WorkerStateMachine stateMachine = new WorkerStateMachine(fileManager, modelRegistry, aiServiceAdapter,
+                sessions, trainingJobManager, predictionResults);
+            stateMachines.add(stateMachine);
+            groups.add(raftHost.addGroup(stateMachine));
+        }
+        this.router = new ShardRouter(groups, stateMachines);
+        // REGISTER_MODEL / MODEL_WEIGHTS al terminar un entrenamiento van al grupo del modelo
+        trainingJobManager.setCommandPoster(router::submit);
+        // Opt-in: el worker en Go solo entiende comandos en texto; se habilita en los worker-node*.properties
+        boolean binaryCommands = Boolean.parseBoolean(workerProps.getProperty("command.binary.enabled", "false").trim());
+        trainingJobManager.setBinaryCommandsEnabled(binaryCommands);
+        String trainingMode = workerProps.getProperty("training.mode", "all").trim();
+        if ("once".equals(trainingMode)) {
+            boolean trainer = Boolean.parseBoolean(workerProps.getProperty("training.trainer", "true").trim());
+            long takeoverMs = Long.parseLong(workerProps.getProperty("training.takeover.ms", "600000").trim());
+            trainingJobManager.configureTrainOnce(config.getNodeId(), trainer, takeoverMs,
+                command -> router.nodeFor(command).getState() == RaftState.LEADER);
+        } else if (!"all".equals(trainingMode)) {
+            throw new IllegalArgumentException("training.mode must be 'all' or 'once': " + trainingMode);
+        }
 
         // Determinar puerto HTTP (puerto base + 1000)
         int httpPort = config.getPort() + 1000;
 
-        // Inicializar servidor HTTP
-        this.httpServer = new HTTPMonitorServer(httpPort, raftNode, stateMachine);
+        // Inicializar servidor HTTP (un pool de hilos atiende /command y la inferencia de /predict)
+        int httpThreads = intProperty(workerProps, "http.threads", HTTPMonitorServer.DEFAULT_THREADS);
+        this.httpServer = new HTTPMonitorServer(httpPort, router, httpThreads);
+        httpServer.setBinaryCommandsEnabled(binaryCommands);
 
         LOGGER.info("MainWorker initialized successfully");
         LOGGER.info("  Node ID: " + config.getNodeId());
         LOGGER.info("  RAFT Port: " + config.getPort());
+        LOGGER.info("  RAFT Groups: " + groupCount);
         LOGGER.info("  HTTP Monitor Port: " + httpPort);
         LOGGER.info("  Data Directory: " + dataDir);
         LOGGER.info("  Models Directory: " + modelsDir);
@@ -70,9 +126,12 @@ public class MainWorker {
      */
     public void start() {
         try {
-            // Iniciar nodo RAFT
-            raftNode.start();
-            LOGGER.info("RAFT node started");
+            // Iniciar grupos RAFT (comparten puerto e hilos)
+            raftHost.start();
+            LOGGER.info("RAFT groups started");
+
+            // Entrenamientos que quedaron pendientes antes de un reinicio
+            trainingJobManager.resumePending();
 
             // Iniciar servidor HTTP
             httpServer.start();
@@ -152,10 +211,35 @@ public class MainWorker {
         return null;
     }
 
+    /**
+     * Lee el .properties completo para las opciones del worker:
+     * - raft.groups (default 1): debe ser igual en todos los nodos; el secondary-worker (Go) solo habla con el grupo 0
+     * - session.max / session.ttl.ms: límite y expiración de la tabla de sesiones de cliente
+     */
+    private static Properties loadProperties(String configPath) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(configPath)) {
+            props.load(in);
+        }
+        return props;
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        int value = Integer.parseInt(props.getProperty(key, String.valueOf(defaultValue)).trim());
+        if (value < 1) {
+            throw new IllegalArgumentException(key + " must be >= 1: " + value);
+        }
+        return value;
+    }
+
     // Getters para testing
 
     public RaftNode getRaftNode() {
-        return raftNode;
+        return router.primary();
+    }
+
+    public ShardRouter getRouter() {
+        return router;
     }
 
     public FileManager getFileManager() {
@@ -167,6 +251,6 @@ public class MainWorker {
     }
 
     public WorkerStateMachine getStateMachine() {
-        return stateMachine;
+        return router.primaryStateMachine();
     }
 }
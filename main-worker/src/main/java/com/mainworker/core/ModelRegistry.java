@@ -131,9 +131,9 @@ public class ModelRegistry {
     }
 
     /**
-     * Persiste el registro en disco
+     * Persiste el registro en disco (sincronizado: varios grupos RAFT aplican en paralelo)
      */
-    private void persistRegistry() {
+    private synchronized void persistRegistry() {
         try (BufferedWriter writer = Files.newBufferedWriter(registryFile,
                 StandardOpenOption.CREATE,
                 StandardOpenOption.TRUNCATE_EXISTING)) {
@@ -0,0 +1,149 @@
+package com.mainworker.core;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+/**
+ * Resultados de PREDICT por requestId con memoria acotada
+ *
+ * - Como máximo maxEntries resultados; al pasarse se descarta el menos usado (LRU)
+ * - Un resultado vence ttlMs después de guardarse
+ * - await(requestId) devuelve un future que se completa al guardarse el resultado, así el
+ *   hilo HTTP se bloquea hasta que el comando se aplica en vez de consultar periódicamente
+ *
+ * No es estado replicado: cada nodo guarda lo que aplicó y el reloj local solo decide
+ * cuándo olvidar un resultado.
+ */
+public class PredictionResultStore {
+
+    private static final Logger LOGGER = Logger.getLogger(PredictionResultStore.class.getName());
+
+    static final int DEFAULT_MAX_ENTRIES = 10000;
+    static final long DEFAULT_TTL_MS = 5 * 60 * 1000L;
+
+    private final int maxEntries;
+    private final long ttlMs;
+    // Orden de acceso: el primero es el menos usado
+    private final LinkedHashMap<String, Result> results = new LinkedHashMap<>(16, 0.75f, true);
+    // Hilos esperando un requestId que todavía no tiene resultado
+    private final Map<String, CompletableFuture<String>> waiters = new HashMap<>();
+    private long evicted = 0;
+
+    public PredictionResultStore(int maxEntries, long ttlMs) {
+        if (maxEntries < 1 || ttlMs < 1) {
+            throw new IllegalArgumentException("Invalid prediction result limits");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Guarda el resultado y despierta a quien lo esté esperando
+     */
+    public void put(String requestId, String result) {
+        CompletableFuture<String> waiter;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            results.put(requestId, new Result(result, now));
+            expire(now);
+            waiter = waiters.remove(requestId);
+        }
+        // Fuera del lock: las continuaciones del future corren en este hilo
+        if (waiter != null) {
+            waiter.complete(result);
+        }
+    }
+
+    /**
+     * Resultado guardado (null si no existe o ya venció)
+     */
+    public synchronized String get(String requestId) {
+        Result r = live(requestId, System.currentTimeMillis());
+        return r == null ? null : r.value;
+    }
+
+    /**
+     * Future que se completa con el resultado de requestId (ya completado si existe).
+     * Quien deja de esperar sin resultado debe llamar a {@link #cancel}.
+     */
+    public synchronized CompletableFuture<String> await(String requestId) {
+        Result r = live(requestId, System.currentTimeMillis());
+        if (r != null) {
+            return CompletableFuture.completedFuture(r.value);
+        }
+        return waiters.computeIfAbsent(requestId, k -> new CompletableFuture<>());
+    }
+
+    /**
+     * Libera la espera de requestId (timeout del cliente) para que no quede en memoria
+     */
+    public synchronized void cancel(String requestId, CompletableFuture<String> waiter) {
+        if (!waiter.isDone()) {
+            waiters.remove(requestId, waiter);
+        }
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public synchronized int waiting() {
+        return waiters.size();
+    }
+
+    public synchronized long getEvictedCount() {
+        return evicted;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    // Un resultado leído pasa al final del orden de acceso: su vencimiento se revisa aquí
+    private Result live(String requestId, long now) {
+        expire(now);
+        Result r = results.get(requestId);
+        if (r != null && now - r.storedAt > ttlMs) {
+            results.remove(requestId);
+            evicted++;
+            return null;
+        }
+        return r;
+    }
+
+    /**
+     * Descarta los vencidos y, si sobra, los menos usados. Se revisa desde el menos usado
+     * hasta el primero vigente; los leídos que hayan vencido los descarta live.
+     */
+    private void expire(long now) {
+        Iterator<Map.Entry<String, Result>> it = results.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Result> e = it.next();
+            boolean expired = now - e.getValue().storedAt > ttlMs;
+            if (!expired && results.size() <= maxEntries) {
+                break;
+            }
+            LOGGER.fine("Prediction result evicted: " + e.getKey());
+            it.remove();
+            evicted++;
+        }
+    }
+
+    private static final class Result {
+        final String value;
+        final long storedAt;
+
+        Result(String value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.mainworker.core;
+
+import com.rafthq.core.RaftNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Enrutador de comandos entre grupos RAFT (Multi-Raft)
+ *
+ * Cada grupo replica un subconjunto de comandos según su clave:
+ * - STORE_FILE / DELETE_FILE: nombre del archivo
+ * - TRAIN_MODEL: archivo del dataset (queda en el mismo grupo que su STORE_FILE)
+ * - REGISTER_MODEL / MODEL_WEIGHTS / PREDICT: modelId
+ * - Resto (NOP, LIST_FILES, ...): grupo 0
+ *
+ * La clave se mapea con hashCode de String, que es estable entre JVMs,
+ * así todos los nodos enrutan igual. raft.groups debe coincidir en todo el cluster.
+ * Los comandos en texto y en binario (CommandCodec) con los mismos campos van al mismo grupo.
+ */
+public class ShardRouter {
+
+    private final List<RaftNode> groups;
+    private final List<WorkerStateMachine> stateMachines;
+
+    public ShardRouter(List<RaftNode> groups, List<WorkerStateMachine> stateMachines) {
+        if (groups.isEmpty() || groups.size() != stateMachines.size()) {
+            throw new IllegalArgumentException("Need one state machine per RAFT group");
+        }
+        this.groups = List.copyOf(groups);
+        this.stateMachines = List.copyOf(stateMachines);
+    }
+
+    /**
+     * Grupo responsable de un comando en texto (OP|arg1|arg2|...)
+     */
+    public int groupFor(String command) {
+        return groupFor(command.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Grupo responsable de un comando en texto o binario
+     */
+    public int groupFor(byte[] command) {
+        if (groups.size() == 1) {
+            return 0;
+        }
+        String key = shardKey(command);
+        if (key == null) {
+            return 0;
+        }
+        return Math.floorMod(key.hashCode(), groups.size());
+    }
+
+    /**
+     * Envía el comando al líder de su grupo (directo o reenviado desde un follower)
+     */
+    public boolean submit(String command) {
+        return submit(command.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean submit(byte[] command) {
+        return groups.get(groupFor(command)).appendOrForward(command);
+    }
+
+    /**
+     * Igual que submit, pero el future se completa con el resultado de aplicar el comando
+     * en este nodo (ver RaftNode.submitCommand)
+     */
+    public CompletableFuture<byte[]> submitCommand(String command) {
+        return submitCommand(command.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public CompletableFuture<byte[]> submitCommand(byte[] command) {
+        return groups.get(groupFor(command)).submitCommand(command);
+    }
+
+    public RaftNode nodeFor(String command) {
+        return groups.get(groupFor(command));
+    }
+
+    public WorkerStateMachine stateMachineFor(String command) {
+        return stateMachines.get(groupFor(command));
+    }
+
+    /**
+     * Grupo 0: membresía, estado principal y comandos sin clave
+     */
+    public RaftNode primary() {
+        return groups.get(0);
+    }
+
+    public WorkerStateMachine primaryStateMachine() {
+        return stateMachines.get(0);
+    }
+
+    public List<RaftNode> getGroups() {
+        return groups;
+    }
+
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    public long getAppliedCommandsCount() {
+        long total = 0;
+        for (WorkerStateMachine sm : stateMachines) {
+            total += sm.getAppliedCommandsCount();
+        }
+        return total;
+    }
+
+    static String shardKey(byte[] command) {
+        // Un comando con sesión va al grupo de su comando interno; mal formado: grupo 0
+        try {
+            return CommandCodec.decodeHeader(command).shardKey();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,650 @@
+package com.mainworker.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Trabajos de entrenamiento (TRAIN_MODEL) fuera del apply loop
+ *
+ * - Al aplicar TRAIN_MODEL solo se registra el trabajo (QUEUED) y se encola en un executor local
+ * - El executor descomprime el dataset y entrena en segundo plano
+ * - Al terminar, el nodo publica REGISTER_MODEL por RAFT; al aplicarse, el trabajo pasa a
+ *   COMPLETED en todas las réplicas (si ya estaba COMPLETED no se vuelve a publicar)
+ *
+ * Modo train-once (configureTrainOnce): entrena un solo nodo y el resto recibe los pesos.
+ * - El nodo que recibe el POST agrega su nodeId: TRAIN_MODEL|...|hyperparamsBase64|trainerNodeId
+ *   (si no es entrenador, training.trainer=false, queda vacío y entrena el líder del grupo)
+ * - El entrenador publica MODEL_WEIGHTS con el bundle de ModelSerializer (binario si
+ *   command.binary.enabled, si no en texto con el bundle en base64); cada réplica lo instala
+ *   al aplicarlo, así el modelo es idéntico en todos los nodos y el costo de entrenar es 1x
+ * - Bundle de más de MAX_WEIGHTS_BYTES: publica REGISTER_MODEL y cada réplica entrena su copia
+ * - Si el trabajo sigue QUEUED pasado training.takeover.ms, lo toma el líder del grupo
+ *
+ * status (QUEUED / COMPLETED) sale del log y es igual en todos los nodos; localStatus
+ * (PENDING / WAITING / RUNNING / TRAINED / FAILED) es la ejecución en este nodo.
+ * Un trabajo por modelId: un nuevo TRAIN_MODEL del mismo modelo reemplaza al anterior.
+ * Compartido por los state machines de todos los grupos (como ModelRegistry).
+ */
+public class TrainingJobManager {
+
+    private static final Logger LOGGER = Logger.getLogger(TrainingJobManager.class.getName());
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    private static final int POST_ATTEMPTS = 10;
+    private static final long POST_RETRY_MS = 1000;
+    // Un bundle va en una sola entrada del log (frame RPC máximo 50 MB, con doble base64); más
+    // grande, el modelo se publica con REGISTER_MODEL y cada réplica lo entrena (como training.mode=all)
+    static final int MAX_WEIGHTS_BYTES = 16 * 1024 * 1024;
+
+    private final ConcurrentHashMap<String, TrainingJob> jobs;
+    private final Path jobsFile;
+    private final FileManager fileManager;
+    private final ModelRegistry modelRegistry;
+    private final WorkerStateMachine.AIServiceAdapter aiServiceAdapter;
+    private final ExecutorService executor;
+
+    // Publica un comando por RAFT (ShardRouter.submit); null = sin cluster, se registra localmente
+    private volatile Predicate<byte[]> commandPoster;
+    // command.binary.enabled: MODEL_WEIGHTS en binario; con false va en texto (el log no lleva binarios)
+    private volatile boolean binaryCommands = false;
+
+    // Train-once
+    private volatile boolean trainOnce = false;
+    private String nodeId;
+    private boolean trainerEligible;
+    private long takeoverMs;
+    private Predicate<String> leaderOf; // ¿este nodo es líder del grupo de este TRAIN_MODEL?
+
+    public TrainingJobManager(String modelsDir, FileManager fileManager, ModelRegistry modelRegistry,
+                              WorkerStateMachine.AIServiceAdapter aiServiceAdapter, int concurrentJobs) {
+        this.jobsFile = Paths.get(modelsDir, "jobs.txt");
+        this.fileManager = fileManager;
+        this.modelRegistry = modelRegistry;
+        this.aiServiceAdapter = aiServiceAdapter;
+        this.executor = Executors.newFixedThreadPool(concurrentJobs);
+        this.jobs = new ConcurrentHashMap<>();
+        loadJobs();
+    }
+
+    public void setCommandPoster(Predicate<byte[]> commandPoster) {
+        this.commandPoster = commandPoster;
+    }
+
+    public void setBinaryCommandsEnabled(boolean enabled) {
+        this.binaryCommands = enabled;
+    }
+
+    /**
+     * Activa el modo train-once. eligible=false: este nodo nunca entrena (solo instala pesos).
+     */
+    public void configureTrainOnce(String nodeId, boolean eligible, long takeoverMs, Predicate<String> leaderOf) {
+        this.nodeId = nodeId;
+        this.trainerEligible = eligible;
+        this.takeoverMs = takeoverMs;
+        this.leaderOf = leaderOf;
+        this.trainOnce = true;
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        long period = Math.max(1000, takeoverMs / 4);
+        watchdog.scheduleAtFixedRate(this::takeOverStalledJobs, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isTrainOnce() {
+        return trainOnce;
+    }
+
+    /**
+     * Train-once: agrega este nodo como entrenador a un TRAIN_MODEL recibido por HTTP (también
+     * dentro de SESSION). Otros comandos, o si este nodo no entrena, se devuelven sin cambios.
+     */
+    public String assignTrainer(String command) {
+        if (!trainOnce || !trainerEligible) {
+            return command;
+        }
+        if (command.startsWith(ClientSessionTable.PREFIX)) {
+            String[] parts = command.split("\\|", 5);
+            if (parts.length == 5) {
+                return String.join("|", parts[0], parts[1], parts[2], parts[3], assignTrainer(parts[4]));
+            }
+            return command;
+        }
+        if (command.startsWith("TRAIN_MODEL|") && command.split("\\|", -1).length == 5) {
+            return command + "|" + nodeId;
+        }
+        return command;
+    }
+
+    /**
+     * Igual que assignTrainer para un comando binario (CommandCodec)
+     */
+    public byte[] assignTrainer(byte[] command) {
+        if (!trainOnce || !trainerEligible || !CommandCodec.isBinary(command)) {
+            return command;
+        }
+        WorkerCommand header = CommandCodec.decodeHeader(command);
+        if (header.type != WorkerCommand.Type.TRAIN_MODEL || !header.getTrainer().isEmpty()) {
+            return command;
+        }
+        WorkerCommand train = CommandCodec.decode(command);
+        train.trainer = nodeId;
+        return CommandCodec.encode(train);
+    }
+
+    /**
+     * TRAIN_MODEL aplicado: registra el trabajo y lo encola (no bloquea el apply loop).
+     * trainer es el nodeId que debe entrenar en modo train-once ("" = líder del grupo)
+     */
+    public void submit(String modelId, String inputType, String datasetPath, String hyperparamsBase64,
+                       String trainer) {
+        TrainingParams.parse(hyperparamsBase64); // formato inválido: falla aquí, en todos los nodos igual
+
+        TrainingJob existing = jobs.get(modelId);
+        if (existing != null && existing.sameRequest(inputType, datasetPath, hyperparamsBase64)
+                && !TrainingJob.LOCAL_FAILED.equals(existing.localStatus)) {
+            // Entrada re-aplicada tras un reinicio: el trabajo ya está encolado o hecho
+            LOGGER.info("Training job already known: " + modelId);
+            return;
+        }
+
+        TrainingJob job = new TrainingJob(modelId, inputType, datasetPath, hyperparamsBase64, trainer,
+            STATUS_QUEUED, System.currentTimeMillis(), 0);
+        jobs.put(modelId, job);
+        persistJobs();
+        if (shouldTrainHere(job)) {
+            schedule(job);
+            LOGGER.info("Training job queued: " + modelId + " (dataset=" + datasetPath + ")");
+        } else {
+            job.localStatus = TrainingJob.LOCAL_WAITING;
+            LOGGER.info("Training job " + modelId + " assigned to " + (trainer.isEmpty() ? "group leader" : trainer));
+        }
+    }
+
+    /**
+     * MODEL_WEIGHTS aplicado: instala el bundle en todos los nodos, también en el entrenador,
+     * para que si entrenaron dos nodos todos queden con el último aplicado
+     */
+    public void installWeights(String modelId, byte[] bundle) throws Exception {
+        aiServiceAdapter.importModel(modelId, bundle);
+    }
+
+    private boolean shouldTrainHere(TrainingJob job) {
+        if (!trainOnce) {
+            return true;
+        }
+        if (!trainerEligible) {
+            return false;
+        }
+        return job.trainer.isEmpty() ? leaderOf.test(job.trainCommand()) : job.trainer.equals(nodeId);
+    }
+
+    /**
+     * Train-once: si el entrenador designado no terminó a tiempo (caído, sin líder al
+     * aplicarse), el líder actual del grupo entrena. Si terminan dos, gana el último
+     * MODEL_WEIGHTS aplicado, igual en todas las réplicas.
+     */
+    private void takeOverStalledJobs() {
+        try {
+            long now = System.currentTimeMillis();
+            for (TrainingJob job : jobs.values()) {
+                if (STATUS_QUEUED.equals(job.status) && TrainingJob.LOCAL_WAITING.equals(job.localStatus)
+                        && now - job.submittedAt > takeoverMs && trainerEligible
+                        && leaderOf.test(job.trainCommand())) {
+                    LOGGER.warning("Training job " + job.modelId + " stalled, taking over as group leader");
+                    job.localStatus = TrainingJob.LOCAL_PENDING;
+                    schedule(job);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Training watchdog error", e);
+        }
+    }
+
+    /**
+     * REGISTER_MODEL aplicado: el trabajo de ese modelo (si hay) queda terminado. En modo
+     * train-once, si llegó sin pesos (bundle demasiado grande para el log) y este nodo
+     * no tiene el modelo, lo entrena localmente.
+     */
+    public void markCompleted(String modelId) {
+        TrainingJob job = jobs.get(modelId);
+        if (job == null || STATUS_COMPLETED.equals(job.status)) {
+            return;
+        }
+        job.status = STATUS_COMPLETED;
+        job.completedAt = System.currentTimeMillis();
+        persistJobs();
+        LOGGER.info("Training job completed: " + modelId);
+        if (trainOnce && TrainingJob.LOCAL_WAITING.equals(job.localStatus) && !aiServiceAdapter.hasModel(modelId)) {
+            LOGGER.info("Model " + modelId + " registered without weights, training locally");
+            job.localStatus = TrainingJob.LOCAL_PENDING;
+            schedule(job);
+        }
+    }
+
+    /**
+     * Tras un reinicio, vuelve a entrenar los trabajos que quedaron sin terminar, y los ya
+     * registrados cuyo modelo no está en este nodo (se cayó mientras lo entrenaba)
+     */
+    public void resumePending() {
+        for (TrainingJob job : jobs.values()) {
+            if (STATUS_COMPLETED.equals(job.status) && TrainingJob.LOCAL_PENDING.equals(job.localStatus)
+                    && !aiServiceAdapter.hasModel(job.modelId)) {
+                LOGGER.info("Model " + job.modelId + " missing on this node, training locally");
+                schedule(job);
+            } else if (STATUS_QUEUED.equals(job.status) && TrainingJob.LOCAL_PENDING.equals(job.localStatus)) {
+                if (shouldTrainHere(job)) {
+                    LOGGER.info("Resuming training job: " + job.modelId);
+                    schedule(job);
+                } else {
+                    job.localStatus = TrainingJob.LOCAL_WAITING;
+                }
+            }
+        }
+    }
+
+    public List<TrainingJob> listJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    public TrainingJob getJob(String modelId) {
+        return jobs.get(modelId);
+    }
+
+    private void schedule(TrainingJob job) {
+        executor.submit(() -> run(job));
+    }
+
+    private void run(TrainingJob job) {
+        if (jobs.get(job.modelId) != job) {
+            return; // reemplazado por un TRAIN_MODEL más nuevo
+        }
+        job.localStatus = TrainingJob.LOCAL_RUNNING;
+        try {
+            TrainingParams p = TrainingParams.parse(job.hyperparamsBase64);
+            LOGGER.info("Training model: " + job.modelId + " with input type: " + job.inputType);
+            LOGGER.info("Dataset: " + job.datasetPath + ", epochs=" + p.epochs + ", lr=" + p.learningRate);
+
+            // Obtener ruta absoluta del dataset
+            String fullDatasetPath = fileManager.getFilePath(job.datasetPath);
+
+            // Si es un ZIP, descomprimirlo y buscar el TSV
+            if (fullDatasetPath.endsWith(".zip")) {
+                LOGGER.info("Extracting ZIP file: " + fullDatasetPath);
+                String extractedPath = extractZipAndFindTsv(fullDatasetPath);
+                if (extractedPath == null) {
+                    throw new IOException("No TSV file found in ZIP");
+                }
+                fullDatasetPath = extractedPath;
+                LOGGER.info("Using extracted TSV: " + fullDatasetPath);
+            }
+
+            // Llamar al módulo de IA (con el modelId del comando)
+            String resultModelId = aiServiceAdapter.trainModel(
+                job.modelId, job.inputType, fullDatasetPath,
+                p.inputSize, p.outputSize, p.epochs, p.learningRate, p.numThreads, p.hasHeader,
+                p.maxVocab, p.imageWidth, p.imageHeight, p.grayscale, p.precision, p.trainingMode);
+            if (resultModelId.startsWith("error-model-")) {
+                throw new IllegalStateException("AIService failed to train " + job.modelId);
+            }
+
+            job.localStatus = TrainingJob.LOCAL_TRAINED;
+            job.localFinishedAt = System.currentTimeMillis();
+            LOGGER.info("Model trained locally: " + resultModelId);
+            publishCompletion(job, resultModelId);
+
+        } catch (Exception e) {
+            job.localStatus = TrainingJob.LOCAL_FAILED;
+            job.localFinishedAt = System.currentTimeMillis();
+            job.error = e.getMessage();
+            LOGGER.log(Level.SEVERE, "Failed to train model: " + job.modelId, e);
+        }
+    }
+
+    /**
+     * Publica REGISTER_MODEL, o MODEL_WEIGHTS con el bundle en modo train-once (reintenta
+     * mientras no haya líder). Si otro nodo ya lo publicó y se aplicó, no hace nada.
+     * REGISTER_MODEL va en texto (también lo aplica el worker en Go); MODEL_WEIGHTS va en
+     * binario con el bundle crudo si command.binary.enabled, si no en texto con el bundle en
+     * base64 (con binarios deshabilitados el nodo nunca escribe binario en el log). Si el
+     * bundle no se puede exportar o supera MAX_WEIGHTS_BYTES se publica REGISTER_MODEL y las
+     * réplicas lo entrenan (markCompleted), así el trabajo no queda QUEUED.
+     */
+    private void publishCompletion(TrainingJob job, String modelId) throws Exception {
+        String modelType = job.inputType.toLowerCase() + "-model";
+        long timestamp = System.currentTimeMillis();
+        String description = "REGISTER_MODEL|" + modelId + "|" + modelType + "|0.0|" + timestamp;
+        byte[] command = description.getBytes(StandardCharsets.UTF_8);
+        if (trainOnce) {
+            byte[] bundle = exportForReplication(modelId);
+            if (bundle != null) {
+                WorkerCommand weights = WorkerCommand.modelWeights(modelId, modelType, 0.0, timestamp, bundle);
+                command = binaryCommands
+                    ? CommandCodec.encode(weights)
+                    : ("MODEL_WEIGHTS|" + modelId + "|" + modelType + "|0.0|" + timestamp + "|"
+                        + Base64.getEncoder().encodeToString(bundle)).getBytes(StandardCharsets.UTF_8);
+                description = weights + " (" + bundle.length + " bytes)";
+            }
+        }
+        Predicate<byte[]> poster = commandPoster;
+        if (poster == null) {
+            modelRegistry.registerModel(modelId, job.inputType.toLowerCase() + "-model", 0.0, System.currentTimeMillis());
+            markCompleted(job.modelId);
+            return;
+        }
+        for (int attempt = 1; attempt <= POST_ATTEMPTS; attempt++) {
+            if (STATUS_COMPLETED.equals(job.status) || jobs.get(job.modelId) != job) {
+                return;
+            }
+            if (poster.test(command)) {
+                LOGGER.info("Posted " + description);
+                return;
+            }
+            LOGGER.warning("Could not post REGISTER_MODEL for " + modelId + " (attempt " + attempt + ")");
+            Thread.sleep(POST_RETRY_MS);
+        }
+        job.error = "Could not post REGISTER_MODEL after " + POST_ATTEMPTS + " attempts";
+        LOGGER.severe("Giving up publishing " + modelId + ": " + job.error);
+    }
+
+    /**
+     * Bundle para MODEL_WEIGHTS; null si hay que publicar solo REGISTER_MODEL (modo stub,
+     * no se pudo exportar o es más grande que MAX_WEIGHTS_BYTES)
+     */
+    private byte[] exportForReplication(String modelId) {
+        byte[] bundle;
+        try {
+            bundle = aiServiceAdapter.exportModel(modelId);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not export " + modelId + ", replicas will train it locally", e);
+            return null;
+        }
+        if (bundle != null && bundle.length > MAX_WEIGHTS_BYTES) {
+            LOGGER.warning("Model " + modelId + " too large to replicate (" + bundle.length + " bytes > "
+                + MAX_WEIGHTS_BYTES + "), replicas will train it locally");
+            return null;
+        }
+        return bundle;
+    }
+
+    /**
+     * Extrae un archivo ZIP y busca el archivo TSV dentro
+     */
+    private String extractZipAndFindTsv(String zipPath) {
+        Path zipFile = Paths.get(zipPath).toAbsolutePath().normalize();
+        Path extractDir = zipFile.getParent().resolve(zipFile.getFileName().toString().replace(".zip", "_extracted")).normalize();
+
+        try {
+            Files.createDirectories(extractDir);
+            LOGGER.info("Extracting to: " + extractDir);
+
+            // Extraer ZIP
+            try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile.toFile()))) {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                    String entryName = entry.getName();
+                    Path outputPath = extractDir.resolve(entryName).normalize();
+
+                    // Prevenir zip slip - ambas rutas deben estar normalizadas
+                    if (!outputPath.startsWith(extractDir)) {
+                        LOGGER.warning("Skipping potentially unsafe ZIP entry: " + entryName);
+                        zis.closeEntry();
+                        continue;
+                    }
+
+                    if (entry.isDirectory()) {
+                        Files.createDirectories(outputPath);
+                        LOGGER.fine("Created directory: " + outputPath);
+                    } else {
+                        Files.createDirectories(outputPath.getParent());
+                        try (FileOutputStream fos = new FileOutputStream(outputPath.toFile())) {
+                            byte[] buffer = new byte[8192];
+                            int len;
+                            while ((len = zis.read(buffer)) > 0) {
+                                fos.write(buffer, 0, len);
+                            }
+                        }
+                    }
+                    zis.closeEntry();
+                }
+            }
+
+            // Buscar archivo TSV en el directorio extraído
+            return findTsvFile(extractDir);
+
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to extract ZIP: " + zipPath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Busca recursivamente un archivo TSV en un directorio
+     */
+    private String findTsvFile(Path dir) {
+        try {
+            // Primero buscar en el directorio raíz
+            File[] files = dir.toFile().listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    if (f.isFile() && f.getName().endsWith(".tsv")) {
+                        return f.getAbsolutePath();
+                    }
+                }
+                // Si no hay TSV en raíz, buscar en subdirectorios
+                for (File f : files) {
+                    if (f.isDirectory()) {
+                        String found = findTsvFile(f.toPath());
+                        if (found != null) {
+                            return found;
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error searching for TSV in: " + dir, e);
+        }
+        return null;
+    }
+
+    /**
+     * Persiste la parte replicada de los trabajos (el estado local se recalcula al reiniciar)
+     */
+    private synchronized void persistJobs() {
+        Path tmp = jobsFile.resolveSibling(jobsFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (TrainingJob job : jobs.values()) {
+                writer.write(job.toLine());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to persist training jobs", e);
+            return;
+        }
+        try {
+            Files.move(tmp, jobsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to persist training jobs", e);
+        }
+    }
+
+    private void loadJobs() {
+        if (!Files.exists(jobsFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(jobsFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    TrainingJob job = TrainingJob.fromLine(line);
+                    jobs.put(job.modelId, job);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Failed to parse job line: " + line, e);
+                }
+            }
+            LOGGER.info("Loaded " + jobs.size() + " training jobs");
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to load training jobs", e);
+        }
+    }
+
+    /**
+     * Hiperparámetros de TRAIN_MODEL (base64 de
+     * inputSize,outputSize,epochs,learningRate,numThreads,hasHeader,maxVocab,imageWidth,imageHeight,grayscale[,precision[,trainingMode]])
+     * precision: FLOAT64 (por defecto), FLOAT32 o INT8 (modelo cuantizado, solo inferencia)
+     * trainingMode: MODEL_AVERAGING (por defecto), HOGWILD o ALL_REDUCE
+     */
+    static final class TrainingParams {
+        int inputSize;
+        int outputSize;
+        int epochs;
+        double learningRate;
+        int numThreads;
+        boolean hasHeader;
+        int maxVocab;
+        int imageWidth;
+        int imageHeight;
+        boolean grayscale;
+        String precision = "FLOAT64";
+        String trainingMode = "MODEL_AVERAGING";
+
+        static TrainingParams parse(String hyperparamsBase64) {
+            String hyperparamsStr = new String(Base64.getDecoder().decode(hyperparamsBase64), StandardCharsets.UTF_8);
+            String[] hyperparams = hyperparamsStr.split(",");
+            if (hyperparams.length < 10) {
+                throw new IllegalArgumentException("Invalid hyperparameters format");
+            }
+            TrainingParams p = new TrainingParams();
+            p.inputSize = Integer.parseInt(hyperparams[0]);
+            p.outputSize = Integer.parseInt(hyperparams[1]);
+            p.epochs = Integer.parseInt(hyperparams[2]);
+            p.learningRate = Double.parseDouble(hyperparams[3]);
+            p.numThreads = Integer.parseInt(hyperparams[4]);
+            p.hasHeader = Boolean.parseBoolean(hyperparams[5]);
+            p.maxVocab = Integer.parseInt(hyperparams[6]);
+            p.imageWidth = Integer.parseInt(hyperparams[7]);
+            p.imageHeight = Integer.parseInt(hyperparams[8]);
+            p.grayscale = Boolean.parseBoolean(hyperparams[9]);
+            if (hyperparams.length > 10) {
+                p.precision = hyperparams[10].trim().toUpperCase();
+                if (!p.precision.equals("FLOAT64") && !p.precision.equals("FLOAT32")
+                        && !p.precision.equals("INT8")) {
+                    throw new IllegalArgumentException("Invalid precision: " + hyperparams[10]);
+                }
+            }
+            if (hyperparams.length > 11) {
+                p.trainingMode = hyperparams[11].trim().toUpperCase();
+                if (!p.trainingMode.equals("MODEL_AVERAGING") && !p.trainingMode.equals("HOGWILD")
+                        && !p.trainingMode.equals("ALL_REDUCE")) {
+                    throw new IllegalArgumentException("Invalid training mode: " + hyperparams[11]);
+                }
+            }
+            return p;
+        }
+    }
+
+    /**
+     * Trabajo de entrenamiento de un modelo
+     */
+    public static class TrainingJob {
+        static final String LOCAL_PENDING = "PENDING";
+        static final String LOCAL_WAITING = "WAITING"; // train-once: entrena otro nodo
+        static final String LOCAL_RUNNING = "RUNNING";
+        static final String LOCAL_TRAINED = "TRAINED";
+        static final String LOCAL_FAILED = "FAILED";
+
+        private final String modelId;
+        private final String inputType;
+        private final String datasetPath;
+        private final String hyperparamsBase64;
+        private final String trainer;
+        private final long submittedAt;
+        private volatile String status;
+        private volatile long completedAt;
+        private volatile String localStatus = LOCAL_PENDING;
+        private volatile long localFinishedAt;
+        private volatile String error;
+
+        TrainingJob(String modelId, String inputType, String datasetPath, String hyperparamsBase64, String trainer,
+                    String status, long submittedAt, long completedAt) {
+            this.modelId = modelId;
+            this.inputType = inputType;
+            this.datasetPath = datasetPath;
+            this.hyperparamsBase64 = hyperparamsBase64;
+            this.trainer = trainer;
+            this.status = status;
+            this.submittedAt = submittedAt;
+            this.completedAt = completedAt;
+        }
+
+        boolean sameRequest(String inputType, String datasetPath, String hyperparamsBase64) {
+            return this.inputType.equals(inputType) && this.datasetPath.equals(datasetPath)
+                && this.hyperparamsBase64.equals(hyperparamsBase64);
+        }
+
+        /**
+         * Comando equivalente (para saber a qué grupo RAFT pertenece)
+         */
+        String trainCommand() {
+            return String.join("|", "TRAIN_MODEL", modelId, inputType, datasetPath, hyperparamsBase64);
+        }
+
+        public String getModelId() {
+            return modelId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getLocalStatus() {
+            return localStatus;
+        }
+
+        public String toJson() {
+            return String.format(
+                "{\"modelId\":\"%s\",\"inputType\":\"%s\",\"dataset\":\"%s\",\"trainer\":\"%s\",\"status\":\"%s\","
+                    + "\"submittedAt\":%d,\"completedAt\":%d,\"localStatus\":\"%s\",\"localFinishedAt\":%d,\"error\":%s}",
+                modelId, inputType, datasetPath, trainer, status, submittedAt, completedAt, localStatus, localFinishedAt,
+                error == null ? "null" : "\"" + error.replace("\\", "\\\\").replace("\"", "'") + "\"");
+        }
+
+        String toLine() {
+            return String.join("|", modelId, inputType, datasetPath, hyperparamsBase64, status,
+                String.valueOf(submittedAt), String.valueOf(completedAt), trainer);
+        }
+
+        static TrainingJob fromLine(String line) {
+            String[] parts = line.split("\\|", -1);
+            if (parts.length != 7 && parts.length != 8) {
+                throw new IllegalArgumentException("Invalid job line format");
+            }
+            return new TrainingJob(parts[0], parts[1], parts[2], parts[3], parts.length == 8 ? parts[7] : "",
+                parts[4], Long.parseLong(parts[5]), Long.parseLong(parts[6]));
+        }
+    }
+}
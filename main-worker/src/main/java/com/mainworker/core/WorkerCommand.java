@@ -0,0 +1,286 @@
+package com.mainworker.core;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Comando del worker ya decodificado (texto o binario, ver CommandCodec)
+ *
+ * Cada tipo usa solo sus campos; el resto queda en null/0:
+ * - STORE_FILE: fileName, checksum, sizeBytes, data (contenido del archivo)
+ * - REGISTER_MODEL: modelId, modelType, accuracy, timestamp
+ * - MODEL_WEIGHTS: lo mismo que REGISTER_MODEL más data (bundle serializado, puede estar vacío)
+ * - TRAIN_MODEL: modelId, inputType, fileName (dataset), hyperparams (CSV), trainer ("" = líder)
+ * - PREDICT: requestId, modelId, inputType, data (entrada sin base64)
+ * - DELETE_FILE: fileName
+ * - LIST_FILES: pattern
+ *
+ * Con sesión (SESSION) clientId no es null y seq/sessionTimestampMs identifican el reintento.
+ * Decodificado solo el encabezado (routing y keysOf), data queda en null.
+ */
+public final class WorkerCommand {
+
+    public enum Type {
+        STORE_FILE, REGISTER_MODEL, TRAIN_MODEL, MODEL_WEIGHTS, PREDICT, DELETE_FILE, LIST_FILES, NOP
+    }
+
+    public final Type type;
+    String fileName;
+    String checksum;
+    long sizeBytes;
+    String modelId;
+    String modelType;
+    double accuracy;
+    long timestamp;
+    String inputType;
+    String hyperparams;
+    String trainer = "";
+    String requestId;
+    String pattern;
+    byte[] data;
+
+    String clientId;
+    long seq;
+    long sessionTimestampMs;
+
+    WorkerCommand(Type type) {
+        this.type = type;
+    }
+
+    public static WorkerCommand storeFile(String fileName, String checksum, byte[] data) {
+        WorkerCommand c = new WorkerCommand(Type.STORE_FILE);
+        c.fileName = fileName;
+        c.checksum = checksum;
+        c.sizeBytes = data.length;
+        c.data = data;
+        return c;
+    }
+
+    public static WorkerCommand registerModel(String modelId, String modelType, double accuracy, long timestamp) {
+        WorkerCommand c = new WorkerCommand(Type.REGISTER_MODEL);
+        c.modelId = modelId;
+        c.modelType = modelType;
+        c.accuracy = accuracy;
+        c.timestamp = timestamp;
+        return c;
+    }
+
+    public static WorkerCommand modelWeights(String modelId, String modelType, double accuracy, long timestamp,
+                                             byte[] bundle) {
+        WorkerCommand c = registerModel(modelId, modelType, accuracy, timestamp).as(Type.MODEL_WEIGHTS);
+        c.data = bundle;
+        return c;
+    }
+
+    public static WorkerCommand trainModel(String modelId, String inputType, String dataset, String hyperparams,
+                                           String trainer) {
+        WorkerCommand c = new WorkerCommand(Type.TRAIN_MODEL);
+        c.modelId = modelId;
+        c.inputType = inputType;
+        c.fileName = dataset;
+        c.hyperparams = hyperparams;
+        c.trainer = trainer == null ? "" : trainer;
+        return c;
+    }
+
+    public static WorkerCommand predict(String requestId, String modelId, String inputType, byte[] input) {
+        WorkerCommand c = new WorkerCommand(Type.PREDICT);
+        c.requestId = requestId;
+        c.modelId = modelId;
+        c.inputType = inputType;
+        c.data = input;
+        return c;
+    }
+
+    public static WorkerCommand deleteFile(String fileName) {
+        WorkerCommand c = new WorkerCommand(Type.DELETE_FILE);
+        c.fileName = fileName;
+        return c;
+    }
+
+    public static WorkerCommand listFiles(String pattern) {
+        WorkerCommand c = new WorkerCommand(Type.LIST_FILES);
+        c.pattern = pattern;
+        return c;
+    }
+
+    public static WorkerCommand nop() {
+        return new WorkerCommand(Type.NOP);
+    }
+
+    /**
+     * El mismo comando dentro de una sesión de cliente (timestamp 0 = lo sella el nodo que lo recibe)
+     */
+    public WorkerCommand inSession(String clientId, long seq, long timestampMs) {
+        this.clientId = clientId;
+        this.seq = seq;
+        this.sessionTimestampMs = timestampMs;
+        return this;
+    }
+
+    private WorkerCommand as(Type other) {
+        WorkerCommand c = new WorkerCommand(other);
+        c.modelId = modelId;
+        c.modelType = modelType;
+        c.accuracy = accuracy;
+        c.timestamp = timestamp;
+        return c;
+    }
+
+    public boolean hasSession() {
+        return clientId != null;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public String getModelId() {
+        return modelId;
+    }
+
+    public String getModelType() {
+        return modelType;
+    }
+
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getInputType() {
+        return inputType;
+    }
+
+    public String getHyperparams() {
+        return hyperparams;
+    }
+
+    public String getTrainer() {
+        return trainer;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public long getSessionTimestampMs() {
+        return sessionTimestampMs;
+    }
+
+    /**
+     * Clave de grupo RAFT (ShardRouter); null = grupo 0
+     * - STORE_FILE / DELETE_FILE / TRAIN_MODEL: archivo (TRAIN_MODEL queda junto a su dataset)
+     * - REGISTER_MODEL / MODEL_WEIGHTS / PREDICT: modelo
+     */
+    public String shardKey() {
+        switch (type) {
+            case STORE_FILE:
+            case DELETE_FILE:
+            case TRAIN_MODEL:
+                return "file:" + fileName;
+            case REGISTER_MODEL:
+            case MODEL_WEIGHTS:
+            case PREDICT:
+                return "model:" + modelId;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Claves de conflicto para el apply paralelo (ver WorkerStateMachine.keysOf);
+     * null = barrera (se aplica solo)
+     */
+    public Set<String> conflictKeys() {
+        Set<String> keys = new HashSet<>();
+        switch (type) {
+            case STORE_FILE:
+            case DELETE_FILE:
+                keys.add("file:" + fileName);
+                break;
+            case REGISTER_MODEL:
+            case MODEL_WEIGHTS:
+                keys.add("model:" + modelId);
+                break;
+            case TRAIN_MODEL:
+                keys.add("model:" + modelId);
+                keys.add("file:" + fileName);
+                break;
+            case PREDICT:
+                keys.add("request:" + requestId);
+                keys.add("model:" + modelId);
+                break;
+            case NOP:
+                break;
+            default:
+                return null;
+        }
+        if (hasSession()) {
+            keys.add("session:" + clientId);
+        }
+        return keys;
+    }
+
+    /**
+     * Resumen para logs, sin el payload
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(type.name());
+        switch (type) {
+            case STORE_FILE:
+                sb.append(' ').append(fileName).append(" (").append(sizeBytes).append(" bytes)");
+                break;
+            case REGISTER_MODEL:
+            case MODEL_WEIGHTS:
+                sb.append(' ').append(modelId).append(" (").append(modelType).append(')');
+                break;
+            case TRAIN_MODEL:
+                sb.append(' ').append(modelId).append(' ').append(inputType).append(' ').append(fileName);
+                break;
+            case PREDICT:
+                sb.append(' ').append(requestId).append(' ').append(modelId).append(' ').append(inputType);
+                break;
+            case DELETE_FILE:
+                sb.append(' ').append(fileName);
+                break;
+            case LIST_FILES:
+                sb.append(' ').append(pattern);
+                break;
+            default:
+                break;
+        }
+        if (hasSession()) {
+            sb.append(" [session ").append(clientId).append('#').append(seq).append(']');
+        }
+        return sb.toString();
+    }
+}
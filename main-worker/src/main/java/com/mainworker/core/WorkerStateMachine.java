@@ -1,20 +1,18 @@
 package com.mainworker.core;
 
 import com.rafthq.core.StateMachine;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Base64;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.logging.Level;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 /**
  * State Machine del Worker Principal
@@ -23,11 +21,19 @@ import java.util.zip.ZipInputStream;
  * Comandos soportados:
  * - STORE_FILE|fileName|checksumMD5|sizeBytes|chunkBase64
  * - REGISTER_MODEL|modelId|modelType|accuracy|timestampEpoch
- * - TRAIN_MODEL|modelId|inputType|datasetPath|hyperparamsBase64
+ * - TRAIN_MODEL|modelId|inputType|datasetPath|hyperparamsBase64[|trainerNodeId]
+ * - MODEL_WEIGHTS|modelId|modelType|accuracy|timestampEpoch|bundleBase64
  * - PREDICT|requestId|modelId|inputType|inputDataBase64
  * - DELETE_FILE|fileName
  * - LIST_FILES|pattern
  * - NOP (no operation)
+ * - SESSION|clientId|seq|timestampMs|comando (cualquiera de los anteriores, deduplicado)
+ *
+ * Los mismos comandos pueden llegar en binario (CommandCodec): campos tipados y payloads
+ * sin base64. Ambos formatos se decodifican a WorkerCommand antes de aplicarse.
+ *
+ * Con apply.threads > 1 RAFT aplica en paralelo los comandos con claves disjuntas
+ * (ver keysOf); los que comparten archivo, modelo, request o cliente van en orden del log.
  */
 public class WorkerStateMachine implements StateMachine {
 
@@ -36,83 +42,182 @@ public class WorkerStateMachine implements StateMachine {
     private final FileManager fileManager;
     private final ModelRegistry modelRegistry;
     private final AIServiceAdapter aiServiceAdapter;
-    private final ConcurrentHashMap<String, String> predictionResults;
+    private final PredictionResultStore predictionResults;
+    private final ClientSessionTable sessions;
+    private final TrainingJobManager trainingJobs;
+
+    static final int DEFAULT_MAX_SESSIONS = 1000;
+    static final long DEFAULT_SESSION_TTL_MS = 60 * 60 * 1000L;
+    static final int DEFAULT_TRAINING_JOBS = 1;
 
     // Contador de comandos aplicados
-    private long appliedCommandsCount = 0;
+    private final AtomicLong appliedCommandsCount = new AtomicLong();
 
     public WorkerStateMachine(FileManager fileManager, ModelRegistry modelRegistry, String modelsDir) {
+        this(fileManager, modelRegistry, new AIServiceAdapter(modelsDir), modelsDir);
+    }
+
+    private WorkerStateMachine(FileManager fileManager, ModelRegistry modelRegistry, AIServiceAdapter aiServiceAdapter,
+                               String modelsDir) {
+        this(fileManager, modelRegistry, aiServiceAdapter,
+            new ClientSessionTable(Paths.get(modelsDir).toAbsolutePath().getParent().resolve("sessions.txt"),
+                DEFAULT_MAX_SESSIONS, DEFAULT_SESSION_TTL_MS),
+            new TrainingJobManager(modelsDir, fileManager, modelRegistry, aiServiceAdapter, DEFAULT_TRAINING_JOBS),
+            new PredictionResultStore(PredictionResultStore.DEFAULT_MAX_ENTRIES, PredictionResultStore.DEFAULT_TTL_MS));
+    }
+
+    /**
+     * Con varios grupos RAFT, todos los state machines del nodo comparten el mismo
+     * AIService (un único índice de modelos en disco), los trabajos de entrenamiento y los
+     * resultados de PREDICT; cada grupo tiene su tabla de sesiones
+     */
+    WorkerStateMachine(FileManager fileManager, ModelRegistry modelRegistry, AIServiceAdapter aiServiceAdapter,
+                       ClientSessionTable sessions, TrainingJobManager trainingJobs,
+                       PredictionResultStore predictionResults) {
         this.fileManager = fileManager;
         this.modelRegistry = modelRegistry;
-        this.aiServiceAdapter = new AIServiceAdapter(modelsDir);
-        this.predictionResults = new ConcurrentHashMap<>();
+        this.aiServiceAdapter = aiServiceAdapter;
+        this.sessions = sessions;
+        this.trainingJobs = trainingJobs;
+        this.predictionResults = predictionResults;
         LOGGER.info("WorkerStateMachine initialized");
     }
 
     @Override
     public void onCommit(byte[] command) {
+        applyCommand(command);
+    }
+
+    /**
+     * Aplica el comando y devuelve su resultado para quien lo envió (RaftNode.submitCommand):
+     * PREDICT devuelve las probabilidades (o ERROR:...) en UTF-8; el resto, null
+     */
+    @Override
+    public byte[] applyCommand(byte[] command) {
+        WorkerCommand cmd;
         try {
-            String commandStr = new String(command, StandardCharsets.UTF_8);
-            LOGGER.info("Applying committed command: " + commandStr.substring(0, Math.min(100, commandStr.length())));
+            cmd = CommandCodec.decode(command);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Invalid command: " + e.getMessage());
+            appliedCommandsCount.incrementAndGet();
+            return null;
+        }
+        if (!cmd.hasSession()) {
+            return toBytes(apply(cmd));
+        }
 
-            String[] parts = commandStr.split("\\|", -1);
-            if (parts.length == 0) {
-                LOGGER.warning("Empty command received");
-                return;
-            }
+        // La decisión la tomó beforeApply en orden del log; si no pasó por RAFT (onCommit directo) se toma aquí
+        ClientSessionTable.Ticket ticket = sessions.take(cmd.getClientId(), cmd.getSeq());
+        if (ticket == null) {
+            sessions.admit(cmd.getClientId(), cmd.getSeq(), cmd.getSessionTimestampMs());
+            ticket = sessions.take(cmd.getClientId(), cmd.getSeq());
+        }
 
-            String commandType = parts[0];
+        // Reintento de un cliente: no repetir entrenamientos ni escrituras, devolver el resultado guardado
+        if (ticket.isDuplicate()) {
+            LOGGER.info("Duplicate command skipped: client=" + cmd.getClientId() + " seq=" + cmd.getSeq());
+            return toBytes(ticket.cachedResult());
+        }
+        String result = apply(cmd);
+        sessions.complete(ticket, result);
+        return toBytes(result);
+    }
+
+    /**
+     * SESSION: decide en orden del log si el comando es un duplicado (una vez por entrada,
+     * antes de applyCommand); el resto de los comandos no necesita nada aquí
+     */
+    @Override
+    public void beforeApply(byte[] command) {
+        WorkerCommand cmd;
+        try {
+            cmd = CommandCodec.decodeHeader(command);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (cmd.hasSession()) {
+            sessions.admit(cmd.getClientId(), cmd.getSeq(), cmd.getSessionTimestampMs());
+        }
+    }
 
-            switch (commandType) {
-                case "STORE_FILE":
-                    handleStoreFile(parts);
+    /**
+     * Claves de conflicto para el apply paralelo (WorkerCommand.conflictKeys):
+     * - STORE_FILE / DELETE_FILE: file:nombre
+     * - REGISTER_MODEL / MODEL_WEIGHTS: model:id
+     * - TRAIN_MODEL: model:id y file:dataset
+     * - PREDICT: model:id y request:requestId
+     * - NOP: ninguna
+     * - SESSION: las del comando interno más session:clientId
+     * - LIST_FILES, desconocidos o mal formados: null (barrera, se aplica solo)
+     * Solo se decodifica el encabezado: el payload no se copia. No modifica estado.
+     */
+    @Override
+    public Set<String> keysOf(byte[] command) {
+        WorkerCommand cmd;
+        try {
+            cmd = CommandCodec.decodeHeader(command);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return cmd.conflictKeys();
+    }
+
+    private static byte[] toBytes(String result) {
+        return result == null ? null : result.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String apply(WorkerCommand cmd) {
+        String result = null;
+        try {
+            LOGGER.fine("Applying committed command: " + cmd);
+
+            switch (cmd.type) {
+                case STORE_FILE:
+                    handleStoreFile(cmd);
                     break;
-                case "REGISTER_MODEL":
-                    handleRegisterModel(parts);
+                case REGISTER_MODEL:
+                    handleRegisterModel(cmd);
                     break;
-                case "TRAIN_MODEL":
-                    handleTrainModel(parts);
+                case MODEL_WEIGHTS:
+                    handleModelWeights(cmd);
                     break;
-                case "PREDICT":
-                    handlePredict(parts);
+                case TRAIN_MODEL:
+                    handleTrainModel(cmd);
                     break;
-                case "DELETE_FILE":
-                    handleDeleteFile(parts);
+                case PREDICT:
+                    result = handlePredict(cmd);
                     break;
-                case "LIST_FILES":
-                    handleListFiles(parts);
+                case DELETE_FILE:
+                    handleDeleteFile(cmd);
                     break;
-                case "NOP":
+                case LIST_FILES:
+                    handleListFiles(cmd);
+                    break;
+                case NOP:
                     // No operation - used for testing
                     LOGGER.info("NOP command received");
                     break;
                 default:
-                    LOGGER.warning("Unknown command type: " + commandType);
+                    LOGGER.warning("Unknown command type: " + cmd.type);
             }
 
-            appliedCommandsCount++;
+            appliedCommandsCount.incrementAndGet();
 
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error applying command", e);
         }
+        return result;
     }
 
     /**
      * STORE_FILE|fileName|checksumMD5|sizeBytes|chunkBase64
      */
-    private void handleStoreFile(String[] parts) {
-        if (parts.length < 5) {
-            LOGGER.warning("Invalid STORE_FILE command format");
-            return;
-        }
-
-        String fileName = parts[1];
-        String checksum = parts[2];
-        long sizeBytes = Long.parseLong(parts[3]);
-        String dataBase64 = parts[4];
+    private void handleStoreFile(WorkerCommand cmd) {
+        String fileName = cmd.getFileName();
+        long sizeBytes = cmd.getSizeBytes();
 
         try {
-            fileManager.storeFile(fileName, dataBase64, checksum, sizeBytes);
+            fileManager.storeFile(fileName, cmd.getData(), cmd.getChecksum(), sizeBytes);
             LOGGER.info("File stored successfully: " + fileName + " (" + sizeBytes + " bytes)");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to store file: " + fileName, e);
@@ -122,19 +227,14 @@ public class WorkerStateMachine implements StateMachine {
     /**
      * REGISTER_MODEL|modelId|modelType|accuracy|timestampEpoch
      */
-    private void handleRegisterModel(String[] parts) {
-        if (parts.length < 5) {
-            LOGGER.warning("Invalid REGISTER_MODEL command format");
-            return;
-        }
-
-        String modelId = parts[1];
-        String modelType = parts[2];
-        double accuracy = Double.parseDouble(parts[3]);
-        long timestamp = Long.parseLong(parts[4]);
+    private void handleRegisterModel(WorkerCommand cmd) {
+        String modelId = cmd.getModelId();
+        String modelType = cmd.getModelType();
+        double accuracy = cmd.getAccuracy();
 
         try {
-            modelRegistry.registerModel(modelId, modelType, accuracy, timestamp);
+            modelRegistry.registerModel(modelId, modelType, accuracy, cmd.getTimestamp());
+            trainingJobs.markCompleted(modelId);
             LOGGER.info("Model registered successfully: " + modelId + " (" + modelType + ", accuracy=" + accuracy + ")");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to register model: " + modelId, e);
@@ -142,234 +242,89 @@ public class WorkerStateMachine implements StateMachine {
     }
 
     /**
-     * TRAIN_MODEL|modelId|inputType|datasetPath|hyperparamsBase64
-     * Este comando se integra con el módulo de IA (Persona 2)
-     *
-     * hyperparamsBase64 contiene los parámetros en formato:
-     * inputSize,outputSize,epochs,learningRate,numThreads,hasHeader,maxVocab,imageWidth,imageHeight,grayscale
+     * MODEL_WEIGHTS|modelId|modelType|accuracy|timestampEpoch|bundleBase64
+     * Modo train-once: el entrenador publica el modelo serializado; cada réplica lo instala
+     * y lo registra (bundle vacío en modo stub: solo se registra)
      */
-    private void handleTrainModel(String[] parts) {
-        if (parts.length < 5) {
-            LOGGER.warning("Invalid TRAIN_MODEL command format");
-            return;
-        }
-
-        String modelId = parts[1];
-        String inputType = parts[2];
-        String datasetPath = parts[3];
-        String hyperparamsBase64 = parts[4];
-
+    private void handleModelWeights(WorkerCommand cmd) {
+        String modelId = cmd.getModelId();
         try {
-            // Decodificar hiperparámetros
-            String hyperparamsStr = new String(Base64.getDecoder().decode(hyperparamsBase64), StandardCharsets.UTF_8);
-            String[] hyperparams = hyperparamsStr.split(",");
-
-            if (hyperparams.length < 10) {
-                LOGGER.warning("Invalid hyperparameters format");
-                return;
-            }
-
-            // Parsear hiperparámetros
-            int inputSize = Integer.parseInt(hyperparams[0]);
-            int outputSize = Integer.parseInt(hyperparams[1]);
-            int epochs = Integer.parseInt(hyperparams[2]);
-            double learningRate = Double.parseDouble(hyperparams[3]);
-            int numThreads = Integer.parseInt(hyperparams[4]);
-            boolean hasHeader = Boolean.parseBoolean(hyperparams[5]);
-            int maxVocab = Integer.parseInt(hyperparams[6]);
-            int imageWidth = Integer.parseInt(hyperparams[7]);
-            int imageHeight = Integer.parseInt(hyperparams[8]);
-            boolean grayscale = Boolean.parseBoolean(hyperparams[9]);
-
-            LOGGER.info("Training model: " + modelId + " with input type: " + inputType);
-            LOGGER.info("Dataset: " + datasetPath + ", epochs=" + epochs + ", lr=" + learningRate);
-
-            // Obtener ruta absoluta del dataset
-            String fullDatasetPath = fileManager.getFilePath(datasetPath);
-
-            // Si es un ZIP, descomprimirlo y buscar el TSV
-            if (fullDatasetPath.endsWith(".zip")) {
-                LOGGER.info("Extracting ZIP file: " + fullDatasetPath);
-                String extractedPath = extractZipAndFindTsv(fullDatasetPath);
-                if (extractedPath != null) {
-                    fullDatasetPath = extractedPath;
-                    LOGGER.info("Using extracted TSV: " + fullDatasetPath);
-                } else {
-                    LOGGER.severe("No TSV file found in ZIP");
-                    return;
-                }
+            if (cmd.getData() != null && cmd.getData().length > 0) {
+                trainingJobs.installWeights(modelId, cmd.getData());
             }
-
-            // Llamar al módulo de IA (passing modelId from command)
-            String resultModelId = aiServiceAdapter.trainModel(
-                modelId,  // Pass the modelId from the RAFT command
-                inputType,
-                fullDatasetPath,
-                inputSize,
-                outputSize,
-                epochs,
-                learningRate,
-                numThreads,
-                hasHeader,
-                maxVocab,
-                imageWidth,
-                imageHeight,
-                grayscale
-            );
-
-            // Registrar modelo como "entrenado"
-            modelRegistry.registerModel(
-                resultModelId,
-                inputType.toLowerCase() + "-model",
-                0.0, // Accuracy será actualizada por el módulo de IA
-                System.currentTimeMillis()
-            );
-
-            LOGGER.info("Model training initiated: " + resultModelId);
-
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to train model: " + modelId, e);
+            LOGGER.log(Level.SEVERE, "Failed to install model weights: " + modelId, e);
+            return;
         }
+        handleRegisterModel(cmd);
     }
 
     /**
-     * Extrae un archivo ZIP y busca el archivo TSV dentro
+     * TRAIN_MODEL|modelId|inputType|datasetPath|hyperparamsBase64[|trainerNodeId]
+     * Este comando se integra con el módulo de IA (Persona 2)
+     *
+     * Los hiperparámetros (base64 en texto, CSV en binario) tienen el formato:
+     * inputSize,outputSize,epochs,learningRate,numThreads,hasHeader,maxVocab,imageWidth,imageHeight,grayscale[,precision[,trainingMode]]
+     *
+     * Solo registra el trabajo: el entrenamiento corre en segundo plano (TrainingJobManager)
+     * y al terminar se publica REGISTER_MODEL
      */
-    private String extractZipAndFindTsv(String zipPath) {
-        Path zipFile = Paths.get(zipPath).toAbsolutePath().normalize();
-        Path extractDir = zipFile.getParent().resolve(zipFile.getFileName().toString().replace(".zip", "_extracted")).normalize();
-        
+    private void handleTrainModel(WorkerCommand cmd) {
+        String modelId = cmd.getModelId();
+        // TrainingJobManager guarda y compara los hiperparámetros en base64 (formato de jobs.txt)
+        String hyperparamsBase64 = Base64.getEncoder().encodeToString(
+            cmd.getHyperparams().getBytes(StandardCharsets.UTF_8));
+
         try {
-            Files.createDirectories(extractDir);
-            LOGGER.info("Extracting to: " + extractDir);
-            
-            // Extraer ZIP
-            try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile.toFile()))) {
-                ZipEntry entry;
-                while ((entry = zis.getNextEntry()) != null) {
-                    String entryName = entry.getName();
-                    Path outputPath = extractDir.resolve(entryName).normalize();
-                    
-                    // Prevenir zip slip - ambas rutas deben estar normalizadas
-                    if (!outputPath.startsWith(extractDir)) {
-                        LOGGER.warning("Skipping potentially unsafe ZIP entry: " + entryName);
-                        zis.closeEntry();
-                        continue;
-                    }
-                    
-                    if (entry.isDirectory()) {
-                        Files.createDirectories(outputPath);
-                        LOGGER.fine("Created directory: " + outputPath);
-                    } else {
-                        Files.createDirectories(outputPath.getParent());
-                        try (FileOutputStream fos = new FileOutputStream(outputPath.toFile())) {
-                            byte[] buffer = new byte[8192];
-                            int len;
-                            while ((len = zis.read(buffer)) > 0) {
-                                fos.write(buffer, 0, len);
-                            }
-                        }
-                    }
-                    zis.closeEntry();
-                }
-            }
-            
-            // Buscar archivo TSV en el directorio extraído
-            return findTsvFile(extractDir);
-            
+            trainingJobs.submit(modelId, cmd.getInputType(), cmd.getFileName(), hyperparamsBase64, cmd.getTrainer());
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Invalid TRAIN_MODEL hyperparameters for " + modelId + ": " + e.getMessage());
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to extract ZIP: " + zipPath, e);
-            return null;
+            LOGGER.log(Level.SEVERE, "Failed to queue training job: " + modelId, e);
         }
     }
-    
+
     /**
-     * Busca recursivamente un archivo TSV en un directorio
+     * PREDICT|requestId|modelId|inputType|inputDataBase64
      */
-    private String findTsvFile(Path dir) {
-        try {
-            // Primero buscar en el directorio raíz
-            File[] files = dir.toFile().listFiles();
-            if (files != null) {
-                for (File f : files) {
-                    if (f.isFile() && f.getName().endsWith(".tsv")) {
-                        return f.getAbsolutePath();
-                    }
-                }
-                // Si no hay TSV en raíz, buscar en subdirectorios
-                for (File f : files) {
-                    if (f.isDirectory()) {
-                        String found = findTsvFile(f.toPath());
-                        if (found != null) {
-                            return found;
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Error searching for TSV in: " + dir, e);
-        }
-        return null;
+    private String handlePredict(WorkerCommand cmd) {
+        String requestId = cmd.getRequestId();
+        String result = predictLocal(cmd.getModelId(), cmd.getInputType(), cmd.getData());
+        predictionResults.put(requestId, result);
+        LOGGER.fine("Prediction completed for request: " + requestId + " -> " + result);
+        return result;
     }
 
     /**
-     * PREDICT|requestId|modelId|inputType|inputDataBase64
+     * Predicción en este nodo sin pasar por el log (la usa también /predict): el resultado
+     * como "[p0,p1,...]" o "ERROR:causa" (ERROR:MODEL_NOT_FOUND si el modelo no está aquí)
      */
-    private void handlePredict(String[] parts) {
-        if (parts.length < 5) {
-            LOGGER.warning("Invalid PREDICT command format");
-            return;
-        }
-
-        String requestId = parts[1];
-        String modelId = parts[2];
-        String inputType = parts[3];
-        String inputDataBase64 = parts[4];
-
+    public String predictLocal(String modelId, String inputType, byte[] input) {
         try {
-            // Verificar que el modelo existe
-            if (!modelRegistry.modelExists(modelId)) {
+            // Verificar que el modelo existe y que ya está en este nodo: con training.mode=all el
+            // REGISTER_MODEL del primero que termina llega antes de que las demás réplicas terminen
+            if (!modelRegistry.modelExists(modelId) || !aiServiceAdapter.hasModel(modelId)) {
                 LOGGER.warning("Model not found: " + modelId);
-                predictionResults.put(requestId, "ERROR:MODEL_NOT_FOUND");
-                return;
-            }
-
-            String inputData;
-            if ("IMAGE".equals(inputType)) {
-                // Para imágenes, pasar el base64 directamente (NO convertir a UTF-8 string)
-                inputData = inputDataBase64;
-            } else {
-                // Para texto/tabular, decodificar el base64 a string
-                inputData = new String(Base64.getDecoder().decode(inputDataBase64), StandardCharsets.UTF_8);
+                return "ERROR:MODEL_NOT_FOUND";
             }
 
-            LOGGER.info("Predicting with model: " + modelId + ", input type: " + inputType);
-
-            // Llamar al módulo de IA para predicción
-            double[] prediction = aiServiceAdapter.predict(modelId, inputType, inputData);
+            LOGGER.fine("Predicting with model: " + modelId + ", input type: " + inputType);
 
-            // Guardar resultado
-            String resultStr = arrayToString(prediction);
-            predictionResults.put(requestId, resultStr);
-
-            LOGGER.info("Prediction completed for request: " + requestId + " -> " + resultStr);
+            // Llamar al módulo de IA con la entrada ya decodificada (IMAGE: bytes de la imagen)
+            double[] prediction = aiServiceAdapter.predict(modelId, inputType, input);
+            return arrayToString(prediction);
 
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to predict: " + requestId, e);
-            predictionResults.put(requestId, "ERROR:" + e.getMessage());
+            LOGGER.log(Level.SEVERE, "Failed to predict with model: " + modelId, e);
+            return "ERROR:" + e.getMessage();
         }
     }
 
     /**
      * DELETE_FILE|fileName
      */
-    private void handleDeleteFile(String[] parts) {
-        if (parts.length < 2) {
-            LOGGER.warning("Invalid DELETE_FILE command format");
-            return;
-        }
-
-        String fileName = parts[1];
+    private void handleDeleteFile(WorkerCommand cmd) {
+        String fileName = cmd.getFileName();
 
         try {
             fileManager.deleteFile(fileName);
@@ -382,8 +337,8 @@ public class WorkerStateMachine implements StateMachine {
     /**
      * LIST_FILES|pattern
      */
-    private void handleListFiles(String[] parts) {
-        String pattern = parts.length > 1 ? parts[1] : "*";
+    private void handleListFiles(WorkerCommand cmd) {
+        String pattern = cmd.getPattern();
 
         try {
             var files = fileManager.listFiles(pattern);
@@ -404,7 +359,7 @@ public class WorkerStateMachine implements StateMachine {
     }
 
     public long getAppliedCommandsCount() {
-        return appliedCommandsCount;
+        return appliedCommandsCount.get();
     }
 
     public FileManager getFileManager() {
@@ -415,137 +370,137 @@ public class WorkerStateMachine implements StateMachine {
         return modelRegistry;
     }
 
+    public TrainingJobManager getTrainingJobs() {
+        return trainingJobs;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
     public String getPredictionResult(String requestId) {
         return predictionResults.get(requestId);
     }
 
+    public PredictionResultStore getPredictionResults() {
+        return predictionResults;
+    }
+
     /**
      * Adapter para el módulo de IA
-     * Encapsula las llamadas al AIService de Persona 2
+     * Encapsula las llamadas al AIService de Persona 2: el AIBackend se busca una sola vez
+     * con ServiceLoader al construir el adapter; si no hay ninguno, modo stub.
      */
-    private static class AIServiceAdapter {
+    static class AIServiceAdapter {
         private final String modelsDir;
-        private Object aiService = null;
-        private boolean aiServiceAvailable = false;
+        private final AIBackend backend;
 
         public AIServiceAdapter(String modelsDir) {
             this.modelsDir = modelsDir;
-            tryInitializeAIService();
+            this.backend = bindBackend(Paths.get(modelsDir));
         }
 
-        private void tryInitializeAIService() {
+        private static AIBackend bindBackend(Path modelsDir) {
             try {
-                Class<?> aiServiceClass = Class.forName("com.mycompany.moduloia.api.AIService");
-                Class<?> pathClass = Class.forName("java.nio.file.Path");
-                Class<?> pathsClass = Class.forName("java.nio.file.Paths");
-
-                Object modelsPath = pathsClass.getMethod("get", String.class, String[].class)
-                    .invoke(null, modelsDir, new String[0]);
-
-                aiService = aiServiceClass.getConstructor(pathClass).newInstance(modelsPath);
-                aiServiceAvailable = true;
-                LOGGER.info("AIService initialized successfully");
-            } catch (ClassNotFoundException e) {
-                LOGGER.warning("AIService not found in classpath. Using stub mode. Add ModuloIA JAR to classpath.");
-                aiServiceAvailable = false;
+                for (AIBackendProvider provider : ServiceLoader.load(AIBackendProvider.class)) {
+                    AIBackend backend = provider.open(modelsDir);
+                    LOGGER.info("AI backend bound: " + provider.name());
+                    return backend;
+                }
+                LOGGER.warning("No AIBackendProvider in classpath. Using stub mode. Add ModuloIA to classpath.");
+            } catch (ServiceConfigurationError | LinkageError e) {
+                LOGGER.warning("AIService not found in classpath (" + e + "). Using stub mode. Add ModuloIA to classpath.");
             } catch (Exception e) {
                 LOGGER.log(Level.WARNING, "Failed to initialize AIService. Using stub mode.", e);
-                aiServiceAvailable = false;
             }
+            return null;
         }
 
         public String trainModel(String providedModelId, String inputType, String datasetPath, int inputSize, int outputSize,
                                  int epochs, double learningRate, int numThreads, boolean hasHeader,
-                                 int maxVocab, int imageWidth, int imageHeight, boolean grayscale) {
+                                 int maxVocab, int imageWidth, int imageHeight, boolean grayscale,
+                                 String precision, String trainingMode) {
 
-            if (!aiServiceAvailable) {
+            if (backend == null) {
                 String modelId = providedModelId != null ? providedModelId : "stub-model-" + System.currentTimeMillis();
                 LOGGER.info("AIService stub: would train " + inputType + " model with dataset: " + datasetPath);
                 return modelId;
             }
 
             try {
-                Class<?> inputTypeClass = Class.forName("com.mycompany.moduloia.api.InputType");
-                Class<?> trainingRequestClass = Class.forName("com.mycompany.moduloia.api.TrainingRequest");
-
-                Object inputTypeEnum = Enum.valueOf((Class<Enum>) inputTypeClass, inputType);
-
-                // Use constructor with modelId (new constructor)
-                Object trainingRequest = trainingRequestClass.getConstructor(
-                    String.class, inputTypeClass, String.class, int.class, int.class, int.class, double.class,
-                    int.class, boolean.class, int.class, int.class, int.class, boolean.class
-                ).newInstance(
-                    providedModelId, inputTypeEnum, datasetPath, inputSize, outputSize, epochs, learningRate,
-                    numThreads, hasHeader, maxVocab, imageWidth, imageHeight, grayscale
-                );
-
-                String modelId = (String) aiService.getClass()
-                    .getMethod("trainModel", trainingRequestClass)
-                    .invoke(aiService, trainingRequest);
-
+                String modelId = backend.trainModel(providedModelId, inputType, datasetPath, inputSize, outputSize,
+                    epochs, learningRate, numThreads, hasHeader, maxVocab, imageWidth, imageHeight, grayscale,
+                    precision, trainingMode);
                 LOGGER.info("Model trained successfully: " + modelId);
                 return modelId;
-
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Failed to train model", e);
                 return "error-model-" + System.currentTimeMillis();
             }
         }
 
-        public double[] predict(String modelId, String inputType, String inputData) {
-            if (!aiServiceAvailable) {
+        /**
+         * true si el motor de IA de este nodo ya tiene el modelo (en modo stub, siempre)
+         */
+        public boolean hasModel(String modelId) {
+            return backend == null || backend.hasModel(modelId);
+        }
+
+        /**
+         * Predicción con la entrada cruda: CSV (TABULAR), texto (TFIDF) o bytes de la imagen (IMAGE)
+         */
+        public double[] predict(String modelId, String inputType, byte[] input) {
+            if (backend == null) {
                 LOGGER.info("AIService stub: would predict with model: " + modelId);
                 return new double[]{0.5, 0.5};
             }
 
             try {
-                Class<?> inputTypeClass = Class.forName("com.mycompany.moduloia.api.InputType");
-                Class<?> predictRequestClass = Class.forName("com.mycompany.moduloia.api.PredictRequest");
-
-                Object inputTypeEnum = Enum.valueOf((Class<Enum>) inputTypeClass, inputType);
-
-                Object predictRequest;
-
-                if ("TABULAR".equals(inputType)) {
-                    String[] values = inputData.split(",");
-                    double[] tabularInput = new double[values.length];
-                    for (int i = 0; i < values.length; i++) {
-                        tabularInput[i] = Double.parseDouble(values[i].trim());
-                    }
-
-                    predictRequest = predictRequestClass.getConstructor(
-                        inputTypeClass, String.class, double[].class, String.class, String.class
-                    ).newInstance(inputTypeEnum, modelId, tabularInput, null, null);
-
-                } else if ("TFIDF".equals(inputType)) {
-                    predictRequest = predictRequestClass.getConstructor(
-                        inputTypeClass, String.class, double[].class, String.class, String.class
-                    ).newInstance(inputTypeEnum, modelId, null, inputData, null);
-
-                } else if ("IMAGE".equals(inputType)) {
-                    // inputData contiene los bytes de la imagen en base64
-                    // Decodificar y pasar como imageBytes
-                    byte[] imageBytes = Base64.getDecoder().decode(inputData);
-                    
-                    predictRequest = predictRequestClass.getConstructor(
-                        inputTypeClass, String.class, double[].class, String.class, String.class, byte[].class
-                    ).newInstance(inputTypeEnum, modelId, null, null, null, imageBytes);
-
-                } else {
-                    throw new IllegalArgumentException("Unsupported input type: " + inputType);
-                }
-
-                double[] prediction = (double[]) aiService.getClass()
-                    .getMethod("predict", predictRequestClass)
-                    .invoke(aiService, predictRequest);
-
-                LOGGER.info("Prediction completed for model: " + modelId);
+                double[] prediction = backend.predict(modelId, inputType, input);
+                LOGGER.fine("Prediction completed for model: " + modelId);
                 return prediction;
-
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Failed to predict", e);
                 return new double[]{-1.0};
             }
         }
+
+        /**
+         * Bundle serializado (ModelSerializer) de un modelo entrenado en este nodo, para
+         * replicarlo con MODEL_WEIGHTS. null en modo stub.
+         */
+        public byte[] exportModel(String modelId) throws Exception {
+            if (backend == null) {
+                return null;
+            }
+            Path outgoing = Files.createTempDirectory("model-export");
+            Path file = outgoing.resolve(modelId + ".bin");
+            try {
+                backend.saveModel(modelId, outgoing);
+                return Files.readAllBytes(file);
+            } finally {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(outgoing);
+            }
+        }
+
+        /**
+         * Instala en el directorio de modelos un bundle recibido por MODEL_WEIGHTS y lo carga
+         * en el AIService (reemplaza una versión anterior del mismo modelo)
+         */
+        public void importModel(String modelId, byte[] bundle) throws Exception {
+            if (modelId.isEmpty() || modelId.contains("/") || modelId.contains("\\") || modelId.contains("..")) {
+                throw new IllegalArgumentException("Invalid modelId: " + modelId);
+            }
+            Path dir = Paths.get(modelsDir).toAbsolutePath().normalize();
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(modelId + ".bin.tmp");
+            Files.write(tmp, bundle);
+            Files.move(tmp, dir.resolve(modelId + ".bin"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (backend != null) {
+                backend.loadModel(modelId, dir);
+            }
+            LOGGER.info("Model weights installed: " + modelId + " (" + bundle.length + " bytes)");
+        }
     }
 }
@@ -0,0 +1,215 @@
+package com.rafthq.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cluster membership carried in the log: voting members plus non-voting learners (host:port).
+ * Config entries use a reserved text payload so they travel through the
+ * existing entry format unchanged: RAFT_CONFIG|voter1,voter2,...|learner1,+learner2,...
+ * A '+' marks a learner the leader promotes to voter once it has caught up.
+ */
+public class ClusterConfig {
+    private static final String PREFIX = "RAFT_CONFIG|";
+    private static final byte[] PREFIX_BYTES = PREFIX.getBytes(StandardCharsets.UTF_8);
+    private static final String PROMOTE_MARK = "+";
+
+    private final Set<String> members;
+    private final Set<String> learners;
+    private final Set<String> promotable;
+
+    public ClusterConfig(Set<String> members) {
+        this(members, Set.of(), Set.of());
+    }
+
+    public ClusterConfig(Set<String> members, Set<String> learners, Set<String> promotable) {
+        this.members = Collections.unmodifiableSet(new LinkedHashSet<>(members));
+        Set<String> l = new LinkedHashSet<>(learners);
+        l.removeAll(members);
+        this.learners = Collections.unmodifiableSet(l);
+        Set<String> p = new LinkedHashSet<>(promotable);
+        p.retainAll(l);
+        this.promotable = Collections.unmodifiableSet(p);
+    }
+
+    /**
+     * Initial configuration from the properties file: self plus static peers.
+     * A joining node starts outside the config until a leader adds it.
+     */
+    public static ClusterConfig initial(String selfAddress, List<String> peers, boolean joining) {
+        Set<String> members = new LinkedHashSet<>();
+        if (!joining) {
+            members.add(selfAddress);
+        }
+        for (String peer : peers) {
+            members.add(peer.trim());
+        }
+        return new ClusterConfig(members);
+    }
+
+    public static boolean isConfigEntry(byte[] payload) {
+        if (payload == null || payload.length < PREFIX_BYTES.length) {
+            return false;
+        }
+        for (int i = 0; i < PREFIX_BYTES.length; i++) {
+            if (payload[i] != PREFIX_BYTES[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static ClusterConfig decode(byte[] payload) {
+        String text = new String(payload, StandardCharsets.UTF_8);
+        if (!text.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Invalid config entry: " + text);
+        }
+        String[] sections = text.substring(PREFIX.length()).split("\\|", -1);
+        Set<String> members = new LinkedHashSet<>();
+        for (String addr : sections[0].split(",")) {
+            if (!addr.isBlank()) {
+                members.add(addr.trim());
+            }
+        }
+        Set<String> learners = new LinkedHashSet<>();
+        Set<String> promotable = new LinkedHashSet<>();
+        if (sections.length > 1) {
+            for (String addr : sections[1].split(",")) {
+                String a = addr.trim();
+                if (a.isEmpty()) {
+                    continue;
+                }
+                if (a.startsWith(PROMOTE_MARK)) {
+                    a = a.substring(PROMOTE_MARK.length());
+                    promotable.add(a);
+                }
+                learners.add(a);
+            }
+        }
+        return new ClusterConfig(members, learners, promotable);
+    }
+
+    public byte[] encode() {
+        List<String> l = new ArrayList<>(learners.size());
+        for (String learner : learners) {
+            l.add(promotable.contains(learner) ? PROMOTE_MARK + learner : learner);
+        }
+        String text = PREFIX + String.join(",", members);
+        if (!l.isEmpty()) {
+            text += "|" + String.join(",", l);
+        }
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Voting members.
+     */
+    public Set<String> getMembers() {
+        return members;
+    }
+
+    public Set<String> getLearners() {
+        return learners;
+    }
+
+    /**
+     * True if the address is a voting member.
+     */
+    public boolean contains(String address) {
+        return members.contains(address);
+    }
+
+    public boolean isLearner(String address) {
+        return learners.contains(address);
+    }
+
+    public boolean isPromotable(String address) {
+        return promotable.contains(address);
+    }
+
+    /**
+     * Voting members other than self, i.e. the peers that count for elections and commits.
+     */
+    public List<String> peersOf(String selfAddress) {
+        return without(members, selfAddress);
+    }
+
+    /**
+     * Learners other than self: replicated to, but never counted.
+     */
+    public List<String> learnersOf(String selfAddress) {
+        return without(learners, selfAddress);
+    }
+
+    /**
+     * Add a voter (or promote an existing learner).
+     */
+    public ClusterConfig withMember(String address) {
+        Set<String> next = new LinkedHashSet<>(members);
+        next.add(address);
+        return new ClusterConfig(next, learners, promotable);
+    }
+
+    public ClusterConfig withLearner(String address, boolean promoteWhenCaughtUp) {
+        if (members.contains(address)) {
+            return this;
+        }
+        Set<String> nextLearners = new LinkedHashSet<>(learners);
+        nextLearners.add(address);
+        Set<String> nextPromotable = new LinkedHashSet<>(promotable);
+        if (promoteWhenCaughtUp) {
+            nextPromotable.add(address);
+        } else {
+            nextPromotable.remove(address);
+        }
+        return new ClusterConfig(members, nextLearners, nextPromotable);
+    }
+
+    public ClusterConfig withoutMember(String address) {
+        Set<String> next = new LinkedHashSet<>(members);
+        next.remove(address);
+        Set<String> nextLearners = new LinkedHashSet<>(learners);
+        nextLearners.remove(address);
+        return new ClusterConfig(next, nextLearners, promotable);
+    }
+
+    /**
+     * Votes needed for a majority of the voting members.
+     */
+    public int quorum() {
+        return members.size() / 2 + 1;
+    }
+
+    private static List<String> without(Set<String> set, String selfAddress) {
+        List<String> out = new ArrayList<>(set.size());
+        for (String m : set) {
+            if (!m.equals(selfAddress)) {
+                out.add(m);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ClusterConfig)) return false;
+        ClusterConfig that = (ClusterConfig) o;
+        return members.equals(that.members) && learners.equals(that.learners)
+                && promotable.equals(that.promotable);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * members.hashCode() + learners.hashCode()) + promotable.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterConfig{voters=" + members + ", learners=" + learners + '}';
+    }
+}
@@ -0,0 +1,61 @@
+package com.rafthq.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several client commands packed into one log entry by the leader's batcher.
+ * Framing: the reserved text prefix RAFT_BATCH| followed by a binary body
+ * [int count] then [int length][bytes] per command, all big-endian.
+ * The apply loop unpacks it and hands each command to the state machine in order.
+ */
+public final class CommandBatch {
+    private static final byte[] PREFIX = "RAFT_BATCH|".getBytes(StandardCharsets.UTF_8);
+
+    private CommandBatch() {
+    }
+
+    public static boolean isBatch(byte[] payload) {
+        if (payload == null || payload.length < PREFIX.length) {
+            return false;
+        }
+        for (int i = 0; i < PREFIX.length; i++) {
+            if (payload[i] != PREFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static byte[] encode(List<byte[]> commands) {
+        int size = PREFIX.length + 4;
+        for (byte[] c : commands) {
+            size += 4 + c.length;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.put(PREFIX);
+        buf.putInt(commands.size());
+        for (byte[] c : commands) {
+            buf.putInt(c.length);
+            buf.put(c);
+        }
+        return buf.array();
+    }
+
+    public static List<byte[]> decode(byte[] payload) {
+        if (!isBatch(payload)) {
+            throw new IllegalArgumentException("Not a batch entry");
+        }
+        ByteBuffer buf = ByteBuffer.wrap(payload, PREFIX.length, payload.length - PREFIX.length);
+        int count = buf.getInt();
+        List<byte[]> commands = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] c = new byte[buf.getInt()];
+            buf.get(c);
+            commands.add(c);
+        }
+        return commands;
+    }
+}
@@ -0,0 +1,83 @@
+package com.rafthq.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Leader-side batcher: queues submitted commands and flushes them as one log entry
+ * when maxCommands or maxBytes is reached, or lingerMs after the first queued command.
+ * Draining and appending happen under the batcher lock, so queue order is log order.
+ */
+final class CommandBatcher {
+
+    /**
+     * A queued command. result completes on apply (may be null); appended completes
+     * once the command has an index/slot in the log (may be null).
+     */
+    static final class Queued {
+        final byte[] command;
+        final CompletableFuture<byte[]> result;
+        final CompletableFuture<ForwardCommandResponse> appended;
+
+        Queued(byte[] command, CompletableFuture<byte[]> result, CompletableFuture<ForwardCommandResponse> appended) {
+            this.command = command;
+            this.result = result;
+            this.appended = appended;
+        }
+    }
+
+    private final int maxCommands;
+    private final int maxBytes;
+    private final int lingerMs;
+    private final ScheduledExecutorService scheduler;
+    private final Consumer<List<Queued>> appender;
+
+    private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+    private int queuedBytes = 0;
+    private boolean flushScheduled = false;
+
+    CommandBatcher(int maxCommands, int maxBytes, int lingerMs,
+                   ScheduledExecutorService scheduler, Consumer<List<Queued>> appender) {
+        this.maxCommands = maxCommands;
+        this.maxBytes = maxBytes;
+        this.lingerMs = lingerMs;
+        this.scheduler = scheduler;
+        this.appender = appender;
+    }
+
+    void submit(Queued item) {
+        synchronized (this) {
+            queue.add(item);
+            queuedBytes += item.command.length;
+            if (queue.size() >= maxCommands || queuedBytes >= maxBytes) {
+                flush();
+                return;
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, lingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    synchronized void flush() {
+        flushScheduled = false;
+        while (!queue.isEmpty()) {
+            List<Queued> batch = new ArrayList<>(Math.min(queue.size(), maxCommands));
+            int bytes = 0;
+            while (!queue.isEmpty() && batch.size() < maxCommands
+                    && (batch.isEmpty() || bytes + queue.peek().command.length <= maxBytes)) {
+                Queued q = queue.poll();
+                bytes += q.command.length;
+                batch.add(q);
+            }
+            queuedBytes -= bytes;
+            appender.accept(batch);
+        }
+    }
+}
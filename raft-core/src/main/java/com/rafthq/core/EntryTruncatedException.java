@@ -0,0 +1,20 @@
+package com.rafthq.core;
+
+/**
+ * The log entry holding a submitted command was overwritten by a newer leader;
+ * the command was not applied at that index.
+ */
+public class EntryTruncatedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+
+    public EntryTruncatedException(int index) {
+        super("Log entry " + index + " was truncated by a newer leader");
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
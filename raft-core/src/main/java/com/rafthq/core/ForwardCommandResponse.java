@@ -0,0 +1,32 @@
+package com.rafthq.core;
+
+/**
+ * Reply to a command forwarded by a follower: where the leader appended it, if it did.
+ */
+public class ForwardCommandResponse {
+    public final boolean success;
+    public final int index;
+    public final int term;
+    public final int slot;   // position inside a batch entry (0 for plain entries)
+    public final boolean overloaded;   // rejected by the leader's admission control
+
+    public ForwardCommandResponse(boolean success, int index, int term) {
+        this(success, index, term, 0);
+    }
+
+    public ForwardCommandResponse(boolean success, int index, int term, int slot) {
+        this(success, index, term, slot, false);
+    }
+
+    public ForwardCommandResponse(boolean success, int index, int term, int slot, boolean overloaded) {
+        this.success = success;
+        this.index = index;
+        this.term = term;
+        this.slot = slot;
+        this.overloaded = overloaded;
+    }
+
+    static ForwardCommandResponse overloaded(int term) {
+        return new ForwardCommandResponse(false, 0, term, 0, true);
+    }
+}
@@ -0,0 +1,72 @@
+package com.rafthq.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs apply tasks on a pool while keeping submission order among tasks that share a key.
+ * Tasks with disjoint keys run in parallel; a task with null keys is a barrier that starts
+ * after every earlier task and before every later one.
+ * submit must be called from a single thread (the apply dispatcher), in log order.
+ * Tasks must not throw: a failed task would still release its dependents, but the
+ * caller is expected to record the error itself.
+ */
+final class KeyedExecutor {
+    private final ExecutorService pool;
+    // Last submitted task per key; removed once it completes unless replaced
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<Void>> running = ConcurrentHashMap.newKeySet();
+    private CompletableFuture<Void> barrier = CompletableFuture.completedFuture(null); // dispatcher thread only
+
+    KeyedExecutor(ExecutorService pool) {
+        this.pool = pool;
+    }
+
+    CompletableFuture<Void> submit(Set<String> keys, Runnable task) {
+        List<CompletableFuture<Void>> deps = new ArrayList<>();
+        deps.add(barrier);
+        if (keys == null) {
+            deps.addAll(running);
+        } else {
+            for (String key : keys) {
+                CompletableFuture<Void> tail = tails.get(key);
+                if (tail != null) {
+                    deps.add(tail);
+                }
+            }
+        }
+        CompletableFuture<Void> future = CompletableFuture.allOf(deps.toArray(new CompletableFuture<?>[0]))
+                .exceptionally(e -> null)
+                .thenRunAsync(task, pool);
+        if (keys == null) {
+            barrier = future;
+            tails.clear(); // everything before the barrier is behind it now
+        } else {
+            for (String key : keys) {
+                tails.put(key, future);
+            }
+        }
+        running.add(future);
+        future.whenComplete((v, e) -> {
+            running.remove(future);
+            if (keys != null) {
+                for (String key : keys) {
+                    tails.remove(key, future);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Tasks submitted and not yet finished.
+     */
+    int inFlight() {
+        return running.size();
+    }
+}
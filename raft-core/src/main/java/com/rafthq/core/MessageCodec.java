@@ -100,6 +100,43 @@ public class MessageCodec {
         return new AppendEntriesResponse(term, success, matchIndex);
     }
 
+    public static String encodeForwardCommand(byte[] command) {
+        return StringJoinerBuilder.start("FORWARD_COMMAND")
+                .add(Base64.getEncoder().encodeToString(command))
+                .build();
+    }
+
+    public static byte[] decodeForwardCommand(String line) {
+        String[] parts = line.split("\\|");
+        if (parts.length < 2 || !"FORWARD_COMMAND".equals(parts[0])) {
+            throw new IllegalArgumentException("Invalid ForwardCommand: " + line);
+        }
+        return Base64.getDecoder().decode(parts[1]);
+    }
+
+    public static String encodeForwardCommandResponse(ForwardCommandResponse resp) {
+        return StringJoinerBuilder.start("FORWARD_RESPONSE")
+                .add(Boolean.toString(resp.success))
+                .addInt(resp.index)
+                .addInt(resp.term)
+                .addInt(resp.slot)
+                .add(Boolean.toString(resp.overloaded))
+                .build();
+    }
+
+    public static ForwardCommandResponse decodeForwardCommandResponse(String line) {
+        String[] parts = line.split("\\|");
+        if (parts.length < 4 || !"FORWARD_RESPONSE".equals(parts[0])) {
+            throw new IllegalArgumentException("Invalid ForwardCommandResponse: " + line);
+        }
+        boolean success = Boolean.parseBoolean(parts[1]);
+        int index = Integer.parseInt(parts[2]);
+        int term = Integer.parseInt(parts[3]);
+        int slot = parts.length > 4 ? Integer.parseInt(parts[4]) : 0;
+        boolean overloaded = parts.length > 5 && Boolean.parseBoolean(parts[5]);
+        return new ForwardCommandResponse(success, index, term, slot, overloaded);
+    }
+
     private static String encodeEntry(RaftLogEntry e) {
         String payload = Base64.getEncoder().encodeToString(e.getPayload());
         return e.getIndex() + "," + e.getTerm() + "," + e.getPayload().length + "," + payload;
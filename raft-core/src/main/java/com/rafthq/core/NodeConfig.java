@@ -9,7 +9,7 @@ import java.util.Properties;
 /**
  * Loads node configuration from a .properties file.
  */
-public class NodeConfig {
+public final class NodeConfig {
     private final String nodeId;
     private final String host;
     private final int port;
@@ -20,21 +20,87 @@ public class NodeConfig {
     private final String storageDir;
     private final int logFlushBatch;
     private final String logLevel;
+    private final boolean joining; // true: wait to be added via a config entry before voting
+
+    // Leader-side batching of submitted commands (maxCommands 1 = disabled)
+    private final int batchMaxCommands;
+    private final int batchMaxBytes;
+    private final int batchLingerMs;
+
+    // Leader admission control (0 = unlimited) and per-RPC replication size
+    private final int maxUncommittedEntries;
+    private final long maxUncommittedBytes;
+    private final int maxApplyBacklog;
+    private final long replicationMaxBytes;
+
+    // Apply pool size (1 = apply committed entries one by one on the timer thread)
+    private final int applyThreads;
 
     public NodeConfig(String nodeId, String host, int port, List<String> peers,
                       int electionTimeoutMinMs, int electionTimeoutMaxMs,
                       int heartbeatIntervalMs, String storageDir,
                       int logFlushBatch, String logLevel) {
+        this(nodeId, host, port, peers, electionTimeoutMinMs, electionTimeoutMaxMs,
+                heartbeatIntervalMs, storageDir, logFlushBatch, logLevel, false);
+    }
+
+    public NodeConfig(String nodeId, String host, int port, List<String> peers,
+                      int electionTimeoutMinMs, int electionTimeoutMaxMs,
+                      int heartbeatIntervalMs, String storageDir,
+                      int logFlushBatch, String logLevel, boolean joining) {
+        this(nodeId, host, port, peers, electionTimeoutMinMs, electionTimeoutMaxMs,
+                heartbeatIntervalMs, storageDir, logFlushBatch, logLevel, joining,
+                1, 1024 * 1024, 2, 0, 0, 0, 8L * 1024 * 1024, 1);
+    }
+
+    /**
+     * Full configuration. Batching packs up to batchMaxCommands submitted commands (and at most
+     * batchMaxBytes of payload) into one log entry, waiting at most batchLingerMs; 1 disables it.
+     * The leader rejects new commands while more than maxUncommittedEntries entries or
+     * maxUncommittedBytes of payload are uncommitted, or more than maxApplyBacklog committed
+     * entries wait to be applied (0 disables a limit). replicationMaxBytes caps the payload of
+     * one AppendEntries RPC (at least one entry is always sent). With more than one apply
+     * thread, committed commands on disjoint {@link StateMachine#keysOf} keys are applied
+     * concurrently.
+     */
+    public NodeConfig(String nodeId, String host, int port, List<String> peers,
+                      int electionTimeoutMinMs, int electionTimeoutMaxMs,
+                      int heartbeatIntervalMs, String storageDir,
+                      int logFlushBatch, String logLevel, boolean joining,
+                      int batchMaxCommands, int batchMaxBytes, int batchLingerMs,
+                      int maxUncommittedEntries, long maxUncommittedBytes, int maxApplyBacklog,
+                      long replicationMaxBytes, int applyThreads) {
+        if (batchMaxCommands < 1 || batchMaxBytes < 1 || batchLingerMs < 0) {
+            throw new IllegalArgumentException("Invalid batching settings");
+        }
+        if (maxUncommittedEntries < 0 || maxUncommittedBytes < 0 || maxApplyBacklog < 0) {
+            throw new IllegalArgumentException("Invalid admission limits");
+        }
+        if (replicationMaxBytes < 1) {
+            throw new IllegalArgumentException("replication.max.bytes must be >= 1");
+        }
+        if (applyThreads < 1) {
+            throw new IllegalArgumentException("apply.threads must be >= 1");
+        }
         this.nodeId = nodeId;
         this.host = host;
         this.port = port;
-        this.peers = peers;
+        this.peers = List.copyOf(peers);
         this.electionTimeoutMinMs = electionTimeoutMinMs;
         this.electionTimeoutMaxMs = electionTimeoutMaxMs;
         this.heartbeatIntervalMs = heartbeatIntervalMs;
         this.storageDir = storageDir;
         this.logFlushBatch = logFlushBatch;
         this.logLevel = logLevel;
+        this.joining = joining;
+        this.batchMaxCommands = batchMaxCommands;
+        this.batchMaxBytes = batchMaxBytes;
+        this.batchLingerMs = batchLingerMs;
+        this.maxUncommittedEntries = maxUncommittedEntries;
+        this.maxUncommittedBytes = maxUncommittedBytes;
+        this.maxApplyBacklog = maxApplyBacklog;
+        this.replicationMaxBytes = replicationMaxBytes;
+        this.applyThreads = applyThreads;
     }
 
     public static NodeConfig fromFile(String path) throws IOException {
@@ -55,10 +121,19 @@ public class NodeConfig {
         String storageDir = props.getProperty("storage.dir", "./data/" + nodeId);
         int flushBatch = Integer.parseInt(props.getProperty("log.flush.batch", "16"));
         String logLevel = props.getProperty("log.level", "INFO");
+        boolean joining = Boolean.parseBoolean(props.getProperty("node.join", "false"));
 
         return new NodeConfig(nodeId, host, port, peers,
                 electionMin, electionMax, heartbeat, storageDir,
-                flushBatch, logLevel);
+                flushBatch, logLevel, joining,
+                Integer.parseInt(props.getProperty("batch.max.commands", "1")),
+                Integer.parseInt(props.getProperty("batch.max.bytes", "1048576")),
+                Integer.parseInt(props.getProperty("batch.linger.ms", "2")),
+                Integer.parseInt(props.getProperty("admission.max.uncommitted.entries", "0")),
+                Long.parseLong(props.getProperty("admission.max.uncommitted.bytes", "0")),
+                Integer.parseInt(props.getProperty("admission.max.apply.backlog", "0")),
+                Long.parseLong(props.getProperty("replication.max.bytes", "8388608")),
+                Integer.parseInt(props.getProperty("apply.threads", "1")));
     }
 
     private static String required(Properties props, String key) {
@@ -108,4 +183,40 @@ public class NodeConfig {
     public String getLogLevel() {
         return logLevel;
     }
+
+    public boolean isJoining() {
+        return joining;
+    }
+
+    public int getBatchMaxCommands() {
+        return batchMaxCommands;
+    }
+
+    public int getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    public int getBatchLingerMs() {
+        return batchLingerMs;
+    }
+
+    public int getMaxUncommittedEntries() {
+        return maxUncommittedEntries;
+    }
+
+    public long getMaxUncommittedBytes() {
+        return maxUncommittedBytes;
+    }
+
+    public int getMaxApplyBacklog() {
+        return maxApplyBacklog;
+    }
+
+    public long getReplicationMaxBytes() {
+        return replicationMaxBytes;
+    }
+
+    public int getApplyThreads() {
+        return applyThreads;
+    }
 }
@@ -0,0 +1,13 @@
+package com.rafthq.core;
+
+/**
+ * A submitted command could not be tracked to completion: no leader accepted it, or the
+ * leader that appended it lost leadership first (it may still commit under the next one).
+ */
+public class NotLeaderException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public NotLeaderException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.rafthq.core;
+
+/**
+ * The leader refused a command because an admission limit (uncommitted entries or bytes,
+ * apply backlog) is reached. Safe to retry after {@link #getRetryAfterMs()}.
+ */
+public class OverloadedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMs;
+
+    public OverloadedException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
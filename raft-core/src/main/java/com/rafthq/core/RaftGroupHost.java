@@ -0,0 +1,105 @@
+package com.rafthq.core;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.logging.Logger;
+
+/**
+ * Hosts several independent Raft groups (Multi-Raft) in one process.
+ * All groups share the node's RPC port, the timer threads, the sender pool and the apply
+ * pool (apply.threads &gt; 1); each group has its own log, term, leader and storage directory.
+ * Messages of group N &gt; 0 travel as GROUP|N|&lt;message&gt;; group 0 is untagged and stores
+ * directly in storage.dir, so a single-group host talks to plain RaftNode peers unchanged.
+ */
+public final class RaftGroupHost {
+    private static final Logger LOG = Logger.getLogger(RaftGroupHost.class.getName());
+    private static final String GROUP_PREFIX = "GROUP|";
+
+    private final NodeConfig config;
+    private final int groupCount;
+    private final RpcServer rpcServer;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senderPool = Executors.newCachedThreadPool();
+    private final ExecutorService applyPool; // shared by all groups; null = sequential apply
+    private final List<RaftNode> groups = new ArrayList<>();
+
+    public RaftGroupHost(NodeConfig config, int groupCount) {
+        if (groupCount < 1) {
+            throw new IllegalArgumentException("groupCount must be >= 1: " + groupCount);
+        }
+        this.config = config;
+        this.groupCount = groupCount;
+        this.rpcServer = new RpcServer(config.getHost(), config.getPort(), this::handleMessage);
+        // Two threads for election/heartbeat timers plus one per group, since each
+        // group's apply loop may block on a long state machine command
+        this.scheduler = Executors.newScheduledThreadPool(groupCount + 2);
+        this.applyPool = config.getApplyThreads() > 1 ? Executors.newFixedThreadPool(config.getApplyThreads()) : null;
+    }
+
+    /**
+     * Create the next group (ids are assigned 0, 1, 2, ... in call order).
+     */
+    public synchronized RaftNode addGroup(StateMachine stateMachine) throws IOException {
+        int groupId = groups.size();
+        if (groupId >= groupCount) {
+            throw new IllegalStateException("All " + groupCount + " groups already created");
+        }
+        String storageDir = groupId == 0
+                ? config.getStorageDir()
+                : Paths.get(config.getStorageDir(), "group-" + groupId).toString();
+        RaftNode node = new RaftNode(config, stateMachine, groupId, storageDir, scheduler, senderPool, applyPool);
+        groups.add(node);
+        return node;
+    }
+
+    public void start() {
+        rpcServer.start();
+        for (RaftNode node : getGroups()) {
+            node.start();
+        }
+        LOG.info(() -> "Raft group host " + config.getNodeId() + " started " + groups.size() + " group(s)");
+    }
+
+    public synchronized List<RaftNode> getGroups() {
+        return Collections.unmodifiableList(new ArrayList<>(groups));
+    }
+
+    public RaftNode getGroup(int groupId) {
+        return getGroups().get(groupId);
+    }
+
+    static String groupTag(int groupId) {
+        return groupId == 0 ? "" : GROUP_PREFIX + groupId + "|";
+    }
+
+    private String handleMessage(String message) {
+        int groupId = 0;
+        String body = message;
+        if (message.startsWith(GROUP_PREFIX)) {
+            int sep = message.indexOf('|', GROUP_PREFIX.length());
+            if (sep < 0) {
+                LOG.warning("Malformed group message: " + message);
+                return "ERROR";
+            }
+            try {
+                groupId = Integer.parseInt(message.substring(GROUP_PREFIX.length(), sep));
+            } catch (NumberFormatException e) {
+                LOG.warning("Malformed group id: " + message);
+                return "ERROR";
+            }
+            body = message.substring(sep + 1);
+        }
+        List<RaftNode> current = getGroups();
+        if (groupId < 0 || groupId >= current.size()) {
+            LOG.fine("Message for unknown group " + groupId);
+            return "ERROR";
+        }
+        return current.get(groupId).handleMessage(body);
+    }
+}
@@ -48,6 +48,21 @@ public class RaftLog {
         }
     }
 
+    /**
+     * Term of the entry at index, or -1 if absent. Avoids the Optional on hot paths.
+     */
+    public int termAt(int index) {
+        lock.lock();
+        try {
+            if (index < 0 || index >= entries.size()) {
+                return -1;
+            }
+            return entries.get(index).getTerm();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public List<RaftLogEntry> sliceFrom(int startIndex) {
         lock.lock();
         try {
@@ -60,6 +75,44 @@ public class RaftLog {
         }
     }
 
+    /**
+     * Entries from startIndex up to about maxBytes of payload (always at least one entry),
+     * so one AppendEntries never copies the whole uncommitted tail.
+     */
+    public List<RaftLogEntry> sliceFrom(int startIndex, long maxBytes) {
+        lock.lock();
+        try {
+            if (startIndex >= entries.size()) {
+                return List.of();
+            }
+            int end = startIndex;
+            long bytes = 0;
+            while (end < entries.size() && (end == startIndex || bytes + entries.get(end).getPayload().length <= maxBytes)) {
+                bytes += entries.get(end).getPayload().length;
+                end++;
+            }
+            return new ArrayList<>(entries.subList(startIndex, end));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Total payload size of entries fromIndex..toIndex (inclusive, clamped to the log).
+     */
+    public long payloadBytes(int fromIndex, int toIndex) {
+        lock.lock();
+        try {
+            long bytes = 0;
+            for (int i = Math.max(1, fromIndex); i <= toIndex && i < entries.size(); i++) {
+                bytes += entries.get(i).getPayload().length;
+            }
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public void append(RaftLogEntry entry) {
         lock.lock();
         try {
@@ -1,8 +1,14 @@
 package com.rafthq.core;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 public class RaftLogEntry {
+    /**
+     * Payload of the entry a new leader appends in its own term; never reaches the state machine.
+     */
+    static final byte[] NOOP = "RAFT_NOOP".getBytes(StandardCharsets.UTF_8);
+
     private final int index;
     private final int term;
     private final byte[] payload;
@@ -25,6 +31,10 @@ public class RaftLogEntry {
         return payload;
     }
 
+    static boolean isNoop(byte[] payload) {
+        return Arrays.equals(payload, NOOP);
+    }
+
     @Override
     public String toString() {
         return "RaftLogEntry{" +
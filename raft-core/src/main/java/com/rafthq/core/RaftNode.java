@@ -1,9 +1,11 @@
 package com.rafthq.core;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -18,16 +20,18 @@ import java.util.logging.Logger;
  * Core RAFT node: orchestrates election, replication, and applies committed entries.
  * Thread-safe state management via locks and volatile variables.
  */
-public class RaftNode {
+public final class RaftNode {
     private static final Logger LOG = Logger.getLogger(RaftNode.class.getName());
     private static final Random RANDOM = new Random();
 
     private final NodeConfig config;
+    private final String name;               // nodeId, plus "/g<id>" for non-default groups
     private final RaftLog log;
     private final StateMachine stateMachine;
-    private final RpcServer rpcServer;
+    private final RpcServer rpcServer;       // null when the transport is shared by a RaftGroupHost
     private final RpcClient rpcClient;
     private final PersistentState persistence;
+    private final String selfAddress;
 
     // Persistent state (thread-safe access)
     private volatile RaftState state = RaftState.FOLLOWER;
@@ -37,6 +41,13 @@ public class RaftNode {
     // Volatile state
     private volatile int commitIndex = 0;
     private volatile int lastApplied = 0;
+    private volatile long lastLeaderContactMs = 0;
+
+    // Membership: latest config in the log (committed or not) is the one in effect
+    private volatile ClusterConfig clusterConfig;
+    private volatile List<String> peers;      // voters other than self
+    private volatile List<String> learners;   // non-voting replicas
+    private volatile int configIndex = 0;
 
     // Leader state (only meaningful when state == LEADER)
     private final Map<String, Integer> nextIndex = new ConcurrentHashMap<>();
@@ -44,27 +55,96 @@ public class RaftNode {
 
     // Concurrency
     private final Object stateLock = new Object();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
-    private final ExecutorService senderPool = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senderPool;
+
+    // Follower: peer that last accepted a forwarded command (likely the leader)
+    private volatile String forwardTarget;
+
+    // Futures from submitCommand keyed by (log index, slot); recent results (per slot) cover
+    // forwards whose reply arrives after the entry was already applied here. A result is
+    // recorded before lastApplied moves past its entry
+    private static final int RECENT_RESULTS = 1024;
+    private final Object pendingLock = new Object();
+    private final Map<Long, PendingCommand> pending = new java.util.HashMap<>();
+    private final Map<Long, AppliedResult> recentResults = new java.util.LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, AppliedResult> eldest) {
+            return size() > RECENT_RESULTS;
+        }
+    };
+
+    // Leader-side batching of submitted commands; null when disabled
+    private final CommandBatcher batcher;
+
+    // Admission control (leader): payload bytes in (commitIndex, lastIndex], guarded by stateLock
+    private long uncommittedBytes = 0;
+    // Bytes of commands admitted into the batcher but not yet appended, guarded by stateLock
+    private long queuedBytes = 0;
+    private final java.util.concurrent.atomic.AtomicLong rejectedCommands = new java.util.concurrent.atomic.AtomicLong();
+
+    // Parallel apply (apply.threads > 1); null keyedApply = sequential apply loop.
+    // lastDispatched is owned by the dispatcher; entries in (lastApplied, lastDispatched]
+    // finish out of order and lastApplied advances over the contiguous applied prefix
+    private static final int MAX_APPLY_IN_FLIGHT = 1024;
+    private static final int MAX_APPLY_AHEAD = 65536;
+    private final KeyedExecutor keyedApply;
+    private final Object applyLock = new Object();
+    private final java.util.Set<Integer> appliedAhead = new java.util.HashSet<>(); // guarded by applyLock
+    private volatile int appliedAheadCount = 0;
+    private int lastDispatched = 0;
 
     private ScheduledFuture<?> electionTimerTask;
     private ScheduledFuture<?> heartbeatTask;
 
     public RaftNode(NodeConfig config, StateMachine stateMachine) throws IOException {
+        this(config, stateMachine, config.getNodeId(), true, new RpcClient(), config.getStorageDir(),
+                Executors.newScheduledThreadPool(2), Executors.newCachedThreadPool(),
+                config.getApplyThreads() > 1 ? Executors.newFixedThreadPool(config.getApplyThreads()) : null);
+    }
+
+    /**
+     * Group member hosted by a {@link RaftGroupHost}: no own server socket, shared
+     * timer/sender/apply threads, group-tagged RPCs and a per-group storage directory.
+     */
+    RaftNode(NodeConfig config, StateMachine stateMachine, int groupId, String storageDir,
+             ScheduledExecutorService scheduler, ExecutorService senderPool, ExecutorService applyPool) throws IOException {
+        this(config, stateMachine, groupId == 0 ? config.getNodeId() : config.getNodeId() + "/g" + groupId,
+                false, new RpcClient(groupId), storageDir, scheduler, senderPool, applyPool);
+    }
+
+    private RaftNode(NodeConfig config, StateMachine stateMachine, String name, boolean ownServer,
+                     RpcClient rpcClient, String storageDir,
+                     ScheduledExecutorService scheduler, ExecutorService senderPool,
+                     ExecutorService applyPool) throws IOException {
         this.config = config;
+        this.name = name;
         this.log = new RaftLog();
         this.stateMachine = stateMachine;
-        this.rpcServer = new RpcServer(config.getHost(), config.getPort(), this::handleMessage);
-        this.rpcClient = new RpcClient();
-        this.persistence = new PersistentState(config.getStorageDir());
+        this.rpcServer = ownServer ? new RpcServer(config.getHost(), config.getPort(), this::handleMessage) : null;
+        this.rpcClient = rpcClient;
+        this.scheduler = scheduler;
+        this.senderPool = senderPool;
+        this.keyedApply = applyPool != null ? new KeyedExecutor(applyPool) : null;
+        this.persistence = new PersistentState(storageDir);
+        this.batcher = config.getBatchMaxCommands() > 1
+                ? new CommandBatcher(config.getBatchMaxCommands(), config.getBatchMaxBytes(),
+                        config.getBatchLingerMs(), scheduler, this::appendBatch)
+                : null;
+        this.selfAddress = config.getHost() + ":" + config.getPort();
+        this.clusterConfig = ClusterConfig.initial(selfAddress, config.getPeers(), config.isJoining());
+        this.peers = clusterConfig.peersOf(selfAddress);
+        this.learners = clusterConfig.learnersOf(selfAddress);
         loadPersistentState();
     }
 
     public void start() {
-        rpcServer.start();
+        if (rpcServer != null) {
+            rpcServer.start();
+        }
         scheduleElectionTimer();
         startApplyLoop();
-        LOG.info(() -> "Node " + config.getNodeId() + " started as FOLLOWER on " +
+        LOG.info(() -> "Node " + name + " started as FOLLOWER on " +
                 config.getHost() + ":" + config.getPort() + " (term=" + currentTerm.get() + ")");
     }
     
@@ -78,6 +158,7 @@ public class RaftNode {
             for (RaftLogEntry entry : entries) {
                 log.append(entry);
             }
+            refreshConfigFromLog();
             // Load lastApplied to avoid re-applying commands on restart
             int loadedLastApplied = persistence.loadLastApplied();
             lastApplied = loadedLastApplied;
@@ -106,21 +187,484 @@ public class RaftNode {
      * @return true if command was appended, false if not leader.
      */
     public boolean appendCommand(byte[] command) {
+        try {
+            return appendLocal(command, null) != null;
+        } catch (OverloadedException e) {
+            LOG.fine("Reject appendCommand: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * API: append on the leader, or forward to it when this node is a follower.
+     * The leader is found by trying the last peer that accepted a forward first, then the
+     * other voters; the receiving node never re-forwards.
+     * @return true if some leader appended the command.
+     */
+    public boolean appendOrForward(byte[] command) {
+        if (state == RaftState.LEADER) {
+            return appendCommand(command);
+        }
+        ForwardCommandResponse resp = forwardToLeader(command);
+        return resp != null && resp.success;
+    }
+
+    /**
+     * API: submit a command (appended here if leader, forwarded otherwise) and get a future
+     * completed with {@link StateMachine#applyCommand} result once this node applies that entry.
+     * Fails with {@link NotLeaderException} if no leader accepted it or this leader lost
+     * leadership before applying it (the command may still commit under the next leader),
+     * with {@link EntryTruncatedException} if the entry was overwritten by another leader, and
+     * with {@link OverloadedException} if the leader's admission limits are reached.
+     */
+    public CompletableFuture<byte[]> submitCommand(byte[] command) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        if (isReserved(command)) {
+            future.completeExceptionally(new IllegalArgumentException("Payload uses a reserved Raft prefix"));
+            return future;
+        }
+        try {
+            if (state == RaftState.LEADER) {
+                if (batcher != null) {
+                    enqueue(new CommandBatcher.Queued(command, future, null));
+                    return future;
+                }
+                if (appendLocal(command, future) != null) {
+                    return future;
+                }
+            }
+        } catch (OverloadedException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        ForwardCommandResponse resp = forwardToLeader(command);
+        if (resp == null) {
+            future.completeExceptionally(new NotLeaderException("No leader accepted the command"));
+            return future;
+        }
+        if (resp.overloaded) {
+            future.completeExceptionally(new OverloadedException("Leader is overloaded", retryAfterMs()));
+            return future;
+        }
+        // Deterministic state machine: the local apply of that index yields the leader's result
+        registerPending(resp.index, resp.slot, resp.term, future, false);
+        return future;
+    }
+
+    private static boolean isReserved(byte[] command) {
+        return ClusterConfig.isConfigEntry(command) || CommandBatch.isBatch(command)
+                || RaftLogEntry.isNoop(command);
+    }
+
+    private ForwardCommandResponse forwardToLeader(byte[] command) {
+        if (isReserved(command)) {
+            return null;
+        }
+        List<String> candidates = new java.util.ArrayList<>(peers);
+        String hint = forwardTarget;
+        if (hint != null && candidates.remove(hint)) {
+            candidates.add(0, hint);
+        }
+        for (String peer : candidates) {
+            ForwardCommandResponse resp = rpcClient.forwardCommand(peer, command);
+            if (resp != null && resp.success) {
+                forwardTarget = peer;
+                LOG.fine(() -> "Forwarded command to " + peer + " (index " + resp.index + ")");
+                return resp;
+            }
+            if (resp != null && resp.overloaded) {
+                // Found the leader, it just cannot take more right now
+                forwardTarget = peer;
+                return resp;
+            }
+        }
+        LOG.fine("Forward failed: no leader accepted the command");
+        return null;
+    }
+
+    /**
+     * Append to the local log if leader, registering the future (if any) before the
+     * entry becomes visible to replication.
+     * @return the new entry, or null if not leader.
+     * @throws OverloadedException if an admission limit is reached.
+     */
+    private RaftLogEntry appendLocal(byte[] command, CompletableFuture<byte[]> future) {
+        if (isReserved(command)) {
+            LOG.warning("Reject appendCommand: payload uses a reserved Raft prefix");
+            return null;
+        }
         synchronized (stateLock) {
             if (state != RaftState.LEADER) {
                 LOG.fine("Reject appendCommand: not leader (current state: " + state + ")");
-                return false;
+                return null;
             }
+            admit(command.length);
             int index = log.lastIndex() + 1;
             int term = currentTerm.get();
             RaftLogEntry entry = new RaftLogEntry(index, term, command);
+            uncommittedBytes += command.length;
+            if (future != null) {
+                registerPending(index, 0, term, future, true);
+            }
             log.append(entry);
             persistence.appendLogEntry(entry);
             LOG.fine(() -> "Appended command at index " + index + " term " + term);
+            return entry;
+        }
+    }
+
+    /**
+     * Batcher flush: one log entry for the whole batch (a lone command is stored as is).
+     * Slot i of the entry is the i-th queued command.
+     */
+    private void appendBatch(List<CommandBatcher.Queued> batch) {
+        synchronized (stateLock) {
+            for (CommandBatcher.Queued q : batch) {
+                queuedBytes -= q.command.length;
+            }
+            if (state != RaftState.LEADER) {
+                for (CommandBatcher.Queued q : batch) {
+                    if (q.result != null) {
+                        q.result.completeExceptionally(new NotLeaderException("Leadership lost before the batch was appended"));
+                    }
+                    if (q.appended != null) {
+                        q.appended.complete(new ForwardCommandResponse(false, 0, currentTerm.get()));
+                    }
+                }
+                return;
+            }
+            List<byte[]> commands = new java.util.ArrayList<>(batch.size());
+            for (CommandBatcher.Queued q : batch) {
+                commands.add(q.command);
+            }
+            byte[] payload = commands.size() == 1 ? commands.get(0) : CommandBatch.encode(commands);
+            int index = log.lastIndex() + 1;
+            int term = currentTerm.get();
+            for (int slot = 0; slot < batch.size(); slot++) {
+                if (batch.get(slot).result != null) {
+                    registerPending(index, slot, term, batch.get(slot).result, true);
+                }
+            }
+            RaftLogEntry entry = new RaftLogEntry(index, term, payload);
+            log.append(entry);
+            persistence.appendLogEntry(entry);
+            uncommittedBytes += payload.length;
+            for (int slot = 0; slot < batch.size(); slot++) {
+                if (batch.get(slot).appended != null) {
+                    batch.get(slot).appended.complete(new ForwardCommandResponse(true, index, term, slot));
+                }
+            }
+            LOG.fine(() -> "Appended batch of " + batch.size() + " commands at index " + index + " term " + term);
+        }
+    }
+
+    /**
+     * Admit a command into the batcher, reserving its bytes until the batch is appended.
+     * @throws OverloadedException if an admission limit is reached.
+     */
+    private void enqueue(CommandBatcher.Queued item) {
+        synchronized (stateLock) {
+            admit(item.command.length);
+            queuedBytes += item.command.length;
+        }
+        batcher.submit(item);
+    }
+
+    // ============ Admission control ============
+    /**
+     * Leader, under stateLock: refuse new work while the uncommitted tail or the apply
+     * backlog is over its configured limit. Commands waiting in the batcher count toward
+     * the byte limit. A single command is always admitted into an empty tail, so an
+     * oversized command cannot be starved forever.
+     */
+    private void admit(int bytes) {
+        int uncommitted = log.lastIndex() - commitIndex;
+        long pendingBytes = uncommittedBytes + queuedBytes;
+        String reason = null;
+        if (config.getMaxUncommittedEntries() > 0 && uncommitted >= config.getMaxUncommittedEntries()) {
+            reason = uncommitted + " uncommitted entries";
+        } else if (config.getMaxUncommittedBytes() > 0 && pendingBytes > 0
+                && pendingBytes + bytes > config.getMaxUncommittedBytes()) {
+            reason = pendingBytes + " uncommitted bytes";
+        } else if (config.getMaxApplyBacklog() > 0 && getApplyBacklog() >= config.getMaxApplyBacklog()) {
+            reason = getApplyBacklog() + " committed entries waiting to be applied";
+        }
+        if (reason != null) {
+            rejectedCommands.incrementAndGet();
+            throw new OverloadedException("Leader overloaded: " + reason, retryAfterMs());
+        }
+    }
+
+    /**
+     * Hint for clients: a couple of replication rounds.
+     */
+    private long retryAfterMs() {
+        return 2L * config.getHeartbeatIntervalMs();
+    }
+
+    public int getUncommittedEntries() {
+        return state == RaftState.LEADER ? Math.max(0, log.lastIndex() - commitIndex) : 0;
+    }
+
+    public long getUncommittedBytes() {
+        synchronized (stateLock) {
+            return state == RaftState.LEADER ? uncommittedBytes : 0;
+        }
+    }
+
+    /**
+     * Committed entries not applied yet (entries already applied out of order don't count).
+     */
+    public int getApplyBacklog() {
+        return Math.max(0, commitIndex - lastApplied - appliedAheadCount);
+    }
+
+    public long getRejectedCommands() {
+        return rejectedCommands.get();
+    }
+
+    // ============ Pending results ============
+    private static long slotKey(int index, int slot) {
+        return ((long) index << 32) | slot;
+    }
+
+    private void registerPending(int index, int slot, int term, CompletableFuture<byte[]> future, boolean local) {
+        synchronized (pendingLock) {
+            AppliedResult applied = recentResults.get(slotKey(index, slot));
+            if (applied == null && index <= lastApplied) {
+                // Applied and its result already evicted: nothing would ever complete the future
+                future.completeExceptionally(new IllegalStateException(
+                        "Result of entry " + index + " no longer available"));
+                return;
+            }
+            if (applied != null) {
+                // Applied before the forward reply got back: use the remembered result
+                if (applied.term != term) {
+                    future.completeExceptionally(new EntryTruncatedException(index));
+                } else if (applied.error != null) {
+                    future.completeExceptionally(applied.error);
+                } else {
+                    future.complete(applied.result);
+                }
+                return;
+            }
+            pending.put(slotKey(index, slot), new PendingCommand(term, future, local));
+        }
+    }
+
+    /**
+     * Apply loop: settle the futures waiting on the slots of this index, if any.
+     */
+    private void completePending(int index, int term, byte[][] results, Exception[] errors) {
+        PendingCommand[] waiting = new PendingCommand[results.length];
+        synchronized (pendingLock) {
+            for (int slot = 0; slot < results.length; slot++) {
+                long key = slotKey(index, slot);
+                recentResults.put(key, new AppliedResult(term, results[slot], errors[slot]));
+                waiting[slot] = pending.remove(key);
+            }
+        }
+        for (int slot = 0; slot < results.length; slot++) {
+            settle(waiting[slot], index, term, results[slot], errors[slot]);
+        }
+    }
+
+    /**
+     * Parallel apply: settle one slot as soon as its command is applied, so a fast command
+     * batched with a slow one doesn't wait for the whole entry.
+     */
+    private void completePendingSlot(int index, int slot, int term, byte[] result, Exception error) {
+        PendingCommand waiting;
+        synchronized (pendingLock) {
+            long key = slotKey(index, slot);
+            recentResults.put(key, new AppliedResult(term, result, error));
+            waiting = pending.remove(key);
+        }
+        settle(waiting, index, term, result, error);
+    }
+
+    private static void settle(PendingCommand p, int index, int term, byte[] result, Exception error) {
+        if (p == null) {
+            return;
+        }
+        if (p.term != term) {
+            p.future.completeExceptionally(new EntryTruncatedException(index));
+        } else if (error != null) {
+            p.future.completeExceptionally(error);
+        } else {
+            p.future.complete(result);
+        }
+    }
+
+    /**
+     * Log truncated from fromIndex: those entries will never commit with their old term.
+     */
+    private void failPendingFrom(int fromIndex) {
+        List<PendingCommand> failed = new java.util.ArrayList<>();
+        synchronized (pendingLock) {
+            var it = pending.entrySet().iterator();
+            while (it.hasNext()) {
+                var e = it.next();
+                if ((int) (e.getKey() >>> 32) >= fromIndex) {
+                    failed.add(e.getValue());
+                    it.remove();
+                }
+            }
+        }
+        for (PendingCommand p : failed) {
+            p.future.completeExceptionally(new EntryTruncatedException(fromIndex));
+        }
+    }
+
+    /**
+     * Leadership lost: futures registered as leader can no longer be tracked reliably.
+     */
+    private void failLocalPending() {
+        List<PendingCommand> failed = new java.util.ArrayList<>();
+        synchronized (pendingLock) {
+            var it = pending.values().iterator();
+            while (it.hasNext()) {
+                PendingCommand p = it.next();
+                if (p.local) {
+                    failed.add(p);
+                    it.remove();
+                }
+            }
+        }
+        for (PendingCommand p : failed) {
+            p.future.completeExceptionally(new NotLeaderException("Leadership lost before the entry was applied"));
+        }
+    }
+
+    private static final class PendingCommand {
+        final int term;
+        final CompletableFuture<byte[]> future;
+        final boolean local;    // registered by this node as leader (vs. forwarded)
+
+        PendingCommand(int term, CompletableFuture<byte[]> future, boolean local) {
+            this.term = term;
+            this.future = future;
+            this.local = local;
+        }
+    }
+
+    private static final class AppliedResult {
+        final int term;
+        final byte[] result;
+        final Exception error;
+
+        AppliedResult(int term, byte[] result, Exception error) {
+            this.term = term;
+            this.result = result;
+            this.error = error;
+        }
+    }
+
+    /**
+     * API: add a voting member (host:port). One change at a time: rejected while a
+     * previous config entry is still uncommitted, or before the leader has committed
+     * an entry of its own term.
+     * @return true if the config entry was appended, false if not leader or a change is pending.
+     */
+    public boolean addServer(String address) {
+        return proposeConfig(clusterConfig.withMember(address.trim()));
+    }
+
+    /**
+     * API: add a non-voting learner (host:port). It receives the log but does not count
+     * for commits or elections. With promoteWhenCaughtUp the leader turns it into a voter
+     * once its matchIndex reaches the commit index.
+     */
+    public boolean addLearner(String address, boolean promoteWhenCaughtUp) {
+        return proposeConfig(clusterConfig.withLearner(address.trim(), promoteWhenCaughtUp));
+    }
+
+    /**
+     * API: remove a voting member or learner (host:port). Removing the leader itself is allowed;
+     * it steps down once the new config commits.
+     */
+    public boolean removeServer(String address) {
+        return proposeConfig(clusterConfig.withoutMember(address.trim()));
+    }
+
+    private boolean proposeConfig(ClusterConfig next) {
+        synchronized (stateLock) {
+            if (state != RaftState.LEADER) {
+                LOG.fine("Reject config change: not leader (current state: " + state + ")");
+                return false;
+            }
+            if (configIndex > commitIndex) {
+                LOG.info(() -> "Reject config change: config at index " + configIndex + " not yet committed");
+                return false;
+            }
+            if (log.termAt(commitIndex) != currentTerm.get()) {
+                // Until an entry of this term commits, a change left uncommitted by the previous
+                // leader may still win: two single-server changes could yield disjoint majorities
+                LOG.info(() -> "Reject config change: no entry of term " + currentTerm.get() + " committed yet");
+                return false;
+            }
+            if (next.equals(clusterConfig)) {
+                return true;
+            }
+            if (next.getMembers().isEmpty()) {
+                LOG.warning("Reject config change: cluster cannot be empty");
+                return false;
+            }
+            int index = log.lastIndex() + 1;
+            RaftLogEntry entry = new RaftLogEntry(index, currentTerm.get(), next.encode());
+            log.append(entry);
+            persistence.appendLogEntry(entry);
+            // Membership changes bypass admission control but count toward the uncommitted bytes
+            uncommittedBytes += entry.getPayload().length;
+            applyConfig(next, index);
             return true;
         }
     }
 
+    /**
+     * Switch to a new config as soon as its entry is in the log (single-server change rule).
+     */
+    private void applyConfig(ClusterConfig next, int index) {
+        synchronized (stateLock) {
+            clusterConfig = next;
+            configIndex = index;
+            peers = next.peersOf(selfAddress);
+            learners = next.learnersOf(selfAddress);
+            if (state == RaftState.LEADER) {
+                int lastIdx = log.lastIndex();
+                List<String> targets = replicationTargets();
+                for (String peer : targets) {
+                    nextIndex.putIfAbsent(peer, lastIdx + 1);
+                    matchIndex.putIfAbsent(peer, 0);
+                }
+                nextIndex.keySet().retainAll(targets);
+                matchIndex.keySet().retainAll(targets);
+            }
+            LOG.info(() -> "Node " + name + " using " + next + " (index " + index + ")");
+        }
+    }
+
+    /**
+     * Recompute the active config from the latest config entry in the log,
+     * falling back to the static peers of the properties file.
+     */
+    private void refreshConfigFromLog() {
+        synchronized (stateLock) {
+            for (int i = log.lastIndex(); i > 0; i--) {
+                var entry = log.get(i);
+                if (entry.isPresent() && ClusterConfig.isConfigEntry(entry.get().getPayload())) {
+                    if (i != configIndex) {
+                        applyConfig(ClusterConfig.decode(entry.get().getPayload()), i);
+                    }
+                    return;
+                }
+            }
+            if (configIndex != 0) {
+                applyConfig(ClusterConfig.initial(selfAddress, config.getPeers(), config.isJoining()), 0);
+            }
+        }
+    }
+
     public RaftState getState() {
         return state;
     }
@@ -137,6 +681,14 @@ public class RaftNode {
         return commitIndex;
     }
 
+    public ClusterConfig getClusterConfig() {
+        return clusterConfig;
+    }
+
+    public NodeConfig getConfig() {
+        return config;
+    }
+
     // ============ Election Timer ============
     private void scheduleElectionTimer() {
         if (electionTimerTask != null) {
@@ -159,6 +711,11 @@ public class RaftNode {
                 scheduleElectionTimer();
                 return;
             }
+            if (!clusterConfig.contains(selfAddress)) {
+                // Learners, removed and not-yet-added nodes must not disrupt the cluster
+                scheduleElectionTimer();
+                return;
+            }
             LOG.info(() -> "Election timeout in state " + state);
             becomeCandidate();
         }
@@ -172,7 +729,7 @@ public class RaftNode {
         int term = currentTerm.incrementAndGet();
         votedFor = config.getNodeId();
         savePersistentState();
-        LOG.info(() -> "Node " + config.getNodeId() + " became CANDIDATE term " + term);
+        LOG.info(() -> "Node " + name + " became CANDIDATE term " + term);
     }
 
     private void becomeLeader() {
@@ -182,15 +739,24 @@ public class RaftNode {
                 return;
             }
             state = RaftState.LEADER;
-            LOG.info(() -> "Node " + config.getNodeId() + " became LEADER term " + currentTerm.get());
+            LOG.info(() -> "Node " + name + " became LEADER term " + currentTerm.get());
 
             // Initialize leader state
             int lastIdx = log.lastIndex();
-            for (String peer : config.getPeers()) {
+            uncommittedBytes = log.payloadBytes(commitIndex + 1, lastIdx);
+            nextIndex.clear();
+            matchIndex.clear();
+            for (String peer : replicationTargets()) {
                 nextIndex.put(peer, lastIdx + 1);
                 matchIndex.put(peer, 0);
             }
 
+            // No-op of the new term: commits the entries of earlier terms and unlocks config changes
+            RaftLogEntry noop = new RaftLogEntry(lastIdx + 1, currentTerm.get(), RaftLogEntry.NOOP);
+            log.append(noop);
+            persistence.appendLogEntry(noop);
+            uncommittedBytes += noop.getPayload().length;
+
             // Cancel election timer, start heartbeat
             if (electionTimerTask != null) {
                 electionTimerTask.cancel(false);
@@ -199,14 +765,34 @@ public class RaftNode {
         }
     }
 
+    /**
+     * Voters and learners: everyone the leader sends AppendEntries to.
+     */
+    private List<String> replicationTargets() {
+        List<String> targets = new java.util.ArrayList<>(peers);
+        targets.addAll(learners);
+        return targets;
+    }
+
+    private boolean leaderRecentlySeen() {
+        if (state == RaftState.LEADER) {
+            return true;
+        }
+        return System.currentTimeMillis() - lastLeaderContactMs < config.getElectionTimeoutMinMs();
+    }
+
     private void stepDown(int newTerm) {
         synchronized (stateLock) {
             if (newTerm > currentTerm.get()) {
+                boolean wasLeader = state == RaftState.LEADER;
                 state = RaftState.FOLLOWER;
                 currentTerm.set(newTerm);
                 votedFor = null;
                 savePersistentState();
-                LOG.info(() -> "Node " + config.getNodeId() + " stepped down to FOLLOWER term " + newTerm);
+                LOG.info(() -> "Node " + name + " stepped down to FOLLOWER term " + newTerm);
+                if (wasLeader) {
+                    failLocalPending();
+                }
                 scheduleElectionTimer();
             }
         }
@@ -221,9 +807,14 @@ public class RaftNode {
                 log.lastIndex(),
                 log.lastTerm()
         );
-        List<String> peers = config.getPeers();
+        List<String> peers = this.peers;
         AtomicInteger votes = new AtomicInteger(1); // self vote
-        int required = peers.size() / 2 + 1;
+        int required = clusterConfig.quorum();
+        if (votes.get() >= required) {
+            // Single-member cluster
+            becomeLeader();
+            return;
+        }
 
         for (String peer : peers) {
             senderPool.submit(() -> {
@@ -259,6 +850,12 @@ public class RaftNode {
      */
     private RequestVoteResponse handleRequestVote(RequestVoteRequest req) {
         synchronized (stateLock) {
+            // Ignore candidates while a leader is known to be alive: protects against
+            // servers removed from the config that never learn about their removal
+            if (req.term > currentTerm.get() && leaderRecentlySeen()) {
+                LOG.fine(() -> "RequestVote from " + req.candidateId + " ignored: current leader is alive");
+                return new RequestVoteResponse(currentTerm.get(), false);
+            }
             if (req.term > currentTerm.get()) {
                 stepDown(req.term);
             }
@@ -304,6 +901,12 @@ public class RaftNode {
                 return new AppendEntriesResponse(currentTerm.get(), false, 0);
             }
 
+            // Valid leader for this term: a candidate goes back to follower
+            if (state == RaftState.CANDIDATE) {
+                state = RaftState.FOLLOWER;
+            }
+            lastLeaderContactMs = System.currentTimeMillis();
+
             // Heartbeat: reset election timer even if no entries
             scheduleElectionTimer();
 
@@ -319,19 +922,30 @@ public class RaftNode {
             // Truncate and append entries
             int lastNewIndex = req.prevLogIndex;
             if (!req.entries.isEmpty()) {
+                boolean truncated = false;
                 // Conflict detection: truncate from first conflicting entry
                 for (RaftLogEntry e : req.entries) {
                     var existing = log.get(e.getIndex());
                     if (existing.isPresent() && existing.get().getTerm() != e.getTerm()) {
                         log.truncateFrom(e.getIndex());
                         persistence.truncateLog(e.getIndex());
+                        failPendingFrom(e.getIndex());
+                        existing = java.util.Optional.empty();
+                        truncated = true;
                     }
                     if (!existing.isPresent()) {
                         log.append(e);
                         persistence.appendLogEntry(e);
                         lastNewIndex = e.getIndex();
+                        if (ClusterConfig.isConfigEntry(e.getPayload())) {
+                            applyConfig(ClusterConfig.decode(e.getPayload()), e.getIndex());
+                        }
                     }
                 }
+                if (truncated) {
+                    // A discarded config entry must not stay in effect
+                    refreshConfigFromLog();
+                }
             }
 
             // Update commitIndex
@@ -343,7 +957,31 @@ public class RaftNode {
         }
     }
 
-    private String handleMessage(String message) {
+    /**
+     * Handle a forwarded client command: append only if leader, never forward again.
+     */
+    private ForwardCommandResponse handleForwardCommand(byte[] command) {
+        try {
+            if (batcher != null && state == RaftState.LEADER && !isReserved(command)) {
+                CompletableFuture<ForwardCommandResponse> appended = new CompletableFuture<>();
+                enqueue(new CommandBatcher.Queued(command, null, appended));
+                try {
+                    return appended.get(config.getElectionTimeoutMaxMs(), TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    return new ForwardCommandResponse(false, 0, currentTerm.get());
+                }
+            }
+            RaftLogEntry entry = appendLocal(command, null);
+            if (entry == null) {
+                return new ForwardCommandResponse(false, 0, currentTerm.get());
+            }
+            return new ForwardCommandResponse(true, entry.getIndex(), entry.getTerm());
+        } catch (OverloadedException e) {
+            return ForwardCommandResponse.overloaded(currentTerm.get());
+        }
+    }
+
+    String handleMessage(String message) {
         try {
             if (message.startsWith("REQUEST_VOTE")) {
                 RequestVoteRequest req = MessageCodec.decodeRequestVote(message);
@@ -353,6 +991,9 @@ public class RaftNode {
                 AppendEntriesRequest req = MessageCodec.decodeAppendEntries(message);
                 AppendEntriesResponse resp = handleAppendEntries(req);
                 return MessageCodec.encodeAppendEntriesResponse(resp);
+            } else if (message.startsWith("FORWARD_COMMAND")) {
+                byte[] command = MessageCodec.decodeForwardCommand(message);
+                return MessageCodec.encodeForwardCommandResponse(handleForwardCommand(command));
             } else {
                 LOG.warning("Unknown message type: " + message);
                 return "ERROR";
@@ -378,7 +1019,7 @@ public class RaftNode {
         if (state != RaftState.LEADER) {
             return;
         }
-        for (String peer : config.getPeers()) {
+        for (String peer : replicationTargets()) {
             senderPool.submit(() -> sendHeartbeatToPeer(peer));
         }
     }
@@ -393,7 +1034,7 @@ public class RaftNode {
             prevLogTerm = prevEntry.get().getTerm();
         }
 
-        List<RaftLogEntry> entries = log.sliceFrom(nextIdx);
+        List<RaftLogEntry> entries = log.sliceFrom(nextIdx, config.getReplicationMaxBytes());
         AppendEntriesRequest req = new AppendEntriesRequest(
                 currentTerm.get(),
                 config.getNodeId(),
@@ -414,10 +1055,19 @@ public class RaftNode {
                 return;
             }
 
+            if (!peers.contains(peer) && !learners.contains(peer)) {
+                // Removed from the config while the RPC was in flight
+                return;
+            }
+
             if (resp.success) {
                 nextIndex.put(peer, Math.max(nextIndex.getOrDefault(peer, 0), resp.matchIndex + 1));
                 matchIndex.put(peer, resp.matchIndex);
-                advanceCommitIndex();
+                if (learners.contains(peer)) {
+                    maybePromoteLearner(peer, resp.matchIndex);
+                } else {
+                    advanceCommitIndex();
+                }
             } else {
                 int idx = nextIndex.getOrDefault(peer, log.lastIndex() + 1);
                 if (idx > 0) {
@@ -429,32 +1079,153 @@ public class RaftNode {
         }
     }
 
+    /**
+     * Leader: promote a learner marked for promotion once it has replicated everything committed.
+     */
+    private void maybePromoteLearner(String peer, int peerMatchIndex) {
+        if (state != RaftState.LEADER || !clusterConfig.isPromotable(peer)) {
+            return;
+        }
+        if (peerMatchIndex >= commitIndex && configIndex <= commitIndex
+                && log.termAt(commitIndex) == currentTerm.get()) {
+            LOG.info(() -> "Learner " + peer + " caught up (matchIndex=" + peerMatchIndex + "), promoting to voter");
+            addServer(peer);
+        }
+    }
+
     // ============ Commit and Apply ============
     /**
      * Start background thread that applies committed entries to state machine.
      */
     private void startApplyLoop() {
+        if (keyedApply != null) {
+            lastDispatched = lastApplied;
+            scheduler.scheduleAtFixedRate(this::dispatchCommitted, 100, 50, TimeUnit.MILLISECONDS);
+            return;
+        }
         scheduler.scheduleAtFixedRate(() -> {
             while (commitIndex > lastApplied) {
-                lastApplied++;
-                var entry = log.get(lastApplied);
+                int index = lastApplied + 1;
+                var entry = log.get(index);
                 if (entry.isPresent()) {
                     byte[] command = entry.get().getPayload();
+                    byte[][] results;
+                    Exception[] errors;
+                    // Config and no-op entries are consumed by Raft itself, not by the application
+                    if (ClusterConfig.isConfigEntry(command) || RaftLogEntry.isNoop(command)) {
+                        results = new byte[0][];
+                        errors = new Exception[0];
+                    } else {
+                        List<byte[]> commands = CommandBatch.isBatch(command)
+                                ? CommandBatch.decode(command)
+                                : List.of(command);
+                        results = new byte[commands.size()][];
+                        errors = new Exception[commands.size()];
+                        for (int slot = 0; slot < commands.size(); slot++) {
+                            try {
+                                stateMachine.beforeApply(commands.get(slot));
+                                results[slot] = stateMachine.applyCommand(commands.get(slot));
+                            } catch (Exception e) {
+                                errors[slot] = e;
+                                LOG.log(Level.WARNING, "State machine error at index " + index + " slot " + slot, e);
+                            }
+                        }
+                    }
+                    // Persist lastApplied so we don't re-apply on restart
+                    persistence.saveLastApplied(index);
+                    LOG.fine(() -> "Applied entry " + index + " to state machine");
+                    completePending(index, entry.get().getTerm(), results, errors);
+                }
+                lastApplied = index;
+            }
+        }, 100, 50, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Parallel apply: hand committed entries to the keyed executor in log order. Each
+     * command runs once its keys are free of earlier commands; an entry is applied when
+     * all of its commands are. Bounded so a stuck command cannot pile up the whole log.
+     */
+    private void dispatchCommitted() {
+        try {
+            while (commitIndex > lastDispatched && keyedApply.inFlight() < MAX_APPLY_IN_FLIGHT
+                    && lastDispatched - lastApplied < MAX_APPLY_AHEAD) {
+                int index = ++lastDispatched;
+                var entry = log.get(index);
+                if (entry.isEmpty() || ClusterConfig.isConfigEntry(entry.get().getPayload())
+                        || RaftLogEntry.isNoop(entry.get().getPayload())) {
+                    entryApplied(index);
+                    continue;
+                }
+                byte[] payload = entry.get().getPayload();
+                int term = entry.get().getTerm();
+                List<byte[]> commands;
+                try {
+                    commands = CommandBatch.isBatch(payload) ? CommandBatch.decode(payload) : List.of(payload);
+                } catch (RuntimeException e) {
+                    LOG.log(Level.SEVERE, "Undecodable entry " + index + " skipped", e);
+                    entryApplied(index);
+                    continue;
+                }
+                CompletableFuture<?>[] slots = new CompletableFuture<?>[commands.size()];
+                for (int slot = 0; slot < commands.size(); slot++) {
+                    byte[] command = commands.get(slot);
+                    int s = slot;
+                    try {
+                        stateMachine.beforeApply(command);
+                    } catch (Exception e) {
+                        LOG.log(Level.WARNING, "beforeApply failed at index " + index + " slot " + slot, e);
+                    }
+                    java.util.Set<String> keys;
                     try {
-                        stateMachine.onCommit(command);
-                        // Persist lastApplied so we don't re-apply on restart
-                        persistence.saveLastApplied(lastApplied);
-                        LOG.fine(() -> "Applied entry " + lastApplied + " to state machine");
+                        keys = stateMachine.keysOf(command);
                     } catch (Exception e) {
-                        LOG.log(Level.WARNING, "State machine error at index " + lastApplied, e);
+                        LOG.log(Level.WARNING, "keysOf failed at index " + index + ", applying as a barrier", e);
+                        keys = null;
                     }
+                    slots[slot] = keyedApply.submit(keys, () -> {
+                        byte[] result = null;
+                        Exception error = null;
+                        try {
+                            result = stateMachine.applyCommand(command);
+                        } catch (Exception e) {
+                            error = e;
+                            LOG.log(Level.WARNING, "State machine error at index " + index + " slot " + s, e);
+                        }
+                        completePendingSlot(index, s, term, result, error);
+                    });
                 }
+                CompletableFuture.allOf(slots).thenRun(() -> entryApplied(index));
             }
-        }, 100, 50, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            LOG.log(Level.SEVERE, "Apply dispatcher error", e);
+        }
     }
 
     /**
-     * Leader: advance commitIndex if majority of peers have replicated up to N.
+     * Parallel apply: advance lastApplied (persisted) over the contiguous prefix of applied entries.
+     */
+    private void entryApplied(int index) {
+        synchronized (applyLock) {
+            appliedAhead.add(index);
+            int before = lastApplied;
+            while (appliedAhead.remove(lastApplied + 1)) {
+                lastApplied++;
+            }
+            appliedAheadCount = appliedAhead.size();
+            if (lastApplied != before) {
+                persistence.saveLastApplied(lastApplied);
+                LOG.fine(() -> "Applied entries up to " + lastApplied);
+            }
+        }
+    }
+
+    /**
+     * Leader: advance commitIndex to the highest index replicated on a majority of voters.
+     * That index is the quorum-th largest matchIndex (self counts with its lastIndex), so
+     * the cost is O(voters log voters) per response regardless of the uncommitted backlog.
+     * Only entries of the current term are committed by counting replicas (Raft §5.4.2);
+     * log terms are non-decreasing, so checking the candidate index alone is enough.
      * Called after updating matchIndex.
      */
     private void advanceCommitIndex() {
@@ -462,26 +1233,41 @@ public class RaftNode {
             return;
         }
 
-        int lastIdx = log.lastIndex();
-        for (int n = commitIndex + 1; n <= lastIdx; n++) {
-            final int idx = n;
-            var entry = log.get(idx);
-            if (entry.isEmpty() || entry.get().getTerm() != currentTerm.get()) {
-                continue;
-            }
+        // Voting replicas: self if still a member + voting peers; learners never count
+        List<String> voters = peers;
+        int[] matched = new int[voters.size() + 1];
+        int count = 0;
+        if (clusterConfig.contains(selfAddress)) {
+            matched[count++] = log.lastIndex();
+        }
+        for (String peer : voters) {
+            matched[count++] = matchIndex.getOrDefault(peer, 0);
+        }
 
-            // Count replicas (self + peers that have matchIndex >= n)
-            int count = 1; // self
-            for (String peer : config.getPeers()) {
-                if (matchIndex.getOrDefault(peer, 0) >= idx) {
-                    count++;
+        int majority = clusterConfig.quorum();
+        if (count >= majority) {
+            Arrays.sort(matched, 0, count);
+            int candidate = matched[count - majority];
+            if (candidate > commitIndex && log.termAt(candidate) == currentTerm.get()) {
+                synchronized (stateLock) {
+                    // Responses arrive concurrently: never move commitIndex backwards
+                    if (candidate > commitIndex) {
+                        uncommittedBytes = Math.max(0, uncommittedBytes - log.payloadBytes(commitIndex + 1, candidate));
+                        commitIndex = candidate;
+                        LOG.fine(() -> "Advanced commitIndex to " + candidate);
+                    }
                 }
             }
+        }
 
-            int majority = (config.getPeers().size() + 1) / 2 + 1;
-            if (count >= majority) {
-                commitIndex = idx;
-                LOG.fine(() -> "Advanced commitIndex to " + idx);
+        // A leader removed from the cluster steps down once that config is committed
+        if (!clusterConfig.contains(selfAddress) && commitIndex >= configIndex) {
+            synchronized (stateLock) {
+                if (state == RaftState.LEADER) {
+                    state = RaftState.FOLLOWER;
+                    LOG.info(() -> "Node " + name + " removed from cluster, stepping down");
+                    failLocalPending();
+                }
             }
         }
     }
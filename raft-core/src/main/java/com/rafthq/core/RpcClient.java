@@ -14,6 +14,20 @@ public class RpcClient {
     // Maximum message size: 50MB (must match server)
     private static final int MAX_MESSAGE_SIZE = 50 * 1024 * 1024;
 
+    // Prepended to every request so a shared server can route it to the right Raft group
+    private final String groupTag;
+
+    public RpcClient() {
+        this(0);
+    }
+
+    /**
+     * Client for a Raft group; group 0 sends untagged messages (compatible with single-group peers).
+     */
+    public RpcClient(int groupId) {
+        this.groupTag = RaftGroupHost.groupTag(groupId);
+    }
+
     public RequestVoteResponse requestVote(String peer, RequestVoteRequest request) {
         String payload = MessageCodec.encodeRequestVote(request);
         String response = send(peer, payload);
@@ -28,7 +42,15 @@ public class RpcClient {
         return MessageCodec.decodeAppendEntriesResponse(response);
     }
 
+    public ForwardCommandResponse forwardCommand(String peer, byte[] command) {
+        String payload = MessageCodec.encodeForwardCommand(command);
+        String response = send(peer, payload);
+        if (response == null || !response.startsWith("FORWARD_RESPONSE")) return null;
+        return MessageCodec.decodeForwardCommandResponse(response);
+    }
+
     private String send(String peer, String payload) {
+        payload = groupTag + payload;
         String[] parts = peer.split(":");
         if (parts.length != 2) {
             LOG.warning("Invalid peer format: " + peer);
@@ -1,5 +1,34 @@
 package com.rafthq.core;
 
+import java.util.Set;
+
 public interface StateMachine {
     void onCommit(byte[] command);
+
+    /**
+     * Apply a committed command and return its result for {@link RaftNode#submitCommand}
+     * (null if the command produces none). The default keeps onCommit-only machines working.
+     */
+    default byte[] applyCommand(byte[] command) {
+        onCommit(command);
+        return null;
+    }
+
+    /**
+     * Called exactly once per committed command, in log order, before the command is handed
+     * to applyCommand (with parallel apply, on the dispatching thread). Order-sensitive
+     * bookkeeping, such as deciding whether a retried command is a duplicate, goes here.
+     */
+    default void beforeApply(byte[] command) {
+    }
+
+    /**
+     * Keys the command reads or writes, for parallel apply (apply.threads &gt; 1): commands
+     * sharing a key are applied in log order, commands on disjoint keys may run concurrently
+     * and must commute. null (the default) means the command conflicts with everything.
+     * A pure query: it must not change state, and may be called any number of times.
+     */
+    default Set<String> keysOf(byte[] command) {
+        return null;
+    }
 }
@@ -26,6 +26,16 @@ func Apply(payload []byte) {
 		return
 	}
 
+	// SESSION|clientId|seq|timestampMs|comando: la deduplicación la hace el main-worker;
+	// aquí basta con aplicar el comando interno (STORE_FILE es idempotente)
+	if parts[0] == "SESSION" {
+		if len(parts) < 6 {
+			fmt.Println("[APP] Error: SESSION con argumentos insuficientes")
+			return
+		}
+		parts = parts[4:]
+	}
+
 	cmd := parts[0]
 	fmt.Printf("[APP] Ejecutando comando real: %s\n", cmd)
 
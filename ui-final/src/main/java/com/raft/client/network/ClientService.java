@@ -14,6 +14,7 @@ import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.raft.client.protocol.CommandCodec;
 import com.raft.client.protocol.ModelInfo;
 import com.raft.client.protocol.Response;
 
@@ -36,26 +37,18 @@ public class ClientService {
 
         byte[] fileData = Files.readAllBytes(trainingFile.toPath());
         String md5 = computeMD5Hex(fileData);
-        String b64 = Base64.getEncoder().encodeToString(fileData);
         long size = fileData.length;
 
         logger.info("STORE_FILE -> name={}, sizeBytes={}, md5={}", trainingFile.getName(), size, md5);
 
-        // 1) STORE_FILE|fileName|checksumMD5|sizeBytes|chunkBase64
-        String storeCmd = String.join("|",
-                "STORE_FILE",
-                trainingFile.getName(),
-                md5,
-                String.valueOf(size),
-                b64
-        );
-        Response storeResp = networkClient.sendCommandText(storeCmd);
+        // 1) STORE_FILE (binario; en texto STORE_FILE|fileName|checksumMD5|sizeBytes|chunkBase64)
+        Response storeResp = storeFile(trainingFile.getName(), md5, fileData);
         if (!storeResp.isSuccess()) {
             logger.warn("STORE_FILE falló: {}", storeResp.getMessage());
             return storeResp;
         }
 
-        // 2) TRAIN_MODEL|modelId|inputType|datasetPath|hyperparamsBase64
+        // 2) TRAIN_MODEL (binario, hiperparámetros en CSV; en texto van en base64)
         String hyperparams = buildDefaultTabularHyperparams(trainingFile);
         String[] hpArr = hyperparams.split(",", -1);
         if (hpArr.length != 10) {
@@ -63,16 +56,8 @@ public class ClientService {
         } else {
             logger.info("Hyperparams TABULAR (10 ok): {}", hyperparams);
         }
-        String hpB64 = Base64.getEncoder().encodeToString(hyperparams.getBytes(StandardCharsets.UTF_8));
-        String trainCmd = String.join("|",
-                "TRAIN_MODEL",
-                modelName,
-                "TABULAR",
-                trainingFile.getName(),
-                hpB64
-        );
-        logger.info("TRAIN_MODEL TABULAR -> modelId={}, dataset={}, hpB64Len={}", modelName, trainingFile.getName(), hpB64.length());
-        return networkClient.sendCommandText(trainCmd);
+        logger.info("TRAIN_MODEL TABULAR -> modelId={}, dataset={}", modelName, trainingFile.getName());
+        return trainModel(modelName, "TABULAR", trainingFile.getName(), hyperparams);
     }
 
     /**
@@ -93,18 +78,10 @@ public class ClientService {
         byte[] zipBytes = ZipUtils.zipDirectoryToBytes(imageFolder);
         String zipName = imageFolder.getName() + ".zip";
         String md5 = computeMD5Hex(zipBytes);
-        String b64 = Base64.getEncoder().encodeToString(zipBytes);
         logger.info("STORE_FILE (ZIP) -> name={}, sizeBytes={}, md5={}", zipName, zipBytes.length, md5);
 
         // 1) STORE_FILE del ZIP
-        String storeCmd = String.join("|",
-                "STORE_FILE",
-                zipName,
-                md5,
-                String.valueOf(zipBytes.length),
-                b64
-        );
-        Response storeResp = networkClient.sendCommandText(storeCmd);
+        Response storeResp = storeFile(zipName, md5, zipBytes);
         if (!storeResp.isSuccess()) {
             logger.warn("STORE_FILE ZIP falló: {}", storeResp.getMessage());
             return storeResp;
@@ -118,20 +95,12 @@ public class ClientService {
         } else {
             logger.info("Hyperparams IMAGE (10 ok): {}", hyperparams);
         }
-        String hpB64 = Base64.getEncoder().encodeToString(hyperparams.getBytes(StandardCharsets.UTF_8));
-        String trainCmd = String.join("|",
-                "TRAIN_MODEL",
-                modelName,
-                "IMAGE",
-                zipName,
-                hpB64
-        );
-        logger.info("TRAIN_MODEL IMAGE -> modelId={}, datasetZip={}, hpB64Len={}", modelName, zipName, hpB64.length());
-        return networkClient.sendCommandText(trainCmd);
+        logger.info("TRAIN_MODEL IMAGE -> modelId={}, datasetZip={}", modelName, zipName);
+        return trainModel(modelName, "IMAGE", zipName, hyperparams);
     }
 
     /**
-     * Realiza una predicción TABULAR -> PREDICT|requestId|modelId|TABULAR|base64(inputsCSV)
+     * Realiza una predicción TABULAR -> PREDICT requestId, modelId, TABULAR, inputsCSV (binario, /predict)
      */
     public Response predict(String modelId, double[] inputs) throws IOException {
         logger.info("Predicción con modelo: {}", modelId);
@@ -142,34 +111,17 @@ public class ClientService {
             inputStr.append(inputs[i]);
         }
         String requestId = UUID.randomUUID().toString();
-        String b64 = Base64.getEncoder().encodeToString(inputStr.toString().getBytes(StandardCharsets.UTF_8));
-
-        String predictCmd = String.join("|",
-                "PREDICT",
-                requestId,
-                modelId,
-                "TABULAR",
-                b64
-        );
-        return networkClient.sendCommandText(predictCmd);
+        return predict(requestId, modelId, "TABULAR", inputStr.toString().getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * Predicción de imagen -> PREDICT|requestId|modelId|IMAGE|base64(imageBytes)
+     * Predicción de imagen -> PREDICT requestId, modelId, IMAGE, imageBytes (binario sin base64, /predict)
      */
     public Response predictImage(String modelId, File imageFile) throws IOException {
         logger.info("Predicción de imagen con modelo: {}", modelId);
         byte[] imageData = Files.readAllBytes(imageFile.toPath());
         String requestId = UUID.randomUUID().toString();
-        String b64 = Base64.getEncoder().encodeToString(imageData);
-        String predictCmd = String.join("|",
-                "PREDICT",
-                requestId,
-                modelId,
-                "IMAGE",
-                b64
-        );
-        return networkClient.sendCommandText(predictCmd);
+        return predict(requestId, modelId, "IMAGE", imageData);
     }
 
     /**
@@ -240,16 +192,7 @@ public class ClientService {
         logger.info("Subiendo archivo: {}", file.getName());
         byte[] fileData = Files.readAllBytes(file.toPath());
         String md5 = computeMD5Hex(fileData);
-        String b64 = Base64.getEncoder().encodeToString(fileData);
-        long size = fileData.length;
-        String storeCmd = String.join("|",
-                "STORE_FILE",
-                file.getName(),
-                md5,
-                String.valueOf(size),
-                b64
-        );
-        return networkClient.sendCommandText(storeCmd);
+        return storeFile(file.getName(), md5, fileData);
     }
 
     /**
@@ -311,8 +254,8 @@ public class ClientService {
     public Response deleteFile(String fileName) throws IOException {
         logger.info("Eliminando archivo: {} (no estándar)", fileName);
         // No hay comando DELETE_FILE expuesto por monitor HTTP en docs; usar POST /command si existe:
-        String cmd = String.join("|", "DELETE_FILE", fileName);
-        return networkClient.sendCommandText(cmd);
+        return networkClient.sendCommand(CommandCodec.deleteFile(fileName),
+                () -> String.join("|", "DELETE_FILE", fileName));
     }
 
     /**
@@ -359,6 +302,32 @@ public class ClientService {
 
     // ===== Helpers =====
 
+    // ===== Comandos: binario (CommandCodec) con el texto equivalente si el nodo no lo acepta =====
+
+    private Response storeFile(String fileName, String md5, byte[] data) throws IOException {
+        return networkClient.sendCommand(CommandCodec.storeFile(fileName, md5, data),
+                () -> String.join("|", "STORE_FILE", fileName, md5, String.valueOf(data.length),
+                        Base64.getEncoder().encodeToString(data)));
+    }
+
+    private Response trainModel(String modelId, String inputType, String dataset, String hyperparamsCsv)
+            throws IOException {
+        return networkClient.sendCommand(CommandCodec.trainModel(modelId, inputType, dataset, hyperparamsCsv),
+                () -> String.join("|", "TRAIN_MODEL", modelId, inputType, dataset,
+                        Base64.getEncoder().encodeToString(hyperparamsCsv.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private Response predict(String requestId, String modelId, String inputType, byte[] input) throws IOException {
+        byte[] command = CommandCodec.predict(requestId, modelId, inputType, input);
+        Response local = networkClient.predictLocal(command);
+        if (local != null) {
+            return local;
+        }
+        return networkClient.sendCommand(command,
+                () -> String.join("|", "PREDICT", requestId, modelId, inputType,
+                        Base64.getEncoder().encodeToString(input)));
+    }
+
     private static String computeMD5Hex(byte[] bytes) throws IOException {
         try {
             MessageDigest md = MessageDigest.getInstance("MD5");
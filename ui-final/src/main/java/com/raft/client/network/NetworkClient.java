@@ -7,30 +7,47 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import com.raft.client.protocol.CommandCodec;
 import com.raft.client.protocol.Response;
 
 /**
  * Cliente HTTP para el monitor del main-worker.
- * Envía comandos como texto (OP|arg1|...) a POST /command y
- * consulta estado/modelos vía GET.
+ * Envía comandos a POST /command en binario (CommandCodec) o como texto (OP|arg1|...),
+ * predicciones a POST /predict y consulta estado/modelos vía GET.
  */
 public class NetworkClient {
     private static final Logger logger = LoggerFactory.getLogger(NetworkClient.class);
     private static final int MAX_REDIRECTS = 5;
     private static final int TIMEOUT_MS = 60000; // 60 segundos para predicciones
+    private static final int MAX_TIMEOUT_RETRIES = 2;
 
     private final Gson gson;
     private String currentHost;
     private int currentPort;
 
+    // Sesión de cliente: el cluster descarta reintentos con el mismo (clientId, seq)
+    private final String clientId = UUID.randomUUID().toString();
+    private final AtomicLong nextSeq = new AtomicLong(1);
+
+    // Comandos binarios hasta que un nodo responda BINARY_COMMANDS_DISABLED
+    private static final String BINARY_DISABLED = "BINARY_COMMANDS_DISABLED";
+    private volatile boolean binaryCommands = true;
+
+    // /predict hasta que un nodo no lo tenga (versión anterior del worker): después, PREDICT por /command
+    private volatile boolean predictEndpoint = true;
+
     public NetworkClient(String initialHost, int initialPort) {
         this.currentHost = initialHost;
         this.currentPort = initialPort;
@@ -43,25 +60,83 @@ public class NetworkClient {
 
     /**
      * Envía un comando de texto al monitor: POST /command
+     * El comando viaja como SESSION|clientId|seq|comando; las redirecciones y los reintentos
+     * por timeout reusan el mismo seq, así el cluster no lo aplica dos veces.
      */
     public Response sendCommandText(String commandLine) throws IOException {
-        return sendCommandTextWithRedirect(commandLine, 0);
+        String sessionCommand = "SESSION|" + clientId + "|" + nextSeq.getAndIncrement() + "|" + commandLine;
+        String description = sessionCommand.length() > 100 ? sessionCommand.substring(0, 100) + "..." : sessionCommand;
+        return sendWithRetries(sessionCommand.getBytes(StandardCharsets.UTF_8), "text/plain; charset=utf-8", description);
+    }
+
+    /**
+     * Envía un comando binario (CommandCodec) dentro de la sesión del cliente. Si el nodo no
+     * acepta binario (415, cluster con el worker en Go) se envía textCommand y el resto de
+     * la sesión sigue en texto.
+     */
+    public Response sendCommand(byte[] binaryCommand, Supplier<String> textCommand) throws IOException {
+        if (binaryCommands) {
+            long seq = nextSeq.getAndIncrement();
+            byte[] sessionCommand = CommandCodec.session(clientId, seq, binaryCommand);
+            Response response = sendWithRetries(sessionCommand, CommandCodec.CONTENT_TYPE,
+                    "binario seq=" + seq + " (" + sessionCommand.length + " bytes)");
+            if (!BINARY_DISABLED.equals(response.getErrorCode())) {
+                return response;
+            }
+            logger.warn("El servidor no acepta comandos binarios, se usa texto");
+            binaryCommands = false;
+        }
+        return sendCommandText(textCommand.get());
+    }
+
+    /**
+     * Predicción local en el nodo actual: POST /predict con el PREDICT binario, sin pasar por
+     * el log RAFT. null si el nodo no tiene el endpoint (el llamador usa /command).
+     */
+    public Response predictLocal(byte[] binaryPredict) throws IOException {
+        if (!predictEndpoint) {
+            return null;
+        }
+        logger.info("POST /predict ({} bytes)", binaryPredict.length);
+        Response response = doPost("/predict", CommandCodec.CONTENT_TYPE, binaryPredict);
+        // /predict siempre responde data o errorCode; sin ninguno es un nodo sin el endpoint
+        // (la página del monitor atiende cualquier ruta que no conoce)
+        if (response.getData() == null && response.getErrorCode() == null) {
+            logger.warn("El servidor no tiene /predict, se usa /command");
+            predictEndpoint = false;
+            return null;
+        }
+        return response;
+    }
+
+    private Response sendWithRetries(byte[] body, String contentType, String description) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return sendWithRedirect(body, contentType, description, 0);
+            } catch (SocketTimeoutException e) {
+                if (attempt >= MAX_TIMEOUT_RETRIES) {
+                    throw e;
+                }
+                logger.warn("Timeout enviando comando, reintentando ({}/{})", attempt + 1, MAX_TIMEOUT_RETRIES);
+            }
+        }
     }
 
-    private Response sendCommandTextWithRedirect(String commandLine, int redirects) throws IOException {
+    private Response sendWithRedirect(byte[] body, String contentType, String description, int redirects)
+            throws IOException {
         if (redirects >= MAX_REDIRECTS) {
             throw new IOException("Demasiadas redirecciones. El cluster puede estar inestable.");
         }
 
-        logger.info("POST /command -> {}", commandLine);
-        Response response = doPost("/command", "text/plain; charset=utf-8", commandLine.getBytes(StandardCharsets.UTF_8));
+        logger.info("POST /command -> {}", description);
+        Response response = doPost("/command", contentType, body);
 
         // Manejo de redirección si el monitor retorna líder
         if (response.isRedirect() && response.getLeaderHost() != null && response.getLeaderPort() > 0) {
             logger.info("Redirigiendo al líder {}:{}", response.getLeaderHost(), response.getLeaderPort());
             this.currentHost = response.getLeaderHost();
             this.currentPort = response.getLeaderPort();
-            return sendCommandTextWithRedirect(commandLine, redirects + 1);
+            return sendWithRedirect(body, contentType, description, redirects + 1);
         }
 
         return response;
@@ -111,6 +186,7 @@ public class NetworkClient {
     public String getCurrentHost() { return currentHost; }
     public int getCurrentPort() { return currentPort; }
     public String getCurrentServer() { return currentHost + ":" + currentPort; }
+    public String getClientId() { return clientId; }
 
     // ===== Internos HTTP =====
 
@@ -0,0 +1,116 @@
+package com.raft.client.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoder de comandos binarios v1 del main-worker (copia de com.mainworker.core.CommandCodec:
+ * cambiar ambos juntos).
+ *
+ * Formato big-endian: [0x00]['W'][versión][opcode] y los campos del opcode;
+ * texto = [u16 longitud][UTF-8], bytes = [int longitud][bytes crudos, sin base64].
+ * La sesión (SESSION) envuelve al comando: seq, timestamp (0, lo sella el nodo) y clientId.
+ */
+public final class CommandCodec {
+
+    public static final byte VERSION = 1;
+    public static final String CONTENT_TYPE = "application/x-worker-command";
+
+    private static final byte OP_STORE_FILE = 1;
+    private static final byte OP_TRAIN_MODEL = 3;
+    private static final byte OP_PREDICT = 5;
+    private static final byte OP_DELETE_FILE = 6;
+    private static final byte OP_SESSION = 32;
+
+    private CommandCodec() {
+    }
+
+    /**
+     * STORE_FILE: nombre, MD5 y contenido del archivo.
+     */
+    public static byte[] storeFile(String fileName, String checksumMD5, byte[] data) {
+        byte[] name = utf8(fileName);
+        byte[] md5 = utf8(checksumMD5);
+        ByteBuffer buf = start(OP_STORE_FILE, 2 + name.length + 2 + md5.length + 4 + data.length);
+        putString(buf, name);
+        putString(buf, md5);
+        putBytes(buf, data);
+        return buf.array();
+    }
+
+    /**
+     * TRAIN_MODEL: hiperparámetros en CSV (sin base64); el nodo que lo recibe se asigna
+     * como entrenador si corresponde.
+     */
+    public static byte[] trainModel(String modelId, String inputType, String dataset, String hyperparamsCsv) {
+        byte[][] fields = {utf8(modelId), utf8(inputType), utf8(dataset), utf8(hyperparamsCsv), utf8("")};
+        int size = 0;
+        for (byte[] f : fields) {
+            size += 2 + f.length;
+        }
+        ByteBuffer buf = start(OP_TRAIN_MODEL, size);
+        for (byte[] f : fields) {
+            putString(buf, f);
+        }
+        return buf.array();
+    }
+
+    /**
+     * PREDICT: entrada cruda (CSV para TABULAR, bytes de la imagen para IMAGE).
+     */
+    public static byte[] predict(String requestId, String modelId, String inputType, byte[] input) {
+        byte[] req = utf8(requestId);
+        byte[] model = utf8(modelId);
+        byte[] type = utf8(inputType);
+        ByteBuffer buf = start(OP_PREDICT, 2 + req.length + 2 + model.length + 2 + type.length + 4 + input.length);
+        putString(buf, req);
+        putString(buf, model);
+        putString(buf, type);
+        putBytes(buf, input);
+        return buf.array();
+    }
+
+    public static byte[] deleteFile(String fileName) {
+        byte[] name = utf8(fileName);
+        ByteBuffer buf = start(OP_DELETE_FILE, 2 + name.length);
+        putString(buf, name);
+        return buf.array();
+    }
+
+    /**
+     * Envuelve un comando en la sesión del cliente (los reintentos reusan el mismo seq).
+     */
+    public static byte[] session(String clientId, long seq, byte[] command) {
+        byte[] id = utf8(clientId);
+        ByteBuffer buf = start(OP_SESSION, 16 + 2 + id.length + command.length);
+        buf.putLong(seq);
+        buf.putLong(0L);
+        putString(buf, id);
+        buf.put(command);
+        return buf.array();
+    }
+
+    private static ByteBuffer start(byte op, int bodySize) {
+        ByteBuffer buf = ByteBuffer.allocate(4 + bodySize);
+        buf.put((byte) 0x00).put((byte) 'W').put(VERSION).put(op);
+        return buf;
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        if (b.length > 0xFFFF) {
+            throw new IllegalArgumentException("Campo demasiado largo: " + b.length + " bytes");
+        }
+        return b;
+    }
+
+    private static void putString(ByteBuffer buf, byte[] s) {
+        buf.putShort((short) s.length);
+        buf.put(s);
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] b) {
+        buf.putInt(b.length);
+        buf.put(b);
+    }
+}